@@ -0,0 +1,99 @@
+package org.jusoft.aws.sqs;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toCollection;
+
+/**
+ * Outcome of processing a batch of messages, returned by consumer methods receiving a {@link java.util.List} of bodies
+ * or a {@link com.amazonaws.services.sqs.model.ReceiveMessageResult}. Failed messages are identified by their index in
+ * the list received by the consumer. Only the messages not reported as failed are deleted from the queue, while the
+ * failed ones are released so they can be consumed again after
+ * {@link org.jusoft.aws.sqs.annotation.SqsConsumer#failureVisibilityTimeout()} seconds.
+ * <p>
+ * Consumer methods not returning a {@link BatchResult} keep the all-or-nothing behaviour: all the messages are deleted
+ * when the method returns and none of them when it throws an exception.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public final class BatchResult {
+
+  private static final BatchResult SUCCESS = new BatchResult(Collections.emptySet());
+
+  private final Set<Integer> failedIndexes;
+
+  private BatchResult(Set<Integer> failedIndexes) {
+    this.failedIndexes = Collections.unmodifiableSet(failedIndexes);
+  }
+
+  /**
+   * All the messages in the batch were processed successfully.
+   */
+  public static BatchResult success() {
+    return SUCCESS;
+  }
+
+  /**
+   * The messages at the given indexes of the batch failed to be processed. The rest were processed successfully.
+   */
+  public static BatchResult failed(int... failedIndexes) {
+    return new BatchResult(IntStream.of(failedIndexes).boxed().collect(toCollection(TreeSet::new)));
+  }
+
+  /**
+   * The messages at the given indexes of the batch failed to be processed. The rest were processed successfully.
+   */
+  public static BatchResult failed(Collection<Integer> failedIndexes) {
+    return new BatchResult(new TreeSet<>(failedIndexes));
+  }
+
+  public Set<Integer> getFailedIndexes() {
+    return failedIndexes;
+  }
+
+  public boolean isFailed(int index) {
+    return failedIndexes.contains(index);
+  }
+
+  public boolean isAllSucceeded() {
+    return failedIndexes.isEmpty();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    BatchResult that = (BatchResult) o;
+
+    return new EqualsBuilder()
+      .append(failedIndexes, that.failedIndexes)
+      .isEquals();
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashCodeBuilder(17, 37)
+      .append(failedIndexes)
+      .toHashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "BatchResult{" +
+      "failedIndexes=" + failedIndexes +
+      '}';
+  }
+}
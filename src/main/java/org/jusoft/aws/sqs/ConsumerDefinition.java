@@ -0,0 +1,242 @@
+package org.jusoft.aws.sqs;
+
+import org.jusoft.aws.sqs.annotation.DeletePolicy;
+import org.jusoft.aws.sqs.annotation.FanOut;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+
+import java.lang.annotation.Annotation;
+import java.util.Objects;
+
+/**
+ * Immutable configuration of a consumer, resolved once from its @{@link SqsConsumer} annotation and the
+ * {@link ConsumerOverrides} when the consumer is subscribed, so the consumer loops read plain fields instead of the
+ * annotation.
+ * <p>
+ * The definition implements {@link SqsConsumer}, so it can be used wherever the annotation is expected, and it follows
+ * the {@link Annotation} contract for {@link #equals(Object)} and {@link #hashCode()}, so a definition without
+ * overrides is equal to the annotation it was resolved from.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public final class ConsumerDefinition implements SqsConsumer {
+
+  private final String value;
+  private final int longPolling;
+  private final int maxMessagesPerPoll;
+  private final int concurrentConsumers;
+  private final int workers;
+  private final int bufferCapacity;
+  private final int bufferMaxMessages;
+  private final long bufferMaxBytes;
+  private final int bufferMaxAge;
+  private final DeletePolicy deletePolicy;
+  private final int failureVisibilityTimeout;
+  private final FanOut fanOut;
+  private final int fanOutParallelism;
+  private final double maxMessagesPerSecond;
+
+  private ConsumerDefinition(SqsConsumer sqsConsumer, int longPolling, int maxMessagesPerPoll,
+                             int concurrentConsumers, DeletePolicy deletePolicy, int failureVisibilityTimeout) {
+    this.value = sqsConsumer.value();
+    this.longPolling = longPolling;
+    this.maxMessagesPerPoll = maxMessagesPerPoll;
+    this.concurrentConsumers = concurrentConsumers;
+    this.workers = sqsConsumer.workers();
+    this.bufferCapacity = sqsConsumer.bufferCapacity();
+    this.bufferMaxMessages = sqsConsumer.bufferMaxMessages();
+    this.bufferMaxBytes = sqsConsumer.bufferMaxBytes();
+    this.bufferMaxAge = sqsConsumer.bufferMaxAge();
+    this.deletePolicy = deletePolicy;
+    this.failureVisibilityTimeout = failureVisibilityTimeout;
+    this.fanOut = sqsConsumer.fanOut();
+    this.fanOutParallelism = sqsConsumer.fanOutParallelism();
+    this.maxMessagesPerSecond = sqsConsumer.maxMessagesPerSecond();
+  }
+
+  /**
+   * Creates the definition declared by the annotation, reading all its values once.
+   */
+  public static ConsumerDefinition of(SqsConsumer sqsConsumer) {
+    return new ConsumerDefinition(sqsConsumer, sqsConsumer.longPolling(), sqsConsumer.maxMessagesPerPoll(),
+      sqsConsumer.concurrentConsumers(), sqsConsumer.deletePolicy(), sqsConsumer.failureVisibilityTimeout());
+  }
+
+  public ConsumerDefinition withLongPolling(int longPolling) {
+    return new ConsumerDefinition(this, longPolling, maxMessagesPerPoll, concurrentConsumers, deletePolicy,
+      failureVisibilityTimeout);
+  }
+
+  public ConsumerDefinition withMaxMessagesPerPoll(int maxMessagesPerPoll) {
+    return new ConsumerDefinition(this, longPolling, maxMessagesPerPoll, concurrentConsumers, deletePolicy,
+      failureVisibilityTimeout);
+  }
+
+  public ConsumerDefinition withConcurrentConsumers(int concurrentConsumers) {
+    return new ConsumerDefinition(this, longPolling, maxMessagesPerPoll, concurrentConsumers, deletePolicy,
+      failureVisibilityTimeout);
+  }
+
+  public ConsumerDefinition withDeletePolicy(DeletePolicy deletePolicy) {
+    return new ConsumerDefinition(this, longPolling, maxMessagesPerPoll, concurrentConsumers, deletePolicy,
+      failureVisibilityTimeout);
+  }
+
+  public ConsumerDefinition withFailureVisibilityTimeout(int failureVisibilityTimeout) {
+    return new ConsumerDefinition(this, longPolling, maxMessagesPerPoll, concurrentConsumers, deletePolicy,
+      failureVisibilityTimeout);
+  }
+
+  /**
+   * Returns the name of the queue consumed.
+   */
+  @Override
+  public String value() {
+    return value;
+  }
+
+  @Override
+  public int longPolling() {
+    return longPolling;
+  }
+
+  @Override
+  public int maxMessagesPerPoll() {
+    return maxMessagesPerPoll;
+  }
+
+  @Override
+  public int concurrentConsumers() {
+    return concurrentConsumers;
+  }
+
+  @Override
+  public int workers() {
+    return workers;
+  }
+
+  @Override
+  public int bufferCapacity() {
+    return bufferCapacity;
+  }
+
+  @Override
+  public int bufferMaxMessages() {
+    return bufferMaxMessages;
+  }
+
+  @Override
+  public long bufferMaxBytes() {
+    return bufferMaxBytes;
+  }
+
+  @Override
+  public int bufferMaxAge() {
+    return bufferMaxAge;
+  }
+
+  @Override
+  public DeletePolicy deletePolicy() {
+    return deletePolicy;
+  }
+
+  @Override
+  public int failureVisibilityTimeout() {
+    return failureVisibilityTimeout;
+  }
+
+  @Override
+  public FanOut fanOut() {
+    return fanOut;
+  }
+
+  @Override
+  public int fanOutParallelism() {
+    return fanOutParallelism;
+  }
+
+  @Override
+  public double maxMessagesPerSecond() {
+    return maxMessagesPerSecond;
+  }
+
+  @Override
+  public Class<? extends Annotation> annotationType() {
+    return SqsConsumer.class;
+  }
+
+  /**
+   * Equal to any {@link SqsConsumer}, either a definition or an annotation, with the same values.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof SqsConsumer)) {
+      return false;
+    }
+
+    SqsConsumer that = (SqsConsumer) o;
+
+    return Objects.equals(value, that.value())
+      && longPolling == that.longPolling()
+      && maxMessagesPerPoll == that.maxMessagesPerPoll()
+      && concurrentConsumers == that.concurrentConsumers()
+      && workers == that.workers()
+      && bufferCapacity == that.bufferCapacity()
+      && bufferMaxMessages == that.bufferMaxMessages()
+      && bufferMaxBytes == that.bufferMaxBytes()
+      && bufferMaxAge == that.bufferMaxAge()
+      && deletePolicy == that.deletePolicy()
+      && failureVisibilityTimeout == that.failureVisibilityTimeout()
+      && fanOut == that.fanOut()
+      && fanOutParallelism == that.fanOutParallelism()
+      && Double.compare(maxMessagesPerSecond, that.maxMessagesPerSecond()) == 0;
+  }
+
+  /**
+   * Computed as specified by {@link Annotation#hashCode()}, so it is consistent with the annotation.
+   */
+  @Override
+  public int hashCode() {
+    return memberHashCode("value", value)
+      + memberHashCode("longPolling", longPolling)
+      + memberHashCode("maxMessagesPerPoll", maxMessagesPerPoll)
+      + memberHashCode("concurrentConsumers", concurrentConsumers)
+      + memberHashCode("workers", workers)
+      + memberHashCode("bufferCapacity", bufferCapacity)
+      + memberHashCode("bufferMaxMessages", bufferMaxMessages)
+      + memberHashCode("bufferMaxBytes", bufferMaxBytes)
+      + memberHashCode("bufferMaxAge", bufferMaxAge)
+      + memberHashCode("deletePolicy", deletePolicy)
+      + memberHashCode("failureVisibilityTimeout", failureVisibilityTimeout)
+      + memberHashCode("fanOut", fanOut)
+      + memberHashCode("fanOutParallelism", fanOutParallelism)
+      + memberHashCode("maxMessagesPerSecond", maxMessagesPerSecond);
+  }
+
+  private static int memberHashCode(String memberName, Object memberValue) {
+    return (127 * memberName.hashCode()) ^ Objects.hashCode(memberValue);
+  }
+
+  @Override
+  public String toString() {
+    return "ConsumerDefinition{" +
+      "value='" + value + '\'' +
+      ", longPolling=" + longPolling +
+      ", maxMessagesPerPoll=" + maxMessagesPerPoll +
+      ", concurrentConsumers=" + concurrentConsumers +
+      ", workers=" + workers +
+      ", bufferCapacity=" + bufferCapacity +
+      ", bufferMaxMessages=" + bufferMaxMessages +
+      ", bufferMaxBytes=" + bufferMaxBytes +
+      ", bufferMaxAge=" + bufferMaxAge +
+      ", deletePolicy=" + deletePolicy +
+      ", failureVisibilityTimeout=" + failureVisibilityTimeout +
+      ", fanOut=" + fanOut +
+      ", fanOutParallelism=" + fanOutParallelism +
+      ", maxMessagesPerSecond=" + maxMessagesPerSecond +
+      '}';
+  }
+}
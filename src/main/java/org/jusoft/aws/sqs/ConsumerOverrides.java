@@ -0,0 +1,147 @@
+package org.jusoft.aws.sqs;
+
+import org.jusoft.aws.sqs.annotation.DeletePolicy;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Overrides the values of the @{@link SqsConsumer} annotations from external configuration, by queue name, so the
+ * throughput of the consumers can be tuned per environment without rebuilding. The values that can be overridden are:
+ * <li>
+ * <ul>{@value #LONG_POLLING}: {@link SqsConsumer#longPolling()}</ul>
+ * <ul>{@value #MAX_MESSAGES_PER_POLL}: {@link SqsConsumer#maxMessagesPerPoll()}</ul>
+ * <ul>{@value #CONCURRENT_CONSUMERS}: {@link SqsConsumer#concurrentConsumers()}</ul>
+ * <ul>{@value #DELETE_POLICY}: {@link SqsConsumer#deletePolicy()}</ul>
+ * <ul>{@value #FAILURE_VISIBILITY_TIMEOUT}: {@link SqsConsumer#failureVisibilityTimeout()}</ul>
+ * </li>
+ * Properties are named {@code sqs.consumer.<queue name>.<value>}, e.g. {@code sqs.consumer.orders.maxMessagesPerPoll},
+ * and environment variables {@code SQS_CONSUMER_<QUEUE_NAME>_<VALUE>}, with the queue name and the value in upper
+ * case and any character other than letters and digits replaced by underscores, e.g.
+ * {@code SQS_CONSUMER_ORDERS_MAX_MESSAGES_PER_POLL}. Overridden values are validated as the ones of the annotation.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public final class ConsumerOverrides {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerOverrides.class);
+
+  public static final String LONG_POLLING = "longPolling";
+  public static final String MAX_MESSAGES_PER_POLL = "maxMessagesPerPoll";
+  public static final String CONCURRENT_CONSUMERS = "concurrentConsumers";
+  public static final String DELETE_POLICY = "deletePolicy";
+  public static final String FAILURE_VISIBILITY_TIMEOUT = "failureVisibilityTimeout";
+
+  static final String PROPERTY_PREFIX = "sqs.consumer.";
+  static final String ENVIRONMENT_PREFIX = "SQS_CONSUMER_";
+
+  private static final ConsumerOverrides NONE = new ConsumerOverrides((queueName, valueName) -> null);
+
+  /**
+   * Finds the overridden value by queue name and value name, or null when it is not overridden.
+   */
+  private final BiFunction<String, String, String> overriddenValues;
+
+  private ConsumerOverrides(BiFunction<String, String, String> overriddenValues) {
+    this.overriddenValues = overriddenValues;
+  }
+
+  /**
+   * Overrides nothing, so the values of the annotations are used.
+   */
+  public static ConsumerOverrides none() {
+    return NONE;
+  }
+
+  public static ConsumerOverrides fromProperties(Properties properties) {
+    notNull(properties);
+    return new ConsumerOverrides((queueName, valueName) ->
+      properties.getProperty(PROPERTY_PREFIX + queueName + "." + valueName));
+  }
+
+  /**
+   * Uses the environment variables of the process.
+   */
+  public static ConsumerOverrides fromEnvironment() {
+    return fromEnvironment(System.getenv());
+  }
+
+  public static ConsumerOverrides fromEnvironment(Map<String, String> environment) {
+    notNull(environment);
+    return new ConsumerOverrides((queueName, valueName) ->
+      environment.get(ENVIRONMENT_PREFIX + toEnvironmentName(queueName) + "_" + toEnvironmentName(valueName)));
+  }
+
+  private static String toEnvironmentName(String name) {
+    return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2")
+      .replaceAll("[^A-Za-z0-9]", "_")
+      .toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Returns overrides taking the values from the overrides passed first, and from these ones when not found there.
+   * E.g. {@code fromProperties(properties).overriddenBy(fromEnvironment())} lets the environment override properties.
+   */
+  public ConsumerOverrides overriddenBy(ConsumerOverrides overrides) {
+    notNull(overrides);
+    return new ConsumerOverrides((queueName, valueName) -> {
+      String overriddenValue = overrides.overriddenValues.apply(queueName, valueName);
+      return overriddenValue != null ? overriddenValue : overriddenValues.apply(queueName, valueName);
+    });
+  }
+
+  /**
+   * Applies the overridden values of the queue of the definition.
+   *
+   * @throws IllegalArgumentException when an overridden value cannot be parsed into the type of the value.
+   */
+  public ConsumerDefinition applyTo(ConsumerDefinition definition) {
+    ConsumerDefinition result = definition;
+    Integer longPolling = find(definition, LONG_POLLING, Integer::valueOf);
+    if (longPolling != null) {
+      result = result.withLongPolling(longPolling);
+    }
+    Integer maxMessagesPerPoll = find(definition, MAX_MESSAGES_PER_POLL, Integer::valueOf);
+    if (maxMessagesPerPoll != null) {
+      result = result.withMaxMessagesPerPoll(maxMessagesPerPoll);
+    }
+    Integer concurrentConsumers = find(definition, CONCURRENT_CONSUMERS, Integer::valueOf);
+    if (concurrentConsumers != null) {
+      result = result.withConcurrentConsumers(concurrentConsumers);
+    }
+    DeletePolicy deletePolicy = find(definition, DELETE_POLICY,
+      value -> DeletePolicy.valueOf(value.toUpperCase(Locale.ROOT)));
+    if (deletePolicy != null) {
+      result = result.withDeletePolicy(deletePolicy);
+    }
+    Integer failureVisibilityTimeout = find(definition, FAILURE_VISIBILITY_TIMEOUT, Integer::valueOf);
+    if (failureVisibilityTimeout != null) {
+      result = result.withFailureVisibilityTimeout(failureVisibilityTimeout);
+    }
+    return result;
+  }
+
+  private <T> T find(ConsumerDefinition definition, String valueName, Function<String, T> parser) {
+    String overriddenValue = overriddenValues.apply(definition.value(), valueName);
+    if (overriddenValue == null) {
+      return null;
+    }
+    try {
+      T parsedValue = parser.apply(overriddenValue.trim());
+      LOGGER.info("Consumer value overridden: queue={}, value={}, overriddenValue={}", definition.value(), valueName,
+        parsedValue);
+      return parsedValue;
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Invalid consumer override: queue=%s, value=%s, override=%s",
+        definition.value(), valueName, overriddenValue), e);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package org.jusoft.aws.sqs;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+/**
+ * Outcome of draining the consumers when the {@link SqsDispatcher} is closed:
+ * <li>
+ * <ul>Completed messages were being processed when the drain started and finished successfully before its timeout</ul>
+ * <ul>Failed messages were being processed when the drain started and their consumer failed before its timeout, so
+ * they were not deleted</ul>
+ * <ul>Released messages were received but not processed, so their visibility timeout was set to 0 to make them
+ * available to other consumers straight away</ul>
+ * <ul>Abandoned messages were still being processed when the timeout elapsed. They will be available again once their
+ * visibility timeout expires unless their processing finishes and deletes them</ul>
+ * </li>
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public final class DrainReport {
+
+  private final long completed;
+  private final long failed;
+  private final long released;
+  private final long abandoned;
+
+  private DrainReport(long completed, long failed, long released, long abandoned) {
+    this.completed = completed;
+    this.failed = failed;
+    this.released = released;
+    this.abandoned = abandoned;
+  }
+
+  public static DrainReport of(long completed, long failed, long released, long abandoned) {
+    return new DrainReport(completed, failed, released, abandoned);
+  }
+
+  public long getCompleted() {
+    return completed;
+  }
+
+  public long getFailed() {
+    return failed;
+  }
+
+  public long getReleased() {
+    return released;
+  }
+
+  public long getAbandoned() {
+    return abandoned;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    DrainReport that = (DrainReport) o;
+
+    return new EqualsBuilder()
+      .append(completed, that.completed)
+      .append(failed, that.failed)
+      .append(released, that.released)
+      .append(abandoned, that.abandoned)
+      .isEquals();
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashCodeBuilder(17, 37)
+      .append(completed)
+      .append(failed)
+      .append(released)
+      .append(abandoned)
+      .toHashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "DrainReport{" +
+      "completed=" + completed +
+      ", failed=" + failed +
+      ", released=" + released +
+      ", abandoned=" + abandoned +
+      '}';
+  }
+}
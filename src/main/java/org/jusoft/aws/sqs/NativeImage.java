@@ -0,0 +1,24 @@
+package org.jusoft.aws.sqs;
+
+/**
+ * Tells whether the library runs inside a GraalVM native image, where classes cannot be defined at runtime and only the
+ * reflection registered in the {@code META-INF/native-image} metadata is available. Code generating classes at runtime
+ * checks it to use its reflective alternative instead.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public final class NativeImage {
+
+  private static final String IMAGE_CODE_PROPERTY = "org.graalvm.nativeimage.imagecode";
+  private static final String RUNTIME_IMAGE_CODE = "runtime";
+
+  private NativeImage() {
+  }
+
+  /**
+   * Returns true when running the executable built by the native-image tool.
+   */
+  public static boolean isRuntime() {
+    return RUNTIME_IMAGE_CODE.equals(System.getProperty(IMAGE_CODE_PROPERTY));
+  }
+}
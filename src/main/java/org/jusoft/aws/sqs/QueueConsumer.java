@@ -4,6 +4,9 @@ import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.invoker.ConsumerInvoker;
+import org.jusoft.aws.sqs.invoker.ConsumerInvokers;
+import org.jusoft.aws.sqs.mapper.ParametersBinder;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
@@ -11,7 +14,10 @@ import java.util.List;
 
 /**
  * Contains a consumer. Any consumer requires an instance of the class used as a consumer and the {@link Method} to
- * invoke from the instance.
+ * invoke from the instance. The method is compiled into a {@link ConsumerInvoker} the first time it is requested, which
+ * the dispatcher does when subscribing the consumers, so messages are not processed through reflection. Consumers
+ * bound at compile time by the {@link org.jusoft.aws.sqs.processor.SqsConsumerProcessor} are created with a generated
+ * invoker and {@link ParametersBinder} instead.
  *
  * @author Juan Manuel Carnicero Vega
  */
@@ -20,6 +26,25 @@ public class QueueConsumer {
   private final Object consumerInstance;
   private final Method consumerMethod;
 
+  /**
+   * Compiled lazily, as consumers failing the validation rules might not be compilable. Volatile as it is read from the
+   * poller threads.
+   */
+  private volatile ConsumerInvoker invoker;
+
+  /**
+   * Generated at compile time, or null when the parameters are bound by the
+   * {@link org.jusoft.aws.sqs.mapper.ConsumerParametersMapper} from the consumer method.
+   */
+  private final ParametersBinder parametersBinder;
+
+  /**
+   * Resolved from the annotation when created, and again with the {@link ConsumerOverrides} when the consumer is
+   * subscribed. Replaced when the consumer is retuned through the {@link SqsDispatcher}. Volatile as it is read from
+   * the poller threads.
+   */
+  private volatile ConsumerDefinition definition;
+
   /**
    * Constructor of the {@link QueueConsumer}. Parameters must be not null and the {@link Method} argument must be
    * annotated with @{@link SqsConsumer} annotation.
@@ -27,16 +52,36 @@ public class QueueConsumer {
    * @param consumerInstance
    * @param consumerMethod
    */
-  private QueueConsumer(Object consumerInstance, Method consumerMethod) {
+  private QueueConsumer(Object consumerInstance, Method consumerMethod, ConsumerInvoker invoker,
+                        ParametersBinder parametersBinder) {
     this.consumerInstance = consumerInstance;
     this.consumerMethod = consumerMethod;
+    this.invoker = invoker;
+    this.parametersBinder = parametersBinder;
     Validate.notNull(this.consumerInstance);
     Validate.notNull(this.consumerMethod);
     Validate.notNull(getAnnotation());
+    this.definition = ConsumerDefinition.of(getAnnotation());
   }
 
   public static QueueConsumer of(Object consumerInstance, Method consumerMethod) {
-    return new QueueConsumer(consumerInstance, consumerMethod);
+    return new QueueConsumer(consumerInstance, consumerMethod, null, null);
+  }
+
+  /**
+   * Creates a {@link QueueConsumer} already bound to the consumer instance. Used by the bindings generated at compile
+   * time, so the consumer is neither compiled nor its parameters resolved at runtime.
+   *
+   * @param consumerInstance instance to invoke the consumer method from.
+   * @param consumerMethod   the consumer method, only used to read its annotations and parameters.
+   * @param invoker          invokes the consumer method on the consumer instance.
+   * @param parametersBinder creates the parameters of the consumer method.
+   */
+  public static QueueConsumer of(Object consumerInstance, Method consumerMethod, ConsumerInvoker invoker,
+                                 ParametersBinder parametersBinder) {
+    Validate.notNull(invoker);
+    Validate.notNull(parametersBinder);
+    return new QueueConsumer(consumerInstance, consumerMethod, invoker, parametersBinder);
   }
 
   public Object getConsumerInstance() {
@@ -48,12 +93,69 @@ public class QueueConsumer {
   }
 
   /**
-   * Returns the {@link SqsConsumer} annotation used in the consumerMethod field.
+   * Returns the {@link ConsumerInvoker} bound to the consumer instance, compiling it the first time.
+   */
+  public ConsumerInvoker getInvoker() {
+    ConsumerInvoker result = invoker;
+    if (result == null) {
+      synchronized (this) {
+        result = invoker;
+        if (result == null) {
+          result = ConsumerInvokers.compile(consumerInstance, consumerMethod);
+          invoker = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the {@link ParametersBinder} generated for the consumer, or null when it was not bound at compile time.
+   */
+  public ParametersBinder getParametersBinder() {
+    return parametersBinder;
+  }
+
+  /**
+   * Returns the {@link SqsConsumer} annotation used in the consumerMethod field, with the values declared in the code.
+   * Use {@link #getDefinition()} to read the values the consumer runs with.
    */
   public SqsConsumer getAnnotation() {
     return consumerMethod.getAnnotation(SqsConsumer.class);
   }
 
+  /**
+   * Returns the {@link ConsumerDefinition} the consumer runs with, resolved once instead of reading the annotation.
+   */
+  public ConsumerDefinition getDefinition() {
+    return definition;
+  }
+
+  /**
+   * Resolves the definition again from the annotation and the overrides passed.
+   */
+  void resolveDefinition(ConsumerOverrides consumerOverrides) {
+    definition = consumerOverrides.applyTo(ConsumerDefinition.of(getAnnotation()));
+  }
+
+  /**
+   * Replaces the definition the consumer runs with. Its loops use the new values from their next poll.
+   */
+  void setDefinition(ConsumerDefinition definition) {
+    Validate.notNull(definition);
+    this.definition = definition;
+  }
+
+  /**
+   * Returns a copy of the consumer with the definition passed, sharing its instance, method, invoker and binder, so
+   * the definition can be validated before the consumer runs with it.
+   */
+  QueueConsumer withDefinition(ConsumerDefinition definition) {
+    QueueConsumer queueConsumer = new QueueConsumer(consumerInstance, consumerMethod, invoker, parametersBinder);
+    queueConsumer.setDefinition(definition);
+    return queueConsumer;
+  }
+
   /**
    * Returns a {@link List} with all the consumerMethod declared parameter types
    */
@@ -1,27 +1,67 @@
 package org.jusoft.aws.sqs;
 
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.backoff.PollBackoff;
+import org.jusoft.aws.sqs.executor.Bulkhead;
 import org.jusoft.aws.sqs.executor.ExecutorFactory;
+import org.jusoft.aws.sqs.executor.QueueExecutors;
+import org.jusoft.aws.sqs.invoker.ConsumerInvoker;
 import org.jusoft.aws.sqs.provider.ConsumersInstanceProvider;
+import org.jusoft.aws.sqs.service.AsyncQueuePollService;
+import org.jusoft.aws.sqs.service.ConsumerHandle;
+import org.jusoft.aws.sqs.service.InFlightMessages;
+import org.jusoft.aws.sqs.service.MessagePipeline;
+import org.jusoft.aws.sqs.service.PollerHandle;
 import org.jusoft.aws.sqs.service.QueuePollService;
 import org.jusoft.aws.sqs.validation.ConsumerValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 import java.util.stream.StreamSupport;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
 import static org.jusoft.aws.sqs.annotation.SqsConsumer.DEFAULT_MAX_LONG_POLLING_IN_SECONDS;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.PIPELINE_DISABLED;
 
 /**
- * Fetches the list of declared AWS SQS consumers and validates them. If the list is not empty, the class creates an
- * {@link ExecutorService} to start consuming messages from each queue using it. Once the {@link #close()} method is
- * invoked, all queue consumers are stopped and the {@link ExecutorService} is shutdown, giving it a timeout of 20
- * seconds to let all consumers time to finish their latest poll.
+ * Fetches the list of declared AWS SQS consumers and validates them. If the list is not empty, the class creates the
+ * {@link QueueExecutors} to start consuming messages from each queue using the {@link ExecutorService} of the queue,
+ * either shared by all of them or isolated in a {@link Bulkhead}, returned by {@link #getBulkheads()}. Every consumer
+ * gets as many poll loops as specified in its {@link SqsConsumer#concurrentConsumers()}, each of them controlled by its
+ * own {@link PollerHandle}. The loops of each consumer are grouped in a {@link ConsumerHandle}, returned by
+ * {@link #getConsumerHandles()}, to pause, resume or stop a single consumer.
+ * Consumers configured with {@link SqsConsumer#workers()} run in pipeline mode, where the poll loops hand off the
+ * messages through a {@link MessagePipeline} to as many worker loops as workers configured.
+ * <p>
+ * Once the {@link #close()} method is invoked, the consumers are drained, giving them a timeout of 20 seconds. Draining
+ * stops receiving new messages and lets the messages being processed finish before shutting down the
+ * {@link ExecutorService}. Messages received but not processed yet, either received after stopping or waiting in a
+ * {@link MessagePipeline}, are released so they can be consumed again straight away. The outcome is returned as a
+ * {@link DrainReport} by {@link #drain(long, TimeUnit)}.
+ * <p>
+ * Dispatchers created with an {@link AsyncQueuePollService} consume the messages asynchronously instead. Every consumer
+ * gets as many receive loops as its {@link SqsConsumer#concurrentConsumers()}, which do not hold a thread while waiting
+ * for messages, and the {@link ExecutorService} is only used to invoke the consumers. Pipeline mode is not used by
+ * asynchronous consumers.
+ * <p>
+ * The {@link ConsumerDefinition} of every consumer is resolved when subscribing it, applying the
+ * {@link ConsumerOverrides} to the values of its annotation before validating it, so values can be tuned per
+ * environment without rebuilding. Running consumers can be retuned with {@link #retune(String, UnaryOperator)}, which
+ * applies the new definition from the next poll of their loops without restarting them.
  *
  * @author Juan Manuel Carnicero Vega
  */
@@ -30,20 +70,80 @@ public class SqsDispatcher {
   private static final Logger LOGGER = LoggerFactory.getLogger(SqsDispatcher.class);
 
   private final QueuePollService queuePollService;
+  private final AsyncQueuePollService asyncQueuePollService;
   private final ConsumersInstanceProvider consumersProvider;
   private final ExecutorFactory executorFactory;
   private final ConsumerValidator consumerValidator;
+  private final ConsumerOverrides consumerOverrides;
 
-  private ExecutorService executor;
+  private final List<QueueConsumer> consumers;
+  private final List<PollerHandle> pollerHandles;
+  private final List<PollerHandle> workerHandles;
+  private final List<MessagePipeline> pipelines;
+  private final List<ConsumerHandle> consumerHandles;
 
+  private QueueExecutors executors;
+
+  public SqsDispatcher(QueuePollService queuePollService,
+                       ConsumersInstanceProvider consumersProvider,
+                       ExecutorFactory executorFactory,
+                       ConsumerValidator consumerValidator) {
+    this(queuePollService, consumersProvider, executorFactory, consumerValidator, ConsumerOverrides.none());
+  }
+
+  /**
+   * Creates a dispatcher running the consumers with the values of their annotations overridden by the
+   * {@link ConsumerOverrides}.
+   */
   public SqsDispatcher(QueuePollService queuePollService,
+                       ConsumersInstanceProvider consumersProvider,
+                       ExecutorFactory executorFactory,
+                       ConsumerValidator consumerValidator,
+                       ConsumerOverrides consumerOverrides) {
+    this(queuePollService, null, consumersProvider, executorFactory, consumerValidator, consumerOverrides);
+  }
+
+  /**
+   * Creates a dispatcher consuming messages through the {@link AsyncQueuePollService}. The {@link ExecutorService}
+   * created by the {@link ExecutorFactory} is used to invoke the consumers.
+   */
+  public SqsDispatcher(AsyncQueuePollService asyncQueuePollService,
                        ConsumersInstanceProvider consumersProvider,
                        ExecutorFactory executorFactory,
                        ConsumerValidator consumerValidator) {
+    this(asyncQueuePollService, consumersProvider, executorFactory, consumerValidator, ConsumerOverrides.none());
+  }
+
+  /**
+   * Creates a dispatcher consuming messages through the {@link AsyncQueuePollService}, running the consumers with the
+   * values of their annotations overridden by the {@link ConsumerOverrides}.
+   */
+  public SqsDispatcher(AsyncQueuePollService asyncQueuePollService,
+                       ConsumersInstanceProvider consumersProvider,
+                       ExecutorFactory executorFactory,
+                       ConsumerValidator consumerValidator,
+                       ConsumerOverrides consumerOverrides) {
+    this(null, asyncQueuePollService, consumersProvider, executorFactory, consumerValidator, consumerOverrides);
+  }
+
+  private SqsDispatcher(QueuePollService queuePollService,
+                        AsyncQueuePollService asyncQueuePollService,
+                        ConsumersInstanceProvider consumersProvider,
+                        ExecutorFactory executorFactory,
+                        ConsumerValidator consumerValidator,
+                        ConsumerOverrides consumerOverrides) {
     this.queuePollService = queuePollService;
+    this.asyncQueuePollService = asyncQueuePollService;
     this.consumersProvider = consumersProvider;
     this.executorFactory = executorFactory;
     this.consumerValidator = consumerValidator;
+    this.consumerOverrides = consumerOverrides;
+    notNull(this.consumerOverrides);
+    this.consumers = new ArrayList<>();
+    this.pollerHandles = new ArrayList<>();
+    this.workerHandles = new ArrayList<>();
+    this.pipelines = new ArrayList<>();
+    this.consumerHandles = new ArrayList<>();
   }
 
   /**
@@ -57,30 +157,253 @@ public class SqsDispatcher {
     Iterable<QueueConsumer> consumers = consumersProvider.getConsumers();
 
     if (consumers.iterator().hasNext()) {
+      consumers.forEach(consumer -> consumer.resolveDefinition(consumerOverrides));
       consumerValidator.isValid(consumers);
-      executor = executorFactory.createFor(getAnnotationsFrom(consumers));
-      consumers.forEach(consumer -> executor.submit(() -> queuePollService.start(consumer)));
+      consumers.forEach(this::compileInvokerFor);
+      executors = executorFactory.createQueueExecutorsFor(getDefinitionsFrom(consumers));
+      consumers.forEach(this::startPollersFor);
+    }
+  }
+
+  private void compileInvokerFor(QueueConsumer consumer) {
+    ConsumerInvoker invoker = consumer.getInvoker();
+    LOGGER.debug("Consumer compiled: queue={}, invoker={}", consumer.getDefinition().value(), invoker);
+  }
+
+  private void startPollersFor(QueueConsumer consumer) {
+    ConsumerDefinition definition = consumer.getDefinition();
+    ConsumerHandle consumerHandle = ConsumerHandle.of(definition.value());
+    consumers.add(consumer);
+    consumerHandles.add(consumerHandle);
+    ExecutorService consumerExecutor = executorFor(definition);
+    if (asyncQueuePollService != null) {
+      for (int pollerIndex = 0; pollerIndex < definition.concurrentConsumers(); pollerIndex++) {
+        asyncQueuePollService.start(consumer, createPollerHandle(consumerHandle, pollerIndex), consumerExecutor);
+      }
+    } else if (definition.workers() > PIPELINE_DISABLED) {
+      startPipelineFor(consumer, definition, consumerHandle, consumerExecutor);
+    } else {
+      for (int pollerIndex = 0; pollerIndex < definition.concurrentConsumers(); pollerIndex++) {
+        PollerHandle pollerHandle = createPollerHandle(consumerHandle, pollerIndex);
+        consumerExecutor.submit(() -> queuePollService.start(consumer, pollerHandle));
+      }
+    }
+  }
+
+  private void startPipelineFor(QueueConsumer consumer, ConsumerDefinition definition, ConsumerHandle consumerHandle,
+                                ExecutorService consumerExecutor) {
+    MessagePipeline pipeline = MessagePipeline.of(definition.bufferCapacity(), definition.bufferMaxMessages(),
+      definition.bufferMaxBytes(), SECONDS.toMillis(definition.bufferMaxAge()));
+    pipelines.add(pipeline);
+    for (int workerIndex = 0; workerIndex < definition.workers(); workerIndex++) {
+      PollerHandle workerHandle = consumerHandle.addWorker(workerIndex);
+      workerHandles.add(workerHandle);
+      consumerExecutor.submit(() -> queuePollService.startWorker(consumer, workerHandle, pipeline));
+    }
+    for (int pollerIndex = 0; pollerIndex < definition.concurrentConsumers(); pollerIndex++) {
+      PollerHandle pollerHandle = createPollerHandle(consumerHandle, pollerIndex);
+      consumerExecutor.submit(() -> queuePollService.startPoller(consumer, pollerHandle, pipeline));
     }
   }
 
-  private List<SqsConsumer> getAnnotationsFrom(Iterable<QueueConsumer> consumers) {
+  /**
+   * Executors created by a {@link org.jusoft.aws.sqs.executor.BulkheadExecutorFactory} isolate the loops and the
+   * consumers of each queue in their own pool.
+   */
+  private ExecutorService executorFor(ConsumerDefinition definition) {
+    return executors.forQueue(definition.value());
+  }
+
+  private PollerHandle createPollerHandle(ConsumerHandle consumerHandle, int pollerIndex) {
+    PollerHandle pollerHandle = consumerHandle.addPoller(pollerIndex);
+    pollerHandles.add(pollerHandle);
+    return pollerHandle;
+  }
+
+  /**
+   * Returns the handles of all the consumers subscribed by the dispatcher, which control all the loops of each
+   * consumer at once.
+   */
+  public List<ConsumerHandle> getConsumerHandles() {
+    return unmodifiableList(consumerHandles);
+  }
+
+  /**
+   * Returns the bulkheads isolating the consumers of each queue, by queue name, so their usage can be monitored. Empty
+   * when the consumers are not isolated or have not been subscribed yet.
+   */
+  public Map<String, Bulkhead> getBulkheads() {
+    return executors == null ? emptyMap() : executors.getBulkheads();
+  }
+
+  /**
+   * Returns the handle of the consumer subscribed to the queue passed as parameter.
+   *
+   * @throws IllegalArgumentException if no consumer has been subscribed to the queue.
+   */
+  public ConsumerHandle getConsumerHandle(String queueName) {
+    return consumerHandles.stream()
+      .filter(consumerHandle -> consumerHandle.getQueueName().equals(queueName))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException("No consumer subscribed to the queue. Queue=" + queueName));
+  }
+
+  /**
+   * Returns the definition the consumer subscribed to the queue passed as parameter runs with.
+   *
+   * @throws IllegalArgumentException if no consumer has been subscribed to the queue.
+   */
+  public ConsumerDefinition getDefinition(String queueName) {
+    return getConsumer(queueName).getDefinition();
+  }
+
+  /**
+   * Changes the definition of the consumer subscribed to the queue passed as parameter while it runs. The retuned
+   * definition is validated as when subscribing the consumer, and the loops of the consumer use it from their next
+   * poll, so the number of messages per poll and the long polling change without restarting them. Changing the
+   * concurrent consumers changes the pollers receiving messages, at most the pollers started for the consumer when
+   * subscribed. Paused consumers stay paused, receiving with the new number of pollers once resumed through
+   * {@link ConsumerHandle#resume(int)}. Consumers scaled by a
+   * {@link org.jusoft.aws.sqs.autoscale.QueueDepthAutoscaler} take the new number of pollers as the starting point of
+   * its next tick, which keeps it within the limits of its policy.
+   *
+   * @param queueName queue of the consumer to retune.
+   * @param retuning  changes the current definition of the consumer through its {@code with} methods.
+   * @return the definition the consumer runs with from now on.
+   * @throws IllegalArgumentException if no consumer has been subscribed to the queue or the retuned definition is not
+   *                                  valid, in which case the consumer keeps running with its current definition.
+   */
+  public synchronized ConsumerDefinition retune(String queueName, UnaryOperator<ConsumerDefinition> retuning) {
+    QueueConsumer consumer = getConsumer(queueName);
+    ConsumerHandle consumerHandle = getConsumerHandle(queueName);
+    ConsumerDefinition currentDefinition = consumer.getDefinition();
+    ConsumerDefinition definition = retuning.apply(currentDefinition);
+    notNull(definition);
+    int pollers = consumerHandle.getPollerHandles().size();
+    isTrue(definition.concurrentConsumers() <= pollers,
+      "The concurrent consumers must not be more than the %d pollers started: queue=%s", pollers, queueName);
+    consumerValidator.isValid(singletonList(consumer.withDefinition(definition)));
+
+    consumer.setDefinition(definition);
+    if (definition.concurrentConsumers() != currentDefinition.concurrentConsumers()
+      && consumerHandle.getState() != ConsumerHandle.State.PAUSED) {
+      consumerHandle.setActivePollers(definition.concurrentConsumers());
+    }
+    LOGGER.info("Consumer retuned: queue={}, definition={}", queueName, definition);
+    return definition;
+  }
+
+  private QueueConsumer getConsumer(String queueName) {
+    return consumers.stream()
+      .filter(consumer -> consumer.getDefinition().value().equals(queueName))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException("No consumer subscribed to the queue. Queue=" + queueName));
+  }
+
+  /**
+   * Returns the {@link PollBackoff} of every consumer started, by queue name, so their counters can be monitored.
+   */
+  public Map<String, PollBackoff> getPollBackoffs() {
+    return asyncQueuePollService != null
+      ? asyncQueuePollService.getPollBackoffs()
+      : queuePollService.getPollBackoffs();
+  }
+
+  /**
+   * Returns the handles of all the poll loops started by the dispatcher.
+   */
+  public List<PollerHandle> getPollerHandles() {
+    return unmodifiableList(pollerHandles);
+  }
+
+  /**
+   * Returns the handles of all the worker loops started by the dispatcher for consumers running in pipeline mode.
+   */
+  public List<PollerHandle> getWorkerHandles() {
+    return unmodifiableList(workerHandles);
+  }
+
+  private List<SqsConsumer> getDefinitionsFrom(Iterable<QueueConsumer> consumers) {
     return StreamSupport.stream(consumers.spliterator(), false)
-      .map(QueueConsumer::getAnnotation)
+      .map(QueueConsumer::getDefinition)
       .collect(toList());
   }
 
   /**
-   * Method invoked when closing the application. It waits for all consumers to finish their last request before
-   * closing them
+   * Method invoked when closing the application. It drains the consumers giving them
+   * {@link SqsConsumer#DEFAULT_MAX_LONG_POLLING_IN_SECONDS} seconds to finish processing their latest messages.
    *
    * @throws InterruptedException
    */
   public void close() throws InterruptedException {
-    LOGGER.info("Closing consumers");
-    queuePollService.stop();
-    if (executor != null) {
-      executor.awaitTermination(DEFAULT_MAX_LONG_POLLING_IN_SECONDS, SECONDS);
+    drain(DEFAULT_MAX_LONG_POLLING_IN_SECONDS, SECONDS);
+  }
+
+  /**
+   * Stops receiving new messages and waits up to the timeout for the messages being processed to finish. Messages
+   * received but not processed are released by changing their visibility timeout to
+   * {@link SqsConsumer#RELEASE_IMMEDIATELY}. The deletes still pending are sent and the visibility of the messages is
+   * no longer extended before returning.
+   *
+   * @return the number of messages completed, failed, released and abandoned while draining.
+   * @throws InterruptedException
+   */
+  public DrainReport drain(long timeout, TimeUnit unit) throws InterruptedException {
+    LOGGER.info("Closing consumers: timeout={}, unit={}", timeout, unit);
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    InFlightMessages inFlightMessages = asyncQueuePollService != null
+      ? asyncQueuePollService.getInFlightMessages()
+      : queuePollService.getInFlightMessages();
+    long completedBefore = inFlightMessages.getCompleted();
+    long failedBefore = inFlightMessages.getFailed();
+    long releasedBefore = inFlightMessages.getReleased();
+
+    if (asyncQueuePollService != null) {
+      asyncQueuePollService.stop();
+    } else {
+      queuePollService.stop();
     }
+    pollerHandles.forEach(PollerHandle::stop);
+    workerHandles.forEach(PollerHandle::stop);
+    if (asyncQueuePollService != null) {
+      awaitAsyncPollers(deadline);
+    }
+    if (executors != null) {
+      executors.shutdown();
+      if (!executors.awaitTermination(remainingNanos(deadline), NANOSECONDS)) {
+        LOGGER.warn("Consumers still processing messages after draining: inFlight={}", inFlightMessages.getInFlight());
+      }
+    }
+    pipelines.forEach(pipeline -> queuePollService.releasePending(pipeline));
+    if (asyncQueuePollService != null) {
+      asyncQueuePollService.close();
+    } else {
+      queuePollService.close();
+    }
+
+    DrainReport drainReport = DrainReport.of(inFlightMessages.getCompleted() - completedBefore,
+      inFlightMessages.getFailed() - failedBefore, inFlightMessages.getReleased() - releasedBefore,
+      inFlightMessages.getInFlight());
+    LOGGER.info("Consumers drained: completed={}, failed={}, released={}, abandoned={}", drainReport.getCompleted(),
+      drainReport.getFailed(), drainReport.getReleased(), drainReport.getAbandoned());
+    return drainReport;
+  }
+
+  /**
+   * Asynchronous loops do not run on the {@link ExecutorService}, so they are awaited through their handles before
+   * shutting it down to let them finish processing their latest receive.
+   */
+  private void awaitAsyncPollers(long deadline) throws InterruptedException {
+    for (PollerHandle pollerHandle : pollerHandles) {
+      if (!pollerHandle.awaitStopped(remainingNanos(deadline), NANOSECONDS)) {
+        LOGGER.warn("Async poller not stopped before closing: queueName={}, poller={}", pollerHandle.getQueueName(),
+          pollerHandle.getPollerIndex());
+      }
+    }
+  }
+
+  private static long remainingNanos(long deadline) {
+    return Math.max(0, deadline - System.nanoTime());
   }
 
 }
@@ -0,0 +1,25 @@
+package org.jusoft.aws.sqs.annotation;
+
+/**
+ * Specifies how the messages received in a single poll are dispatched to consumers invoked once per message.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public enum FanOut {
+
+  /**
+   * Consumers receive all the messages polled at once, up to {@link SqsConsumer#maxMessagesPerPoll()}
+   */
+  DISABLED,
+
+  /**
+   * Up to 10 messages are polled at once and the consumer is invoked with each of them, one after the other
+   */
+  SEQUENTIAL,
+
+  /**
+   * Up to 10 messages are polled at once and the consumer is invoked with each of them in parallel, processing at most
+   * {@link SqsConsumer#fanOutParallelism()} of them at the same time
+   */
+  PARALLEL
+}
@@ -35,6 +35,43 @@ public @interface SqsConsumer {
   int MAX_MESSAGES_PER_POLL_ALLOWED = 10;
   int DEFAULT_CONCURRENT_CONSUMERS = 1;
 
+  /**
+   * Value to disable the pipeline mode. Messages are processed by the same thread polling them.
+   */
+  int PIPELINE_DISABLED = 0;
+
+  int DEFAULT_BUFFER_CAPACITY = 10;
+
+  /**
+   * Value to bound the buffer of the pipeline mode only by its {@link #bufferCapacity()} in polled batches.
+   */
+  int UNBOUNDED_BUFFER_SIZE = 0;
+
+  /**
+   * Value to let messages wait in the buffer of the pipeline mode for as long as needed.
+   */
+  int UNLIMITED_BUFFER_AGE = 0;
+
+  /**
+   * Visibility timeout to release failed messages so they are available to be consumed again straight away.
+   */
+  int RELEASE_IMMEDIATELY = 0;
+
+  /**
+   * Maximum visibility timeout in seconds allowed by AWS SQS.
+   */
+  int MAX_VISIBILITY_TIMEOUT_IN_SECONDS = 43200;
+
+  /**
+   * Value to invoke the consumer for all the messages of a poll at the same time in {@link FanOut#PARALLEL} mode.
+   */
+  int UNBOUNDED_FAN_OUT_PARALLELISM = 0;
+
+  /**
+   * Value to receive messages as fast as the consumer processes them.
+   */
+  double UNLIMITED_MESSAGES_PER_SECOND = 0;
+
   /**
    * The name of the SQS queue to consume messages from
    */
@@ -53,15 +90,77 @@ public @interface SqsConsumer {
 
   /**
    * Number of threads to start to consume from the AWS SQS queue specify in the annotation. Each thread will use the
-   * same configuration specified in the annotation to fetch messages from the queue.
+   * same configuration specified in the annotation to fetch messages from the queue. In pipeline mode, it is the number
+   * of threads polling messages from the queue.
    */
   int concurrentConsumers() default DEFAULT_CONCURRENT_CONSUMERS;
 
+  /**
+   * Number of threads processing the messages polled from the queue. When greater than PIPELINE_DISABLED, the consumer
+   * runs in pipeline mode: the {@link #concurrentConsumers()} threads only poll messages and hand them off through a
+   * buffer of {@link #bufferCapacity()} to the worker threads, which invoke the consumer and delete the messages.
+   * Defaults to PIPELINE_DISABLED, where each thread polls and processes its own messages.
+   */
+  int workers() default PIPELINE_DISABLED;
+
+  /**
+   * Maximum number of polled batches waiting in the buffer to be processed by the {@link #workers()}. Pollers wait for
+   * space in the buffer before polling again once it is full. Only used in pipeline mode.
+   */
+  int bufferCapacity() default DEFAULT_BUFFER_CAPACITY;
+
+  /**
+   * Maximum number of messages waiting in the buffer to be processed by the {@link #workers()}, whatever the number of
+   * batches they were polled in. Only used in pipeline mode. Defaults to UNBOUNDED_BUFFER_SIZE.
+   */
+  int bufferMaxMessages() default UNBOUNDED_BUFFER_SIZE;
+
+  /**
+   * Maximum size in bytes of the bodies of the messages waiting in the buffer to be processed by the
+   * {@link #workers()}. A single batch larger than this size is still accepted when the buffer is empty, so it can
+   * always be processed. Only used in pipeline mode. Defaults to UNBOUNDED_BUFFER_SIZE.
+   */
+  long bufferMaxBytes() default UNBOUNDED_BUFFER_SIZE;
+
+  /**
+   * Maximum time in seconds since messages were received for them to be processed by the {@link #workers()}. Older
+   * messages are released instead, so they are consumed again before their visibility timeout expires. It should be
+   * well below the visibility timeout of the queue. Only used in pipeline mode. Defaults to UNLIMITED_BUFFER_AGE.
+   */
+  int bufferMaxAge() default UNLIMITED_BUFFER_AGE;
+
   /**
    * Policy to be used when messages are to be deleted from the queue.
    */
   DeletePolicy deletePolicy() default DeletePolicy.AFTER_PROCESS;
 
+  /**
+   * Visibility timeout in seconds set to the messages reported as failed in the {@link org.jusoft.aws.sqs.BatchResult}
+   * returned by the consumer. They are consumed again once it expires. Defaults to RELEASE_IMMEDIATELY.
+   */
+  int failureVisibilityTimeout() default RELEASE_IMMEDIATELY;
+
+  /**
+   * Dispatch mode to invoke the consumer once per message. When enabled, every poll receives up to 10 messages,
+   * ignoring {@link #maxMessagesPerPoll()}, and the consumer is invoked once per message. Consumers taking the bodies
+   * as a {@link java.util.List} receive a list with a single element on each invocation. Each message is deleted only
+   * if its own invocation succeeds. Defaults to {@link FanOut#DISABLED}.
+   */
+  FanOut fanOut() default FanOut.DISABLED;
+
+  /**
+   * Maximum number of messages of the same poll processed at the same time in {@link FanOut#PARALLEL} mode. Defaults
+   * to UNBOUNDED_FAN_OUT_PARALLELISM, where every message of the poll is processed at the same time.
+   */
+  int fanOutParallelism() default UNBOUNDED_FAN_OUT_PARALLELISM;
+
+  /**
+   * Maximum rate of messages received from the AWS SQS queue, shared by all the pollers of the consumer. Polls request
+   * no more messages than permitted by the rate, so messages are not received to wait for their turn. Defaults to
+   * UNLIMITED_MESSAGES_PER_SECOND.
+   */
+  double maxMessagesPerSecond() default UNLIMITED_MESSAGES_PER_SECOND;
+
   //TODO add visibilityTimeout option
 
   //TODO add attribute names
@@ -0,0 +1,91 @@
+package org.jusoft.aws.sqs.autoscale;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * Limits and thresholds used by the {@link QueueDepthAutoscaler} to decide the number of pollers of a consumer.
+ * <p>
+ * The backlog of a queue is the number of messages waiting to be received plus the ones in flight. Pollers are added
+ * while the backlog per active poller is above the scale up threshold and removed one at a time while it is below the
+ * scale down threshold. The band between both thresholds keeps the number of pollers stable when the backlog oscillates
+ * around a single value.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class AutoscalingPolicy {
+
+  /**
+   * Processing latency that never prevents scaling up.
+   */
+  public static final long UNLIMITED_LATENCY = Long.MAX_VALUE;
+
+  private final int minPollers;
+  private final int maxPollers;
+  private final long scaleUpBacklogPerPoller;
+  private final long scaleDownBacklogPerPoller;
+  private final long scaleUpCooldownInMillis;
+  private final long scaleDownCooldownInMillis;
+  private final long maxLatencyInMillis;
+
+  /**
+   * @param minPollers                minimum number of pollers receiving messages, at least 1.
+   * @param maxPollers                maximum number of pollers receiving messages, limited by the concurrent consumers.
+   * @param scaleUpBacklogPerPoller   backlog per active poller above which pollers are added.
+   * @param scaleDownBacklogPerPoller backlog per active poller below which a poller is removed.
+   * @param scaleUpCooldownInMillis   minimum time between a change in the pollers and adding more.
+   * @param scaleDownCooldownInMillis minimum time between a change in the pollers and removing one.
+   * @param maxLatencyInMillis        average processing time of a poll above which no pollers are added, as more
+   *                                  pollers would only add load to an already slow consumer.
+   */
+  public AutoscalingPolicy(int minPollers,
+                           int maxPollers,
+                           long scaleUpBacklogPerPoller,
+                           long scaleDownBacklogPerPoller,
+                           long scaleUpCooldownInMillis,
+                           long scaleDownCooldownInMillis,
+                           long maxLatencyInMillis) {
+    isTrue(minPollers > 0, "Minimum pollers must be greater than 0");
+    isTrue(maxPollers >= minPollers, "Maximum pollers cannot be lower than the minimum pollers");
+    isTrue(scaleDownBacklogPerPoller >= 0, "Scale down backlog cannot be negative");
+    isTrue(scaleUpBacklogPerPoller > scaleDownBacklogPerPoller,
+      "Scale up backlog must be greater than the scale down backlog");
+    isTrue(scaleUpCooldownInMillis >= 0, "Scale up cooldown cannot be negative");
+    isTrue(scaleDownCooldownInMillis >= 0, "Scale down cooldown cannot be negative");
+    isTrue(maxLatencyInMillis > 0, "Maximum latency must be greater than 0");
+    this.minPollers = minPollers;
+    this.maxPollers = maxPollers;
+    this.scaleUpBacklogPerPoller = scaleUpBacklogPerPoller;
+    this.scaleDownBacklogPerPoller = scaleDownBacklogPerPoller;
+    this.scaleUpCooldownInMillis = scaleUpCooldownInMillis;
+    this.scaleDownCooldownInMillis = scaleDownCooldownInMillis;
+    this.maxLatencyInMillis = maxLatencyInMillis;
+  }
+
+  public int getMinPollers() {
+    return minPollers;
+  }
+
+  public int getMaxPollers() {
+    return maxPollers;
+  }
+
+  public long getScaleUpBacklogPerPoller() {
+    return scaleUpBacklogPerPoller;
+  }
+
+  public long getScaleDownBacklogPerPoller() {
+    return scaleDownBacklogPerPoller;
+  }
+
+  public long getScaleUpCooldownInMillis() {
+    return scaleUpCooldownInMillis;
+  }
+
+  public long getScaleDownCooldownInMillis() {
+    return scaleDownCooldownInMillis;
+  }
+
+  public long getMaxLatencyInMillis() {
+    return maxLatencyInMillis;
+  }
+}
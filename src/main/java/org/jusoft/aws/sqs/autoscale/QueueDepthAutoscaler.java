@@ -0,0 +1,210 @@
+package org.jusoft.aws.sqs.autoscale;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
+import org.jusoft.aws.sqs.service.ConsumerHandle;
+import org.jusoft.aws.sqs.service.ProcessingLatencies;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.LongSupplier;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Adjusts the number of pollers receiving messages for each registered consumer to the backlog of its queue, using a
+ * single scheduler thread shared by all the consumers. On every tick, the approximate number of visible and in flight
+ * messages of each queue is retrieved and the active pollers of the consumer are changed according to the
+ * {@link AutoscalingPolicy}.
+ * <p>
+ * The pollers beyond the active ones are paused through the {@link ConsumerHandle}, so they hold no long poll against
+ * the queue, and resumed when the backlog grows again. Consumers paused, stopping or stopped are left untouched.
+ * <p>
+ * The autoscaler owns the active pollers of the consumers registered with it. They can still be changed from outside,
+ * by resuming the consumer or retuning its concurrent consumers through the {@link org.jusoft.aws.sqs.SqsDispatcher},
+ * and the change takes effect straight away, but the active pollers are read from the {@link ConsumerHandle} on every
+ * tick, so the autoscaler scales from the number actually receiving and brings it back within the limits of the
+ * policy.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class QueueDepthAutoscaler implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueueDepthAutoscaler.class);
+
+  public static final long DEFAULT_TICK_IN_MILLIS = 30_000;
+
+  static final List<String> BACKLOG_ATTRIBUTES = asList(
+    QueueAttributeName.ApproximateNumberOfMessages.toString(),
+    QueueAttributeName.ApproximateNumberOfMessagesNotVisible.toString());
+
+  private final AmazonSQS amazonSQS;
+  private final ProcessingLatencies processingLatencies;
+  private final AutoscalingPolicy policy;
+  private final LongSupplier clockInMillis;
+  private final ScheduledExecutorService scheduler;
+  private final List<ScaledConsumer> consumers;
+
+  /**
+   * @param amazonSQS           AWS SQS client used to retrieve the backlog of the queues.
+   * @param processingLatencies processing latencies of the consumers, as recorded by the poll service.
+   * @param policy              limits and thresholds used to scale the consumers.
+   */
+  public QueueDepthAutoscaler(AmazonSQS amazonSQS, ProcessingLatencies processingLatencies, AutoscalingPolicy policy) {
+    this(amazonSQS, processingLatencies, policy, DEFAULT_TICK_IN_MILLIS, System::currentTimeMillis);
+  }
+
+  QueueDepthAutoscaler(AmazonSQS amazonSQS,
+                       ProcessingLatencies processingLatencies,
+                       AutoscalingPolicy policy,
+                       long tickInMillis,
+                       LongSupplier clockInMillis) {
+    this.amazonSQS = amazonSQS;
+    this.processingLatencies = processingLatencies;
+    this.policy = policy;
+    this.clockInMillis = clockInMillis;
+    notNull(this.amazonSQS);
+    notNull(this.processingLatencies);
+    notNull(this.policy);
+    notNull(this.clockInMillis);
+    isTrue(tickInMillis > 0, "Tick must be greater than 0");
+    this.consumers = new CopyOnWriteArrayList<>();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "sqs-autoscaler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::scaleSafely, tickInMillis, tickInMillis, MILLISECONDS);
+  }
+
+  /**
+   * Starts scaling the pollers of the consumer, which are reduced to the minimum pollers of the policy until the
+   * backlog of its queue requires more.
+   */
+  public void register(ConsumerHandle consumerHandle) {
+    notNull(consumerHandle);
+    String queueUrl = amazonSQS.getQueueUrl(consumerHandle.getQueueName()).getQueueUrl();
+    ScaledConsumer consumer = new ScaledConsumer(consumerHandle, queueUrl);
+    consumer.setActivePollers(Math.min(policy.getMinPollers(), consumer.maxPollers()), Long.MIN_VALUE);
+    consumers.add(consumer);
+  }
+
+  /**
+   * Returns the number of pollers receiving messages for the queue, or 0 when no consumer of the queue is registered.
+   */
+  public int getActivePollers(String queueName) {
+    return consumers.stream()
+      .filter(consumer -> consumer.handle.getQueueName().equals(queueName))
+      .mapToInt(consumer -> consumer.handle.getActivePollers())
+      .sum();
+  }
+
+  private void scaleSafely() {
+    try {
+      scale();
+    } catch (Exception e) {
+      LOGGER.error("Error scaling consumers", e);
+    }
+  }
+
+  /**
+   * Adjusts the active pollers of all the registered consumers to the current backlog of their queues.
+   */
+  void scale() {
+    for (ScaledConsumer consumer : consumers) {
+      if (consumer.handle.getState() != ConsumerHandle.State.RUNNING) {
+        continue;
+      }
+      try {
+        scale(consumer, fetchBacklogOf(consumer.queueUrl));
+      } catch (Exception e) {
+        LOGGER.warn("Unable to scale consumer: queueUrl={}", consumer.queueUrl, e);
+      }
+    }
+  }
+
+  private long fetchBacklogOf(String queueUrl) {
+    GetQueueAttributesResult result = amazonSQS.getQueueAttributes(queueUrl, BACKLOG_ATTRIBUTES);
+    Map<String, String> attributes = result.getAttributes();
+    return BACKLOG_ATTRIBUTES.stream()
+      .map(attributes::get)
+      .filter(value -> value != null)
+      .mapToLong(Long::parseLong)
+      .sum();
+  }
+
+  private void scale(ScaledConsumer consumer, long backlog) {
+    long now = clockInMillis.getAsLong();
+    int activePollers = consumer.handle.getActivePollers();
+    int maxPollers = consumer.maxPollers();
+    int minPollers = Math.min(policy.getMinPollers(), maxPollers);
+    if (activePollers < minPollers || activePollers > maxPollers) {
+      int limitedPollers = Math.max(minPollers, Math.min(maxPollers, activePollers));
+      consumer.setActivePollers(limitedPollers, now);
+      LOGGER.info("Consumer pollers brought within limits: queueUrl={}, previousActivePollers={}, activePollers={}",
+        consumer.queueUrl, activePollers, limitedPollers);
+      return;
+    }
+    long backlogPerPoller = backlog / Math.max(1, activePollers);
+    if (backlogPerPoller > policy.getScaleUpBacklogPerPoller() && activePollers < maxPollers) {
+      long latency = processingLatencies.getAverageInMillis(consumer.queueUrl);
+      if (latency > policy.getMaxLatencyInMillis()) {
+        LOGGER.debug("Not scaling up slow consumer: queueUrl={}, backlog={}, latency={}",
+          consumer.queueUrl, backlog, latency);
+      } else if (consumer.hasCooledDown(policy.getScaleUpCooldownInMillis(), now)) {
+        long requiredPollers = (backlog + policy.getScaleUpBacklogPerPoller() - 1) / policy.getScaleUpBacklogPerPoller();
+        int scaledPollers = (int) Math.min(maxPollers, requiredPollers);
+        consumer.setActivePollers(scaledPollers, now);
+        LOGGER.info("Consumer scaled up: queueUrl={}, backlog={}, activePollers={}",
+          consumer.queueUrl, backlog, scaledPollers);
+      }
+    } else if (backlogPerPoller < policy.getScaleDownBacklogPerPoller() && activePollers > minPollers
+      && consumer.hasCooledDown(policy.getScaleDownCooldownInMillis(), now)) {
+      consumer.setActivePollers(activePollers - 1, now);
+      LOGGER.info("Consumer scaled down: queueUrl={}, backlog={}, activePollers={}",
+        consumer.queueUrl, backlog, activePollers - 1);
+    }
+  }
+
+  /**
+   * Stops scaling the consumers. Their pollers are left as they are.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  private class ScaledConsumer {
+
+    private final ConsumerHandle handle;
+    private final String queueUrl;
+    private long lastScaledInMillis;
+
+    private ScaledConsumer(ConsumerHandle handle, String queueUrl) {
+      this.handle = handle;
+      this.queueUrl = queueUrl;
+    }
+
+    private int maxPollers() {
+      return Math.min(policy.getMaxPollers(), handle.getPollerHandles().size());
+    }
+
+    private boolean hasCooledDown(long cooldownInMillis, long now) {
+      return lastScaledInMillis == Long.MIN_VALUE || now - lastScaledInMillis >= cooldownInMillis;
+    }
+
+    private void setActivePollers(int activePollers, long now) {
+      handle.setActivePollers(activePollers);
+      this.lastScaledInMillis = now;
+    }
+  }
+}
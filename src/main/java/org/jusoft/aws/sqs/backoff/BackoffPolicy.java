@@ -0,0 +1,18 @@
+package org.jusoft.aws.sqs.backoff;
+
+/**
+ * Decides how long a poll loop waits before polling again after a number of consecutive polls with the same outcome,
+ * like receiving no messages or failing to receive them.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public interface BackoffPolicy {
+
+  long NO_DELAY = 0;
+
+  /**
+   * @param consecutiveCount number of consecutive polls with the outcome handled by the policy, starting at 1.
+   * @return time in milliseconds to wait before the next poll.
+   */
+  long delayInMillisFor(int consecutiveCount);
+}
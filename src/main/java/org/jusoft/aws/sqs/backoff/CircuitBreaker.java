@@ -0,0 +1,113 @@
+package org.jusoft.aws.sqs.backoff;
+
+import java.util.function.LongSupplier;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Stops polling a queue after a number of consecutive failures. While open, the pollers of the consumer wait until the
+ * open duration elapses. Then a single poll is let through, while the other pollers keep checking every
+ * {@link #PROBE_CHECK_INTERVAL_IN_MILLIS}: the circuit closes again if the probe succeeds and opens for another open
+ * duration if it fails. A probe that reports neither within an open duration, e.g. because its poller was stopped, is
+ * given up and the next poll is let through instead.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  /**
+   * Failure threshold that never opens the circuit.
+   */
+  public static final int DISABLED = Integer.MAX_VALUE;
+
+  /**
+   * Time the pollers wait before checking again whether the probe of a half open circuit has finished.
+   */
+  static final long PROBE_CHECK_INTERVAL_IN_MILLIS = 100;
+
+  private final int failureThreshold;
+  private final long openDurationInMillis;
+  private final LongSupplier clockInMillis;
+
+  private int consecutiveFailures;
+  private long openUntilInMillis;
+  private long probeUntilInMillis;
+  private boolean isProbeInFlight;
+  private State state;
+
+  /**
+   * @param failureThreshold     number of consecutive failures that opens the circuit.
+   * @param openDurationInMillis time the circuit stays open before letting a poll through.
+   */
+  public CircuitBreaker(int failureThreshold, long openDurationInMillis) {
+    this(failureThreshold, openDurationInMillis, System::currentTimeMillis);
+  }
+
+  CircuitBreaker(int failureThreshold, long openDurationInMillis, LongSupplier clockInMillis) {
+    isTrue(failureThreshold > 0, "Failure threshold must be greater than 0");
+    isTrue(openDurationInMillis >= 0, "Open duration cannot be negative");
+    this.failureThreshold = failureThreshold;
+    this.openDurationInMillis = openDurationInMillis;
+    this.clockInMillis = clockInMillis;
+    this.state = State.CLOSED;
+    notNull(this.clockInMillis);
+  }
+
+  public static CircuitBreaker disabled() {
+    return new CircuitBreaker(DISABLED, 0);
+  }
+
+  /**
+   * Returns the time in milliseconds to wait before polling, 0 when the poll is allowed. Once the open duration elapses,
+   * the circuit becomes half open and only the next poll is allowed, as the probe, until it succeeds or fails.
+   */
+  public synchronized long remainingOpenTimeInMillis() {
+    long now = clockInMillis.getAsLong();
+    if (state == State.OPEN) {
+      long remaining = openUntilInMillis - now;
+      if (remaining > 0) {
+        return remaining;
+      }
+      state = State.HALF_OPEN;
+    }
+    if (state == State.HALF_OPEN) {
+      if (isProbeInFlight && probeUntilInMillis > now) {
+        return Math.min(PROBE_CHECK_INTERVAL_IN_MILLIS, probeUntilInMillis - now);
+      }
+      isProbeInFlight = true;
+      probeUntilInMillis = now + openDurationInMillis;
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the time in milliseconds until the open circuit becomes half open, without letting a probe through.
+   */
+  public synchronized long openTimeInMillis() {
+    return state == State.OPEN ? Math.max(0, openUntilInMillis - clockInMillis.getAsLong()) : 0;
+  }
+
+  public synchronized void onSuccess() {
+    consecutiveFailures = 0;
+    isProbeInFlight = false;
+    state = State.CLOSED;
+  }
+
+  public synchronized void onFailure() {
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      isProbeInFlight = false;
+      state = State.OPEN;
+      openUntilInMillis = clockInMillis.getAsLong() + openDurationInMillis;
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+}
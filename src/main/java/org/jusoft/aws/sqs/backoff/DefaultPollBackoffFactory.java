@@ -0,0 +1,68 @@
+package org.jusoft.aws.sqs.backoff;
+
+import org.jusoft.aws.sqs.QueueConsumer;
+
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.SHORT_POLLING_VALUE;
+
+/**
+ * Creates a {@link PollBackoff} that:
+ * <li>
+ * <ul>Waits exponentially longer, with jitter, after consecutive errors receiving messages</ul>
+ * <ul>Opens the circuit of the consumer after a number of consecutive errors</ul>
+ * <ul>Waits exponentially longer after consecutive empty receives, only when the consumer uses short polling. Long
+ * polling consumers already wait on AWS SQS for messages to arrive. The long polling of the consumer is checked on
+ * every empty receive, so it follows the consumer when it is retuned</ul>
+ * </li>
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class DefaultPollBackoffFactory implements PollBackoffFactory {
+
+  public static final long DEFAULT_ERROR_BASE_DELAY_IN_MILLIS = 100;
+  public static final long DEFAULT_ERROR_MAX_DELAY_IN_MILLIS = 30_000;
+  public static final long DEFAULT_EMPTY_RECEIVE_BASE_DELAY_IN_MILLIS = 50;
+  public static final long DEFAULT_EMPTY_RECEIVE_MAX_DELAY_IN_MILLIS = 5_000;
+  public static final int DEFAULT_CIRCUIT_FAILURE_THRESHOLD = 10;
+  public static final long DEFAULT_CIRCUIT_OPEN_DURATION_IN_MILLIS = 60_000;
+
+  private final long errorBaseDelayInMillis;
+  private final long errorMaxDelayInMillis;
+  private final long emptyReceiveBaseDelayInMillis;
+  private final long emptyReceiveMaxDelayInMillis;
+  private final int circuitFailureThreshold;
+  private final long circuitOpenDurationInMillis;
+
+  public DefaultPollBackoffFactory() {
+    this(DEFAULT_ERROR_BASE_DELAY_IN_MILLIS, DEFAULT_ERROR_MAX_DELAY_IN_MILLIS, DEFAULT_EMPTY_RECEIVE_BASE_DELAY_IN_MILLIS,
+      DEFAULT_EMPTY_RECEIVE_MAX_DELAY_IN_MILLIS, DEFAULT_CIRCUIT_FAILURE_THRESHOLD, DEFAULT_CIRCUIT_OPEN_DURATION_IN_MILLIS);
+  }
+
+  public DefaultPollBackoffFactory(long errorBaseDelayInMillis,
+                                   long errorMaxDelayInMillis,
+                                   long emptyReceiveBaseDelayInMillis,
+                                   long emptyReceiveMaxDelayInMillis,
+                                   int circuitFailureThreshold,
+                                   long circuitOpenDurationInMillis) {
+    this.errorBaseDelayInMillis = errorBaseDelayInMillis;
+    this.errorMaxDelayInMillis = errorMaxDelayInMillis;
+    this.emptyReceiveBaseDelayInMillis = emptyReceiveBaseDelayInMillis;
+    this.emptyReceiveMaxDelayInMillis = emptyReceiveMaxDelayInMillis;
+    this.circuitFailureThreshold = circuitFailureThreshold;
+    this.circuitOpenDurationInMillis = circuitOpenDurationInMillis;
+  }
+
+  @Override
+  public PollBackoff createFor(QueueConsumer queueConsumer) {
+    return new PollBackoff(createEmptyReceivePolicyFor(queueConsumer),
+      new ExponentialBackoffPolicy(errorBaseDelayInMillis, errorMaxDelayInMillis, true),
+      new CircuitBreaker(circuitFailureThreshold, circuitOpenDurationInMillis));
+  }
+
+  private BackoffPolicy createEmptyReceivePolicyFor(QueueConsumer queueConsumer) {
+    BackoffPolicy shortPollingPolicy =
+      new ExponentialBackoffPolicy(emptyReceiveBaseDelayInMillis, emptyReceiveMaxDelayInMillis, false);
+    return consecutiveCount -> queueConsumer.getDefinition().longPolling() == SHORT_POLLING_VALUE
+      ? shortPollingPolicy.delayInMillisFor(consecutiveCount)
+      : BackoffPolicy.NO_DELAY;
+  }
+}
@@ -0,0 +1,55 @@
+package org.jusoft.aws.sqs.backoff;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * Doubles the delay on every consecutive poll, starting with the base delay and up to the maximum delay. When jitter is
+ * enabled, the delay is randomised between half of it and all of it, so the pollers of several consumers or
+ * applications failing at the same time do not poll again in lockstep.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class ExponentialBackoffPolicy implements BackoffPolicy {
+
+  /**
+   * Highest exponent used to compute the delay. Anything above would overflow a long with any sensible base delay.
+   */
+  private static final int MAX_EXPONENT = 30;
+
+  private final long baseDelayInMillis;
+  private final long maxDelayInMillis;
+  private final boolean isJitterEnabled;
+
+  /**
+   * @param baseDelayInMillis delay after the first poll.
+   * @param maxDelayInMillis  maximum delay, no matter the number of consecutive polls.
+   * @param isJitterEnabled   whether the delay is randomised.
+   */
+  public ExponentialBackoffPolicy(long baseDelayInMillis, long maxDelayInMillis, boolean isJitterEnabled) {
+    isTrue(baseDelayInMillis > 0, "Base delay must be greater than 0");
+    isTrue(maxDelayInMillis >= baseDelayInMillis, "Maximum delay cannot be lower than the base delay");
+    this.baseDelayInMillis = baseDelayInMillis;
+    this.maxDelayInMillis = maxDelayInMillis;
+    this.isJitterEnabled = isJitterEnabled;
+  }
+
+  @Override
+  public long delayInMillisFor(int consecutiveCount) {
+    if (consecutiveCount <= 0) {
+      return NO_DELAY;
+    }
+    int exponent = Math.min(consecutiveCount - 1, MAX_EXPONENT);
+    long delay = Math.min(maxDelayInMillis, baseDelayInMillis << exponent);
+    if (delay < 0) {
+      delay = maxDelayInMillis;
+    }
+    return isJitterEnabled ? withJitter(delay) : delay;
+  }
+
+  private long withJitter(long delay) {
+    long half = delay / 2;
+    return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+  }
+}
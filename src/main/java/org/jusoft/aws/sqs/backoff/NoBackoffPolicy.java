@@ -0,0 +1,14 @@
+package org.jusoft.aws.sqs.backoff;
+
+/**
+ * Polls again straight away.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class NoBackoffPolicy implements BackoffPolicy {
+
+  @Override
+  public long delayInMillisFor(int consecutiveCount) {
+    return NO_DELAY;
+  }
+}
@@ -0,0 +1,109 @@
+package org.jusoft.aws.sqs.backoff;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Backoff state of a single consumer, shared by all its pollers. It counts the consecutive empty receives and the
+ * consecutive errors receiving messages, so they can be monitored, and uses them to decide how long to wait before the
+ * next poll through the {@link BackoffPolicy} configured for each outcome. Errors also feed a {@link CircuitBreaker}
+ * that stops polling the queue while it is open.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class PollBackoff {
+
+  private final BackoffPolicy emptyReceivePolicy;
+  private final BackoffPolicy errorPolicy;
+  private final CircuitBreaker circuitBreaker;
+
+  private final AtomicInteger consecutiveEmptyReceives;
+  private final AtomicInteger consecutiveErrors;
+  private final AtomicLong totalErrors;
+
+  public PollBackoff(BackoffPolicy emptyReceivePolicy, BackoffPolicy errorPolicy, CircuitBreaker circuitBreaker) {
+    this.emptyReceivePolicy = emptyReceivePolicy;
+    this.errorPolicy = errorPolicy;
+    this.circuitBreaker = circuitBreaker;
+    this.consecutiveEmptyReceives = new AtomicInteger();
+    this.consecutiveErrors = new AtomicInteger();
+    this.totalErrors = new AtomicLong();
+    notNull(this.emptyReceivePolicy);
+    notNull(this.errorPolicy);
+    notNull(this.circuitBreaker);
+  }
+
+  /**
+   * Polls again straight away no matter the outcome, as the poll loops did before backoff policies were introduced.
+   */
+  public static PollBackoff disabled() {
+    return new PollBackoff(new NoBackoffPolicy(), new NoBackoffPolicy(), CircuitBreaker.disabled());
+  }
+
+  /**
+   * Returns the time in milliseconds to wait before polling because the circuit is open, 0 when polling is allowed.
+   */
+  public long delayBeforePollInMillis() {
+    return circuitBreaker.remainingOpenTimeInMillis();
+  }
+
+  /**
+   * Registers a poll that received messages and resets all the counters.
+   */
+  public void onMessagesReceived() {
+    consecutiveEmptyReceives.set(0);
+    consecutiveErrors.set(0);
+    circuitBreaker.onSuccess();
+  }
+
+  /**
+   * Registers a poll that did not receive any message.
+   *
+   * @return time in milliseconds to wait before the next poll.
+   */
+  public long onEmptyReceive() {
+    consecutiveErrors.set(0);
+    circuitBreaker.onSuccess();
+    return emptyReceivePolicy.delayInMillisFor(consecutiveEmptyReceives.incrementAndGet());
+  }
+
+  /**
+   * Registers a poll that failed to receive messages.
+   *
+   * @return time in milliseconds to wait before the next poll.
+   */
+  public long onError() {
+    totalErrors.incrementAndGet();
+    circuitBreaker.onFailure();
+    return Math.max(errorPolicy.delayInMillisFor(consecutiveErrors.incrementAndGet()),
+      circuitBreaker.openTimeInMillis());
+  }
+
+  public int getConsecutiveEmptyReceives() {
+    return consecutiveEmptyReceives.get();
+  }
+
+  public int getConsecutiveErrors() {
+    return consecutiveErrors.get();
+  }
+
+  public long getTotalErrors() {
+    return totalErrors.get();
+  }
+
+  public CircuitBreaker.State getCircuitState() {
+    return circuitBreaker.getState();
+  }
+
+  @Override
+  public String toString() {
+    return "PollBackoff{" +
+      "consecutiveEmptyReceives=" + consecutiveEmptyReceives +
+      ", consecutiveErrors=" + consecutiveErrors +
+      ", totalErrors=" + totalErrors +
+      ", circuitState=" + getCircuitState() +
+      '}';
+  }
+}
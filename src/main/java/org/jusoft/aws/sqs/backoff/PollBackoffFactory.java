@@ -0,0 +1,16 @@
+package org.jusoft.aws.sqs.backoff;
+
+import org.jusoft.aws.sqs.QueueConsumer;
+
+/**
+ * Creates the {@link PollBackoff} of each consumer, so every consumer can use its own backoff policies.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public interface PollBackoffFactory {
+
+  /**
+   * Creates the {@link PollBackoff} shared by all the pollers of the consumer.
+   */
+  PollBackoff createFor(QueueConsumer queueConsumer);
+}
@@ -0,0 +1,43 @@
+package org.jusoft.aws.sqs.binding;
+
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Creates the {@link QueueConsumer}s of the {@link SqsConsumer} methods declared by a consumer class without scanning
+ * its methods. Implementations are generated at compile time by the
+ * {@link org.jusoft.aws.sqs.processor.SqsConsumerProcessor}, calling the consumer methods directly, and registered as
+ * services so the {@link ConsumerBindingsRegistry} finds them.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public interface ConsumerBindings {
+
+  /**
+   * Returns the class declaring the {@link SqsConsumer} methods bound.
+   */
+  Class<?> getConsumerClass();
+
+  /**
+   * Creates a {@link QueueConsumer} for every {@link SqsConsumer} method declared by the consumer class.
+   *
+   * @param consumerInstance instance of the consumer class to invoke the consumer methods from.
+   */
+  List<QueueConsumer> bind(Object consumerInstance);
+
+  /**
+   * Returns the method declared by the consumer class, which is still needed to read its annotations.
+   *
+   * @throws IllegalStateException when the method does not exist, as the class changed after generating its bindings.
+   */
+  static Method findDeclaredMethod(Class<?> consumerClass, String methodName, Class<?>... parameterTypes) {
+    try {
+      return consumerClass.getDeclaredMethod(methodName, parameterTypes);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException("Consumer bindings are outdated for " + consumerClass.getName(), e);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package org.jusoft.aws.sqs.binding;
+
+import org.jusoft.aws.sqs.QueueConsumer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Holds the {@link ConsumerBindings} generated at compile time, by consumer class. The default registry loads them only
+ * once, through the {@link ServiceLoader}, with the context class loader of the first thread using it.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public final class ConsumerBindingsRegistry {
+
+  private final Map<Class<?>, ConsumerBindings> bindings;
+
+  ConsumerBindingsRegistry(Iterable<ConsumerBindings> bindings) {
+    notNull(bindings);
+    this.bindings = new HashMap<>();
+    for (ConsumerBindings consumerBindings : bindings) {
+      this.bindings.putIfAbsent(consumerBindings.getConsumerClass(), consumerBindings);
+    }
+  }
+
+  /**
+   * Loads all the {@link ConsumerBindings} registered as services visible from the class loader.
+   */
+  public static ConsumerBindingsRegistry load(ClassLoader classLoader) {
+    return new ConsumerBindingsRegistry(ServiceLoader.load(ConsumerBindings.class, classLoader));
+  }
+
+  public static ConsumerBindingsRegistry getDefault() {
+    return DefaultRegistryHolder.INSTANCE;
+  }
+
+  /**
+   * Returns whether the bindings of the consumer class were generated.
+   */
+  public boolean isBound(Class<?> consumerClass) {
+    return bindings.containsKey(consumerClass);
+  }
+
+  /**
+   * Creates the {@link QueueConsumer}s of the consumer instance from the bindings generated for its class.
+   *
+   * @throws IllegalArgumentException when the bindings of the class of the instance were not generated.
+   */
+  public List<QueueConsumer> bind(Object consumerInstance) {
+    ConsumerBindings consumerBindings = bindings.get(consumerInstance.getClass());
+    if (consumerBindings == null) {
+      throw new IllegalArgumentException("No bindings generated for " + consumerInstance.getClass().getName());
+    }
+    return consumerBindings.bind(consumerInstance);
+  }
+
+  public int size() {
+    return bindings.size();
+  }
+
+  private static final class DefaultRegistryHolder {
+    private static final ConsumerBindingsRegistry INSTANCE = load(findClassLoader());
+
+    private static ClassLoader findClassLoader() {
+      ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      return classLoader == null ? ConsumerBindings.class.getClassLoader() : classLoader;
+    }
+  }
+}
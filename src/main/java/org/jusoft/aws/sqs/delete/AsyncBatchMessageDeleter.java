@@ -0,0 +1,166 @@
+package org.jusoft.aws.sqs.delete;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Coalesces the messages to delete from each queue into batches of up to 10 entries that are sent asynchronously, so
+ * the callers can go back to poll messages without waiting for AWS SQS to answer. All the pollers of a queue share the
+ * same batch, which is sent either once it is full or once the oldest entry in it has waited for the maximum flush
+ * delay. The delay is capped to a fraction of the visibility timeout of the queue, so pending deletes are always sent
+ * well before the messages become visible again.
+ * <p>
+ * Entries failing to be deleted because of an error on the AWS side are retried alone, up to the maximum number of
+ * attempts, once the retry delay elapses. The delay doubles on every attempt. Entries rejected because of the
+ * request, like an expired receipt handle, are logged and dropped.
+ * <p>
+ * Pending entries are lost if the application stops without invoking {@link #close()}. Messages not deleted become
+ * visible again once their visibility timeout expires.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class AsyncBatchMessageDeleter implements MessageDeleter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncBatchMessageDeleter.class);
+
+  public static final long DEFAULT_MAX_FLUSH_DELAY_IN_MILLIS = 200;
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+  public static final long DEFAULT_RETRY_DELAY_IN_MILLIS = 100;
+  public static final int DEFAULT_FLUSH_THREADS = 2;
+
+  /**
+   * Fraction of the queue visibility timeout that an entry is allowed to wait before being sent.
+   */
+  static final int VISIBILITY_TIMEOUT_FRACTION = 10;
+  private static final long CLOSE_TIMEOUT_IN_SECONDS = 10;
+
+  private final AmazonSQS amazonSQS;
+  private final long maxFlushDelayInMillis;
+  private final int maxAttempts;
+  private final long retryDelayInMillis;
+  private final ScheduledExecutorService scheduler;
+  private final ConcurrentMap<String, QueueDeleteBatcher> batchers;
+
+  public AsyncBatchMessageDeleter(AmazonSQS amazonSQS) {
+    this(amazonSQS, DEFAULT_MAX_FLUSH_DELAY_IN_MILLIS, DEFAULT_MAX_ATTEMPTS, DEFAULT_FLUSH_THREADS);
+  }
+
+  /**
+   * @param amazonSQS             AWS SQS client used to delete the messages.
+   * @param maxFlushDelayInMillis maximum time an entry waits for its batch to be full before being sent.
+   * @param maxAttempts           maximum number of times an entry is sent before giving up.
+   * @param flushThreads          number of threads sending the batches to AWS SQS.
+   */
+  public AsyncBatchMessageDeleter(AmazonSQS amazonSQS, long maxFlushDelayInMillis, int maxAttempts, int flushThreads) {
+    this(amazonSQS, maxFlushDelayInMillis, maxAttempts, DEFAULT_RETRY_DELAY_IN_MILLIS, flushThreads);
+  }
+
+  /**
+   * @param amazonSQS             AWS SQS client used to delete the messages.
+   * @param maxFlushDelayInMillis maximum time an entry waits for its batch to be full before being sent.
+   * @param maxAttempts           maximum number of times an entry is sent before giving up.
+   * @param retryDelayInMillis    time a failed entry waits before being sent again, doubled on every attempt.
+   * @param flushThreads          number of threads sending the batches to AWS SQS.
+   */
+  public AsyncBatchMessageDeleter(AmazonSQS amazonSQS, long maxFlushDelayInMillis, int maxAttempts,
+                                  long retryDelayInMillis, int flushThreads) {
+    this.amazonSQS = amazonSQS;
+    this.maxFlushDelayInMillis = maxFlushDelayInMillis;
+    this.maxAttempts = maxAttempts;
+    this.retryDelayInMillis = retryDelayInMillis;
+    notNull(this.amazonSQS);
+    isTrue(maxFlushDelayInMillis >= 0, "Maximum flush delay cannot be negative");
+    isTrue(maxAttempts > 0, "Maximum attempts must be greater than 0");
+    isTrue(retryDelayInMillis >= 0, "Retry delay cannot be negative");
+    isTrue(flushThreads > 0, "Flush threads must be greater than 0");
+    this.scheduler = Executors.newScheduledThreadPool(flushThreads, new DeleterThreadFactory());
+    this.batchers = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Adds the messages to the batch of the queue and returns without waiting for them to be deleted.
+   */
+  @Override
+  public void delete(String queueUrl, List<Message> messages) {
+    if (!messages.isEmpty()) {
+      batchers.computeIfAbsent(queueUrl, this::createBatcherFor).add(messages);
+    }
+  }
+
+  private QueueDeleteBatcher createBatcherFor(String queueUrl) {
+    return new QueueDeleteBatcher(amazonSQS, queueUrl, findFlushDelayFor(queueUrl), maxAttempts, retryDelayInMillis,
+      scheduler);
+  }
+
+  private long findFlushDelayFor(String queueUrl) {
+    long flushDelay = maxFlushDelayInMillis;
+    try {
+      GetQueueAttributesResult attributes = amazonSQS.getQueueAttributes(queueUrl,
+        singletonList(QueueAttributeName.VisibilityTimeout.toString()));
+      String visibilityTimeout = attributes.getAttributes().get(QueueAttributeName.VisibilityTimeout.toString());
+      if (visibilityTimeout != null) {
+        flushDelay = Math.min(flushDelay, SECONDS.toMillis(Long.parseLong(visibilityTimeout)) / VISIBILITY_TIMEOUT_FRACTION);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Unable to get visibility timeout. Using maximum flush delay: queueUrl={}, delay={}",
+        queueUrl, maxFlushDelayInMillis, e);
+    }
+    LOGGER.debug("Delete flush delay: queueUrl={}, delay={}", queueUrl, flushDelay);
+    return flushDelay;
+  }
+
+  /**
+   * Returns the number of entries waiting to be sent for the queue.
+   */
+  public int getPendingDeletes(String queueUrl) {
+    QueueDeleteBatcher batcher = batchers.get(queueUrl);
+    return batcher == null ? 0 : batcher.getPendingEntries();
+  }
+
+  /**
+   * Sends all the pending entries and waits for them to be deleted before stopping the threads used to send them.
+   */
+  @Override
+  public void close() {
+    LOGGER.info("Flushing pending deletes: queues={}", batchers.keySet());
+    batchers.values().forEach(QueueDeleteBatcher::flush);
+    scheduler.shutdown();
+    try {
+      if (!scheduler.awaitTermination(CLOSE_TIMEOUT_IN_SECONDS, SECONDS)) {
+        LOGGER.warn("Pending deletes not sent before closing the deleter");
+      }
+    } catch (InterruptedException e) {
+      LOGGER.warn("Interrupted while flushing pending deletes");
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class DeleterThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "sqs-delete-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package org.jusoft.aws.sqs.delete;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Deletes messages by issuing a single {@link DeleteMessageBatchRequest} per invocation through the
+ * {@link AmazonSQSAsync} client, returning without waiting for AWS SQS to answer. The answer is handled on the threads
+ * of the client, where entries that fail to be deleted are logged and not retried.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class AsyncMessageDeleter implements MessageDeleter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncMessageDeleter.class);
+
+  private final AmazonSQSAsync amazonSQSAsync;
+
+  public AsyncMessageDeleter(AmazonSQSAsync amazonSQSAsync) {
+    this.amazonSQSAsync = amazonSQSAsync;
+    notNull(this.amazonSQSAsync);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void delete(String queueUrl, List<Message> messages) {
+    if (!messages.isEmpty()) {
+      amazonSQSAsync.deleteMessageBatchAsync(createDeleteMessageRequestFrom(messages, queueUrl),
+        new DeleteHandler(queueUrl));
+    }
+  }
+
+  private DeleteMessageBatchRequest createDeleteMessageRequestFrom(List<Message> messages, String queueUrl) {
+    List<DeleteMessageBatchRequestEntry> batchEntries = messages.stream()
+      .map(message -> new DeleteMessageBatchRequestEntry(message.getMessageId(), message.getReceiptHandle()))
+      .collect(toList());
+    return new DeleteMessageBatchRequest().withQueueUrl(queueUrl).withEntries(batchEntries);
+  }
+
+  private static class DeleteHandler implements AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> {
+
+    private final String queueUrl;
+
+    private DeleteHandler(String queueUrl) {
+      this.queueUrl = queueUrl;
+    }
+
+    @Override
+    public void onError(Exception exception) {
+      LOGGER.error("Error deleting messages from SQS: queueUrl={}", queueUrl, exception);
+    }
+
+    @Override
+    public void onSuccess(DeleteMessageBatchRequest request, DeleteMessageBatchResult result) {
+      if (!result.getFailed().isEmpty()) {
+        LOGGER.error("Error deleting messages from SQS: queueUrl={}, messages={}", queueUrl, result.getFailed());
+      }
+      LOGGER.debug("Messages deleted from SQS: queueUrl={}, messages={}", queueUrl, result.getSuccessful());
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package org.jusoft.aws.sqs.delete;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import java.util.List;
+
+/**
+ * Deletes messages consumed from an AWS SQS queue. It's up to the implementation to decide whether messages are deleted
+ * before returning or at a later point in time.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public interface MessageDeleter extends AutoCloseable {
+
+  /**
+   * Deletes the messages from the queue.
+   *
+   * @param queueUrl URL of the queue the messages were received from.
+   * @param messages messages to delete.
+   */
+  void delete(String queueUrl, List<Message> messages);
+
+  /**
+   * Deletes any message still pending and releases the resources used by the implementation.
+   */
+  @Override
+  default void close() {
+  }
+}
@@ -0,0 +1,258 @@
+package org.jusoft.aws.sqs.delete;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.MAX_MESSAGES_PER_POLL_ALLOWED;
+
+/**
+ * Batch of entries pending to be deleted from a single queue. Entries are sent in groups of up to 10, the maximum
+ * allowed by AWS SQS in a {@link DeleteMessageBatchRequest}. Entries inside a request are identified by their position
+ * in it, so the same message received twice can be deleted in the same request.
+ * <p>
+ * Entries failing to be deleted are added back to the batch once the retry delay elapses, doubled on every attempt, so
+ * AWS SQS is not hammered while it is failing. Once the scheduler has been shut down, batches are sent from the calling
+ * thread instead, without holding the lock of the batch.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+class QueueDeleteBatcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueueDeleteBatcher.class);
+
+  static final int MAX_BATCH_SIZE = MAX_MESSAGES_PER_POLL_ALLOWED;
+  private static final int MAX_RETRY_DELAY_DOUBLINGS = 10;
+
+  private final AmazonSQS amazonSQS;
+  private final String queueUrl;
+  private final long flushDelayInMillis;
+  private final int maxAttempts;
+  private final long retryDelayInMillis;
+  private final ScheduledExecutorService scheduler;
+
+  private final Object lock = new Object();
+  private final List<PendingDelete> pendingEntries = new ArrayList<>();
+  private final List<ScheduledFuture<?>> scheduledRetries = new ArrayList<>();
+  private ScheduledFuture<?> scheduledFlush;
+
+  QueueDeleteBatcher(AmazonSQS amazonSQS,
+                     String queueUrl,
+                     long flushDelayInMillis,
+                     int maxAttempts,
+                     long retryDelayInMillis,
+                     ScheduledExecutorService scheduler) {
+    this.amazonSQS = amazonSQS;
+    this.queueUrl = queueUrl;
+    this.flushDelayInMillis = flushDelayInMillis;
+    this.maxAttempts = maxAttempts;
+    this.retryDelayInMillis = retryDelayInMillis;
+    this.scheduler = scheduler;
+  }
+
+  void add(List<Message> messages) {
+    List<PendingDelete> entries = new ArrayList<>();
+    messages.forEach(message -> entries.add(new PendingDelete(message.getMessageId(), message.getReceiptHandle())));
+    addPending(entries);
+  }
+
+  private void addPending(List<PendingDelete> entries) {
+    List<List<PendingDelete>> rejectedBatches = new ArrayList<>();
+    synchronized (lock) {
+      pendingEntries.addAll(entries);
+      while (pendingEntries.size() >= MAX_BATCH_SIZE) {
+        List<PendingDelete> batch = takeBatch();
+        if (!submit(batch)) {
+          rejectedBatches.add(batch);
+        }
+      }
+      if (!pendingEntries.isEmpty() && scheduledFlush == null && !scheduleFlush()) {
+        rejectedBatches.addAll(takeAll());
+      }
+    }
+    rejectedBatches.forEach(this::send);
+  }
+
+  /**
+   * @return false if the scheduler has been shut down, so the batch has to be sent by the caller.
+   */
+  private boolean submit(List<PendingDelete> batch) {
+    try {
+      scheduler.execute(() -> send(batch));
+      return true;
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Delete scheduler stopped. Sending batch from the calling thread: queueUrl={}", queueUrl);
+      return false;
+    }
+  }
+
+  /**
+   * @return false if the scheduler has been shut down, so the pending entries have to be sent by the caller.
+   */
+  private boolean scheduleFlush() {
+    try {
+      scheduledFlush = scheduler.schedule(this::flushScheduled, flushDelayInMillis, MILLISECONDS);
+      return true;
+    } catch (RejectedExecutionException e) {
+      LOGGER.debug("Delete scheduler stopped. Sending pending entries from the calling thread: queueUrl={}", queueUrl);
+      return false;
+    }
+  }
+
+  private void flushScheduled() {
+    List<List<PendingDelete>> batches;
+    synchronized (lock) {
+      scheduledFlush = null;
+      batches = takeAll();
+    }
+    batches.forEach(this::send);
+  }
+
+  /**
+   * Sends all the pending entries from the calling thread, waiting for the retries of the entries failing.
+   */
+  void flush() {
+    List<List<PendingDelete>> batches;
+    List<ScheduledFuture<?>> retries;
+    do {
+      synchronized (lock) {
+        if (scheduledFlush != null) {
+          scheduledFlush.cancel(false);
+          scheduledFlush = null;
+        }
+        batches = takeAll();
+        retries = new ArrayList<>(scheduledRetries);
+        scheduledRetries.clear();
+      }
+      batches.forEach(this::send);
+      awaitRetries(retries);
+    } while ((!batches.isEmpty() || !retries.isEmpty()) && !Thread.currentThread().isInterrupted());
+  }
+
+  private void awaitRetries(List<ScheduledFuture<?>> retries) {
+    for (ScheduledFuture<?> retry : retries) {
+      try {
+        retry.get();
+      } catch (InterruptedException e) {
+        LOGGER.warn("Interrupted while waiting for delete retries: queueUrl={}", queueUrl);
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException | CancellationException e) {
+        LOGGER.warn("Delete retry not completed: queueUrl={}", queueUrl, e);
+      }
+    }
+  }
+
+  int getPendingEntries() {
+    synchronized (lock) {
+      return pendingEntries.size();
+    }
+  }
+
+  private List<List<PendingDelete>> takeAll() {
+    List<List<PendingDelete>> batches = new ArrayList<>();
+    while (!pendingEntries.isEmpty()) {
+      batches.add(takeBatch());
+    }
+    return batches;
+  }
+
+  private List<PendingDelete> takeBatch() {
+    List<PendingDelete> head = pendingEntries.subList(0, Math.min(MAX_BATCH_SIZE, pendingEntries.size()));
+    List<PendingDelete> batch = new ArrayList<>(head);
+    head.clear();
+    return batch;
+  }
+
+  private void send(List<PendingDelete> batch) {
+    try {
+      DeleteMessageBatchResult result = amazonSQS.deleteMessageBatch(createRequestFrom(batch));
+      LOGGER.debug("Messages deleted from SQS: queueUrl={}, messages={}", queueUrl, result.getSuccessful().size());
+      if (!result.getFailed().isEmpty()) {
+        handleFailedEntries(batch, result.getFailed());
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Error sending delete batch to SQS: queueUrl={}, size={}", queueUrl, batch.size(), e);
+      retry(batch);
+    }
+  }
+
+  private DeleteMessageBatchRequest createRequestFrom(List<PendingDelete> batch) {
+    List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+    for (int index = 0; index < batch.size(); index++) {
+      entries.add(new DeleteMessageBatchRequestEntry(String.valueOf(index), batch.get(index).receiptHandle));
+    }
+    return new DeleteMessageBatchRequest().withQueueUrl(queueUrl).withEntries(entries);
+  }
+
+  private void handleFailedEntries(List<PendingDelete> batch, List<BatchResultErrorEntry> failedEntries) {
+    List<PendingDelete> entriesToRetry = new ArrayList<>();
+    for (BatchResultErrorEntry failedEntry : failedEntries) {
+      PendingDelete pendingDelete = batch.get(Integer.parseInt(failedEntry.getId()));
+      if (Boolean.TRUE.equals(failedEntry.getSenderFault())) {
+        LOGGER.error("Error deleting message from SQS: queueUrl={}, messageId={}, code={}, message={}",
+          queueUrl, pendingDelete.messageId, failedEntry.getCode(), failedEntry.getMessage());
+      } else {
+        entriesToRetry.add(pendingDelete);
+      }
+    }
+    retry(entriesToRetry);
+  }
+
+  private void retry(List<PendingDelete> entries) {
+    List<PendingDelete> entriesToRetry = new ArrayList<>();
+    for (PendingDelete entry : entries) {
+      if (++entry.attempts < maxAttempts) {
+        entriesToRetry.add(entry);
+      } else {
+        LOGGER.error("Giving up deleting message from SQS: queueUrl={}, messageId={}, attempts={}",
+          queueUrl, entry.messageId, entry.attempts);
+      }
+    }
+    if (!entriesToRetry.isEmpty()) {
+      scheduleRetry(entriesToRetry);
+    }
+  }
+
+  private void scheduleRetry(List<PendingDelete> entries) {
+    int attempts = entries.stream().mapToInt(entry -> entry.attempts).max().orElse(1);
+    long delayInMillis = retryDelayInMillis << Math.min(attempts - 1, MAX_RETRY_DELAY_DOUBLINGS);
+    synchronized (lock) {
+      try {
+        scheduledRetries.removeIf(Future::isDone);
+        scheduledRetries.add(scheduler.schedule(() -> addPending(entries), delayInMillis, MILLISECONDS));
+        LOGGER.debug("Delete retry scheduled: queueUrl={}, size={}, delay={}", queueUrl, entries.size(), delayInMillis);
+        return;
+      } catch (RejectedExecutionException e) {
+        LOGGER.debug("Delete scheduler stopped. Retrying from the calling thread: queueUrl={}", queueUrl);
+      }
+    }
+    addPending(entries);
+  }
+
+  private static class PendingDelete {
+    private final String messageId;
+    private final String receiptHandle;
+    private int attempts;
+
+    private PendingDelete(String messageId, String receiptHandle) {
+      this.messageId = messageId;
+      this.receiptHandle = receiptHandle;
+    }
+  }
+}
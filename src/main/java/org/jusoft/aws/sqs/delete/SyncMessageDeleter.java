@@ -0,0 +1,51 @@
+package org.jusoft.aws.sqs.delete;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Deletes messages by issuing a single {@link DeleteMessageBatchRequest} per invocation, blocking the caller until AWS
+ * SQS answers. Entries that fail to be deleted are logged and not retried.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class SyncMessageDeleter implements MessageDeleter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SyncMessageDeleter.class);
+
+  private final AmazonSQS amazonSQS;
+
+  public SyncMessageDeleter(AmazonSQS amazonSQS) {
+    this.amazonSQS = amazonSQS;
+    notNull(this.amazonSQS);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void delete(String queueUrl, List<Message> messages) {
+    DeleteMessageBatchResult result = amazonSQS.deleteMessageBatch(createDeleteMessageRequestFrom(messages, queueUrl));
+    if (!result.getFailed().isEmpty()) {
+      LOGGER.error("Error deleting messages from SQS: queueUrl={}, messages={}", queueUrl, result.getFailed());
+    }
+    LOGGER.debug("Messages deleted from SQS: queueUrl={}, messages={}", queueUrl, result.getSuccessful());
+  }
+
+  private DeleteMessageBatchRequest createDeleteMessageRequestFrom(List<Message> messages, String queueUrl) {
+    List<DeleteMessageBatchRequestEntry> batchEntries = messages.stream()
+      .map(message -> new DeleteMessageBatchRequestEntry(message.getMessageId(), message.getReceiptHandle()))
+      .collect(toList());
+    return new DeleteMessageBatchRequest().withQueueUrl(queueUrl).withEntries(batchEntries);
+  }
+}
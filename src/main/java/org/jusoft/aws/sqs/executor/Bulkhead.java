@@ -0,0 +1,105 @@
+package org.jusoft.aws.sqs.executor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Isolated pool of threads running the loops and consumers of a single queue, created by the
+ * {@link BulkheadExecutorFactory}. Tasks are rejected once all its threads are busy and its queue is full, so a slow
+ * consumer cannot take the threads used by the consumers of other queues. The size of the pool, its active threads, the
+ * tasks waiting in its queue and the tasks rejected can be observed while it is running.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class Bulkhead {
+
+  /**
+   * Capacity of the queue of tasks waiting for a thread to mark it as unbounded.
+   */
+  public static final int UNBOUNDED_QUEUE_CAPACITY = Integer.MAX_VALUE;
+
+  private final String queueName;
+  private final ThreadPoolExecutor pool;
+  private final AtomicLong rejectedCount;
+
+  Bulkhead(String queueName, int poolSize, int queueCapacity) {
+    isTrue(poolSize > 0, "Bulkhead pool size must be greater than 0. Queue=%s", queueName);
+    isTrue(queueCapacity > 0, "Bulkhead queue capacity must be greater than 0. Queue=%s", queueName);
+    this.queueName = queueName;
+    notNull(this.queueName);
+    this.rejectedCount = new AtomicLong();
+    AtomicInteger threadCounter = new AtomicInteger();
+    this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0, MILLISECONDS, createQueue(queueCapacity),
+      runnable -> new Thread(runnable, "sqs-bulkhead-" + queueName + "-" + threadCounter.incrementAndGet()),
+      (runnable, executor) -> {
+        rejectedCount.incrementAndGet();
+        throw new RejectedExecutionException("Bulkhead full. Queue=" + queueName);
+      });
+  }
+
+  private static BlockingQueue<Runnable> createQueue(int queueCapacity) {
+    return queueCapacity == UNBOUNDED_QUEUE_CAPACITY
+      ? new LinkedBlockingQueue<>()
+      : new ArrayBlockingQueue<>(queueCapacity);
+  }
+
+  ThreadPoolExecutor getPool() {
+    return pool;
+  }
+
+  public String getQueueName() {
+    return queueName;
+  }
+
+  public int getPoolSize() {
+    return pool.getMaximumPoolSize();
+  }
+
+  /**
+   * Returns the approximate number of threads running tasks.
+   */
+  public int getActiveCount() {
+    return pool.getActiveCount();
+  }
+
+  /**
+   * Returns the number of tasks waiting for a thread.
+   */
+  public int getQueueDepth() {
+    return pool.getQueue().size();
+  }
+
+  /**
+   * Returns the number of tasks rejected because the bulkhead was full.
+   */
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  /**
+   * Returns the approximate number of tasks completed.
+   */
+  public long getCompletedTaskCount() {
+    return pool.getCompletedTaskCount();
+  }
+
+  @Override
+  public String toString() {
+    return "Bulkhead{" +
+      "queueName='" + queueName + '\'' +
+      ", poolSize=" + getPoolSize() +
+      ", activeCount=" + getActiveCount() +
+      ", queueDepth=" + getQueueDepth() +
+      ", rejectedCount=" + getRejectedCount() +
+      '}';
+  }
+}
@@ -0,0 +1,90 @@
+package org.jusoft.aws.sqs.executor;
+
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.apache.commons.lang3.Validate.notNull;
+import static org.jusoft.aws.sqs.executor.Bulkhead.UNBOUNDED_QUEUE_CAPACITY;
+
+/**
+ * Creates {@link BulkheadExecutors} with an isolated {@link Bulkhead} for each queue instead of a single pool
+ * shared by all the consumers, so a consumer blocking its threads cannot starve the consumers of other queues. By
+ * default, each bulkhead has as many threads as concurrent consumers and workers the consumers of its queue have, the
+ * same number the {@link FixedExecutorFactory} adds to the shared pool for them. The size of any bulkhead can be
+ * overridden by queue name, and the tasks waiting for a thread in each bulkhead can be bounded, rejecting new tasks
+ * once it is full. Loops polling synchronously hold a thread each while the consumer runs, so their bulkhead must not
+ * be smaller than the number of loops of its queue.
+ * <p>
+ * A single {@link ExecutorService} cannot tell the queue of the tasks submitted to it, so the queues are only isolated
+ * by the executors created through {@link #createQueueExecutorsFor(Iterable)}, as the
+ * {@link org.jusoft.aws.sqs.SqsDispatcher} does. {@link #createFor(Iterable)} creates a single pool as large as all the
+ * bulkheads together instead.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class BulkheadExecutorFactory implements ExecutorFactory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BulkheadExecutorFactory.class);
+
+  private final Map<String, Integer> poolSizes;
+  private final int queueCapacity;
+
+  public BulkheadExecutorFactory() {
+    this(Collections.emptyMap(), UNBOUNDED_QUEUE_CAPACITY);
+  }
+
+  /**
+   * @param poolSizes     number of threads of the bulkhead of each queue, by queue name. Queues not included get as
+   *                      many threads as concurrent consumers and workers they have.
+   * @param queueCapacity maximum number of tasks waiting for a thread in each bulkhead.
+   */
+  public BulkheadExecutorFactory(Map<String, Integer> poolSizes, int queueCapacity) {
+    this.poolSizes = new HashMap<>(poolSizes);
+    this.queueCapacity = queueCapacity;
+    notNull(poolSizes);
+  }
+
+  /**
+   * Creates a single pool shared by all the queues, with as many threads as all their bulkheads together.
+   */
+  @Override
+  public ExecutorService createFor(Iterable<SqsConsumer> consumerProperties) {
+    int poolSize = threadsByQueueOf(consumerProperties).entrySet().stream()
+      .mapToInt(threadsOfQueue -> poolSizes.getOrDefault(threadsOfQueue.getKey(), threadsOfQueue.getValue()))
+      .sum();
+    return Executors.newFixedThreadPool(poolSize);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public BulkheadExecutors createQueueExecutorsFor(Iterable<SqsConsumer> consumerProperties) {
+    Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+    threadsByQueueOf(consumerProperties).forEach((queueName, threads) -> {
+      int poolSize = poolSizes.getOrDefault(queueName, threads);
+      if (poolSize < threads) {
+        LOGGER.warn("Bulkhead smaller than the loops of its queue. Some loops will wait for a thread: queueName={}, " +
+          "poolSize={}, loops={}", queueName, poolSize, threads);
+      }
+      LOGGER.info("Creating bulkhead: queueName={}, poolSize={}, queueCapacity={}", queueName, poolSize, queueCapacity);
+      bulkheads.put(queueName, new Bulkhead(queueName, poolSize, queueCapacity));
+    });
+    return new BulkheadExecutors(bulkheads);
+  }
+
+  private static Map<String, Integer> threadsByQueueOf(Iterable<SqsConsumer> consumerProperties) {
+    Map<String, Integer> threadsByQueue = new LinkedHashMap<>();
+    consumerProperties.forEach(consumer ->
+      threadsByQueue.merge(consumer.value(), consumer.concurrentConsumers() + consumer.workers(), Integer::sum));
+    return threadsByQueue;
+  }
+}
@@ -0,0 +1,78 @@
+package org.jusoft.aws.sqs.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * {@link QueueExecutors} created by the {@link BulkheadExecutorFactory}, made of a {@link Bulkhead} per queue. The
+ * tasks of each queue run on the pool of its bulkhead, returned by {@link #forQueue(String)}. Shutting it down shuts
+ * down all the bulkheads.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class BulkheadExecutors implements QueueExecutors {
+
+  private final Map<String, Bulkhead> bulkheads;
+
+  BulkheadExecutors(Map<String, Bulkhead> bulkheads) {
+    this.bulkheads = Collections.unmodifiableMap(bulkheads);
+    notNull(this.bulkheads);
+  }
+
+  /**
+   * Returns the executor isolating the tasks of the queue.
+   *
+   * @throws IllegalArgumentException if no bulkhead was created for the queue.
+   */
+  @Override
+  public ExecutorService forQueue(String queueName) {
+    Bulkhead bulkhead = bulkheads.get(queueName);
+    if (bulkhead == null) {
+      throw new IllegalArgumentException("No bulkhead created for the queue. Queue=" + queueName);
+    }
+    return bulkhead.getPool();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String, Bulkhead> getBulkheads() {
+    return bulkheads;
+  }
+
+  @Override
+  public void shutdown() {
+    bulkheads.values().forEach(bulkhead -> bulkhead.getPool().shutdown());
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> pending = new ArrayList<>();
+    bulkheads.values().forEach(bulkhead -> pending.addAll(bulkhead.getPool().shutdownNow()));
+    return pending;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Bulkhead bulkhead : bulkheads.values()) {
+      if (!bulkhead.getPool().awaitTermination(Math.max(0, deadline - System.nanoTime()), NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return bulkheads.values().stream().allMatch(bulkhead -> bulkhead.getPool().isTerminated());
+  }
+}
@@ -19,4 +19,14 @@ public interface ExecutorFactory {
    * @param consumerProperties Configuration of the AWS SQS consumers defined in the application.
    */
   ExecutorService createFor(Iterable<SqsConsumer> consumerProperties);
+
+  /**
+   * Creates the {@link QueueExecutors} used to start the consumers of each AWS SQS queue. By default, all the queues
+   * share the {@link ExecutorService} created by {@link #createFor(Iterable)}.
+   *
+   * @param consumerProperties Configuration of the AWS SQS consumers defined in the application.
+   */
+  default QueueExecutors createQueueExecutorsFor(Iterable<SqsConsumer> consumerProperties) {
+    return QueueExecutors.shared(createFor(consumerProperties));
+  }
 }
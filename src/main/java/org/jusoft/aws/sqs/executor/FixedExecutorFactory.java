@@ -9,7 +9,7 @@ import static java.util.stream.StreamSupport.stream;
 
 /**
  * Creates an {@link ExecutorService} with a fixed number of threads. The number is calculated by summing up the
- * concurrent consumers property from each of the AWS SQS queue consumer configuration.
+ * concurrent consumers and the workers properties from each of the AWS SQS queue consumer configuration.
  *
  * @author Juan Manuel Carnicero Vega
  */
@@ -25,7 +25,7 @@ public class FixedExecutorFactory implements ExecutorFactory {
 
   private int getTotalConsumerThreadsFrom(Iterable<SqsConsumer> consumers) {
     return stream(consumers.spliterator(), false)
-      .mapToInt(SqsConsumer::concurrentConsumers)
+      .mapToInt(consumer -> consumer.concurrentConsumers() + consumer.workers())
       .sum();
   }
 }
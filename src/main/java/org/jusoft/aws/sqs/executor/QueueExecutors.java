@@ -0,0 +1,60 @@
+package org.jusoft.aws.sqs.executor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors running the loops and the consumers of each AWS SQS queue, created by an {@link ExecutorFactory}. Queues
+ * can share a single {@link ExecutorService}, as returned by {@link #shared(ExecutorService)}, or be isolated in a
+ * {@link Bulkhead} each. Shutting them down shuts down the executors of all the queues.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public interface QueueExecutors {
+
+  /**
+   * Returns the executor to run the loops and the consumers of the queue.
+   *
+   * @throws IllegalArgumentException if no executor was created for the queue.
+   */
+  ExecutorService forQueue(String queueName);
+
+  /**
+   * Returns the bulkheads isolating each queue, by queue name, so their usage can be monitored. Empty when the queues
+   * are not isolated.
+   */
+  default Map<String, Bulkhead> getBulkheads() {
+    return Collections.emptyMap();
+  }
+
+  /**
+   * Shuts down the executors of all the queues, letting the tasks already submitted finish.
+   */
+  void shutdown();
+
+  /**
+   * Shuts down the executors of all the queues, interrupting the tasks running.
+   *
+   * @return the tasks that never started.
+   */
+  List<Runnable> shutdownNow();
+
+  /**
+   * Waits for the executors of all the queues to finish their tasks once they have been shut down.
+   *
+   * @return true if they finished, false if the timeout elapsed before.
+   */
+  boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+
+  boolean isTerminated();
+
+  /**
+   * Returns executors where all the queues share the one passed.
+   */
+  static QueueExecutors shared(ExecutorService executor) {
+    return new SharedQueueExecutors(executor);
+  }
+}
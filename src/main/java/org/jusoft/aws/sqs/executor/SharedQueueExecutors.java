@@ -0,0 +1,47 @@
+package org.jusoft.aws.sqs.executor;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * {@link QueueExecutors} where all the queues share a single {@link ExecutorService}.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+class SharedQueueExecutors implements QueueExecutors {
+
+  private final ExecutorService executor;
+
+  SharedQueueExecutors(ExecutorService executor) {
+    this.executor = executor;
+    notNull(this.executor);
+  }
+
+  @Override
+  public ExecutorService forQueue(String queueName) {
+    return executor;
+  }
+
+  @Override
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return executor.shutdownNow();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executor.awaitTermination(timeout, unit);
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return executor.isTerminated();
+  }
+}
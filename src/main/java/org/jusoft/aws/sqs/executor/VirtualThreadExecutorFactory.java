@@ -0,0 +1,87 @@
+package org.jusoft.aws.sqs.executor;
+
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Creates an {@link ExecutorService} starting a new virtual thread for every poll and worker loop, so the loops blocked
+ * waiting for a long poll do not hold an OS thread each. Consumers are invoked from the loops, so they run on virtual
+ * threads too.
+ * <p>
+ * Virtual threads are looked up at runtime, so the library can still be compiled and run on Java 8. When the JVM does
+ * not support them, the executor is created by the fallback {@link ExecutorFactory}, a {@link FixedExecutorFactory}
+ * by default.
+ * <p>
+ * Blocking calls made while holding a monitor pin the virtual thread to its carrier thread, so consumers should avoid
+ * long blocking calls inside synchronized blocks.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class VirtualThreadExecutorFactory implements ExecutorFactory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadExecutorFactory.class);
+
+  static final String THREAD_NAME_PREFIX = "sqs-consumer-virtual-";
+
+  private final ThreadFactory virtualThreadFactory;
+  private final ExecutorFactory fallbackExecutorFactory;
+
+  public VirtualThreadExecutorFactory() {
+    this(new FixedExecutorFactory());
+  }
+
+  /**
+   * @param fallbackExecutorFactory factory used when virtual threads are not supported by the JVM.
+   */
+  public VirtualThreadExecutorFactory(ExecutorFactory fallbackExecutorFactory) {
+    this(createVirtualThreadFactory(), fallbackExecutorFactory);
+  }
+
+  VirtualThreadExecutorFactory(ThreadFactory virtualThreadFactory, ExecutorFactory fallbackExecutorFactory) {
+    this.virtualThreadFactory = virtualThreadFactory;
+    this.fallbackExecutorFactory = fallbackExecutorFactory;
+    notNull(fallbackExecutorFactory);
+  }
+
+  private static ThreadFactory createVirtualThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      builder = builderType.getMethod("name", String.class, long.class).invoke(builder, THREAD_NAME_PREFIX, 0L);
+      return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+    } catch (Exception e) {
+      LOGGER.debug("Virtual threads not supported: javaVersion={}", System.getProperty("java.version"));
+      return null;
+    }
+  }
+
+  /**
+   * Returns true if the executors are created using virtual threads.
+   */
+  public boolean isVirtualThreadSupported() {
+    return virtualThreadFactory != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ExecutorService createFor(Iterable<SqsConsumer> consumerProperties) {
+    if (!isVirtualThreadSupported()) {
+      LOGGER.info("Virtual threads not supported. Using fallback executor: factory={}",
+        fallbackExecutorFactory.getClass().getSimpleName());
+      return fallbackExecutorFactory.createFor(consumerProperties);
+    }
+    LOGGER.info("Using virtual threads to run consumers");
+    return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, SECONDS, new SynchronousQueue<>(), virtualThreadFactory);
+  }
+}
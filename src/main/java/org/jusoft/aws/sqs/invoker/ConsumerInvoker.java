@@ -0,0 +1,20 @@
+package org.jusoft.aws.sqs.invoker;
+
+/**
+ * Invokes the method of a consumer on its instance. Implementations are created once per consumer by
+ * {@link ConsumerInvokers} and bound to the consumer instance, so the hot path does not go through reflection.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+@FunctionalInterface
+public interface ConsumerInvoker {
+
+  /**
+   * Invokes the consumer method with the parameters passed.
+   *
+   * @param parameters parameters of the consumer method, in the order they are declared.
+   * @return the value returned by the consumer method, or null if it does not return anything.
+   * @throws Throwable any exception thrown by the consumer method, without being wrapped.
+   */
+  Object invoke(Object[] parameters) throws Throwable;
+}
@@ -0,0 +1,197 @@
+package org.jusoft.aws.sqs.invoker;
+
+import org.jusoft.aws.sqs.NativeImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Compiles a consumer method into a {@link ConsumerInvoker} bound to the consumer instance. Three strategies are tried
+ * in order:
+ * <li>
+ * <ul>Single parameter methods of public classes visible from the library class loader are compiled with the
+ * {@link LambdaMetafactory} into a {@link Function} or a {@link Consumer}, which the JIT can inline as any other
+ * lambda</ul>
+ * <ul>Any other method is unreflected into a {@link MethodHandle} bound to the instance and adapted to take an
+ * {@code Object[]}, invoked with {@link MethodHandle#invokeExact(Object...)}</ul>
+ * <ul>Methods that cannot be unreflected fall back to {@link Method#invoke(Object, Object...)}</ul>
+ * </li>
+ * Inside a native image, where lambdas cannot be spun at runtime, methods are always invoked with
+ * {@link Method#invoke(Object, Object...)}, using the reflection metadata generated for the consumers.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public final class ConsumerInvokers {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerInvokers.class);
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final MethodType CONSUMER_FACTORY_TYPE = MethodType.methodType(void.class, Object.class);
+  private static final MethodType FUNCTION_FACTORY_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private ConsumerInvokers() {
+  }
+
+  /**
+   * Compiles the consumer method into the fastest {@link ConsumerInvoker} available for it.
+   *
+   * @param consumerInstance instance to invoke the method on.
+   * @param consumerMethod   method to invoke.
+   */
+  public static ConsumerInvoker compile(Object consumerInstance, Method consumerMethod) {
+    if (NativeImage.isRuntime()) {
+      return reflectiveInvoker(consumerInstance, consumerMethod);
+    }
+    if (isLambdaCompatible(consumerMethod)) {
+      try {
+        return lambdaInvoker(consumerInstance, consumerMethod);
+      } catch (Throwable e) {
+        LOGGER.debug("Unable to compile consumer using LambdaMetafactory: method={}", consumerMethod, e);
+      }
+    }
+    try {
+      return methodHandleInvoker(consumerInstance, consumerMethod);
+    } catch (IllegalAccessException | RuntimeException e) {
+      LOGGER.warn("Unable to compile consumer. Using reflection: method={}", consumerMethod, e);
+      return reflectiveInvoker(consumerInstance, consumerMethod);
+    }
+  }
+
+  /**
+   * Creates an invoker using {@link Method#invoke(Object, Object...)}, unwrapping the exceptions thrown by the method.
+   */
+  public static ConsumerInvoker reflectiveInvoker(Object consumerInstance, Method consumerMethod) {
+    return parameters -> {
+      try {
+        return consumerMethod.invoke(consumerInstance, parameters);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    };
+  }
+
+  /**
+   * Creates an invoker using a {@link MethodHandle} bound to the consumer instance.
+   *
+   * @throws IllegalAccessException if the method is not accessible.
+   */
+  public static ConsumerInvoker methodHandleInvoker(Object consumerInstance, Method consumerMethod)
+    throws IllegalAccessException {
+    int parameterCount = consumerMethod.getParameterCount();
+    MethodHandle spreadInvoker = unreflect(consumerMethod)
+      .bindTo(consumerInstance)
+      .asType(MethodType.genericMethodType(parameterCount))
+      .asSpreader(Object[].class, parameterCount);
+    return new MethodHandleConsumerInvoker(spreadInvoker);
+  }
+
+  private static MethodHandle unreflect(Method consumerMethod) throws IllegalAccessException {
+    try {
+      return LOOKUP.unreflect(consumerMethod);
+    } catch (IllegalAccessException e) {
+      consumerMethod.setAccessible(true);
+      return LOOKUP.unreflect(consumerMethod);
+    }
+  }
+
+  private static boolean isLambdaCompatible(Method consumerMethod) {
+    Class<?> declaringClass = consumerMethod.getDeclaringClass();
+    return consumerMethod.getParameterCount() == 1
+      && Modifier.isPublic(consumerMethod.getModifiers())
+      && !Modifier.isStatic(consumerMethod.getModifiers())
+      && isPublicAndVisible(declaringClass)
+      && isPublicAndVisible(consumerMethod.getParameterTypes()[0])
+      && isPublicAndVisible(consumerMethod.getReturnType());
+  }
+
+  /**
+   * The class generated by the {@link LambdaMetafactory} is defined next to this class, so it can only link against
+   * public classes that can be loaded from the library class loader.
+   */
+  private static boolean isPublicAndVisible(Class<?> type) {
+    if (type.isPrimitive()) {
+      return true;
+    }
+    if (type.isArray()) {
+      return isPublicAndVisible(type.getComponentType());
+    }
+    for (Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+      if (!Modifier.isPublic(enclosing.getModifiers())) {
+        return false;
+      }
+    }
+    try {
+      return Class.forName(type.getName(), false, ConsumerInvokers.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ConsumerInvoker lambdaInvoker(Object consumerInstance, Method consumerMethod) throws Throwable {
+    MethodHandle implementation = LOOKUP.unreflect(consumerMethod);
+    Class<?> declaringClass = consumerMethod.getDeclaringClass();
+    MethodType instantiatedType = implementation.type().dropParameterTypes(0, 1).wrap();
+    if (consumerMethod.getReturnType() == void.class) {
+      CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "accept",
+        MethodType.methodType(Consumer.class, declaringClass), CONSUMER_FACTORY_TYPE, implementation,
+        instantiatedType.changeReturnType(void.class));
+      Consumer<Object> consumer = (Consumer<Object>) callSite.getTarget().invoke(consumerInstance);
+      return new VoidLambdaConsumerInvoker(consumer);
+    }
+    CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "apply",
+      MethodType.methodType(Function.class, declaringClass), FUNCTION_FACTORY_TYPE, implementation, instantiatedType);
+    Function<Object, Object> function = (Function<Object, Object>) callSite.getTarget().invoke(consumerInstance);
+    return new LambdaConsumerInvoker(function);
+  }
+
+  private static final class VoidLambdaConsumerInvoker implements ConsumerInvoker {
+    private final Consumer<Object> consumer;
+
+    private VoidLambdaConsumerInvoker(Consumer<Object> consumer) {
+      this.consumer = consumer;
+    }
+
+    @Override
+    public Object invoke(Object[] parameters) {
+      consumer.accept(parameters[0]);
+      return null;
+    }
+  }
+
+  private static final class LambdaConsumerInvoker implements ConsumerInvoker {
+    private final Function<Object, Object> function;
+
+    private LambdaConsumerInvoker(Function<Object, Object> function) {
+      this.function = function;
+    }
+
+    @Override
+    public Object invoke(Object[] parameters) {
+      return function.apply(parameters[0]);
+    }
+  }
+
+  private static final class MethodHandleConsumerInvoker implements ConsumerInvoker {
+    private final MethodHandle spreadInvoker;
+
+    private MethodHandleConsumerInvoker(MethodHandle spreadInvoker) {
+      this.spreadInvoker = spreadInvoker;
+    }
+
+    @Override
+    public Object invoke(Object[] parameters) throws Throwable {
+      return (Object) spreadInvoker.invokeExact(parameters);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package org.jusoft.aws.sqs.limit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * Additive increase, multiplicative decrease. The limit grows by one after each invocation completed within the latency
+ * threshold while at least half of the limit is in use, and is multiplied by the backoff ratio after each invocation
+ * that fails or exceeds the threshold. Failures are taken as a sign of an overloaded downstream, like the timeouts of
+ * its clients.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class AimdLimitAlgorithm implements LimitAlgorithm {
+
+  public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+  private final long latencyThresholdInNanos;
+  private final double backoffRatio;
+
+  public AimdLimitAlgorithm(long latencyThresholdInMillis) {
+    this(latencyThresholdInMillis, DEFAULT_BACKOFF_RATIO);
+  }
+
+  /**
+   * @param latencyThresholdInMillis latency above which an invocation decreases the limit.
+   * @param backoffRatio             ratio applied to the limit when it decreases, between 0.5 and 1 exclusive.
+   */
+  public AimdLimitAlgorithm(long latencyThresholdInMillis, double backoffRatio) {
+    isTrue(latencyThresholdInMillis > 0, "Latency threshold must be greater than 0");
+    isTrue(backoffRatio >= 0.5 && backoffRatio < 1, "Backoff ratio must be between 0.5 and 1 exclusive");
+    this.latencyThresholdInNanos = MILLISECONDS.toNanos(latencyThresholdInMillis);
+    this.backoffRatio = backoffRatio;
+  }
+
+  @Override
+  public int update(int limit, int inFlight, long latencyInNanos, boolean failed) {
+    if (failed || latencyInNanos > latencyThresholdInNanos) {
+      return (int) (limit * backoffRatio);
+    }
+    if (inFlight * 2 >= limit && limit < Integer.MAX_VALUE) {
+      return limit + 1;
+    }
+    return limit;
+  }
+}
@@ -0,0 +1,123 @@
+package org.jusoft.aws.sqs.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Limits the concurrent invocations of a consumer. Invocations wait for a permit while the limit is reached, and the
+ * limit is adjusted by the {@link LimitAlgorithm} after each invocation completes, between the minimum and maximum
+ * limits given.
+ * <p>
+ * Invocations wait on a {@link Lock} instead of a monitor, so virtual threads waiting for a permit do not pin their
+ * carrier thread. Limiters created by {@link #unlimited()} take no lock at all, only counting the invocations in
+ * progress.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class ConcurrencyLimiter {
+
+  /**
+   * Limit that never makes an invocation wait.
+   */
+  public static final int UNLIMITED = Integer.MAX_VALUE;
+
+  private final LimitAlgorithm limitAlgorithm;
+  private final int minLimit;
+  private final int maxLimit;
+  private final boolean isUnlimited;
+  private final Lock lock;
+  private final Condition permitReleased;
+  private final AtomicInteger inFlight;
+
+  /**
+   * Only changed holding the lock. Volatile as it is read without it to check whether the limiter is saturated.
+   */
+  private volatile int limit;
+
+  /**
+   * @param limitAlgorithm algorithm adjusting the limit, not shared with other limiters.
+   * @param initialLimit   limit until the first invocation completes.
+   * @param minLimit       minimum limit, at least 1.
+   * @param maxLimit       maximum limit.
+   */
+  public ConcurrencyLimiter(LimitAlgorithm limitAlgorithm, int initialLimit, int minLimit, int maxLimit) {
+    this.limitAlgorithm = limitAlgorithm;
+    notNull(this.limitAlgorithm);
+    isTrue(minLimit > 0, "Minimum limit must be greater than 0");
+    isTrue(maxLimit >= minLimit, "Maximum limit cannot be lower than the minimum limit");
+    isTrue(initialLimit >= minLimit && initialLimit <= maxLimit, "Initial limit must be between %d and %d",
+      minLimit, maxLimit);
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+    this.isUnlimited = minLimit == UNLIMITED;
+    this.lock = new ReentrantLock();
+    this.permitReleased = lock.newCondition();
+    this.inFlight = new AtomicInteger();
+  }
+
+  public static ConcurrencyLimiter unlimited() {
+    return new ConcurrencyLimiter((limit, inFlight, latencyInNanos, failed) -> limit, UNLIMITED, UNLIMITED, UNLIMITED);
+  }
+
+  /**
+   * Waits until the invocations in progress are below the limit and starts a new one.
+   */
+  public void acquire() throws InterruptedException {
+    if (isUnlimited) {
+      inFlight.incrementAndGet();
+      return;
+    }
+    lock.lockInterruptibly();
+    try {
+      while (inFlight.get() >= limit) {
+        permitReleased.await();
+      }
+      inFlight.incrementAndGet();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Completes an invocation started with {@link #acquire()}, adjusting the limit with its outcome.
+   *
+   * @param latencyInNanos time taken by the invocation.
+   * @param failed         whether the invocation threw an exception.
+   */
+  public void release(long latencyInNanos, boolean failed) {
+    if (isUnlimited) {
+      inFlight.decrementAndGet();
+      return;
+    }
+    lock.lock();
+    try {
+      int newLimit = limitAlgorithm.update(limit, inFlight.get(), latencyInNanos, failed);
+      limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+      inFlight.decrementAndGet();
+      permitReleased.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns whether new invocations would have to wait for the ones in progress.
+   */
+  public boolean isSaturated() {
+    return inFlight.get() >= limit;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+}
@@ -0,0 +1,47 @@
+package org.jusoft.aws.sqs.limit;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Holds a {@link ConcurrencyLimiter} for each queue, created on first use, so the limit of each consumer adapts to the
+ * latency of its own downstream.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class ConcurrencyLimiters {
+
+  private final Supplier<ConcurrencyLimiter> limiterFactory;
+  private final Map<String, ConcurrencyLimiter> limiters;
+
+  /**
+   * @param limiterFactory creates the limiter of each queue. It must return a new limiter on every invocation.
+   */
+  public ConcurrencyLimiters(Supplier<ConcurrencyLimiter> limiterFactory) {
+    this.limiterFactory = limiterFactory;
+    this.limiters = new ConcurrentHashMap<>();
+    notNull(this.limiterFactory);
+  }
+
+  /**
+   * Returns limiters that never make an invocation wait.
+   */
+  public static ConcurrencyLimiters unlimited() {
+    return new ConcurrencyLimiters(ConcurrencyLimiter::unlimited);
+  }
+
+  public ConcurrencyLimiter forQueue(String queueName) {
+    return limiters.computeIfAbsent(queueName, name -> limiterFactory.get());
+  }
+
+  /**
+   * Returns the limiters created so far, by queue name.
+   */
+  public Map<String, ConcurrencyLimiter> getLimiters() {
+    return Collections.unmodifiableMap(limiters);
+  }
+}
@@ -0,0 +1,65 @@
+package org.jusoft.aws.sqs.limit;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * Adjusts the limit to the gradient between the long term average latency and the latency of each invocation, in the
+ * style of TCP Vegas. While invocations take as long as usual the limit grows by its square root, the number of
+ * invocations allowed to queue at the downstream. When they slow down the limit shrinks in proportion, down to half of
+ * it per invocation. Failed invocations shrink the limit by half.
+ * <p>
+ * The long term average follows the latency slowly so a lasting change in the downstream becomes the new baseline,
+ * and it is decayed faster when it drifts above twice the current latency, once the downstream recovers.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class GradientLimitAlgorithm implements LimitAlgorithm {
+
+  public static final double DEFAULT_TOLERANCE = 1.5;
+
+  static final double LONG_TERM_WEIGHT = 0.01;
+  static final double LIMIT_SMOOTHING = 0.2;
+  private static final double MIN_GRADIENT = 0.5;
+
+  private final double tolerance;
+  private double longTermLatencyInNanos;
+  private double estimatedLimit;
+
+  public GradientLimitAlgorithm() {
+    this(DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * @param tolerance times the long term latency an invocation can take before the limit is decreased, at least 1.
+   */
+  public GradientLimitAlgorithm(double tolerance) {
+    isTrue(tolerance >= 1, "Tolerance must be at least 1");
+    this.tolerance = tolerance;
+  }
+
+  @Override
+  public int update(int limit, int inFlight, long latencyInNanos, boolean failed) {
+    if (estimatedLimit == 0 || Math.abs(estimatedLimit - limit) >= 1) {
+      estimatedLimit = limit;
+    }
+    if (failed) {
+      estimatedLimit = estimatedLimit * MIN_GRADIENT;
+      return (int) estimatedLimit;
+    }
+    if (longTermLatencyInNanos == 0) {
+      longTermLatencyInNanos = latencyInNanos;
+    } else if (longTermLatencyInNanos > 2 * latencyInNanos) {
+      longTermLatencyInNanos = (longTermLatencyInNanos + latencyInNanos) / 2;
+    } else {
+      longTermLatencyInNanos += LONG_TERM_WEIGHT * (latencyInNanos - longTermLatencyInNanos);
+    }
+    if (inFlight * 2 < estimatedLimit) {
+      return limit;
+    }
+    double gradient = Math.max(MIN_GRADIENT,
+      Math.min(1, tolerance * longTermLatencyInNanos / Math.max(1, latencyInNanos)));
+    double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    estimatedLimit = estimatedLimit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING;
+    return (int) Math.min(Integer.MAX_VALUE, estimatedLimit);
+  }
+}
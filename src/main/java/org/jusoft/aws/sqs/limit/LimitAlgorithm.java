@@ -0,0 +1,21 @@
+package org.jusoft.aws.sqs.limit;
+
+/**
+ * Decides the number of concurrent invocations allowed for a consumer from the outcome of each invocation. Invoked by
+ * the {@link ConcurrencyLimiter} while holding its lock, so implementations keeping state do not need to synchronise
+ * it, but each limiter needs its own instance.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public interface LimitAlgorithm {
+
+  /**
+   * Returns the new limit after an invocation completes.
+   *
+   * @param limit          current limit.
+   * @param inFlight       invocations in progress when the invocation completed, including it.
+   * @param latencyInNanos time taken by the invocation.
+   * @param failed         whether the invocation threw an exception.
+   */
+  int update(int limit, int inFlight, long latencyInNanos, boolean failed);
+}
@@ -0,0 +1,118 @@
+package org.jusoft.aws.sqs.management;
+
+import org.jusoft.aws.sqs.SqsDispatcher;
+import org.jusoft.aws.sqs.backoff.PollBackoff;
+import org.jusoft.aws.sqs.service.ConsumerHandle;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * {@link SqsConsumerMXBean} of a single consumer, reading and retuning it through the {@link SqsDispatcher} that
+ * subscribed it.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+class SqsConsumerControl implements SqsConsumerMXBean {
+
+  private final SqsDispatcher dispatcher;
+  private final ConsumerHandle consumerHandle;
+
+  SqsConsumerControl(SqsDispatcher dispatcher, ConsumerHandle consumerHandle) {
+    this.dispatcher = dispatcher;
+    this.consumerHandle = consumerHandle;
+    notNull(this.dispatcher);
+    notNull(this.consumerHandle);
+  }
+
+  @Override
+  public String getQueueName() {
+    return consumerHandle.getQueueName();
+  }
+
+  @Override
+  public String getState() {
+    return consumerHandle.getState().name();
+  }
+
+  @Override
+  public int getPollers() {
+    return consumerHandle.getPollerHandles().size();
+  }
+
+  @Override
+  public int getActivePollers() {
+    return consumerHandle.getActivePollers();
+  }
+
+  @Override
+  public int getMaxMessagesPerPoll() {
+    return dispatcher.getDefinition(getQueueName()).maxMessagesPerPoll();
+  }
+
+  @Override
+  public void setMaxMessagesPerPoll(int maxMessagesPerPoll) {
+    dispatcher.retune(getQueueName(), definition -> definition.withMaxMessagesPerPoll(maxMessagesPerPoll));
+  }
+
+  @Override
+  public int getLongPolling() {
+    return dispatcher.getDefinition(getQueueName()).longPolling();
+  }
+
+  @Override
+  public void setLongPolling(int longPolling) {
+    dispatcher.retune(getQueueName(), definition -> definition.withLongPolling(longPolling));
+  }
+
+  @Override
+  public int getConcurrentConsumers() {
+    return dispatcher.getDefinition(getQueueName()).concurrentConsumers();
+  }
+
+  @Override
+  public void setConcurrentConsumers(int concurrentConsumers) {
+    dispatcher.retune(getQueueName(), definition -> definition.withConcurrentConsumers(concurrentConsumers));
+  }
+
+  @Override
+  public boolean isPaused() {
+    return consumerHandle.getState() == ConsumerHandle.State.PAUSED;
+  }
+
+  @Override
+  public void setPaused(boolean paused) {
+    if (paused) {
+      consumerHandle.pause();
+    } else {
+      consumerHandle.resume(getConcurrentConsumers());
+    }
+  }
+
+  @Override
+  public int getConsecutiveEmptyReceives() {
+    return getPollBackoff().getConsecutiveEmptyReceives();
+  }
+
+  @Override
+  public int getConsecutiveErrors() {
+    return getPollBackoff().getConsecutiveErrors();
+  }
+
+  @Override
+  public long getTotalErrors() {
+    return getPollBackoff().getTotalErrors();
+  }
+
+  @Override
+  public String getCircuitState() {
+    return getPollBackoff().getCircuitState().name();
+  }
+
+  /**
+   * The {@link PollBackoff} of a consumer is created by its first loop, so a disabled one is used until then.
+   */
+  private PollBackoff getPollBackoff() {
+    PollBackoff pollBackoff = dispatcher.getPollBackoffs().get(getQueueName());
+    return pollBackoff != null ? pollBackoff : PollBackoff.disabled();
+  }
+}
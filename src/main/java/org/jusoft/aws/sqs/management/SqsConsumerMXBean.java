@@ -0,0 +1,61 @@
+package org.jusoft.aws.sqs.management;
+
+/**
+ * Management interface of a consumer subscribed by the {@link org.jusoft.aws.sqs.SqsDispatcher}, registered by
+ * {@link SqsManagement} for each consumer. It exposes the live state and poll counters of the consumer, and lets the
+ * number of messages per poll, the long polling, the concurrent consumers and the pause state be changed while it
+ * runs. Changes apply from the next poll of the loops of the consumer, without restarting them, and are validated as
+ * the values of the {@link org.jusoft.aws.sqs.annotation.SqsConsumer} annotation.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public interface SqsConsumerMXBean {
+
+  String getQueueName();
+
+  /**
+   * Returns the {@link org.jusoft.aws.sqs.service.ConsumerHandle.State} of the consumer.
+   */
+  String getState();
+
+  /**
+   * Returns the number of pollers started for the consumer, the maximum concurrent consumers it can be retuned to.
+   */
+  int getPollers();
+
+  /**
+   * Returns the number of pollers receiving messages, which might differ from the concurrent consumers while the
+   * consumer is paused or scaled by a {@link org.jusoft.aws.sqs.autoscale.QueueDepthAutoscaler}.
+   */
+  int getActivePollers();
+
+  int getMaxMessagesPerPoll();
+
+  void setMaxMessagesPerPoll(int maxMessagesPerPoll);
+
+  int getLongPolling();
+
+  void setLongPolling(int longPolling);
+
+  int getConcurrentConsumers();
+
+  void setConcurrentConsumers(int concurrentConsumers);
+
+  boolean isPaused();
+
+  /**
+   * Pauses the consumer, or resumes it with as many pollers as its concurrent consumers.
+   */
+  void setPaused(boolean paused);
+
+  int getConsecutiveEmptyReceives();
+
+  int getConsecutiveErrors();
+
+  long getTotalErrors();
+
+  /**
+   * Returns the {@link org.jusoft.aws.sqs.backoff.CircuitBreaker.State} of the polls of the consumer.
+   */
+  String getCircuitState();
+}
@@ -0,0 +1,101 @@
+package org.jusoft.aws.sqs.management;
+
+import org.jusoft.aws.sqs.SqsDispatcher;
+import org.jusoft.aws.sqs.service.ConsumerHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Registers a {@link SqsConsumerMXBean} for every consumer subscribed by a {@link SqsDispatcher}, so the consumers can
+ * be observed and retuned at runtime from any JMX client. Each of them is registered as
+ * {@code org.jusoft.aws.sqs:type=SqsConsumer,queue="<queue name>"}. It must be created once the consumers have been
+ * subscribed, and closed before the dispatcher to unregister them.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class SqsManagement implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SqsManagement.class);
+
+  public static final String DOMAIN = "org.jusoft.aws.sqs";
+
+  private final MBeanServer mBeanServer;
+  private final List<ObjectName> objectNames;
+
+  /**
+   * Registers the consumers in the platform {@link MBeanServer}.
+   */
+  public SqsManagement(SqsDispatcher dispatcher) {
+    this(dispatcher, ManagementFactory.getPlatformMBeanServer());
+  }
+
+  /**
+   * @throws IllegalStateException if the consumers cannot be registered, e.g. when they are already registered by
+   *                               another instance in the same {@link MBeanServer}.
+   */
+  public SqsManagement(SqsDispatcher dispatcher, MBeanServer mBeanServer) {
+    this.mBeanServer = mBeanServer;
+    notNull(dispatcher);
+    notNull(this.mBeanServer);
+    this.objectNames = new ArrayList<>();
+    for (ConsumerHandle consumerHandle : dispatcher.getConsumerHandles()) {
+      register(new SqsConsumerControl(dispatcher, consumerHandle));
+    }
+  }
+
+  private void register(SqsConsumerControl consumerControl) {
+    ObjectName objectName = objectNameFor(consumerControl.getQueueName());
+    try {
+      mBeanServer.registerMBean(new StandardMBean(consumerControl, SqsConsumerMXBean.class, true), objectName);
+      objectNames.add(objectName);
+      LOGGER.info("Consumer registered for management: objectName={}", objectName);
+    } catch (JMException e) {
+      close();
+      throw new IllegalStateException("Unable to register consumer for management. ObjectName=" + objectName, e);
+    }
+  }
+
+  /**
+   * Returns the name the {@link SqsConsumerMXBean} of the consumer of the queue passed as parameter is registered with.
+   */
+  public static ObjectName objectNameFor(String queueName) {
+    try {
+      return new ObjectName(DOMAIN + ":type=SqsConsumer,queue=" + ObjectName.quote(queueName));
+    } catch (JMException e) {
+      throw new IllegalArgumentException("Invalid queue name for management. Queue=" + queueName, e);
+    }
+  }
+
+  /**
+   * Returns the names of the {@link SqsConsumerMXBean}s registered.
+   */
+  public List<ObjectName> getObjectNames() {
+    return unmodifiableList(objectNames);
+  }
+
+  /**
+   * Unregisters the {@link SqsConsumerMXBean}s registered. Consumers keep running with their current definition.
+   */
+  @Override
+  public void close() {
+    for (ObjectName objectName : objectNames) {
+      try {
+        mBeanServer.unregisterMBean(objectName);
+      } catch (JMException e) {
+        LOGGER.warn("Unable to unregister consumer from management: objectName={}", objectName, e);
+      }
+    }
+    objectNames.clear();
+  }
+}
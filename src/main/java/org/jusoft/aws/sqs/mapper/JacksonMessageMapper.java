@@ -1,25 +1,75 @@
 package org.jusoft.aws.sqs.mapper;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.jusoft.aws.sqs.NativeImage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import static java.util.Collections.emptySet;
 import static org.apache.commons.lang3.Validate.notNull;
 
 /**
  * Uses an {@link ObjectMapper} to deserialise the body of the AWS SQS messages.
+ * <p>
+ * An {@link ObjectReader} is built once per type and reused for every message, so the root deserializer of the type is
+ * not looked up again for each body. Types declared as accelerated are read using a copy of the {@link ObjectMapper}
+ * with the Jackson Afterburner module registered, which replaces reflection with generated bytecode to create the
+ * objects and set their properties. The Afterburner module is an optional dependency, so it must be added to the
+ * classpath to accelerate any type. Inside a native image, where bytecode cannot be generated at runtime, accelerated
+ * types are read as any other type.
  */
 public class JacksonMessageMapper implements MessageMapper {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(JacksonMessageMapper.class);
 
   private final ObjectMapper objectMapper;
+  private final ObjectMapper acceleratedObjectMapper;
+  private final Set<Class<?>> acceleratedTypes;
+  private final ConcurrentMap<Class<?>, ObjectReader> objectReaders;
 
   public JacksonMessageMapper(ObjectMapper objectMapper) {
+    this(objectMapper, emptySet());
+  }
+
+  /**
+   * @param objectMapper     mapper used to deserialise the bodies. It is not modified.
+   * @param acceleratedTypes types of the bodies to deserialise with the Afterburner module. Hot types of big bodies
+   *                         benefit the most from it.
+   */
+  public JacksonMessageMapper(ObjectMapper objectMapper, Collection<Class<?>> acceleratedTypes) {
     this.objectMapper = objectMapper;
+    this.acceleratedTypes = new HashSet<>(acceleratedTypes);
     notNull(objectMapper);
+    this.acceleratedObjectMapper = this.acceleratedTypes.isEmpty() || isAccelerationUnsupported()
+      ? objectMapper
+      : createAcceleratedFrom(objectMapper);
+    this.objectReaders = new ConcurrentHashMap<>();
+  }
+
+  private static boolean isAccelerationUnsupported() {
+    if (NativeImage.isRuntime()) {
+      LOGGER.warn("Afterburner module not supported in native images. Types are not accelerated");
+      return true;
+    }
+    return false;
+  }
+
+  private static ObjectMapper createAcceleratedFrom(ObjectMapper objectMapper) {
+    try {
+      Class.forName("com.fasterxml.jackson.module.afterburner.AfterburnerModule");
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Jackson Afterburner module must be in the classpath to accelerate types", e);
+    }
+    return AfterburnerSupport.registerIn(objectMapper.copy());
   }
 
   /**
@@ -32,10 +82,34 @@ public class JacksonMessageMapper implements MessageMapper {
   @Override
   public <T> T deserialize(String body, Class<T> objectType) {
     try {
-      return objectMapper.readValue(body, objectType);
+      return findObjectReaderFor(objectType).readValue(body);
     } catch (IOException e) {
       LOGGER.error("Unable to deserialize object: body={}", body);
       throw new IllegalArgumentException("Unable to deserialize object", e);
     }
   }
+
+  private ObjectReader findObjectReaderFor(Class<?> objectType) {
+    ObjectReader objectReader = objectReaders.get(objectType);
+    if (objectReader == null) {
+      objectReader = objectReaders.computeIfAbsent(objectType, this::createObjectReaderFor);
+    }
+    return objectReader;
+  }
+
+  private ObjectReader createObjectReaderFor(Class<?> objectType) {
+    ObjectMapper mapper = acceleratedTypes.contains(objectType) ? acceleratedObjectMapper : objectMapper;
+    LOGGER.debug("Object reader created: type={}, isAccelerated={}", objectType.getName(), mapper != objectMapper);
+    return mapper.readerFor(objectType);
+  }
+
+  /**
+   * Keeps the references to the optional Afterburner module out of the mapper, so it can be loaded without it.
+   */
+  private static final class AfterburnerSupport {
+
+    private static ObjectMapper registerIn(ObjectMapper objectMapper) {
+      return objectMapper.registerModule(new AfterburnerModule());
+    }
+  }
 }
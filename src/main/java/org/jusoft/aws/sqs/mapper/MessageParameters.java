@@ -0,0 +1,49 @@
+package org.jusoft.aws.sqs.mapper;
+
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts the value of a single consumer parameter from a {@link ReceiveMessageResult}. Shared by the
+ * {@link ParametersBinder}s resolved at runtime and the ones generated at compile time, so both bind the messages the
+ * same way.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public final class MessageParameters {
+
+  private MessageParameters() {
+  }
+
+  /**
+   * Deserialises the body of the only message received into the type specified.
+   */
+  public static <T> T body(ReceiveMessageResult result, MessageMapper messageMapper, Class<T> bodyType) {
+    List<Message> messages = result.getMessages();
+    Validate.isTrue(messages.size() == 1, "There can only be one message when parameter is not a list");
+    return messageMapper.deserialize(messages.get(0).getBody(), bodyType);
+  }
+
+  /**
+   * Deserialises the bodies of all the messages received into the type specified.
+   */
+  public static <T> List<T> bodies(ReceiveMessageResult result, MessageMapper messageMapper, Class<T> elementType) {
+    List<Message> messages = result.getMessages();
+    List<T> bodies = new ArrayList<>(messages.size());
+    for (Message message : messages) {
+      bodies.add(messageMapper.deserialize(message.getBody(), elementType));
+    }
+    return bodies;
+  }
+
+  /**
+   * Returns the attribute of the message received. Only one message is allowed when using attributes.
+   */
+  public static String attribute(ReceiveMessageResult result, String attributeName) {
+    return result.getMessages().get(0).getAttributes().get(attributeName);
+  }
+}
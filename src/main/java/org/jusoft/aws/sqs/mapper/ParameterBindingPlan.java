@@ -0,0 +1,86 @@
+package org.jusoft.aws.sqs.mapper;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.jusoft.aws.sqs.annotation.SqsAttribute;
+import org.jusoft.aws.sqs.annotation.SqsBody;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.util.List;
+
+/**
+ * Binding of the parameters of a consumer method to the content of a {@link ReceiveMessageResult}, resolved once per
+ * method. Each parameter slot is bound to either the body of the message, the bodies of all the messages as a
+ * {@link List}, an attribute of the message or the {@link ReceiveMessageResult} itself, together with the type to
+ * deserialise the body into. Binding a result only fills an array, without any reflection.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+final class ParameterBindingPlan implements ParametersBinder {
+
+  private final ParameterBinding[] bindings;
+
+  private ParameterBindingPlan(ParameterBinding[] bindings) {
+    this.bindings = bindings;
+  }
+
+  /**
+   * Resolves the binding of every parameter of the consumer method. The method is expected to have passed all the
+   * validation rules.
+   */
+  static ParameterBindingPlan compile(Method consumer) {
+    Parameter[] parameters = consumer.getParameters();
+    ParameterBinding[] bindings = new ParameterBinding[parameters.length];
+    for (int index = 0; index < parameters.length; index++) {
+      bindings[index] = compile(parameters[index], parameters.length == 1);
+    }
+    return new ParameterBindingPlan(bindings);
+  }
+
+  private static ParameterBinding compile(Parameter parameter, boolean isOnlyParameter) {
+    if (parameter.getType() == ReceiveMessageResult.class) {
+      return (result, messageMapper) -> result;
+    }
+    if (isOnlyParameter) {
+      return compileBody(parameter);
+    }
+    for (Annotation annotation : parameter.getAnnotations()) {
+      if (annotation.annotationType() == SqsBody.class) {
+        return compileBody(parameter);
+      }
+      if (annotation.annotationType() == SqsAttribute.class) {
+        String attributeName = ((SqsAttribute) annotation).value();
+        return (result, messageMapper) -> MessageParameters.attribute(result, attributeName);
+      }
+    }
+    return (result, messageMapper) -> null; //Not happening as long as validation rules are in place
+  }
+
+  private static ParameterBinding compileBody(Parameter parameter) {
+    if (parameter.getType() == List.class) {
+      Class<?> elementType = (Class<?>) ((ParameterizedType) parameter.getParameterizedType()).getActualTypeArguments()[0];
+      return (result, messageMapper) -> MessageParameters.bodies(result, messageMapper, elementType);
+    }
+    Class<?> bodyType = parameter.getType();
+    return (result, messageMapper) -> MessageParameters.body(result, messageMapper, bodyType);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object[] bind(ReceiveMessageResult result, MessageMapper messageMapper) {
+    Object[] parameters = new Object[bindings.length];
+    for (int index = 0; index < bindings.length; index++) {
+      parameters[index] = bindings[index].bind(result, messageMapper);
+    }
+    return parameters;
+  }
+
+  @FunctionalInterface
+  private interface ParameterBinding {
+    Object bind(ReceiveMessageResult result, MessageMapper messageMapper);
+  }
+}
@@ -0,0 +1,23 @@
+package org.jusoft.aws.sqs.mapper;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+
+/**
+ * Creates the parameters of a consumer method from the {@link ReceiveMessageResult}. Implementations are either resolved
+ * once per method by the {@link ConsumerParametersMapper} or generated at compile time together with the consumer
+ * bindings.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+@FunctionalInterface
+public interface ParametersBinder {
+
+  /**
+   * Creates the consumer parameters from the {@link ReceiveMessageResult}.
+   *
+   * @param result        AWS SQS messages.
+   * @param messageMapper used to deserialise the bodies of the messages.
+   * @return the parameters of the consumer method, in the order they are declared.
+   */
+  Object[] bind(ReceiveMessageResult result, MessageMapper messageMapper);
+}
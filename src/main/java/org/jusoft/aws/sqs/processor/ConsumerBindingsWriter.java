@@ -0,0 +1,224 @@
+package org.jusoft.aws.sqs.processor;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsAttribute;
+import org.jusoft.aws.sqs.annotation.SqsBody;
+import org.jusoft.aws.sqs.binding.ConsumerBindings;
+import org.jusoft.aws.sqs.mapper.MessageParameters;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.List;
+
+/**
+ * Writes the source of the {@link ConsumerBindings} of a consumer class. Every consumer method is bound to a lambda
+ * calling it directly with its parameters cast to their declared types, and to a lambda creating its parameters with
+ * the {@link MessageParameters} functions, following the same rules as the
+ * {@link org.jusoft.aws.sqs.mapper.ConsumerParametersMapper}.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+final class ConsumerBindingsWriter {
+
+  static final String BINDINGS_SUFFIX = "_SqsConsumerBindings";
+
+  private static final String INDENT = "  ";
+
+  private final Elements elements;
+  private final Types types;
+  private final TypeElement consumerClass;
+  private final List<ExecutableElement> consumers;
+  private final PackageElement consumerPackage;
+
+  ConsumerBindingsWriter(ProcessingEnvironment processingEnvironment, TypeElement consumerClass,
+                         List<ExecutableElement> consumers) {
+    this.elements = processingEnvironment.getElementUtils();
+    this.types = processingEnvironment.getTypeUtils();
+    this.consumerClass = consumerClass;
+    this.consumers = consumers;
+    this.consumerPackage = elements.getPackageOf(consumerClass);
+  }
+
+  /**
+   * Returns whether all the consumers of the class can be bound from a class generated in its package.
+   */
+  boolean isBindable() {
+    return isAccessible(consumerClass)
+      && consumerClass.getTypeParameters().isEmpty()
+      && !consumerClass.getModifiers().contains(Modifier.ABSTRACT)
+      && consumers.stream().allMatch(this::isBindable);
+  }
+
+  private boolean isBindable(ExecutableElement consumer) {
+    List<? extends VariableElement> parameters = consumer.getParameters();
+    return !consumer.getModifiers().contains(Modifier.PRIVATE)
+      && consumer.getTypeParameters().isEmpty()
+      && !parameters.isEmpty()
+      && parameters.stream().allMatch(parameter -> isAccessible(parameter.asType())
+      && bindingOf(parameter, parameters.size() == 1) != null);
+  }
+
+  String getQualifiedName() {
+    String packageName = consumerPackage.getQualifiedName().toString();
+    return packageName.isEmpty() ? getSimpleName() : packageName + "." + getSimpleName();
+  }
+
+  private String getSimpleName() {
+    String packageName = consumerPackage.getQualifiedName().toString();
+    String className = consumerClass.getQualifiedName().toString();
+    return (packageName.isEmpty() ? className : className.substring(packageName.length() + 1)).replace('.', '_')
+      + BINDINGS_SUFFIX;
+  }
+
+  String write() {
+    String className = consumerClass.getQualifiedName().toString();
+    StringBuilder source = new StringBuilder();
+    if (!consumerPackage.isUnnamed()) {
+      source.append("package ").append(consumerPackage.getQualifiedName()).append(";\n\n");
+    }
+    source.append("/**\n")
+      .append(" * Bindings of the consumers declared by {@link ").append(className).append("}, generated by the\n")
+      .append(" * {@link ").append(SqsConsumerProcessor.class.getName()).append("}.\n")
+      .append(" */\n")
+      .append("public final class ").append(getSimpleName()).append(" implements ")
+      .append(ConsumerBindings.class.getName()).append(" {\n\n")
+      .append(INDENT).append("@Override\n")
+      .append(INDENT).append("public Class<?> getConsumerClass() {\n")
+      .append(INDENT).append(INDENT).append("return ").append(className).append(".class;\n")
+      .append(INDENT).append("}\n\n")
+      .append(INDENT).append("@Override\n")
+      .append(INDENT).append("@SuppressWarnings(\"unchecked\")\n")
+      .append(INDENT).append("public java.util.List<").append(QueueConsumer.class.getName())
+      .append("> bind(Object consumerInstance) {\n")
+      .append(INDENT).append(INDENT).append(className).append(" consumer = (").append(className)
+      .append(") consumerInstance;\n")
+      .append(INDENT).append(INDENT).append("java.util.List<").append(QueueConsumer.class.getName())
+      .append("> consumers = new java.util.ArrayList<>(").append(consumers.size()).append(");\n");
+    consumers.forEach(consumer -> writeConsumer(source, consumer));
+    source.append(INDENT).append(INDENT).append("return consumers;\n")
+      .append(INDENT).append("}\n")
+      .append("}\n");
+    return source.toString();
+  }
+
+  private void writeConsumer(StringBuilder source, ExecutableElement consumer) {
+    String className = consumerClass.getQualifiedName().toString();
+    List<? extends VariableElement> parameters = consumer.getParameters();
+    String target = consumer.getModifiers().contains(Modifier.STATIC) ? className : "consumer";
+    String call = target + "." + consumer.getSimpleName() + "(" + castParameters(parameters) + ")";
+    String body = consumer.getReturnType().getKind() == TypeKind.VOID
+      ? call + "; return null;"
+      : "return " + call + ";";
+
+    source.append(INDENT).append(INDENT).append("consumers.add(").append(QueueConsumer.class.getName())
+      .append(".of(consumer,\n")
+      .append(INDENT).append(INDENT).append(INDENT).append(ConsumerBindings.class.getName())
+      .append(".findDeclaredMethod(").append(className).append(".class, ")
+      .append(elements.getConstantExpression(consumer.getSimpleName().toString()));
+    for (VariableElement parameter : parameters) {
+      source.append(", ").append(classLiteralOf(parameter.asType()));
+    }
+    source.append("),\n")
+      .append(INDENT).append(INDENT).append(INDENT).append("parameters -> { ").append(body).append(" },\n")
+      .append(INDENT).append(INDENT).append(INDENT).append("(result, messageMapper) -> new Object[] {");
+    for (int index = 0; index < parameters.size(); index++) {
+      source.append(index == 0 ? "" : ",").append("\n")
+        .append(INDENT).append(INDENT).append(INDENT).append(INDENT)
+        .append(bindingOf(parameters.get(index), parameters.size() == 1));
+    }
+    source.append("}));\n");
+  }
+
+  private String castParameters(List<? extends VariableElement> parameters) {
+    StringBuilder arguments = new StringBuilder();
+    for (int index = 0; index < parameters.size(); index++) {
+      arguments.append(index == 0 ? "" : ", ")
+        .append("(").append(parameters.get(index).asType()).append(") parameters[").append(index).append("]");
+    }
+    return arguments.toString();
+  }
+
+  /**
+   * Returns the expression creating the value of the parameter, or null when the parameter cannot be bound.
+   */
+  private String bindingOf(VariableElement parameter, boolean isOnlyParameter) {
+    TypeMirror type = parameter.asType();
+    if (isType(type, ReceiveMessageResult.class)) {
+      return "result";
+    }
+    if (isOnlyParameter || parameter.getAnnotation(SqsBody.class) != null) {
+      return bodyBindingOf(type);
+    }
+    SqsAttribute attribute = parameter.getAnnotation(SqsAttribute.class);
+    if (attribute != null && isType(type, String.class)) {
+      return MessageParameters.class.getName() + ".attribute(result, "
+        + elements.getConstantExpression(attribute.value()) + ")";
+    }
+    return null;
+  }
+
+  private String bodyBindingOf(TypeMirror type) {
+    if (!isType(types.erasure(type), List.class)) {
+      return MessageParameters.class.getName() + ".body(result, messageMapper, " + classLiteralOf(type) + ")";
+    }
+    List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+    if (typeArguments.size() != 1 || typeArguments.get(0).getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    return MessageParameters.class.getName() + ".bodies(result, messageMapper, "
+      + classLiteralOf(typeArguments.get(0)) + ")";
+  }
+
+  private String classLiteralOf(TypeMirror type) {
+    return types.erasure(type) + ".class";
+  }
+
+  private boolean isType(TypeMirror type, Class<?> expectedType) {
+    TypeElement expectedElement = elements.getTypeElement(expectedType.getCanonicalName());
+    return expectedElement != null && types.isSameType(type, types.erasure(expectedElement.asType()));
+  }
+
+  private boolean isAccessible(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return true;
+    }
+    if (type.getKind() == TypeKind.ARRAY) {
+      return isAccessible(((ArrayType) type).getComponentType());
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    DeclaredType declaredType = (DeclaredType) type;
+    return isAccessible((TypeElement) declaredType.asElement())
+      && declaredType.getTypeArguments().stream().allMatch(this::isAccessible);
+  }
+
+  private boolean isAccessible(TypeElement type) {
+    Element element = type;
+    while (element instanceof TypeElement) {
+      TypeElement typeElement = (TypeElement) element;
+      boolean isNamed = typeElement.getNestingKind() == NestingKind.TOP_LEVEL
+        || typeElement.getNestingKind() == NestingKind.MEMBER;
+      boolean isVisible = typeElement.getModifiers().contains(Modifier.PUBLIC)
+        || !typeElement.getModifiers().contains(Modifier.PRIVATE) && consumerPackage.equals(elements.getPackageOf(typeElement));
+      if (!isNamed || !isVisible) {
+        return false;
+      }
+      element = typeElement.getEnclosingElement();
+    }
+    return true;
+  }
+}
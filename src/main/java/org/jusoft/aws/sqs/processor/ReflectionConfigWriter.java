@@ -0,0 +1,133 @@
+package org.jusoft.aws.sqs.processor;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.jusoft.aws.sqs.annotation.SqsAttribute;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the GraalVM native-image reflection metadata of the consumers, so they run in a native image without any
+ * configuration besides the one shipped with the library:
+ * <li>
+ * <ul>Consumer classes register all their methods, as consumer methods are looked up and their annotations read by
+ * reflection</ul>
+ * <ul>Types of the bodies, and of their fields recursively, register all their constructors, methods and fields to be
+ * deserialised by Jackson</ul>
+ * <ul>Generated {@link org.jusoft.aws.sqs.binding.ConsumerBindings} register their constructor to be loaded as
+ * services</ul>
+ * </li>
+ * Types from the {@code java} and {@code javax} packages are left to the native-image tool.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+final class ReflectionConfigWriter {
+
+  private static final Pattern CONFIG_ENTRY = Pattern.compile("^\\s*\\{\"name\": \"([^\"]+)\", (.*)},?\\s*$");
+
+  private static final String CONSUMER_CLASS_ACCESS = "\"allDeclaredMethods\": true, \"allPublicMethods\": true";
+  private static final String BODY_TYPE_ACCESS = "\"allDeclaredConstructors\": true, \"allPublicConstructors\": true, "
+    + "\"allDeclaredMethods\": true, \"allPublicMethods\": true, \"allDeclaredFields\": true, \"allPublicFields\": true";
+  private static final String BINDINGS_ACCESS = "\"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]";
+
+  private final Elements elements;
+  private final Map<String, String> accessByType = new LinkedHashMap<>();
+
+  ReflectionConfigWriter(ProcessingEnvironment processingEnvironment) {
+    this.elements = processingEnvironment.getElementUtils();
+  }
+
+  void addConsumers(TypeElement consumerClass, List<ExecutableElement> consumers) {
+    accessByType.put(elements.getBinaryName(consumerClass).toString(), CONSUMER_CLASS_ACCESS);
+    for (ExecutableElement consumer : consumers) {
+      for (VariableElement parameter : consumer.getParameters()) {
+        if (parameter.getAnnotation(SqsAttribute.class) == null) {
+          addBodyType(parameter.asType());
+        }
+      }
+    }
+  }
+
+  void addBindings(String bindingsQualifiedName) {
+    accessByType.put(bindingsQualifiedName, BINDINGS_ACCESS);
+  }
+
+  /**
+   * Adds the entries of the configuration written by a previous compilation, unless the types were added by this one.
+   *
+   * @param previousConfig configuration as written by {@link #write()}.
+   * @param isKept         whether the entry of a type, by binary name, is still valid.
+   */
+  void addPrevious(String previousConfig, Predicate<String> isKept) {
+    for (String line : previousConfig.split("\n")) {
+      Matcher entry = CONFIG_ENTRY.matcher(line);
+      if (entry.matches() && isKept.test(entry.group(1))) {
+        accessByType.putIfAbsent(entry.group(1), entry.group(2));
+      }
+    }
+  }
+
+  static String reflectionConfigFileOf(String nativeImageDirectory) {
+    return "META-INF/native-image/" + nativeImageDirectory + "/reflect-config.json";
+  }
+
+  boolean isEmpty() {
+    return accessByType.isEmpty();
+  }
+
+  private void addBodyType(TypeMirror type) {
+    if (type.getKind() == TypeKind.ARRAY) {
+      addBodyType(((ArrayType) type).getComponentType());
+      return;
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return;
+    }
+    DeclaredType declaredType = (DeclaredType) type;
+    declaredType.getTypeArguments().forEach(this::addBodyType);
+    TypeElement typeElement = (TypeElement) declaredType.asElement();
+    String binaryName = elements.getBinaryName(typeElement).toString();
+    if (isProvided(binaryName) || accessByType.containsKey(binaryName)) {
+      return;
+    }
+    accessByType.put(binaryName, BODY_TYPE_ACCESS);
+    for (Element member : typeElement.getEnclosedElements()) {
+      if (member.getKind() == ElementKind.FIELD && !member.getModifiers().contains(Modifier.STATIC)) {
+        addBodyType(member.asType());
+      }
+    }
+  }
+
+  private boolean isProvided(String binaryName) {
+    return binaryName.startsWith("java.") || binaryName.startsWith("javax.")
+      || binaryName.equals(ReceiveMessageResult.class.getName());
+  }
+
+  String write() {
+    StringBuilder config = new StringBuilder("[\n");
+    Iterator<Map.Entry<String, String>> entries = accessByType.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<String, String> entry = entries.next();
+      config.append("  {\"name\": \"").append(entry.getKey()).append("\", ").append(entry.getValue()).append("}")
+        .append(entries.hasNext() ? ",\n" : "\n");
+    }
+    return config.append("]\n").toString();
+  }
+}
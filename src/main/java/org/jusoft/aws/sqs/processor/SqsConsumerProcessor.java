@@ -0,0 +1,190 @@
+package org.jusoft.aws.sqs.processor;
+
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.binding.ConsumerBindings;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates, at compile time, the {@link ConsumerBindings} of every class declaring {@link SqsConsumer} methods, and
+ * registers them as services in {@code META-INF/services}. The generated bindings call the consumer methods directly
+ * and bind their parameters without reading their annotations, so consumers are neither scanned nor compiled at
+ * runtime. The GraalVM native-image reflection metadata of the consumer classes and of the types of their bodies is
+ * written too, in {@code META-INF/native-image/<directory>/reflect-config.json}. The directory is given by the
+ * {@value #NATIVE_IMAGE_DIRECTORY_OPTION} option, as {@code -Asqs.nativeImageDirectory=<groupId>/<artifactId>}, so
+ * the metadata of every module is kept apart when they are packaged together. It defaults to
+ * {@value #DEFAULT_NATIVE_IMAGE_DIRECTORY}.
+ * <p>
+ * Both resources are merged with the ones written by previous compilations into the same output, so incremental
+ * builds compiling only some of the consumers keep the bindings of the rest. Entries of classes no longer found, and
+ * bindings of consumer classes compiled again but not bindable anymore, are dropped.
+ * <p>
+ * Classes whose consumers cannot be bound from generated code, as they or their parameters are not accessible from the
+ * package of the class or their parameters do not follow the validation rules, are skipped. Those consumers keep
+ * being found by reflection and reported by the {@link org.jusoft.aws.sqs.validation.ConsumerValidator}.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class SqsConsumerProcessor extends AbstractProcessor {
+
+  static final String SERVICES_FILE = "META-INF/services/" + ConsumerBindings.class.getName();
+  static final String NATIVE_IMAGE_DIRECTORY_OPTION = "sqs.nativeImageDirectory";
+  static final String DEFAULT_NATIVE_IMAGE_DIRECTORY = "org.jusoft/aws-sqs-consumers";
+
+  private final Set<String> generatedBindings = new LinkedHashSet<>();
+  private final Set<String> processedBindings = new LinkedHashSet<>();
+  private ReflectionConfigWriter reflectionConfigWriter;
+  private String reflectionConfigFile;
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnvironment) {
+    super.init(processingEnvironment);
+    reflectionConfigWriter = new ReflectionConfigWriter(processingEnvironment);
+    String nativeImageDirectory = processingEnvironment.getOptions().get(NATIVE_IMAGE_DIRECTORY_OPTION);
+    if (nativeImageDirectory == null) {
+      nativeImageDirectory = DEFAULT_NATIVE_IMAGE_DIRECTORY;
+    } else if (!isValidDirectory(nativeImageDirectory)) {
+      processingEnvironment.getMessager().printMessage(Diagnostic.Kind.ERROR,
+        "Invalid native-image directory. It must be a relative path like <groupId>/<artifactId>: "
+          + NATIVE_IMAGE_DIRECTORY_OPTION + "=" + nativeImageDirectory);
+      nativeImageDirectory = DEFAULT_NATIVE_IMAGE_DIRECTORY;
+    }
+    reflectionConfigFile = ReflectionConfigWriter.reflectionConfigFileOf(nativeImageDirectory);
+  }
+
+  private static boolean isValidDirectory(String directory) {
+    return !directory.trim().isEmpty() && !directory.startsWith("/") && !directory.endsWith("/")
+      && Arrays.stream(directory.split("/")).noneMatch(segment -> segment.isEmpty() || segment.equals(".."));
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(SqsConsumer.class.getName());
+  }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    return Collections.singleton(NATIVE_IMAGE_DIRECTORY_OPTION);
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+    if (roundEnvironment.processingOver()) {
+      writeServicesFile();
+      writeReflectionConfig();
+    } else {
+      findConsumersByClass(roundEnvironment).forEach(this::generateBindings);
+    }
+    return false;
+  }
+
+  private Map<TypeElement, List<ExecutableElement>> findConsumersByClass(RoundEnvironment roundEnvironment) {
+    Map<TypeElement, List<ExecutableElement>> consumersByClass = new LinkedHashMap<>();
+    for (Element element : roundEnvironment.getElementsAnnotatedWith(SqsConsumer.class)) {
+      if (element.getKind() == ElementKind.METHOD && element.getEnclosingElement().getKind() == ElementKind.CLASS) {
+        consumersByClass.computeIfAbsent((TypeElement) element.getEnclosingElement(), type -> new ArrayList<>())
+          .add((ExecutableElement) element);
+      }
+    }
+    return consumersByClass;
+  }
+
+  private void generateBindings(TypeElement consumerClass, List<ExecutableElement> consumers) {
+    reflectionConfigWriter.addConsumers(consumerClass, consumers);
+    ConsumerBindingsWriter writer = new ConsumerBindingsWriter(processingEnv, consumerClass, consumers);
+    processedBindings.add(writer.getQualifiedName());
+    if (!writer.isBindable()) {
+      return;
+    }
+    try (Writer source = processingEnv.getFiler().createSourceFile(writer.getQualifiedName(), consumerClass).openWriter()) {
+      source.write(writer.write());
+      generatedBindings.add(writer.getQualifiedName());
+      reflectionConfigWriter.addBindings(writer.getQualifiedName());
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+        "Unable to generate the consumer bindings: " + e.getMessage(), consumerClass);
+    }
+  }
+
+  private void writeServicesFile() {
+    Set<String> bindings = new LinkedHashSet<>(generatedBindings);
+    for (String line : readResource(SERVICES_FILE).split("\n")) {
+      String previousBindings = line.trim();
+      if (!previousBindings.isEmpty() && isKept(previousBindings)) {
+        bindings.add(previousBindings);
+      }
+    }
+    if (!bindings.isEmpty()) {
+      StringBuilder services = new StringBuilder();
+      bindings.forEach(consumerBindings -> services.append(consumerBindings).append('\n'));
+      writeResource(SERVICES_FILE, services.toString());
+    }
+  }
+
+  private void writeReflectionConfig() {
+    reflectionConfigWriter.addPrevious(readResource(reflectionConfigFile), this::isKept);
+    if (!reflectionConfigWriter.isEmpty()) {
+      writeResource(reflectionConfigFile, reflectionConfigWriter.write());
+    }
+  }
+
+  /**
+   * Returns whether an entry written by a previous compilation is kept: its class must still be found, and it cannot
+   * be the bindings of a consumer class compiled again, as those are only kept if generated again.
+   */
+  private boolean isKept(String binaryName) {
+    return !processedBindings.contains(binaryName)
+      && processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.')) != null;
+  }
+
+  /**
+   * Reads a resource written into the output by a previous compilation.
+   *
+   * @return the content of the resource, or an empty string if it does not exist.
+   */
+  private String readResource(String path) {
+    try {
+      FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path);
+      return resource.getCharContent(true).toString();
+    } catch (IOException | IllegalArgumentException e) {
+      return "";
+    }
+  }
+
+  private void writeResource(String path, String content) {
+    try {
+      FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
+      try (Writer writer = resource.openWriter()) {
+        writer.write(content);
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+        "Unable to write the consumer resource: path=" + path + ", error=" + e.getMessage());
+    }
+  }
+}
@@ -3,6 +3,7 @@ package org.jusoft.aws.sqs.provider;
 import org.apache.commons.lang3.Validate;
 import org.jusoft.aws.sqs.QueueConsumer;
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.binding.ConsumerBindingsRegistry;
 
 import java.lang.reflect.Method;
 import java.util.List;
@@ -34,15 +35,32 @@ public class StaticConsumersInstanceProvider implements ConsumersInstanceProvide
 
   /**
    * The {@link Iterable} contains objects with methods annotated with {@link SqsConsumer}. All other methods
-   * are filtered out when creating the final collection.
+   * are filtered out when creating the final collection. Objects whose class was bound at compile time use the
+   * generated bindings from the default {@link ConsumerBindingsRegistry} instead of scanning their methods.
    */
   public static StaticConsumersInstanceProvider ofBeans(Iterable<Object> consumers) {
+    return ofBeans(consumers, ConsumerBindingsRegistry.getDefault());
+  }
+
+  /**
+   * Same as {@link #ofBeans(Iterable)}, using the bindings from the {@link ConsumerBindingsRegistry} passed.
+   */
+  public static StaticConsumersInstanceProvider ofBeans(Iterable<Object> consumers,
+                                                        ConsumerBindingsRegistry bindingsRegistry) {
+    Validate.notNull(bindingsRegistry);
     return new StaticConsumersInstanceProvider(StreamSupport.stream(consumers.spliterator(), false)
-      .map(StaticConsumersInstanceProvider::toConsumerByAnnotatedMethod)
+      .map(object -> toConsumers(object, bindingsRegistry))
       .flatMap(List::stream)
       .collect(toList()));
   }
 
+  private static List<QueueConsumer> toConsumers(Object object, ConsumerBindingsRegistry bindingsRegistry) {
+    if (bindingsRegistry.isBound(object.getClass())) {
+      return bindingsRegistry.bind(object);
+    }
+    return toConsumerByAnnotatedMethod(object);
+  }
+
   private static List<QueueConsumer> toConsumerByAnnotatedMethod(Object object) {
     return getConsumersFrom(object).stream()
       .map(method -> QueueConsumer.of(object, method))
@@ -0,0 +1,94 @@
+package org.jusoft.aws.sqs.ratelimit;
+
+import org.jusoft.aws.sqs.QueueConsumer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNLIMITED_MESSAGES_PER_SECOND;
+
+/**
+ * Limits the rate of messages received by the poll loops, both per consumer, as set with
+ * {@link org.jusoft.aws.sqs.annotation.SqsConsumer#maxMessagesPerSecond()}, and for all the consumers of the service
+ * using it. Every poll takes permits from the {@link TokenBucket} of its consumer and from the global one before
+ * receiving, and requests no more messages than permits taken. Permits not used because fewer messages were received
+ * are given back.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class ReceiveRateLimiter {
+
+  private final LongSupplier clockInNanos;
+  private final TokenBucket globalBucket;
+  private final Map<String, TokenBucket> consumerBuckets;
+
+  /**
+   * Creates a limiter applying only the rates of each consumer.
+   */
+  public ReceiveRateLimiter() {
+    this(UNLIMITED_MESSAGES_PER_SECOND);
+  }
+
+  /**
+   * @param globalMessagesPerSecond maximum rate of messages received by all the consumers, or
+   *                                {@link org.jusoft.aws.sqs.annotation.SqsConsumer#UNLIMITED_MESSAGES_PER_SECOND}.
+   */
+  public ReceiveRateLimiter(double globalMessagesPerSecond) {
+    this(globalMessagesPerSecond, System::nanoTime);
+  }
+
+  ReceiveRateLimiter(double globalMessagesPerSecond, LongSupplier clockInNanos) {
+    isTrue(globalMessagesPerSecond >= UNLIMITED_MESSAGES_PER_SECOND, "Messages per second cannot be negative");
+    this.clockInNanos = clockInNanos;
+    notNull(this.clockInNanos);
+    this.globalBucket = createBucket(globalMessagesPerSecond);
+    this.consumerBuckets = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Takes the permits to receive up to the given number of messages for the consumer.
+   *
+   * @return the number of messages that can be received, 0 if the consumer or the service reached its rate.
+   */
+  public int acquireUpTo(QueueConsumer queueConsumer, int maxMessages) {
+    TokenBucket consumerBucket = findBucketFor(queueConsumer);
+    int permits = consumerBucket.tryAcquireUpTo(maxMessages);
+    if (permits == 0) {
+      return 0;
+    }
+    int globalPermits = globalBucket.tryAcquireUpTo(permits);
+    consumerBucket.refund(permits - globalPermits);
+    return globalPermits;
+  }
+
+  /**
+   * Gives back permits taken with {@link #acquireUpTo(QueueConsumer, int)} but not used.
+   */
+  public void refund(QueueConsumer queueConsumer, int permits) {
+    findBucketFor(queueConsumer).refund(permits);
+    globalBucket.refund(permits);
+  }
+
+  /**
+   * Returns the time until a message can be received again for the consumer.
+   */
+  public long nanosUntilAvailable(QueueConsumer queueConsumer) {
+    return Math.max(findBucketFor(queueConsumer).nanosUntilAvailable(), globalBucket.nanosUntilAvailable());
+  }
+
+  private TokenBucket findBucketFor(QueueConsumer queueConsumer) {
+    String queueName = queueConsumer.getDefinition().value();
+    TokenBucket bucket = consumerBuckets.get(queueName);
+    return bucket != null ? bucket : consumerBuckets.computeIfAbsent(queueName,
+      name -> createBucket(queueConsumer.getDefinition().maxMessagesPerSecond()));
+  }
+
+  private TokenBucket createBucket(double messagesPerSecond) {
+    return messagesPerSecond > UNLIMITED_MESSAGES_PER_SECOND
+      ? new TokenBucket(messagesPerSecond, Math.max(1, messagesPerSecond), clockInNanos)
+      : TokenBucket.unlimited();
+  }
+}
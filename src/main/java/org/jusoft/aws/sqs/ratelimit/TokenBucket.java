@@ -0,0 +1,126 @@
+package org.jusoft.aws.sqs.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Lock-free token bucket refilled at a constant rate up to its capacity. The whole state is the instant at which the
+ * bucket was empty, as the tokens available at any later instant follow from the time elapsed since then, so permits
+ * are taken and given back with a single compare and set.
+ * <p>
+ * The bucket returned by {@link #unlimited()} grants every permit requested without keeping any state.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class TokenBucket {
+
+  private static final TokenBucket UNLIMITED = new TokenBucket();
+
+  private final boolean isUnlimited;
+  private final double nanosPerToken;
+  private final double capacity;
+  private final LongSupplier clockInNanos;
+  private final AtomicLong emptyAtInNanos;
+
+  /**
+   * Creates a bucket holding as many tokens as permitted in a second, at least one, initially full.
+   *
+   * @param permitsPerSecond rate at which the bucket is refilled.
+   */
+  public TokenBucket(double permitsPerSecond) {
+    this(permitsPerSecond, Math.max(1, permitsPerSecond), System::nanoTime);
+  }
+
+  TokenBucket(double permitsPerSecond, double capacity, LongSupplier clockInNanos) {
+    isTrue(permitsPerSecond > 0, "Permits per second must be greater than 0");
+    isTrue(capacity >= 1, "Capacity must be at least 1");
+    this.isUnlimited = false;
+    this.nanosPerToken = SECONDS.toNanos(1) / permitsPerSecond;
+    this.capacity = capacity;
+    this.clockInNanos = clockInNanos;
+    notNull(this.clockInNanos);
+    this.emptyAtInNanos = new AtomicLong(clockInNanos.getAsLong() - (long) (capacity * nanosPerToken));
+  }
+
+  private TokenBucket() {
+    this.isUnlimited = true;
+    this.nanosPerToken = 0;
+    this.capacity = Double.POSITIVE_INFINITY;
+    this.clockInNanos = System::nanoTime;
+    this.emptyAtInNanos = new AtomicLong();
+  }
+
+  public static TokenBucket unlimited() {
+    return UNLIMITED;
+  }
+
+  /**
+   * Takes as many whole tokens as available, up to the permits requested.
+   *
+   * @return the permits taken, 0 if no token is available.
+   */
+  public int tryAcquireUpTo(int permits) {
+    if (isUnlimited) {
+      return permits;
+    }
+    while (true) {
+      long now = clockInNanos.getAsLong();
+      long emptyAt = emptyAtInNanos.get();
+      double tokens = tokensAt(now, emptyAt);
+      int acquired = (int) Math.min(permits, Math.floor(tokens));
+      if (acquired <= 0) {
+        return 0;
+      }
+      long newEmptyAt = now - (long) ((tokens - acquired) * nanosPerToken);
+      if (emptyAtInNanos.compareAndSet(emptyAt, newEmptyAt)) {
+        return acquired;
+      }
+    }
+  }
+
+  /**
+   * Gives back permits taken but not used, up to the capacity of the bucket.
+   */
+  public void refund(int permits) {
+    if (isUnlimited || permits <= 0) {
+      return;
+    }
+    while (true) {
+      long now = clockInNanos.getAsLong();
+      long emptyAt = emptyAtInNanos.get();
+      long newEmptyAt = Math.max(emptyAt - (long) (permits * nanosPerToken), now - (long) (capacity * nanosPerToken));
+      if (newEmptyAt >= emptyAt || emptyAtInNanos.compareAndSet(emptyAt, newEmptyAt)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the time until a whole token is available, 0 if there is one already.
+   */
+  public long nanosUntilAvailable() {
+    if (isUnlimited) {
+      return 0;
+    }
+    double tokens = tokensAt(clockInNanos.getAsLong(), emptyAtInNanos.get());
+    return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * nanosPerToken);
+  }
+
+  /**
+   * Returns the whole tokens currently available, {@link Integer#MAX_VALUE} for an unlimited bucket.
+   */
+  public int getAvailableTokens() {
+    if (isUnlimited) {
+      return Integer.MAX_VALUE;
+    }
+    return (int) Math.floor(tokensAt(clockInNanos.getAsLong(), emptyAtInNanos.get()));
+  }
+
+  private double tokensAt(long now, long emptyAt) {
+    return Math.min(capacity, (now - emptyAt) / nanosPerToken);
+  }
+}
@@ -0,0 +1,376 @@
+package org.jusoft.aws.sqs.service;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.backoff.DefaultPollBackoffFactory;
+import org.jusoft.aws.sqs.backoff.PollBackoff;
+import org.jusoft.aws.sqs.backoff.PollBackoffFactory;
+import org.jusoft.aws.sqs.delete.AsyncMessageDeleter;
+import org.jusoft.aws.sqs.ratelimit.ReceiveRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.commons.lang3.Validate.notNull;
+import static org.jusoft.aws.sqs.backoff.BackoffPolicy.NO_DELAY;
+import static org.jusoft.aws.sqs.service.ReceiveMessageRequestFactory.limitTo;
+import static org.jusoft.aws.sqs.service.ReceiveMessageRequestFactory.maxMessagesOf;
+
+/**
+ * Alternative to the {@link QueuePollService} that consumes messages using the {@link AmazonSQSAsync} client, so no
+ * thread is blocked while waiting for a long poll to return. Each loop started chains the receive of the messages and
+ * their processing as {@link CompletableFuture}s, and receives again once the messages have been processed. Starting
+ * as many loops as {@link org.jusoft.aws.sqs.annotation.SqsConsumer#concurrentConsumers()} caps the outstanding
+ * receives of each queue.
+ * <p>
+ * The messages received are processed by the {@link MessageConsumerService} on the {@link Executor} passed when the
+ * loop is started, as consumers may block. They are then deleted, released and kept invisible exactly as by the
+ * synchronous loops, through its {@link org.jusoft.aws.sqs.delete.MessageDeleter} and
+ * {@link org.jusoft.aws.sqs.visibility.VisibilityHeartbeat}, including the fan out of the messages to consumers
+ * receiving one message at a time, which runs on the fan out executor of the service when parallel. The rest of the
+ * stages run on the threads of the {@link AmazonSQSAsync} client and on a single scheduler thread of this service that
+ * also waits the backoff delays decided by the {@link PollBackoff} of each consumer.
+ * <p>
+ * Receives request no more messages than permitted by the {@link ReceiveRateLimiter}, and are scheduled again once the
+ * rate permits them while the consumer or the whole service has reached it. The number of messages and the wait time
+ * are taken from the current {@link org.jusoft.aws.sqs.ConsumerDefinition} of the consumer on every receive.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class AsyncQueuePollService implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncQueuePollService.class);
+
+  private final AmazonSQSAsync amazonSQSAsync;
+  private final ReceiveMessageRequestFactory receiveMessageRequestFactory;
+  private final MessageConsumerService messageConsumerService;
+  private final PollBackoffFactory pollBackoffFactory;
+  private final ReceiveRateLimiter receiveRateLimiter;
+  private final ConcurrentMap<String, PollBackoff> pollBackoffs;
+  private final ScheduledExecutorService scheduler;
+  private final Set<ReceiveLoop> receiveLoops;
+
+  /**
+   * Controls all the loops that consume messages from AWS SQS. Volatile as it is changed and read from different
+   * threads.
+   */
+  private volatile boolean isConsumerActive;
+
+  public AsyncQueuePollService(AmazonSQSAsync amazonSQSAsync,
+                               ReceiveMessageRequestFactory receiveMessageRequestFactory,
+                               ConsumerInvokerService consumerInvokerService) {
+    this(amazonSQSAsync, receiveMessageRequestFactory, consumerInvokerService, new DefaultPollBackoffFactory());
+  }
+
+  public AsyncQueuePollService(AmazonSQSAsync amazonSQSAsync,
+                               ReceiveMessageRequestFactory receiveMessageRequestFactory,
+                               ConsumerInvokerService consumerInvokerService,
+                               PollBackoffFactory pollBackoffFactory) {
+    this(amazonSQSAsync, receiveMessageRequestFactory, consumerInvokerService, pollBackoffFactory,
+      new ReceiveRateLimiter());
+  }
+
+  /**
+   * Processes the messages with a {@link MessageConsumerService} deleting them through the {@link AmazonSQSAsync}
+   * client with an {@link AsyncMessageDeleter}, so the executor invoking the consumer doesn't wait for the deletes.
+   *
+   * @param receiveRateLimiter limits the rate of messages received by each consumer and by all of them.
+   */
+  public AsyncQueuePollService(AmazonSQSAsync amazonSQSAsync,
+                               ReceiveMessageRequestFactory receiveMessageRequestFactory,
+                               ConsumerInvokerService consumerInvokerService,
+                               PollBackoffFactory pollBackoffFactory,
+                               ReceiveRateLimiter receiveRateLimiter) {
+    this(amazonSQSAsync, receiveMessageRequestFactory,
+      new MessageConsumerService(amazonSQSAsync, consumerInvokerService, new AsyncMessageDeleter(amazonSQSAsync)),
+      pollBackoffFactory, receiveRateLimiter);
+  }
+
+  public AsyncQueuePollService(AmazonSQSAsync amazonSQSAsync,
+                               ReceiveMessageRequestFactory receiveMessageRequestFactory,
+                               MessageConsumerService messageConsumerService) {
+    this(amazonSQSAsync, receiveMessageRequestFactory, messageConsumerService, new DefaultPollBackoffFactory());
+  }
+
+  public AsyncQueuePollService(AmazonSQSAsync amazonSQSAsync,
+                               ReceiveMessageRequestFactory receiveMessageRequestFactory,
+                               MessageConsumerService messageConsumerService,
+                               PollBackoffFactory pollBackoffFactory) {
+    this(amazonSQSAsync, receiveMessageRequestFactory, messageConsumerService, pollBackoffFactory,
+      new ReceiveRateLimiter());
+  }
+
+  /**
+   * @param messageConsumerService processes the messages received, deleting and releasing them.
+   * @param receiveRateLimiter     limits the rate of messages received by each consumer and by all of them.
+   */
+  public AsyncQueuePollService(AmazonSQSAsync amazonSQSAsync,
+                               ReceiveMessageRequestFactory receiveMessageRequestFactory,
+                               MessageConsumerService messageConsumerService,
+                               PollBackoffFactory pollBackoffFactory,
+                               ReceiveRateLimiter receiveRateLimiter) {
+    this.amazonSQSAsync = amazonSQSAsync;
+    this.receiveMessageRequestFactory = receiveMessageRequestFactory;
+    this.messageConsumerService = messageConsumerService;
+    this.pollBackoffFactory = pollBackoffFactory;
+    this.receiveRateLimiter = receiveRateLimiter;
+    notNull(this.amazonSQSAsync);
+    notNull(this.receiveMessageRequestFactory);
+    notNull(this.messageConsumerService);
+    notNull(this.pollBackoffFactory);
+    notNull(this.receiveRateLimiter);
+    this.pollBackoffs = new ConcurrentHashMap<>();
+    this.receiveLoops = ConcurrentHashMap.newKeySet();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "sqs-async-poll-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    isConsumerActive = true;
+  }
+
+  /**
+   * Starts a receive loop for the {@link QueueConsumer} and returns straight away. The loop finishes, marking the
+   * {@link PollerHandle} as stopped, once either {@link PollerHandle#stop()} or {@link #stop()} are invoked and its
+   * current receive has been processed.
+   *
+   * @param queueConsumer    consumer to poll messages for.
+   * @param pollerHandle     handle controlling the lifecycle of the loop.
+   * @param consumerExecutor executor used to invoke the consumer.
+   */
+  public void start(QueueConsumer queueConsumer, PollerHandle pollerHandle, Executor consumerExecutor) {
+    LOGGER.info("Starting async queueConsumer: queue={}, poller={}", queueConsumer.getDefinition().value(),
+      pollerHandle.getPollerIndex());
+    ConsumerReceiveRequest request = new ConsumerReceiveRequest(queueConsumer,
+      receiveMessageRequestFactory.createFrom(queueConsumer));
+    ReceiveLoop receiveLoop = new ReceiveLoop(queueConsumer, request, findPollBackoffFor(queueConsumer), pollerHandle,
+      consumerExecutor);
+    receiveLoops.add(receiveLoop);
+    receiveLoop.waitAndPoll(NO_DELAY);
+  }
+
+  private PollBackoff findPollBackoffFor(QueueConsumer queueConsumer) {
+    return pollBackoffs.computeIfAbsent(queueConsumer.getDefinition().value(),
+      queueName -> pollBackoffFactory.createFor(queueConsumer));
+  }
+
+  /**
+   * Returns the {@link PollBackoff} of every consumer started, by queue name, so their counters can be monitored.
+   */
+  public Map<String, PollBackoff> getPollBackoffs() {
+    return Collections.unmodifiableMap(pollBackoffs);
+  }
+
+  /**
+   * Returns the counters of the messages processed and released by the loops of this service.
+   */
+  public InFlightMessages getInFlightMessages() {
+    return messageConsumerService.getInFlightMessages();
+  }
+
+  /**
+   * Returns the average time taken to process the messages of each receive, by queue URL.
+   */
+  public ProcessingLatencies getProcessingLatencies() {
+    return messageConsumerService.getProcessingLatencies();
+  }
+
+  /**
+   * Disables all the consumers. Loops finish once their current receive has been processed. Messages received after
+   * the loops have been disabled are released instead of processed.
+   */
+  public void stop() {
+    isConsumerActive = false;
+  }
+
+  /**
+   * Disables all the consumers and stops the scheduler thread. Loops not finished yet, like the ones waiting for a
+   * backoff delay, are marked as stopped straight away. The {@link MessageConsumerService} is closed afterwards,
+   * sending the deletes still pending.
+   */
+  @Override
+  public void close() {
+    stop();
+    scheduler.shutdownNow();
+    receiveLoops.forEach(ReceiveLoop::finish);
+    messageConsumerService.close();
+  }
+
+  private CompletableFuture<ReceiveMessageResult> receiveAsync(ReceiveMessageRequest request) {
+    CompletableAsyncHandler<ReceiveMessageRequest, ReceiveMessageResult> handler = new CompletableAsyncHandler<>();
+    try {
+      amazonSQSAsync.receiveMessageAsync(request, handler);
+    } catch (Exception e) {
+      handler.onError(e);
+    }
+    return handler;
+  }
+
+  /**
+   * Single chain of receives for a consumer. A new receive is only issued once the previous one has been processed, so
+   * each loop has at most one outstanding receive.
+   */
+  private class ReceiveLoop {
+    private final QueueConsumer queueConsumer;
+    private final ConsumerReceiveRequest request;
+    private final PollBackoff pollBackoff;
+    private final PollerHandle pollerHandle;
+    private final Executor consumerExecutor;
+    private final AtomicBoolean isFinished;
+
+    private ReceiveLoop(QueueConsumer queueConsumer,
+                        ConsumerReceiveRequest request,
+                        PollBackoff pollBackoff,
+                        PollerHandle pollerHandle,
+                        Executor consumerExecutor) {
+      this.queueConsumer = queueConsumer;
+      this.request = request;
+      this.pollBackoff = pollBackoff;
+      this.pollerHandle = pollerHandle;
+      this.consumerExecutor = consumerExecutor;
+      this.isFinished = new AtomicBoolean();
+    }
+
+    /**
+     * Polls again from the scheduler thread once the delay has elapsed, checking whether the loop has been stopped
+     * every {@link QueuePollService#BACKOFF_CHECK_INTERVAL_IN_MILLIS}. Polls are never issued from the thread
+     * completing the previous one, so receives completed synchronously do not pile up in the stack.
+     */
+    private void waitAndPoll(long delayInMillis) {
+      if (!isActive()) {
+        finish();
+        return;
+      }
+      try {
+        if (delayInMillis <= 0) {
+          scheduler.execute(this::poll);
+        } else {
+          long wait = Math.min(delayInMillis, QueuePollService.BACKOFF_CHECK_INTERVAL_IN_MILLIS);
+          scheduler.schedule(() -> waitAndPoll(delayInMillis - wait), wait, MILLISECONDS);
+        }
+      } catch (Exception e) {
+        LOGGER.warn("Unable to schedule next poll: queueUrl={}", request.getQueueUrl(), e);
+        finish();
+      }
+    }
+
+    private void poll() {
+      if (!isActive()) {
+        finish();
+        return;
+      }
+      if (pollerHandle.isPaused()) {
+        waitAndPoll(QueuePollService.BACKOFF_CHECK_INTERVAL_IN_MILLIS);
+        return;
+      }
+      if (messageConsumerService.isSaturated(queueConsumer)) {
+        waitAndPoll(QueuePollService.SATURATION_CHECK_INTERVAL_IN_MILLIS);
+        return;
+      }
+      long circuitDelay = pollBackoff.delayBeforePollInMillis();
+      if (circuitDelay > 0) {
+        waitAndPoll(circuitDelay);
+        return;
+      }
+      ReceiveMessageRequest currentRequest = request.get();
+      int permits = receiveRateLimiter.acquireUpTo(queueConsumer, maxMessagesOf(currentRequest));
+      if (permits == 0) {
+        long nanosUntilPermitted = receiveRateLimiter.nanosUntilAvailable(queueConsumer);
+        waitAndPoll(Math.max(1, NANOSECONDS.toMillis(nanosUntilPermitted + 999_999)));
+        return;
+      }
+      receiveAsync(limitTo(currentRequest, permits)).whenComplete((result, error) -> {
+        receiveRateLimiter.refund(queueConsumer, error != null ? permits : permits - result.getMessages().size());
+        onReceived(result, error);
+      });
+    }
+
+    private void onReceived(ReceiveMessageResult result, Throwable error) {
+      if (error != null) {
+        long delay = pollBackoff.onError();
+        LOGGER.error("Error while receiving message(s). Backing off: queueUrl={}, consecutiveErrors={}, delay={}, " +
+          "circuit={}", request.getQueueUrl(), pollBackoff.getConsecutiveErrors(), delay, pollBackoff.getCircuitState(),
+          error);
+        waitAndPoll(delay);
+      } else if (result.getMessages().isEmpty()) {
+        waitAndPoll(pollBackoff.onEmptyReceive());
+      } else if (!isActive()) {
+        ReceivedMessages receivedMessages = ReceivedMessages.of(request.getQueueUrl(), result);
+        LOGGER.debug("Releasing message(s) received after stopping: queueUrl={}, size={}", request.getQueueUrl(),
+          receivedMessages.size());
+        runSafely(() -> messageConsumerService.release(receivedMessages)).whenComplete((ignored, e) -> finish());
+      } else {
+        ReceivedMessages receivedMessages = ReceivedMessages.of(request.getQueueUrl(), result);
+        LOGGER.trace("Message(s) received from queue: size={}", receivedMessages.size());
+        pollBackoff.onMessagesReceived();
+        runSafely(() -> messageConsumerService.processMessages(queueConsumer, receivedMessages))
+          .whenComplete((ignored, processError) -> {
+            if (processError != null) {
+              LOGGER.error("Error while consuming message(s): queueUrl={}", request.getQueueUrl(), processError);
+            }
+            waitAndPoll(NO_DELAY);
+          });
+      }
+    }
+
+    /**
+     * Runs the stage on the consumer executor. Failures starting it, like the executor rejecting it, are returned as a
+     * failed stage so the loop keeps going.
+     */
+    private CompletableFuture<Void> runSafely(Runnable stage) {
+      try {
+        return CompletableFuture.runAsync(stage, consumerExecutor);
+      } catch (Exception e) {
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+      }
+    }
+
+    private boolean isActive() {
+      return isConsumerActive && pollerHandle.isActive();
+    }
+
+    private void finish() {
+      if (isFinished.compareAndSet(false, true)) {
+        receiveLoops.remove(this);
+        pollerHandle.markStopped();
+        LOGGER.info("Closing async queueConsumer: queueName={}, poller={}", pollerHandle.getQueueName(),
+          pollerHandle.getPollerIndex());
+      }
+    }
+  }
+
+  /**
+   * Completes with the outcome of a request sent through the {@link AmazonSQSAsync} client.
+   */
+  private static class CompletableAsyncHandler<R extends AmazonWebServiceRequest, T> extends CompletableFuture<T>
+    implements AsyncHandler<R, T> {
+
+    @Override
+    public void onError(Exception exception) {
+      completeExceptionally(exception);
+    }
+
+    @Override
+    public void onSuccess(R request, T result) {
+      complete(result);
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package org.jusoft.aws.sqs.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Lifecycle handle of a consumer subscribed by the {@link org.jusoft.aws.sqs.SqsDispatcher}. It groups the
+ * {@link PollerHandle}s of all the loops started for the consumer, both pollers and workers, so the consumer can be
+ * paused, resumed, stopped and observed as a whole without affecting the rest of the consumers.
+ * <p>
+ * Pausing a consumer lets the receives in progress complete and their messages be processed, but no new receive is
+ * issued until the consumer is resumed, so a paused consumer holds no long poll after its current poll cycle. Stopping
+ * a consumer cannot be undone.
+ * <p>
+ * The number of pollers receiving messages can also be reduced with {@link #setActivePollers(int)}, pausing the
+ * pollers beyond the given number while the rest keep receiving, which lets the consumer be scaled with its load.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class ConsumerHandle {
+
+  public enum State {
+    /**
+     * The loops of the consumer are receiving and processing messages
+     */
+    RUNNING,
+
+    /**
+     * The loops of the consumer are not receiving messages until the consumer is resumed
+     */
+    PAUSED,
+
+    /**
+     * The consumer has been requested to stop, but some of its loops have not finished yet
+     */
+    STOPPING,
+
+    /**
+     * All the loops of the consumer have finished
+     */
+    STOPPED
+  }
+
+  private final String queueName;
+  private final List<PollerHandle> loopHandles;
+  private final List<PollerHandle> pollerHandles;
+
+  private ConsumerHandle(String queueName) {
+    this.queueName = queueName;
+    this.loopHandles = new ArrayList<>();
+    this.pollerHandles = new ArrayList<>();
+    notNull(this.queueName);
+  }
+
+  public static ConsumerHandle of(String queueName) {
+    return new ConsumerHandle(queueName);
+  }
+
+  /**
+   * Creates the handle of a new poll loop of the consumer, controlled together with the rest of its loops.
+   *
+   * @param pollerIndex index of the loop among the pollers of the consumer.
+   */
+  public synchronized PollerHandle addPoller(int pollerIndex) {
+    PollerHandle pollerHandle = addLoop(pollerIndex);
+    pollerHandles.add(pollerHandle);
+    return pollerHandle;
+  }
+
+  /**
+   * Creates the handle of a new worker loop of the consumer, controlled together with the rest of its loops.
+   *
+   * @param workerIndex index of the loop among the workers of the consumer.
+   */
+  public synchronized PollerHandle addWorker(int workerIndex) {
+    return addLoop(workerIndex);
+  }
+
+  private PollerHandle addLoop(int loopIndex) {
+    PollerHandle loopHandle = PollerHandle.of(queueName, loopIndex);
+    if (getState() == State.PAUSED) {
+      loopHandle.pause();
+    }
+    loopHandles.add(loopHandle);
+    return loopHandle;
+  }
+
+  public String getQueueName() {
+    return queueName;
+  }
+
+  /**
+   * Returns the handles of all the loops of the consumer.
+   */
+  public synchronized List<PollerHandle> getLoopHandles() {
+    return Collections.unmodifiableList(new ArrayList<>(loopHandles));
+  }
+
+  /**
+   * Returns the handles of the poll loops of the consumer.
+   */
+  public synchronized List<PollerHandle> getPollerHandles() {
+    return Collections.unmodifiableList(new ArrayList<>(pollerHandles));
+  }
+
+  /**
+   * Keeps the first pollers of the consumer receiving messages and pauses the rest. The polls in progress of the
+   * paused pollers are completed and their messages processed.
+   *
+   * @param activePollers number of pollers receiving messages, at most the number of pollers of the consumer.
+   */
+  public synchronized void setActivePollers(int activePollers) {
+    isTrue(activePollers >= 0 && activePollers <= pollerHandles.size(),
+      "The active pollers must be between 0 and %d: %d", pollerHandles.size(), activePollers);
+    for (int index = 0; index < pollerHandles.size(); index++) {
+      if (index < activePollers) {
+        pollerHandles.get(index).resume();
+      } else {
+        pollerHandles.get(index).pause();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of pollers of the consumer receiving messages.
+   */
+  public synchronized int getActivePollers() {
+    return (int) pollerHandles.stream()
+      .filter(pollerHandle -> pollerHandle.isActive() && !pollerHandle.isPaused())
+      .count();
+  }
+
+  /**
+   * Stops receiving messages for the consumer until {@link #resume()} is invoked. The receives in progress are
+   * completed and their messages processed.
+   */
+  public synchronized void pause() {
+    loopHandles.forEach(PollerHandle::pause);
+  }
+
+  /**
+   * Receives messages again for the consumer after being paused.
+   */
+  public synchronized void resume() {
+    loopHandles.forEach(PollerHandle::resume);
+  }
+
+  /**
+   * Receives messages again for the consumer after being paused, with only the first pollers passed receiving them.
+   * Its worker loops are resumed as well.
+   *
+   * @param activePollers number of pollers receiving messages, at most the number of pollers of the consumer.
+   */
+  public synchronized void resume(int activePollers) {
+    isTrue(activePollers >= 0 && activePollers <= pollerHandles.size(),
+      "The active pollers must be between 0 and %d: %d", pollerHandles.size(), activePollers);
+    loopHandles.stream()
+      .filter(loopHandle -> !pollerHandles.contains(loopHandle))
+      .forEach(PollerHandle::resume);
+    setActivePollers(activePollers);
+  }
+
+  /**
+   * Requests all the loops of the consumer to stop. They finish once their current poll is completed.
+   */
+  public synchronized void stop() {
+    loopHandles.forEach(PollerHandle::stop);
+  }
+
+  /**
+   * Waits for all the loops of the consumer to finish.
+   *
+   * @return true if all the loops finished before the timeout elapsed.
+   */
+  public boolean awaitStopped(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (PollerHandle loopHandle : getLoopHandles()) {
+      if (!loopHandle.awaitStopped(Math.max(0, deadline - System.nanoTime()), NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public synchronized State getState() {
+    if (!loopHandles.isEmpty() && loopHandles.stream().allMatch(PollerHandle::isStopped)) {
+      return State.STOPPED;
+    }
+    if (loopHandles.stream().anyMatch(loopHandle -> !loopHandle.isActive())) {
+      return State.STOPPING;
+    }
+    if (!loopHandles.isEmpty() && loopHandles.stream().allMatch(PollerHandle::isPaused)) {
+      return State.PAUSED;
+    }
+    return State.RUNNING;
+  }
+
+  @Override
+  public String toString() {
+    return "ConsumerHandle{" +
+      "queueName='" + queueName + '\'' +
+      ", state=" + getState() +
+      '}';
+  }
+}
@@ -1,19 +1,29 @@
 package org.jusoft.aws.sqs.service;
 
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.jusoft.aws.sqs.BatchResult;
 import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.limit.ConcurrencyLimiter;
+import org.jusoft.aws.sqs.limit.ConcurrencyLimiters;
 import org.jusoft.aws.sqs.mapper.ConsumerParametersMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationTargetException;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
 /**
  * Invokes the consumer using the {@link ReceiveMessageResult} to create its parameters.
  * The {@link QueueConsumer} contains both the instance of the consumer and the method to invoke after consuming a
  * message from the AWS SQS queue. The parameters are created by the {@link ConsumerParametersMapper} that uses
  * reflection to read the parameters type from the method and then deserialises the SQS message body and attributes to
- * match the extracted types.
+ * match the extracted types. The method is invoked through the {@link org.jusoft.aws.sqs.invoker.ConsumerInvoker}
+ * compiled for the consumer instead of using reflection.
+ * <p>
+ * Invocations of each consumer are limited by its {@link ConcurrencyLimiter}, which adapts the number of concurrent
+ * invocations to their latency and failures. By default they are not limited. The parameters are created before
+ * acquiring a permit, so messages that cannot be deserialised neither wait for the limit nor reduce it.
  *
  * @author Juan Manuel Carnicero Vega
  */
@@ -22,25 +32,72 @@ public class ConsumerInvokerService {
   private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerInvokerService.class);
 
   private final ConsumerParametersMapper consumerParametersMapper;
+  private final ConcurrencyLimiters concurrencyLimiters;
 
   public ConsumerInvokerService(ConsumerParametersMapper consumerParametersMapper) {
+    this(consumerParametersMapper, ConcurrencyLimiters.unlimited());
+  }
+
+  public ConsumerInvokerService(ConsumerParametersMapper consumerParametersMapper,
+                                ConcurrencyLimiters concurrencyLimiters) {
     this.consumerParametersMapper = consumerParametersMapper;
+    this.concurrencyLimiters = concurrencyLimiters;
+    notNull(this.concurrencyLimiters);
   }
 
   /**
    * Invokes instance consumer method contained in {@link QueueConsumer}. Uses the {@link ReceiveMessageResult} to
-   * create the method parameters.
+   * create the method parameters. Waits while the concurrency limit of the consumer is reached.
    *
    * @param queueConsumer containing the instance consumer method and the instance to invoke it from.
    * @param result        AWS SQS message.
+   * @return the {@link BatchResult} returned by the consumer or {@link BatchResult#success()} when the consumer does not
+   * report the outcome of each message.
    */
-  public void invoke(QueueConsumer queueConsumer, ReceiveMessageResult result) {
+  public BatchResult invoke(QueueConsumer queueConsumer, ReceiveMessageResult result) {
+    Object[] consumerParameters = consumerParametersMapper.createFrom(queueConsumer, result);
+    ConcurrencyLimiter concurrencyLimiter = findConcurrencyLimiterFor(queueConsumer);
+    try {
+      concurrencyLimiter.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the concurrency limit", e);
+    }
+    long start = System.nanoTime();
+    boolean isFailed = true;
     try {
-      Object[] consumerParameters = consumerParametersMapper.createFrom(queueConsumer.getConsumerMethod(), result);
-      queueConsumer.getConsumerMethod().invoke(queueConsumer.getConsumerInstance(), consumerParameters);
-    } catch (IllegalAccessException | InvocationTargetException e) {
+      Object returned = invokeConsumer(queueConsumer, consumerParameters);
+      isFailed = false;
+      return returned instanceof BatchResult ? (BatchResult) returned : BatchResult.success();
+    } finally {
+      concurrencyLimiter.release(System.nanoTime() - start, isFailed);
+    }
+  }
+
+  /**
+   * Exceptions thrown by the consumer are wrapped as they were when the method was invoked through reflection. Errors
+   * are rethrown unchanged, as the JVM might not be able to keep processing messages.
+   */
+  private Object invokeConsumer(QueueConsumer queueConsumer, Object[] consumerParameters) {
+    try {
+      return queueConsumer.getInvoker().invoke(consumerParameters);
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
       LOGGER.error("Error invoking method", e);
-      throw new IllegalArgumentException(e);
+      throw new IllegalArgumentException(new InvocationTargetException(e));
     }
   }
+
+  /**
+   * Returns whether new invocations of the consumer would wait for the ones in progress, so no more messages should be
+   * received for it.
+   */
+  public boolean isSaturated(QueueConsumer queueConsumer) {
+    return findConcurrencyLimiterFor(queueConsumer).isSaturated();
+  }
+
+  private ConcurrencyLimiter findConcurrencyLimiterFor(QueueConsumer queueConsumer) {
+    return concurrencyLimiters.forQueue(queueConsumer.getDefinition().value());
+  }
 }
@@ -0,0 +1,49 @@
+package org.jusoft.aws.sqs.service;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import org.jusoft.aws.sqs.ConsumerDefinition;
+import org.jusoft.aws.sqs.QueueConsumer;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * {@link ReceiveMessageRequest} used by a poll loop, kept up to date with the {@link ConsumerDefinition} of its
+ * consumer. The definition is checked on every poll, so a consumer retuned while its loops run receives the new number
+ * of messages and waits the new time from their next poll, without being restarted. The request is only recreated
+ * when the definition has changed.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+class ConsumerReceiveRequest {
+
+  private final QueueConsumer queueConsumer;
+  private ConsumerDefinition definition;
+  private ReceiveMessageRequest request;
+
+  ConsumerReceiveRequest(QueueConsumer queueConsumer, ReceiveMessageRequest request) {
+    this.queueConsumer = queueConsumer;
+    this.definition = queueConsumer.getDefinition();
+    this.request = request;
+    notNull(this.request);
+  }
+
+  /**
+   * Returns the request for the current definition of the consumer. Synchronized as the polls of asynchronous loops
+   * are issued from different threads, one after the other.
+   */
+  synchronized ReceiveMessageRequest get() {
+    ConsumerDefinition currentDefinition = queueConsumer.getDefinition();
+    if (!currentDefinition.equals(definition)) {
+      request = ReceiveMessageRequestFactory.retune(request, currentDefinition);
+      definition = currentDefinition;
+    }
+    return request;
+  }
+
+  /**
+   * Returns the URL of the queue, which does not change when the consumer is retuned.
+   */
+  synchronized String getQueueUrl() {
+    return request.getQueueUrl();
+  }
+}
@@ -0,0 +1,109 @@
+package org.jusoft.aws.sqs.service;
+
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.FanOut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.jusoft.aws.sqs.annotation.FanOut.PARALLEL;
+import static org.jusoft.aws.sqs.annotation.FanOut.SEQUENTIAL;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNBOUNDED_FAN_OUT_PARALLELISM;
+
+/**
+ * Invokes consumers with {@link org.jusoft.aws.sqs.annotation.SqsConsumer#fanOut()} enabled once per message received,
+ * wrapping each message in its own {@link ReceiveMessageResult} so the consumer parameters are created the same way as
+ * for a single message poll. Deserializing the bodies is then also spread across the invocations. The outcome of each
+ * invocation is tracked, so only the messages successfully processed are deleted.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+class FanOutDispatcher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FanOutDispatcher.class);
+
+  private final ConsumerInvokerService consumerInvokerService;
+
+  FanOutDispatcher(ConsumerInvokerService consumerInvokerService) {
+    this.consumerInvokerService = consumerInvokerService;
+  }
+
+  static boolean isEnabledFor(QueueConsumer queueConsumer) {
+    FanOut fanOut = queueConsumer.getDefinition().fanOut();
+    return fanOut == SEQUENTIAL || fanOut == PARALLEL;
+  }
+
+  /**
+   * Invokes the consumer with each of the messages, either one after the other in a single task or in parallel,
+   * depending on the {@link FanOut} of the consumer. In parallel, at most
+   * {@link org.jusoft.aws.sqs.annotation.SqsConsumer#fanOutParallelism()} tasks take the messages one after the other.
+   * Failing invocations are logged.
+   *
+   * @param executor executor running the invocations.
+   * @return the messages successfully processed, in the same order they were received.
+   */
+  CompletableFuture<List<Message>> dispatch(QueueConsumer queueConsumer, String queueUrl, List<Message> messages,
+                                            Executor executor) {
+    if (queueConsumer.getDefinition().fanOut() == PARALLEL) {
+      return dispatchInParallel(queueConsumer, queueUrl, messages, executor);
+    }
+    return CompletableFuture.supplyAsync(() -> dispatchSequentially(queueConsumer, queueUrl, messages), executor);
+  }
+
+  private List<Message> dispatchSequentially(QueueConsumer queueConsumer, String queueUrl, List<Message> messages) {
+    List<Message> succeeded = new ArrayList<>(messages.size());
+    for (Message message : messages) {
+      if (invoke(queueConsumer, queueUrl, message)) {
+        succeeded.add(message);
+      }
+    }
+    return succeeded;
+  }
+
+  private CompletableFuture<List<Message>> dispatchInParallel(QueueConsumer queueConsumer, String queueUrl,
+                                                              List<Message> messages, Executor executor) {
+    boolean[] results = new boolean[messages.size()];
+    AtomicInteger nextIndex = new AtomicInteger();
+    Runnable task = () -> {
+      for (int index = nextIndex.getAndIncrement(); index < messages.size(); index = nextIndex.getAndIncrement()) {
+        results[index] = invoke(queueConsumer, queueUrl, messages.get(index));
+      }
+    };
+    int tasksCount = tasksCountFor(queueConsumer.getDefinition().fanOutParallelism(), messages.size());
+    CompletableFuture<?>[] tasks = new CompletableFuture[tasksCount];
+    for (int taskIndex = 0; taskIndex < tasksCount; taskIndex++) {
+      tasks[taskIndex] = CompletableFuture.runAsync(task, executor);
+    }
+    return CompletableFuture.allOf(tasks).thenApply(ignored -> {
+      List<Message> succeeded = new ArrayList<>(messages.size());
+      for (int index = 0; index < messages.size(); index++) {
+        if (results[index]) {
+          succeeded.add(messages.get(index));
+        }
+      }
+      return succeeded;
+    });
+  }
+
+  private static int tasksCountFor(int parallelism, int messagesCount) {
+    return parallelism > UNBOUNDED_FAN_OUT_PARALLELISM ? Math.min(parallelism, messagesCount) : messagesCount;
+  }
+
+  private boolean invoke(QueueConsumer queueConsumer, String queueUrl, Message message) {
+    try {
+      consumerInvokerService.invoke(queueConsumer, new ReceiveMessageResult().withMessages(message));
+      return true;
+    } catch (Exception e) {
+      LOGGER.warn("Failed to consume message. Message will not be deleted: queueUrl={}, messageId={}", queueUrl,
+        message.getMessageId());
+      return false;
+    }
+  }
+}
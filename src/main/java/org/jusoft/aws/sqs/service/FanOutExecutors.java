@@ -0,0 +1,104 @@
+package org.jusoft.aws.sqs.service;
+
+import org.jusoft.aws.sqs.ConsumerDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.MAX_MESSAGES_PER_POLL_ALLOWED;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.PIPELINE_DISABLED;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNBOUNDED_FAN_OUT_PARALLELISM;
+
+/**
+ * Executors running the invocations of the consumers with {@link org.jusoft.aws.sqs.annotation.FanOut#PARALLEL} fan
+ * out, used by the {@link MessageConsumerService}. All the consumers can share a single {@link Executor}, as returned by
+ * {@link #shared(Executor)}, or each queue can get its own bounded pool, as returned by {@link #perQueue()}.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+interface FanOutExecutors {
+
+  /**
+   * Returns the executor running the fan out tasks of the consumer.
+   */
+  Executor forConsumer(ConsumerDefinition definition);
+
+  /**
+   * Stops the executors owned, letting the tasks already submitted finish.
+   */
+  default void shutdown() {
+  }
+
+  /**
+   * Returns executors that run the tasks of all the consumers on the same executor, which is not shut down as it is
+   * owned by the caller.
+   */
+  static FanOutExecutors shared(Executor executor) {
+    return definition -> executor;
+  }
+
+  /**
+   * Returns executors that create a pool per queue on its first fan out, isolating the queues from each other.
+   */
+  static FanOutExecutors perQueue() {
+    return new PerQueueFanOutExecutors();
+  }
+
+  /**
+   * Creates a pool per queue with as many threads as the fan out tasks of all its processing loops, so the loops never
+   * wait for each other's tasks, while the threads of a queue remain bounded. Loops added once the pool is created, by
+   * raising {@link ConsumerDefinition#concurrentConsumers()}, queue their tasks until a thread is free. Idle threads
+   * are stopped.
+   */
+  class PerQueueFanOutExecutors implements FanOutExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PerQueueFanOutExecutors.class);
+    private static final long KEEP_ALIVE_IN_SECONDS = 60;
+
+    private final ConcurrentMap<String, ExecutorService> pools = new ConcurrentHashMap<>();
+
+    private PerQueueFanOutExecutors() {
+    }
+
+    @Override
+    public Executor forConsumer(ConsumerDefinition definition) {
+      return pools.computeIfAbsent(definition.value(), queueName -> createPoolFor(queueName, definition));
+    }
+
+    @Override
+    public void shutdown() {
+      pools.values().forEach(ExecutorService::shutdown);
+    }
+
+    int getPoolSize(String queueName) {
+      ExecutorService pool = pools.get(queueName);
+      return pool == null ? 0 : ((ThreadPoolExecutor) pool).getMaximumPoolSize();
+    }
+
+    private static ExecutorService createPoolFor(String queueName, ConsumerDefinition definition) {
+      int processingLoops = definition.workers() > PIPELINE_DISABLED
+        ? definition.workers() : definition.concurrentConsumers();
+      int tasksPerPoll = definition.fanOutParallelism() > UNBOUNDED_FAN_OUT_PARALLELISM
+        ? Math.min(definition.fanOutParallelism(), MAX_MESSAGES_PER_POLL_ALLOWED) : MAX_MESSAGES_PER_POLL_ALLOWED;
+      int threads = processingLoops * tasksPerPoll;
+      LOGGER.debug("Creating fan out pool: queueName={}, threads={}", queueName, threads);
+      AtomicInteger threadCounter = new AtomicInteger();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_IN_SECONDS, SECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "sqs-fan-out-" + queueName + "-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
+  }
+}
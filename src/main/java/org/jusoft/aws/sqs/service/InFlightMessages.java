@@ -0,0 +1,82 @@
+package org.jusoft.aws.sqs.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the messages received from AWS SQS while they are being processed, together with the messages processed,
+ * failed and released so far. The {@link org.jusoft.aws.sqs.SqsDispatcher} uses them to report the outcome of draining
+ * the consumers when it is closed.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class InFlightMessages {
+
+  private final AtomicInteger inFlight;
+  private final AtomicLong completed;
+  private final AtomicLong failed;
+  private final AtomicLong released;
+
+  public InFlightMessages() {
+    this.inFlight = new AtomicInteger();
+    this.completed = new AtomicLong();
+    this.failed = new AtomicLong();
+    this.released = new AtomicLong();
+  }
+
+  void started(int count) {
+    inFlight.addAndGet(count);
+  }
+
+  void completed(int count) {
+    inFlight.addAndGet(-count);
+    completed.addAndGet(count);
+  }
+
+  void failed(int count) {
+    inFlight.addAndGet(-count);
+    failed.addAndGet(count);
+  }
+
+  void released(int count) {
+    released.addAndGet(count);
+  }
+
+  /**
+   * Returns the number of messages whose consumer invocation has started but not finished yet.
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Returns the number of messages whose consumer invocation has finished successfully.
+   */
+  public long getCompleted() {
+    return completed.get();
+  }
+
+  /**
+   * Returns the number of messages whose consumer invocation has failed, so they are not deleted.
+   */
+  public long getFailed() {
+    return failed.get();
+  }
+
+  /**
+   * Returns the number of messages received but never processed that have been made visible again in the queue.
+   */
+  public long getReleased() {
+    return released.get();
+  }
+
+  @Override
+  public String toString() {
+    return "InFlightMessages{" +
+      "inFlight=" + inFlight +
+      ", completed=" + completed +
+      ", failed=" + failed +
+      ", released=" + released +
+      '}';
+  }
+}
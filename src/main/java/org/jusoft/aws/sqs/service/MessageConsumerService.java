@@ -1,43 +1,115 @@
 package org.jusoft.aws.sqs.service;
 
 import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
-import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
-import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.jusoft.aws.sqs.BatchResult;
 import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.delete.MessageDeleter;
+import org.jusoft.aws.sqs.delete.SyncMessageDeleter;
+import org.jusoft.aws.sqs.visibility.NoOpVisibilityHeartbeat;
+import org.jusoft.aws.sqs.visibility.VisibilityHeartbeat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
-import static java.util.stream.Collectors.toList;
 import static org.jusoft.aws.sqs.annotation.DeletePolicy.AFTER_READ;
+import static org.jusoft.aws.sqs.annotation.FanOut.PARALLEL;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.RELEASE_IMMEDIATELY;
 
 /**
  * Polls messages from AWS SQS using a {@link ReceiveMessageRequest}. The messages are used to invoke the consumer
  * method contained in a {@link QueueConsumer} using the {@link ConsumerInvokerService}. Depending on the
  * {@link org.jusoft.aws.sqs.annotation.DeletePolicy} found in the consumer method
  * {@link org.jusoft.aws.sqs.annotation.SqsConsumer} annotation, messages are deleted from the SQS queue either after
- * being read from the queue or after the consumer has successfully processed the message.
+ * being read from the queue or after the consumer has successfully processed the message. Messages are deleted using a
+ * {@link MessageDeleter}, which by default deletes them synchronously. While messages deleted after being processed are
+ * being consumed, their visibility can be extended by a {@link VisibilityHeartbeat}, which is disabled by default.
+ * <p>
+ * Consumers returning a {@link BatchResult} report the outcome of each message. Only the successful messages are then
+ * deleted, while the failed ones are released by changing their visibility timeout to
+ * {@link org.jusoft.aws.sqs.annotation.SqsConsumer#failureVisibilityTimeout()}.
+ * <p>
+ * Consumers with {@link org.jusoft.aws.sqs.annotation.SqsConsumer#fanOut()} enabled are invoked once per message
+ * received, and only the messages whose invocation succeeded are deleted. Parallel invocations run on the fan out
+ * {@link Executor}, which by default is a pool per queue bounded to the fan out tasks of all its processing loops, so
+ * a queue cannot starve the others. The batch is joined before any of its messages is deleted.
+ * <p>
+ * Messages are counted as completed or failed depending on the outcome of their invocation. Once the loops using the
+ * service have been stopped, {@link #close()} sends the deletes still pending, stops extending the visibility of the
+ * messages and shuts down the fan out pools.
  *
  * @author Juan Manuel Carnicero Vega
  */
-public class MessageConsumerService {
+public class MessageConsumerService implements AutoCloseable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(MessageConsumerService.class);
 
   /**
-   * AWS SQS client used to consume and delete messages from the queue
+   * AWS SQS client used to consume messages from the queue
    */
   private final AmazonSQS amazonSQS;
   private final ConsumerInvokerService consumerInvokerService;
+  private final MessageDeleter messageDeleter;
+  private final VisibilityHeartbeat visibilityHeartbeat;
+  private final FanOutExecutors fanOutExecutors;
+  private final FanOutDispatcher fanOutDispatcher;
+  private final InFlightMessages inFlightMessages;
+  private final ProcessingLatencies processingLatencies;
 
   public MessageConsumerService(AmazonSQS amazonSQS,
                                 ConsumerInvokerService consumerInvokerService) {
+    this(amazonSQS, consumerInvokerService, new SyncMessageDeleter(amazonSQS));
+  }
+
+  public MessageConsumerService(AmazonSQS amazonSQS,
+                                ConsumerInvokerService consumerInvokerService,
+                                MessageDeleter messageDeleter) {
+    this(amazonSQS, consumerInvokerService, messageDeleter, new NoOpVisibilityHeartbeat());
+  }
+
+  public MessageConsumerService(AmazonSQS amazonSQS,
+                                ConsumerInvokerService consumerInvokerService,
+                                MessageDeleter messageDeleter,
+                                VisibilityHeartbeat visibilityHeartbeat) {
+    this(amazonSQS, consumerInvokerService, messageDeleter, visibilityHeartbeat, FanOutExecutors.perQueue());
+  }
+
+  /**
+   * @param fanOutExecutor executor invoking the consumers with {@link org.jusoft.aws.sqs.annotation.FanOut#PARALLEL}
+   *                       fan out. Each poll is processed in up to
+   *                       {@link org.jusoft.aws.sqs.annotation.SqsConsumer#fanOutParallelism()} tasks. Shared by all
+   *                       the queues and not shut down by {@link #close()}.
+   */
+  public MessageConsumerService(AmazonSQS amazonSQS,
+                                ConsumerInvokerService consumerInvokerService,
+                                MessageDeleter messageDeleter,
+                                VisibilityHeartbeat visibilityHeartbeat,
+                                Executor fanOutExecutor) {
+    this(amazonSQS, consumerInvokerService, messageDeleter, visibilityHeartbeat,
+      FanOutExecutors.shared(fanOutExecutor));
+  }
+
+  MessageConsumerService(AmazonSQS amazonSQS,
+                         ConsumerInvokerService consumerInvokerService,
+                         MessageDeleter messageDeleter,
+                         VisibilityHeartbeat visibilityHeartbeat,
+                         FanOutExecutors fanOutExecutors) {
     this.amazonSQS = amazonSQS;
     this.consumerInvokerService = consumerInvokerService;
+    this.messageDeleter = messageDeleter;
+    this.visibilityHeartbeat = visibilityHeartbeat;
+    this.fanOutExecutors = fanOutExecutors;
+    this.fanOutDispatcher = new FanOutDispatcher(consumerInvokerService);
+    this.inFlightMessages = new InFlightMessages();
+    this.processingLatencies = new ProcessingLatencies();
   }
 
   /**
@@ -53,19 +125,130 @@ public class MessageConsumerService {
    */
   public void consumeAndDeleteMessages(QueueConsumer queueConsumer,
                                        ReceiveMessageRequest request) {
+    ReceivedMessages receivedMessages = receiveMessages(request);
+    if (!receivedMessages.isEmpty()) {
+      processMessages(queueConsumer, receivedMessages);
+    }
+  }
+
+  /**
+   * Uses the AWS SQS client to consume messages using the {@link ReceiveMessageRequest} passed as a parameter, without
+   * processing them.
+   *
+   * @param request AWS {@link ReceiveMessageRequest}
+   * @return the messages received together with the URL of the queue they were received from.
+   */
+  public ReceivedMessages receiveMessages(ReceiveMessageRequest request) {
     ReceiveMessageResult receiveMessageResult = amazonSQS.receiveMessage(request);
     LOGGER.trace("Message(s) received from queue: size={}", receiveMessageResult.getMessages().size());
-    if (!receiveMessageResult.getMessages().isEmpty()) {
-      if (isMessagesToBeDeletedBeforeProcessingFor(queueConsumer)) {
-        deleteMessagesBeforeProcessing(receiveMessageResult, request.getQueueUrl(), queueConsumer);
+    return ReceivedMessages.of(request.getQueueUrl(), receiveMessageResult);
+  }
+
+  /**
+   * Processes messages already received from the queue by invoking {@link ConsumerInvokerService} with the
+   * {@link QueueConsumer} received as parameter. Messages are deleted according to the
+   * {@link org.jusoft.aws.sqs.annotation.DeletePolicy} of the consumer.
+   *
+   * @param queueConsumer    consumer instance and method to invoke that contains the
+   *                         {@link org.jusoft.aws.sqs.annotation.SqsConsumer} annotation.
+   * @param receivedMessages messages received from the queue.
+   */
+  public void processMessages(QueueConsumer queueConsumer, ReceivedMessages receivedMessages) {
+    ReceiveMessageResult receiveMessageResult = receivedMessages.getReceiveMessageResult();
+    inFlightMessages.started(receivedMessages.size());
+    long start = System.nanoTime();
+    int failedMessages = receivedMessages.size();
+    try {
+      if (FanOutDispatcher.isEnabledFor(queueConsumer)) {
+        failedMessages = processEachMessage(receivedMessages, queueConsumer);
+      } else if (isMessagesToBeDeletedBeforeProcessingFor(queueConsumer)) {
+        deleteMessagesBeforeProcessing(receiveMessageResult, receivedMessages.getQueueUrl(), queueConsumer);
+        failedMessages = 0;
       } else {
-        deleteMessagesAfterProcessing(receiveMessageResult, request.getQueueUrl(), queueConsumer);
+        failedMessages = deleteMessagesAfterProcessing(receivedMessages, queueConsumer);
+      }
+    } finally {
+      inFlightMessages.completed(receivedMessages.size() - failedMessages);
+      inFlightMessages.failed(failedMessages);
+      processingLatencies.record(receivedMessages.getQueueUrl(), System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Makes messages received but not processed available to be consumed again straight away, changing their visibility
+   * timeout to {@link org.jusoft.aws.sqs.annotation.SqsConsumer#RELEASE_IMMEDIATELY}. Used to hand the messages back to
+   * the queue when the consumers are stopped before processing them.
+   *
+   * @param receivedMessages messages received from the queue and not processed.
+   */
+  public void release(ReceivedMessages receivedMessages) {
+    LOGGER.debug("Releasing unprocessed messages: queueUrl={}, size={}", receivedMessages.getQueueUrl(),
+      receivedMessages.size());
+    releaseMessages(receivedMessages.getReceiveMessageResult().getMessages(), receivedMessages.getQueueUrl(),
+      RELEASE_IMMEDIATELY);
+    inFlightMessages.released(receivedMessages.size());
+  }
+
+  /**
+   * Returns whether the concurrency limit of the consumer is reached, so no more messages should be received for it.
+   */
+  public boolean isSaturated(QueueConsumer queueConsumer) {
+    return consumerInvokerService.isSaturated(queueConsumer);
+  }
+
+  /**
+   * Returns the counters of the messages processed and released by this service.
+   */
+  public InFlightMessages getInFlightMessages() {
+    return inFlightMessages;
+  }
+
+  /**
+   * Returns the average time taken to process the messages of each poll, by queue URL.
+   */
+  public ProcessingLatencies getProcessingLatencies() {
+    return processingLatencies;
+  }
+
+  /**
+   * Sends the deletes still pending in the {@link MessageDeleter}, stops the {@link VisibilityHeartbeat} and shuts down
+   * the fan out pools created by the service. Invoked once the loops using the service have been stopped.
+   */
+  @Override
+  public void close() {
+    messageDeleter.close();
+    visibilityHeartbeat.close();
+    fanOutExecutors.shutdown();
+  }
+
+  /**
+   * @return the number of messages whose invocation failed.
+   */
+  private int processEachMessage(ReceivedMessages receivedMessages, QueueConsumer consumer) {
+    List<Message> messages = receivedMessages.getReceiveMessageResult().getMessages();
+    String queueUrl = receivedMessages.getQueueUrl();
+    Executor executor = consumer.getDefinition().fanOut() == PARALLEL
+      ? fanOutExecutors.forConsumer(consumer.getDefinition()) : Runnable::run;
+    if (isMessagesToBeDeletedBeforeProcessingFor(consumer)) {
+      LOGGER.debug("Deleting messages before processing each of them: queueUrl={}", queueUrl);
+      messageDeleter.delete(queueUrl, messages);
+      return messages.size() - fanOutDispatcher.dispatch(consumer, queueUrl, messages, executor).join().size();
+    }
+    LOGGER.debug("Deleting messages after processing each of them: queueUrl={}", queueUrl);
+    visibilityHeartbeat.track(queueUrl, messages, receivedMessages.getReceivedAtInNanos());
+    try {
+      List<Message> succeeded = fanOutDispatcher.dispatch(consumer, queueUrl, messages, executor).join();
+      if (!succeeded.isEmpty()) {
+        messageDeleter.delete(queueUrl, succeeded);
       }
+      return messages.size() - succeeded.size();
+    } finally {
+      visibilityHeartbeat.untrack(messages);
     }
   }
 
   private boolean isMessagesToBeDeletedBeforeProcessingFor(QueueConsumer queueConsumer) {
-    return queueConsumer.getAnnotation().deletePolicy().equals(AFTER_READ);
+    return queueConsumer.getDefinition().deletePolicy().equals(AFTER_READ);
   }
 
   private void deleteMessagesBeforeProcessing(ReceiveMessageResult receiveMessageResult, String queueUrl, QueueConsumer consumer) {
@@ -74,29 +257,75 @@ public class MessageConsumerService {
     consumerInvokerService.invoke(consumer, receiveMessageResult);
   }
 
-  private void deleteMessagesAfterProcessing(ReceiveMessageResult receiveMessageResult, String queueUrl, QueueConsumer consumer) {
+  /**
+   * @return the number of messages reported as failed by the consumer.
+   */
+  private int deleteMessagesAfterProcessing(ReceivedMessages receivedMessages, QueueConsumer consumer) {
+    ReceiveMessageResult receiveMessageResult = receivedMessages.getReceiveMessageResult();
+    String queueUrl = receivedMessages.getQueueUrl();
     LOGGER.debug("Deleting messages after processing them: queueUrl={}", queueUrl);
+    List<Message> messages = receiveMessageResult.getMessages();
+    visibilityHeartbeat.track(queueUrl, messages, receivedMessages.getReceivedAtInNanos());
     try {
-      consumerInvokerService.invoke(consumer, receiveMessageResult);
-    } catch (Exception e) {
-      LOGGER.warn("Failed to consume message(s). Message(s) will not be deleted: queueUrl={}", queueUrl);
-      throw e;
+      BatchResult batchResult;
+      try {
+        batchResult = consumerInvokerService.invoke(consumer, receiveMessageResult);
+      } catch (Exception e) {
+        LOGGER.warn("Failed to consume message(s). Message(s) will not be deleted: queueUrl={}", queueUrl);
+        throw e;
+      }
+      if (batchResult.isAllSucceeded()) {
+        deleteMessages(receiveMessageResult, queueUrl);
+        return 0;
+      }
+      return deleteSucceededAndReleaseFailed(messages, batchResult, queueUrl, consumer);
+    } finally {
+      visibilityHeartbeat.untrack(messages);
     }
-    deleteMessages(receiveMessageResult, queueUrl);
   }
 
-  private void deleteMessages(ReceiveMessageResult receiveMessageResult, String queueUrl) {
-    DeleteMessageBatchResult result = amazonSQS.deleteMessageBatch(createDeleteMessageRequestFrom(receiveMessageResult, queueUrl));
-    if (!result.getFailed().isEmpty()) {
-      LOGGER.error("Error deleting messages from SQS: queueUrl={}, messages={}", receiveMessageResult, result.getFailed());
+  private int deleteSucceededAndReleaseFailed(List<Message> messages, BatchResult batchResult, String queueUrl,
+                                              QueueConsumer consumer) {
+    List<Message> succeeded = new ArrayList<>();
+    List<Message> failed = new ArrayList<>();
+    for (int index = 0; index < messages.size(); index++) {
+      (batchResult.isFailed(index) ? failed : succeeded).add(messages.get(index));
+    }
+    if (failed.size() < batchResult.getFailedIndexes().size()) {
+      LOGGER.warn("Batch result contains indexes out of the batch: queueUrl={}, size={}, failedIndexes={}",
+        queueUrl, messages.size(), batchResult.getFailedIndexes());
+    }
+    LOGGER.debug("Partial batch failure: queueUrl={}, succeeded={}, failed={}", queueUrl, succeeded.size(), failed.size());
+    if (!succeeded.isEmpty()) {
+      messageDeleter.delete(queueUrl, succeeded);
     }
-    LOGGER.debug("Messages deleted from SQS: queueUrl={}, messages={}", queueUrl, result.getSuccessful());
+    if (!failed.isEmpty()) {
+      visibilityHeartbeat.untrack(failed);
+      releaseMessages(failed, queueUrl, consumer.getDefinition().failureVisibilityTimeout());
+    }
+    return failed.size();
   }
 
-  private DeleteMessageBatchRequest createDeleteMessageRequestFrom(ReceiveMessageResult receiveMessageResult, String queueUrl) {
-    List<DeleteMessageBatchRequestEntry> batchEntries = receiveMessageResult.getMessages().stream()
-      .map(message -> new DeleteMessageBatchRequestEntry(message.getMessageId(), message.getReceiptHandle()))
-      .collect(toList());
-    return new DeleteMessageBatchRequest().withQueueUrl(queueUrl).withEntries(batchEntries);
+  private void releaseMessages(List<Message> messages, String queueUrl, int visibilityTimeout) {
+    List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+    for (int index = 0; index < messages.size(); index++) {
+      entries.add(new ChangeMessageVisibilityBatchRequestEntry(String.valueOf(index), messages.get(index).getReceiptHandle())
+        .withVisibilityTimeout(visibilityTimeout));
+    }
+    try {
+      ChangeMessageVisibilityBatchResult result = amazonSQS.changeMessageVisibilityBatch(
+        new ChangeMessageVisibilityBatchRequest().withQueueUrl(queueUrl).withEntries(entries));
+      if (!result.getFailed().isEmpty()) {
+        LOGGER.error("Error releasing messages. They will be available once their visibility timeout expires: " +
+          "queueUrl={}, messages={}", queueUrl, result.getFailed());
+      }
+    } catch (Exception e) {
+      LOGGER.error("Error releasing messages. They will be available once their visibility timeout expires: " +
+        "queueUrl={}, size={}", queueUrl, messages.size(), e);
+    }
+  }
+
+  private void deleteMessages(ReceiveMessageResult receiveMessageResult, String queueUrl) {
+    messageDeleter.delete(queueUrl, receiveMessageResult.getMessages());
   }
 }
@@ -0,0 +1,312 @@
+package org.jusoft.aws.sqs.service;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNBOUNDED_BUFFER_SIZE;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNLIMITED_BUFFER_AGE;
+
+/**
+ * Bounded buffer used by a consumer running in pipeline mode to hand off the messages polled by its poller threads to
+ * its worker threads. Pollers block once the buffer is full, so the number of messages received but not yet processed
+ * never exceeds the capacity of the buffer.
+ * <p>
+ * Besides the number of polled batches, the buffer can be bounded by the number of messages and by the size in bytes of
+ * their bodies, so a few batches of large messages do not take all the memory. A batch is always accepted by an empty
+ * buffer, even if it exceeds those bounds on its own. Batches can also be given a maximum age since they were received:
+ * older batches are not returned to the workers but kept apart to be released through {@link #drainExpired()}, so
+ * they are consumed again before their visibility timeout expires. Batches are checked for their age not only when
+ * taken, but also when adding batches and when draining the expired ones, so they are released even while all the
+ * workers are busy, and expired batches do not keep the pollers waiting for space.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class MessagePipeline {
+
+  private final int capacity;
+  private final int maxMessages;
+  private final long maxBytes;
+  private final long maxAgeInNanos;
+  private final LongSupplier clockInNanos;
+
+  private final ReentrantLock lock;
+  private final Condition notEmpty;
+  private final Condition notFull;
+  private final Deque<BufferedBatch> buffer;
+  private final List<ReceivedMessages> expired;
+  private int bufferedMessages;
+  private long bufferedBytes;
+
+  MessagePipeline(int capacity, int maxMessages, long maxBytes, long maxAgeInMillis, LongSupplier clockInNanos) {
+    isTrue(capacity > 0, "Pipeline capacity must be greater than 0");
+    isTrue(maxMessages >= UNBOUNDED_BUFFER_SIZE, "Pipeline maximum messages cannot be negative");
+    isTrue(maxBytes >= UNBOUNDED_BUFFER_SIZE, "Pipeline maximum bytes cannot be negative");
+    isTrue(maxAgeInMillis >= UNLIMITED_BUFFER_AGE, "Pipeline maximum age cannot be negative");
+    this.capacity = capacity;
+    this.maxMessages = maxMessages;
+    this.maxBytes = maxBytes;
+    this.maxAgeInNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeInMillis);
+    this.clockInNanos = clockInNanos;
+    notNull(this.clockInNanos);
+    this.lock = new ReentrantLock();
+    this.notEmpty = lock.newCondition();
+    this.notFull = lock.newCondition();
+    this.buffer = new ArrayDeque<>(capacity);
+    this.expired = new ArrayList<>();
+  }
+
+  public static MessagePipeline of(int capacity) {
+    return of(capacity, UNBOUNDED_BUFFER_SIZE, UNBOUNDED_BUFFER_SIZE, UNLIMITED_BUFFER_AGE);
+  }
+
+  /**
+   * @param capacity       maximum number of polled batches in the buffer.
+   * @param maxMessages    maximum number of messages in the buffer, or UNBOUNDED_BUFFER_SIZE.
+   * @param maxBytes       maximum size in bytes of the bodies of the messages in the buffer, or UNBOUNDED_BUFFER_SIZE.
+   * @param maxAgeInMillis maximum time since messages were received for them to be processed, or
+   *                       UNLIMITED_BUFFER_AGE.
+   */
+  public static MessagePipeline of(int capacity, int maxMessages, long maxBytes, long maxAgeInMillis) {
+    return new MessagePipeline(capacity, maxMessages, maxBytes, maxAgeInMillis, System::nanoTime);
+  }
+
+  /**
+   * Adds the messages to the buffer, waiting up to the timeout specified for space to become available.
+   *
+   * @return true if the messages were added, false if the timeout elapsed before there was space in the buffer.
+   */
+  public boolean offer(ReceivedMessages receivedMessages, long timeout, TimeUnit unit) throws InterruptedException {
+    BufferedBatch batch = new BufferedBatch(receivedMessages);
+    long remainingNanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      removeExpired();
+      while (!fits(batch)) {
+        if (remainingNanos <= 0) {
+          return false;
+        }
+        remainingNanos = notFull.awaitNanos(remainingNanos);
+        removeExpired();
+      }
+      buffer.addLast(batch);
+      bufferedMessages += batch.messages;
+      bufferedBytes += batch.bytes;
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean fits(BufferedBatch batch) {
+    if (buffer.isEmpty()) {
+      return true;
+    }
+    return buffer.size() < capacity
+      && (maxMessages == UNBOUNDED_BUFFER_SIZE || bufferedMessages + batch.messages <= maxMessages)
+      && (maxBytes == UNBOUNDED_BUFFER_SIZE || bufferedBytes + batch.bytes <= maxBytes);
+  }
+
+  /**
+   * Takes the oldest messages from the buffer, waiting up to the timeout specified for them to become available.
+   * Messages older than the maximum age are skipped and kept to be released.
+   *
+   * @return the oldest messages in the buffer or null if the timeout elapsed before any messages were added.
+   */
+  public ReceivedMessages poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long remainingNanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (true) {
+        while (buffer.isEmpty()) {
+          if (remainingNanos <= 0) {
+            return null;
+          }
+          remainingNanos = notEmpty.awaitNanos(remainingNanos);
+        }
+        BufferedBatch batch = removeFirst();
+        if (!isExpired(batch)) {
+          return batch.receivedMessages;
+        }
+        expired.add(batch.receivedMessages);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private BufferedBatch removeFirst() {
+    BufferedBatch batch = buffer.removeFirst();
+    bufferedMessages -= batch.messages;
+    bufferedBytes -= batch.bytes;
+    notFull.signalAll();
+    return batch;
+  }
+
+  /**
+   * Moves the batches older than the maximum age from the buffer to the ones kept to be released, wherever they are
+   * in the buffer, as batches handed off by several pollers are not strictly ordered by the time they were received.
+   */
+  private void removeExpired() {
+    if (maxAgeInNanos == UNLIMITED_BUFFER_AGE) {
+      return;
+    }
+    boolean isRemoved = false;
+    Iterator<BufferedBatch> batches = buffer.iterator();
+    while (batches.hasNext()) {
+      BufferedBatch batch = batches.next();
+      if (isExpired(batch)) {
+        batches.remove();
+        bufferedMessages -= batch.messages;
+        bufferedBytes -= batch.bytes;
+        expired.add(batch.receivedMessages);
+        isRemoved = true;
+      }
+    }
+    if (isRemoved) {
+      notFull.signalAll();
+    }
+  }
+
+  private boolean isExpired(BufferedBatch batch) {
+    return maxAgeInNanos != UNLIMITED_BUFFER_AGE
+      && clockInNanos.getAsLong() - batch.receivedMessages.getReceivedAtInNanos() > maxAgeInNanos;
+  }
+
+  /**
+   * Removes the messages older than the maximum age, whether they were already skipped by the workers or are still
+   * waiting in the buffer, so they can be released.
+   *
+   * @return the messages removed.
+   */
+  public List<ReceivedMessages> drainExpired() {
+    lock.lock();
+    try {
+      removeExpired();
+      List<ReceivedMessages> drained = new ArrayList<>(expired);
+      expired.clear();
+      return drained;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all the messages waiting in the buffer, including the ones skipped for being older than the maximum age.
+   *
+   * @return the messages removed, oldest first.
+   */
+  public List<ReceivedMessages> drain() {
+    lock.lock();
+    try {
+      List<ReceivedMessages> pending = new ArrayList<>(expired);
+      expired.clear();
+      while (!buffer.isEmpty()) {
+        pending.add(removeFirst().receivedMessages);
+      }
+      return pending;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of polled batches waiting to be processed.
+   */
+  public int size() {
+    lock.lock();
+    try {
+      return buffer.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int remainingCapacity() {
+    lock.lock();
+    try {
+      return capacity - buffer.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of messages waiting to be processed.
+   */
+  public int getBufferedMessages() {
+    lock.lock();
+    try {
+      return bufferedMessages;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the size in bytes of the bodies of the messages waiting to be processed.
+   */
+  public long getBufferedBytes() {
+    lock.lock();
+    try {
+      return bufferedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static class BufferedBatch {
+    private final ReceivedMessages receivedMessages;
+    private final int messages;
+    private final long bytes;
+
+    private BufferedBatch(ReceivedMessages receivedMessages) {
+      this.receivedMessages = receivedMessages;
+      this.messages = receivedMessages.size();
+      this.bytes = bodyBytesOf(receivedMessages.getReceiveMessageResult().getMessages());
+    }
+
+    private static long bodyBytesOf(List<Message> messages) {
+      long bytes = 0;
+      for (Message message : messages) {
+        bytes += utf8LengthOf(message.getBody());
+      }
+      return bytes;
+    }
+
+    /**
+     * Size in UTF-8 of the body, as counted by AWS SQS, without encoding it.
+     */
+    private static long utf8LengthOf(String body) {
+      if (body == null) {
+        return 0;
+      }
+      long length = 0;
+      for (int index = 0; index < body.length(); index++) {
+        char character = body.charAt(index);
+        if (character < 0x80) {
+          length++;
+        } else if (character < 0x800) {
+          length += 2;
+        } else if (Character.isHighSurrogate(character)) {
+          length += 4;
+          index++;
+        } else {
+          length += 3;
+        }
+      }
+      return length;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package org.jusoft.aws.sqs.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Lifecycle handle of a single poll loop started by the {@link QueuePollService}. A consumer configured with several
+ * {@link org.jusoft.aws.sqs.annotation.SqsConsumer#concurrentConsumers()} runs one loop per concurrent consumer, each of
+ * them controlled by its own handle so they can be stopped and observed independently. Worker loops of consumers
+ * running in pipeline mode are controlled the same way. The handles of all the loops of a consumer are grouped in its
+ * {@link ConsumerHandle}.
+ * <p>
+ * A paused loop does not receive messages until it is resumed, checking whether it has been resumed every
+ * {@link QueuePollService#BACKOFF_CHECK_INTERVAL_IN_MILLIS}. Messages already received are still processed.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class PollerHandle {
+
+  private final String queueName;
+  private final int pollerIndex;
+  private final CountDownLatch stoppedLatch;
+
+  /**
+   * Controls the loop associated to this handle. Volatile as it is changed and read from different threads.
+   */
+  private volatile boolean isActive;
+
+  /**
+   * Pauses the receives of the loop associated to this handle. Volatile as it is changed and read from different
+   * threads.
+   */
+  private volatile boolean isPaused;
+
+  private PollerHandle(String queueName, int pollerIndex) {
+    this.queueName = queueName;
+    this.pollerIndex = pollerIndex;
+    this.stoppedLatch = new CountDownLatch(1);
+    this.isActive = true;
+    notNull(this.queueName);
+  }
+
+  public static PollerHandle of(String queueName, int pollerIndex) {
+    return new PollerHandle(queueName, pollerIndex);
+  }
+
+  public String getQueueName() {
+    return queueName;
+  }
+
+  public int getPollerIndex() {
+    return pollerIndex;
+  }
+
+  /**
+   * Returns true while the loop associated to the handle has not been requested to stop.
+   */
+  public boolean isActive() {
+    return isActive;
+  }
+
+  /**
+   * Requests the loop associated to the handle to stop. The loop finishes once its current poll is completed.
+   */
+  public void stop() {
+    isActive = false;
+  }
+
+  /**
+   * Requests the loop associated to the handle not to receive more messages until {@link #resume()} is invoked. The
+   * receive in progress, if any, is completed and its messages processed.
+   */
+  public void pause() {
+    isPaused = true;
+  }
+
+  /**
+   * Lets the loop associated to the handle receive messages again after being paused.
+   */
+  public void resume() {
+    isPaused = false;
+  }
+
+  /**
+   * Returns true while the loop associated to the handle has been requested not to receive messages.
+   */
+  public boolean isPaused() {
+    return isPaused;
+  }
+
+  /**
+   * Returns true once the loop associated to the handle has finished.
+   */
+  public boolean isStopped() {
+    return stoppedLatch.getCount() == 0;
+  }
+
+  /**
+   * Waits for the loop associated to the handle to finish.
+   *
+   * @return true if the loop finished before the timeout elapsed.
+   */
+  public boolean awaitStopped(long timeout, TimeUnit unit) throws InterruptedException {
+    return stoppedLatch.await(timeout, unit);
+  }
+
+  void markStopped() {
+    stoppedLatch.countDown();
+  }
+
+  @Override
+  public String toString() {
+    return "PollerHandle{" +
+      "queueName='" + queueName + '\'' +
+      ", pollerIndex=" + pollerIndex +
+      ", isActive=" + isActive +
+      ", isPaused=" + isPaused +
+      ", isStopped=" + isStopped() +
+      '}';
+  }
+}
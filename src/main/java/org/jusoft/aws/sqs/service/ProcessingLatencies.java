@@ -0,0 +1,49 @@
+package org.jusoft.aws.sqs.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Exponentially weighted moving average of the time taken to process the messages received in a single poll, by queue
+ * URL. Recent polls weigh more than older ones, so the average follows the changes in the latency of the consumers and
+ * of the services they depend on.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class ProcessingLatencies {
+
+  /**
+   * Latency returned for queues without any poll processed yet.
+   */
+  public static final long NO_SAMPLES = -1;
+
+  /**
+   * Weight of the latest sample in the moving average.
+   */
+  static final double SAMPLE_WEIGHT = 0.2;
+
+  private final Map<String, AtomicLong> averagesInNanos;
+
+  public ProcessingLatencies() {
+    this.averagesInNanos = new ConcurrentHashMap<>();
+  }
+
+  void record(String queueUrl, long elapsedInNanos) {
+    averagesInNanos.computeIfAbsent(queueUrl, url -> new AtomicLong(NO_SAMPLES))
+      .accumulateAndGet(elapsedInNanos, (average, sample) -> average == NO_SAMPLES
+        ? sample
+        : Math.round(average + SAMPLE_WEIGHT * (sample - average)));
+  }
+
+  /**
+   * Returns the average time in milliseconds taken to process the messages of a poll from the queue, or
+   * {@link #NO_SAMPLES} if none has been processed yet.
+   */
+  public long getAverageInMillis(String queueUrl) {
+    AtomicLong average = averagesInNanos.get(queueUrl);
+    return average == null || average.get() == NO_SAMPLES ? NO_SAMPLES : NANOSECONDS.toMillis(average.get());
+  }
+}
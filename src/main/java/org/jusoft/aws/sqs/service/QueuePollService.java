@@ -2,67 +2,386 @@ package org.jusoft.aws.sqs.service;
 
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.backoff.DefaultPollBackoffFactory;
+import org.jusoft.aws.sqs.backoff.PollBackoff;
+import org.jusoft.aws.sqs.backoff.PollBackoffFactory;
+import org.jusoft.aws.sqs.ratelimit.ReceiveRateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.commons.lang3.Validate.notNull;
+import static org.jusoft.aws.sqs.service.ReceiveMessageRequestFactory.limitTo;
+import static org.jusoft.aws.sqs.service.ReceiveMessageRequestFactory.maxMessagesOf;
+
 /**
  * Creates a {@link ReceiveMessageRequest} using the {@link ReceiveMessageRequestFactory} and starts a loop where the
- * {@link MessageConsumerService} is called with the {@link ReceiveMessageRequest} created. The loop stops once the
- * {@link #stop()} method is invoked.
+ * {@link MessageConsumerService} is called with the {@link ReceiveMessageRequest} created. Each loop is controlled by a
+ * {@link PollerHandle} and stops once either the handle or the whole service through the {@link #stop()} method are
+ * stopped.
+ * <p>
+ * Consumers running in pipeline mode split the loop in two: poller loops started with
+ * {@link #startPoller(QueueConsumer, PollerHandle, MessagePipeline)} only receive messages and add them to a
+ * {@link MessagePipeline}, while worker loops started with {@link #startWorker(QueueConsumer, PollerHandle,
+ * MessagePipeline)} take them from it to invoke the consumer and delete them.
+ * <p>
+ * Loops receiving messages wait before polling again according to the {@link PollBackoff} of their consumer, created by
+ * the {@link PollBackoffFactory}. It is shared by all the pollers of the consumer and exposes the consecutive empty
+ * receives and errors through {@link #getPollBackoffs()}.
+ * <p>
+ * Polls request no more messages than permitted by the {@link ReceiveRateLimiter}, waiting while the consumer or the
+ * whole service has reached its rate.
+ * <p>
+ * The number of messages and the wait time of each poll are taken from the current
+ * {@link org.jusoft.aws.sqs.ConsumerDefinition} of the consumer, so retuning it applies on the next poll of its loops.
+ * <p>
+ * Messages received by a loop after it has been stopped are released, making them visible again in the queue straight
+ * away instead of processing them, so stopping the consumers does not have to wait for them.
  *
  * @author Juan Manuel Carnicero Vega
  */
-public class QueuePollService {
+public class QueuePollService implements AutoCloseable {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(QueuePollService.class);
 
+  /**
+   * Maximum time the pipeline loops wait on the {@link MessagePipeline} before checking whether they have been stopped.
+   */
+  static final long PIPELINE_WAIT_TIMEOUT_IN_MILLIS = 500;
+
+  /**
+   * Maximum time the loops wait while backing off or paused before checking whether they have been stopped or resumed.
+   */
+  static final long BACKOFF_CHECK_INTERVAL_IN_MILLIS = 500;
+
+  /**
+   * Time the loops wait before receiving again while the concurrency limit of their consumer is reached.
+   */
+  static final long SATURATION_CHECK_INTERVAL_IN_MILLIS = 50;
+
   private final ReceiveMessageRequestFactory receiveMessageRequestFactory;
   private final MessageConsumerService messageConsumerService;
+  private final PollBackoffFactory pollBackoffFactory;
+  private final ReceiveRateLimiter receiveRateLimiter;
+  private final ConcurrentMap<String, PollBackoff> pollBackoffs;
 
   /**
-   * Controls the loop that consumes messages from AWS SQS.
+   * Controls all the loops that consume messages from AWS SQS. Volatile as it is changed and read from different
+   * threads.
    */
-  private boolean isConsumerActive;
+  private volatile boolean isConsumerActive;
 
   /**
-   * Initialises the flag to control the loop of message consumption to active.
+   * Initialises the flag to control the loop of message consumption to active. Consumers back off using the
+   * {@link DefaultPollBackoffFactory}.
    *
    * @param receiveMessageRequestFactory
    * @param messageConsumerService
    */
   public QueuePollService(ReceiveMessageRequestFactory receiveMessageRequestFactory,
                           MessageConsumerService messageConsumerService) {
+    this(receiveMessageRequestFactory, messageConsumerService, new DefaultPollBackoffFactory());
+  }
+
+  public QueuePollService(ReceiveMessageRequestFactory receiveMessageRequestFactory,
+                          MessageConsumerService messageConsumerService,
+                          PollBackoffFactory pollBackoffFactory) {
+    this(receiveMessageRequestFactory, messageConsumerService, pollBackoffFactory, new ReceiveRateLimiter());
+  }
+
+  /**
+   * @param receiveRateLimiter limits the rate of messages received by each consumer and by all of them.
+   */
+  public QueuePollService(ReceiveMessageRequestFactory receiveMessageRequestFactory,
+                          MessageConsumerService messageConsumerService,
+                          PollBackoffFactory pollBackoffFactory,
+                          ReceiveRateLimiter receiveRateLimiter) {
     this.receiveMessageRequestFactory = receiveMessageRequestFactory;
     this.messageConsumerService = messageConsumerService;
+    this.pollBackoffFactory = pollBackoffFactory;
+    this.receiveRateLimiter = receiveRateLimiter;
+    notNull(this.receiveRateLimiter);
+    this.pollBackoffs = new ConcurrentHashMap<>();
     isConsumerActive = true;
   }
 
   /**
-   * Calls the {@link ReceiveMessageRequestFactory} with the {@link QueueConsumer} passed as parameter to create a
-   * {@link ReceiveMessageRequest}. It is then used to invoke the {@link MessageConsumerService} inside a loop. The
-   * method ends once the loop is disabled calling the {@link #stop()} method.
+   * Starts a single poll loop for the {@link QueueConsumer} passed as parameter. The method ends once the loop is
+   * disabled calling the {@link #stop()} method.
    *
    * @param queueConsumer
    */
   public void start(QueueConsumer queueConsumer) {
-    String queueName = queueConsumer.getAnnotation().value();
-    LOGGER.info("Starting queueConsumer: queue={}", queueName);
-
-    ReceiveMessageRequest request = receiveMessageRequestFactory.createFrom(queueConsumer);
-    while (isConsumerActive) {
-      try {
-        messageConsumerService.consumeAndDeleteMessages(queueConsumer, request);
-      } catch (Exception e) {
-        LOGGER.error("Error while consuming message(s): queueName={}", request.getQueueUrl(), e);
+    start(queueConsumer, PollerHandle.of(queueConsumer.getDefinition().value(), 0));
+  }
+
+  /**
+   * Calls the {@link ReceiveMessageRequestFactory} with the {@link QueueConsumer} passed as parameter to create a
+   * {@link ReceiveMessageRequest}. It is then used to receive messages and process them with the
+   * {@link MessageConsumerService} inside a loop, updated on every poll with the current definition of the consumer. The method ends once the loop is disabled calling either
+   * {@link PollerHandle#stop()} or {@link #stop()}.
+   *
+   * @param queueConsumer consumer to poll messages for.
+   * @param pollerHandle  handle controlling the lifecycle of the loop.
+   */
+  public void start(QueueConsumer queueConsumer, PollerHandle pollerHandle) {
+    String queueName = queueConsumer.getDefinition().value();
+    LOGGER.info("Starting queueConsumer: queue={}, poller={}", queueName, pollerHandle.getPollerIndex());
+
+    try {
+      ConsumerReceiveRequest request = new ConsumerReceiveRequest(queueConsumer,
+        receiveMessageRequestFactory.createFrom(queueConsumer));
+      PollBackoff pollBackoff = findPollBackoffFor(queueConsumer);
+      while (isActive(pollerHandle)) {
+        try {
+          ReceivedMessages receivedMessages = receive(queueConsumer, request.get(), pollBackoff, pollerHandle);
+          if (receivedMessages != null && !receivedMessages.isEmpty()) {
+            processUnlessStopped(queueConsumer, receivedMessages, pollerHandle);
+          }
+        } catch (InterruptedException e) {
+          LOGGER.warn("Poller interrupted: queueName={}", queueName);
+          Thread.currentThread().interrupt();
+          break;
+        } catch (Exception e) {
+          LOGGER.error("Error while consuming message(s): queueName={}", request.getQueueUrl(), e);
+        }
+      }
+    } finally {
+      pollerHandle.markStopped();
+    }
+    LOGGER.info("Closing queueConsumer: queueName={}, poller={}", queueName, pollerHandle.getPollerIndex());
+  }
+
+  /**
+   * Starts a poller loop for a consumer running in pipeline mode. Each iteration receives messages from the queue and
+   * adds them to the {@link MessagePipeline}, waiting for space in it when it is full. Messages are neither processed
+   * nor deleted by this loop, but the ones that waited in the pipeline longer than its maximum age are released on
+   * every iteration and while waiting for space, so they are released even when all the workers are busy.
+   *
+   * @param queueConsumer consumer to poll messages for.
+   * @param pollerHandle  handle controlling the lifecycle of the loop.
+   * @param pipeline      buffer shared with the worker loops of the consumer.
+   */
+  public void startPoller(QueueConsumer queueConsumer, PollerHandle pollerHandle, MessagePipeline pipeline) {
+    String queueName = queueConsumer.getDefinition().value();
+    LOGGER.info("Starting pipeline poller: queue={}, poller={}", queueName, pollerHandle.getPollerIndex());
+
+    try {
+      ConsumerReceiveRequest request = new ConsumerReceiveRequest(queueConsumer,
+        receiveMessageRequestFactory.createFrom(queueConsumer));
+      PollBackoff pollBackoff = findPollBackoffFor(queueConsumer);
+      while (isActive(pollerHandle)) {
+        try {
+          releaseExpired(pipeline);
+          ReceivedMessages receivedMessages = receive(queueConsumer, request.get(), pollBackoff, pollerHandle);
+          if (receivedMessages != null && !receivedMessages.isEmpty()) {
+            handOffUnlessStopped(receivedMessages, pollerHandle, pipeline);
+          }
+        } catch (InterruptedException e) {
+          LOGGER.warn("Pipeline poller interrupted: queueName={}", queueName);
+          Thread.currentThread().interrupt();
+          break;
+        } catch (Exception e) {
+          LOGGER.error("Error while receiving message(s): queueName={}", request.getQueueUrl(), e);
+        }
+      }
+    } finally {
+      pollerHandle.markStopped();
+    }
+    LOGGER.info("Closing pipeline poller: queueName={}, poller={}", queueName, pollerHandle.getPollerIndex());
+  }
+
+  /**
+   * Messages received once the loop has been stopped are released instead of processed, so shutting down does not
+   * wait for them to be processed nor leaves them invisible until their visibility timeout expires.
+   */
+  private void processUnlessStopped(QueueConsumer queueConsumer, ReceivedMessages receivedMessages,
+                                    PollerHandle pollerHandle) {
+    if (isActive(pollerHandle)) {
+      messageConsumerService.processMessages(queueConsumer, receivedMessages);
+    } else {
+      messageConsumerService.release(receivedMessages);
+    }
+  }
+
+  private PollBackoff findPollBackoffFor(QueueConsumer queueConsumer) {
+    return pollBackoffs.computeIfAbsent(queueConsumer.getDefinition().value(),
+      queueName -> pollBackoffFactory.createFor(queueConsumer));
+  }
+
+  /**
+   * Receives messages unless the loop is paused, the consumer is saturated, its circuit is open or it has reached its
+   * rate, waiting afterwards as long as the {@link PollBackoff} decides for the outcome of the poll. No more messages
+   * are requested than permitted by the rate.
+   *
+   * @return the messages received or null if the loop was paused, the consumer was saturated, the circuit was open, the
+   * rate was reached or receiving them failed.
+   */
+  private ReceivedMessages receive(QueueConsumer queueConsumer, ReceiveMessageRequest request, PollBackoff pollBackoff,
+                                   PollerHandle pollerHandle) throws InterruptedException {
+    if (pollerHandle.isPaused()) {
+      pause(BACKOFF_CHECK_INTERVAL_IN_MILLIS, pollerHandle);
+      return null;
+    }
+    if (messageConsumerService.isSaturated(queueConsumer)) {
+      pause(SATURATION_CHECK_INTERVAL_IN_MILLIS, pollerHandle);
+      return null;
+    }
+    long circuitDelay = pollBackoff.delayBeforePollInMillis();
+    if (circuitDelay > 0) {
+      pause(circuitDelay, pollerHandle);
+      return null;
+    }
+    int permits = receiveRateLimiter.acquireUpTo(queueConsumer, maxMessagesOf(request));
+    if (permits == 0) {
+      pause(millisUntilPermitted(queueConsumer), pollerHandle);
+      return null;
+    }
+    ReceivedMessages receivedMessages;
+    try {
+      receivedMessages = messageConsumerService.receiveMessages(limitTo(request, permits));
+    } catch (Exception e) {
+      receiveRateLimiter.refund(queueConsumer, permits);
+      long delay = pollBackoff.onError();
+      LOGGER.error("Error while receiving message(s). Backing off: queueUrl={}, consecutiveErrors={}, delay={}, " +
+        "circuit={}", request.getQueueUrl(), pollBackoff.getConsecutiveErrors(), delay, pollBackoff.getCircuitState(), e);
+      pause(delay, pollerHandle);
+      return null;
+    }
+    receiveRateLimiter.refund(queueConsumer, permits - receivedMessages.size());
+    if (receivedMessages.isEmpty()) {
+      pause(pollBackoff.onEmptyReceive(), pollerHandle);
+    } else {
+      pollBackoff.onMessagesReceived();
+    }
+    return receivedMessages;
+  }
+
+  private long millisUntilPermitted(QueueConsumer queueConsumer) {
+    return Math.max(1, NANOSECONDS.toMillis(receiveRateLimiter.nanosUntilAvailable(queueConsumer) + 999_999));
+  }
+
+  private void pause(long delayInMillis, PollerHandle pollerHandle) throws InterruptedException {
+    long remaining = delayInMillis;
+    while (remaining > 0 && isActive(pollerHandle)) {
+      long sleep = Math.min(remaining, BACKOFF_CHECK_INTERVAL_IN_MILLIS);
+      MILLISECONDS.sleep(sleep);
+      remaining -= sleep;
+    }
+  }
+
+  private void handOffUnlessStopped(ReceivedMessages receivedMessages, PollerHandle pollerHandle,
+                                    MessagePipeline pipeline) throws InterruptedException {
+    boolean isHandedOff = false;
+    while (!isHandedOff && isActive(pollerHandle)) {
+      isHandedOff = pipeline.offer(receivedMessages, PIPELINE_WAIT_TIMEOUT_IN_MILLIS, MILLISECONDS);
+      releaseExpired(pipeline);
+    }
+    if (!isHandedOff) {
+      LOGGER.info("Poller stopped before handing off message(s). Releasing them: queueUrl={}, size={}",
+        receivedMessages.getQueueUrl(), receivedMessages.size());
+      messageConsumerService.release(receivedMessages);
+    }
+  }
+
+  /**
+   * Releases the messages still waiting in the {@link MessagePipeline} of a consumer running in pipeline mode, so they
+   * are available to be consumed again straight away. Invoked once the loops of the consumer have been stopped.
+   *
+   * @param pipeline buffer of the consumer whose loops have been stopped.
+   */
+  public void releasePending(MessagePipeline pipeline) {
+    pipeline.drain().forEach(messageConsumerService::release);
+  }
+
+  /**
+   * Returns the counters of the messages processed and released by the loops of this service.
+   */
+  public InFlightMessages getInFlightMessages() {
+    return messageConsumerService.getInFlightMessages();
+  }
+
+  /**
+   * Returns the average time taken to process the messages of each poll, by queue URL.
+   */
+  public ProcessingLatencies getProcessingLatencies() {
+    return messageConsumerService.getProcessingLatencies();
+  }
+
+  /**
+   * Starts a worker loop for a consumer running in pipeline mode. Each iteration takes the oldest messages from the
+   * {@link MessagePipeline} and passes them to the {@link MessageConsumerService} to be processed and deleted. Messages
+   * that waited in the pipeline longer than its maximum age are released instead.
+   *
+   * @param queueConsumer consumer to invoke with the messages.
+   * @param workerHandle  handle controlling the lifecycle of the loop.
+   * @param pipeline      buffer shared with the poller loops of the consumer.
+   */
+  public void startWorker(QueueConsumer queueConsumer, PollerHandle workerHandle, MessagePipeline pipeline) {
+    String queueName = queueConsumer.getDefinition().value();
+    LOGGER.info("Starting pipeline worker: queue={}, worker={}", queueName, workerHandle.getPollerIndex());
+
+    try {
+      while (isActive(workerHandle)) {
+        try {
+          ReceivedMessages receivedMessages = pipeline.poll(PIPELINE_WAIT_TIMEOUT_IN_MILLIS, MILLISECONDS);
+          releaseExpired(pipeline);
+          if (receivedMessages != null) {
+            messageConsumerService.processMessages(queueConsumer, receivedMessages);
+          }
+        } catch (InterruptedException e) {
+          LOGGER.warn("Pipeline worker interrupted: queueName={}", queueName);
+          Thread.currentThread().interrupt();
+          break;
+        } catch (Exception e) {
+          LOGGER.error("Error while processing message(s): queueName={}", queueName, e);
+        }
       }
+    } finally {
+      workerHandle.markStopped();
+    }
+    LOGGER.info("Closing pipeline worker: queueName={}, worker={}", queueName, workerHandle.getPollerIndex());
+  }
+
+  private void releaseExpired(MessagePipeline pipeline) {
+    for (ReceivedMessages expiredMessages : pipeline.drainExpired()) {
+      LOGGER.warn("Message(s) waited too long in the pipeline. Releasing them: queueUrl={}, size={}",
+        expiredMessages.getQueueUrl(), expiredMessages.size());
+      messageConsumerService.release(expiredMessages);
     }
-    LOGGER.info("Closing queueConsumer: queueName={}", queueName);
   }
 
   /**
-   * Disables the consumer by changing the flag controlling the consumer loop.
+   * Returns the {@link PollBackoff} of every consumer started, by queue name, so their counters can be monitored.
+   */
+  public Map<String, PollBackoff> getPollBackoffs() {
+    return Collections.unmodifiableMap(pollBackoffs);
+  }
+
+  private boolean isActive(PollerHandle handle) {
+    return isConsumerActive && handle.isActive();
+  }
+
+  /**
+   * Disables all the consumers by changing the flag controlling the consumer loops.
    */
   public void stop() {
     isConsumerActive = false;
   }
+
+  /**
+   * Disables all the consumers and closes the {@link MessageConsumerService}, sending the deletes still pending.
+   * Invoked once the loops have finished.
+   */
+  @Override
+  public void close() {
+    stop();
+    messageConsumerService.close();
+  }
 }
@@ -4,15 +4,21 @@ import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.GetQueueUrlResult;
 import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import org.jusoft.aws.sqs.ConsumerDefinition;
 import org.jusoft.aws.sqs.QueueConsumer;
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.jusoft.aws.sqs.annotation.FanOut.PARALLEL;
+import static org.jusoft.aws.sqs.annotation.FanOut.SEQUENTIAL;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.MAX_MESSAGES_PER_POLL_ALLOWED;
+
 /**
  * Creates a {@link ReceiveMessageRequest} based on the information contained in the consumer method {@link SqsConsumer}
  * annotation. The queue URL is fetched from the AWS account using the {@link AmazonSQS} client and the name of the
- * queue passed in the {@link SqsConsumer} annotation. <b>In case the URL cannot be fetched, a {@link System#exit(int)}
+ * queue passed in the {@link SqsConsumer} annotation. Consumers with {@link SqsConsumer#fanOut()} enabled always
+ * receive up to 10 messages per poll. <b>In case the URL cannot be fetched, a {@link System#exit(int)}
  * is invoked.</b>
  *
  * @author Juan Manuel Carnicero Vega
@@ -28,17 +34,54 @@ public class ReceiveMessageRequestFactory {
   }
 
   /**
-   * Creates the {@link ReceiveMessageRequest} using the {@link SqsConsumer} annotation from the {@link QueueConsumer}.
+   * Creates the {@link ReceiveMessageRequest} using the {@link ConsumerDefinition} from the {@link QueueConsumer}.
    * The queue URL is fetched from the AWS account using the {@link AmazonSQS} client and the name of the queue contained
    * in the {@link SqsConsumer}. <b>In case the URL cannot be fetched, a {@link System#exit(int)} is invoked.</b>
    *
    * @param queueConsumer consumer instance and method annotated with {@link SqsConsumer}.
    */
   public ReceiveMessageRequest createFrom(QueueConsumer queueConsumer) {
-    SqsConsumer annotation = queueConsumer.getAnnotation();
-    return new ReceiveMessageRequest(findQueueUrlOrFailFrom(annotation.value()))
-      .withMaxNumberOfMessages(annotation.maxMessagesPerPoll())
-      .withWaitTimeSeconds(annotation.longPolling());
+    ConsumerDefinition definition = queueConsumer.getDefinition();
+    return new ReceiveMessageRequest(findQueueUrlOrFailFrom(definition.value()))
+      .withMaxNumberOfMessages(maxMessagesFor(definition))
+      .withWaitTimeSeconds(definition.longPolling());
+  }
+
+  /**
+   * Returns the request receiving the number of messages and waiting the time of the definition passed, so a consumer
+   * retuned while its loops run uses the new values from their next poll. The request passed is returned when its
+   * values are already the ones of the definition, and it is not modified otherwise.
+   */
+  static ReceiveMessageRequest retune(ReceiveMessageRequest request, ConsumerDefinition definition) {
+    int maxMessages = maxMessagesFor(definition);
+    Integer waitTimeSeconds = definition.longPolling();
+    return maxMessages == maxMessagesOf(request) && waitTimeSeconds.equals(request.getWaitTimeSeconds())
+      ? request
+      : request.clone().withMaxNumberOfMessages(maxMessages).withWaitTimeSeconds(waitTimeSeconds);
+  }
+
+  private static int maxMessagesFor(ConsumerDefinition definition) {
+    return isFanOutEnabled(definition) ? MAX_MESSAGES_PER_POLL_ALLOWED : definition.maxMessagesPerPoll();
+  }
+
+  /**
+   * Returns the maximum number of messages received with the request, 1 when not set as it is the AWS SQS default.
+   */
+  static int maxMessagesOf(ReceiveMessageRequest request) {
+    Integer maxMessages = request.getMaxNumberOfMessages();
+    return maxMessages == null ? 1 : maxMessages;
+  }
+
+  /**
+   * Returns the request receiving no more than the given number of messages. The request passed is not modified as it
+   * is reused by every poll of the loop.
+   */
+  static ReceiveMessageRequest limitTo(ReceiveMessageRequest request, int maxMessages) {
+    return maxMessages < maxMessagesOf(request) ? request.clone().withMaxNumberOfMessages(maxMessages) : request;
+  }
+
+  private static boolean isFanOutEnabled(ConsumerDefinition definition) {
+    return definition.fanOut() == SEQUENTIAL || definition.fanOut() == PARALLEL;
   }
 
   private String findQueueUrlOrFailFrom(String queueName) {
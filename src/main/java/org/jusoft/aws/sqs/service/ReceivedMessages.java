@@ -0,0 +1,90 @@
+package org.jusoft.aws.sqs.service;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Contains the messages received in a single poll together with the URL of the queue they were received from, so they
+ * can be processed and deleted by a thread other than the one that polled them. The instant they were received is kept
+ * to know how long they have been waiting to be processed, but it is not part of their identity.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class ReceivedMessages {
+
+  private final String queueUrl;
+  private final ReceiveMessageResult receiveMessageResult;
+  private final long receivedAtInNanos;
+
+  private ReceivedMessages(String queueUrl, ReceiveMessageResult receiveMessageResult) {
+    this.queueUrl = queueUrl;
+    this.receiveMessageResult = receiveMessageResult;
+    this.receivedAtInNanos = System.nanoTime();
+    notNull(this.queueUrl);
+    notNull(this.receiveMessageResult);
+  }
+
+  public static ReceivedMessages of(String queueUrl, ReceiveMessageResult receiveMessageResult) {
+    return new ReceivedMessages(queueUrl, receiveMessageResult);
+  }
+
+  public String getQueueUrl() {
+    return queueUrl;
+  }
+
+  public ReceiveMessageResult getReceiveMessageResult() {
+    return receiveMessageResult;
+  }
+
+  /**
+   * Returns the {@link System#nanoTime()} at which the messages were received.
+   */
+  public long getReceivedAtInNanos() {
+    return receivedAtInNanos;
+  }
+
+  public boolean isEmpty() {
+    return receiveMessageResult.getMessages().isEmpty();
+  }
+
+  public int size() {
+    return receiveMessageResult.getMessages().size();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    ReceivedMessages that = (ReceivedMessages) o;
+
+    return new EqualsBuilder()
+      .append(queueUrl, that.queueUrl)
+      .append(receiveMessageResult, that.receiveMessageResult)
+      .isEquals();
+  }
+
+  @Override
+  public int hashCode() {
+    return new HashCodeBuilder(17, 37)
+      .append(queueUrl)
+      .append(receiveMessageResult)
+      .toHashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "ReceivedMessages{" +
+      "queueUrl='" + queueUrl + '\'' +
+      ", receiveMessageResult=" + receiveMessageResult +
+      '}';
+  }
+}
@@ -20,9 +20,9 @@ import org.jusoft.aws.sqs.annotation.SqsConsumer;
  * <ul>{@link org.jusoft.aws.sqs.annotation.SqsBody} must appear once when there are more than one parameters</ul>
  * <ul>{@link org.jusoft.aws.sqs.annotation.SqsBody} is the only valid annotation to choose from the ones provided
  * by the library when there is only one parameter in the consumer method but it is not mandatory to add it</ul>
- * <ul>When {@link SqsConsumer#maxMessagesPerPoll()} is greater than 1, the parameter to hold the body of messages
- * in a consumer method must be of type {@link java.util.List}</ul>
- * <ul>When {@link SqsConsumer#maxMessagesPerPoll()} is greater than 1,
+ * <ul>When {@link SqsConsumer#maxMessagesPerPoll()} is greater than 1 and {@link SqsConsumer#fanOut()} is disabled,
+ * the parameter to hold the body of messages in a consumer method must be of type {@link java.util.List}</ul>
+ * <ul>When {@link SqsConsumer#maxMessagesPerPoll()} is greater than 1 and {@link SqsConsumer#fanOut()} is disabled,
  * {@link org.jusoft.aws.sqs.annotation.SqsAttribute} is not allowed</ul>
  * <ul>The maximum number of messages to poll using {@link SqsConsumer#maxMessagesPerPoll()} is 10 according to the AWS
  * documentation</ul>
@@ -32,6 +32,17 @@ import org.jusoft.aws.sqs.annotation.SqsConsumer;
  * {@link org.jusoft.aws.sqs.annotation.SqsBody} or {@link org.jusoft.aws.sqs.annotation.SqsAttribute}</ul>
  * <ul>Any parameter annotated with the {@link org.jusoft.aws.sqs.annotation.SqsAttribute} annotation must be of type
  * {@link String}</ul>
+ * <ul>The number of workers set using {@link SqsConsumer#workers()} cannot be negative and, when greater than 0, the
+ * buffer capacity set using {@link SqsConsumer#bufferCapacity()} must be greater than 0 and its maximum messages,
+ * bytes and age cannot be negative</ul>
+ * <ul>Consumer methods returning a {@link org.jusoft.aws.sqs.BatchResult} must receive the messages either as a
+ * {@link java.util.List} or as a {@link com.amazonaws.services.sqs.model.ReceiveMessageResult}</ul>
+ * <ul>Respect the minimum (0) and maximum (43200) visibility timeout in seconds set using
+ * {@link SqsConsumer#failureVisibilityTimeout()}</ul>
+ * <ul>When {@link SqsConsumer#fanOut()} is enabled, the consumer method cannot take a
+ * {@link com.amazonaws.services.sqs.model.ReceiveMessageResult} nor return a {@link org.jusoft.aws.sqs.BatchResult}, and
+ * the fan out parallelism set using {@link SqsConsumer#fanOutParallelism()} cannot be negative</ul>
+ * <ul>The maximum rate of messages set using {@link SqsConsumer#maxMessagesPerSecond()} cannot be negative</ul>
  * </li>
  *
  * @author Juan Manuel Carnicero Vega
@@ -23,9 +23,14 @@ import static org.apache.commons.lang3.Validate.notNull;
  * Implementation of the {@link RulesProvider} interface that uses a {@link ClassLoader} to find all classes implementing
  * the {@link ValidationRule} interface in the specified package. If no package is specified, the class will use the
  * default package where library provided rules are created.
+ * <p>
+ * Only packages in directories of the classpath can be scanned, so the rules are not found when the package is inside a
+ * jar, and every call scans the classpath again.
  *
  * @author Juan Manuel Carnicero Vega
+ * @deprecated use {@link ServiceLoaderRulesProvider}, which finds the rules from a jar too and instantiates them once.
  */
+@Deprecated
 public class ClassLoaderRulesProvider implements RulesProvider {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ClassLoaderRulesProvider.class);
@@ -35,6 +40,7 @@ public class ClassLoaderRulesProvider implements RulesProvider {
   private static final String PACKAGE_NAME_SEPARATOR = ".";
   private static final String DEFAULT_RULES_PACKAGE = CURRENT_FOLDER.concat(PACKAGE_NAME_SEPARATOR).concat(VALIDATION_RULES_PACKAGE);
   private static final String FOLDER_SEPARATOR = "/";
+  private static final String FILE_PROTOCOL = "file";
 
   private final String rulesDirectory;
 
@@ -76,7 +82,11 @@ public class ClassLoaderRulesProvider implements RulesProvider {
     List<File> dirs = new ArrayList<>();
     while (resources.hasMoreElements()) {
       URL resource = (URL) resources.nextElement();
-      dirs.add(new File(resource.getFile()));
+      if (FILE_PROTOCOL.equals(resource.getProtocol())) {
+        dirs.add(new File(resource.getFile()));
+      } else {
+        LOGGER.warn("Unable to scan validation rules, use ServiceLoaderRulesProvider: resource={}", resource);
+      }
     }
     List<Class<? extends ValidationRule>> classes = new ArrayList<>();
     for (File directory : dirs) {
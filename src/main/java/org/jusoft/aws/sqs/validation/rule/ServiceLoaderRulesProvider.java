@@ -0,0 +1,69 @@
+package org.jusoft.aws.sqs.validation.rule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Implementation of the {@link RulesProvider} interface that uses the {@link ServiceLoader} to find all the
+ * {@link ValidationRule}s registered in {@code META-INF/services/org.jusoft.aws.sqs.validation.rule.ValidationRule}.
+ * The library provided rules are registered in its own jar, and custom rules are added registering them the same way,
+ * so rules are found the same from a jar, a directory or a native image without scanning the classpath.
+ * <p>
+ * Rules are instantiated only once, the first time they are requested, and the same instances are returned afterwards.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class ServiceLoaderRulesProvider implements RulesProvider {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ServiceLoaderRulesProvider.class);
+
+  private final ClassLoader classLoader;
+
+  private volatile Set<ValidationRule> rules;
+
+  /**
+   * Uses the context class loader of the current thread to find the rules.
+   */
+  public ServiceLoaderRulesProvider() {
+    this(Thread.currentThread().getContextClassLoader());
+  }
+
+  public ServiceLoaderRulesProvider(ClassLoader classLoader) {
+    this.classLoader = classLoader;
+    notNull(this.classLoader);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Set<ValidationRule> find() {
+    Set<ValidationRule> result = rules;
+    if (result == null) {
+      synchronized (this) {
+        result = rules;
+        if (result == null) {
+          result = load();
+          rules = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private Set<ValidationRule> load() {
+    Set<ValidationRule> validationRules = new HashSet<>();
+    for (ValidationRule validationRule : ServiceLoader.load(ValidationRule.class, classLoader)) {
+      validationRules.add(validationRule);
+    }
+    LOGGER.info("Validation rules found: rules={}", validationRules.size());
+    return Collections.unmodifiableSet(validationRules);
+  }
+}
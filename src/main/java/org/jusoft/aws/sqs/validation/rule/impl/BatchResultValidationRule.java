@@ -0,0 +1,63 @@
+package org.jusoft.aws.sqs.validation.rule.impl;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.jusoft.aws.sqs.BatchResult;
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
+import org.jusoft.aws.sqs.validation.rule.ErrorMessage;
+import org.jusoft.aws.sqs.validation.rule.ValidationRule;
+
+import java.util.List;
+
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.MAX_VISIBILITY_TIMEOUT_IN_SECONDS;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.RELEASE_IMMEDIATELY;
+
+/**
+ * Validates that:
+ * <li>
+ * <ul>Consumers returning a {@link BatchResult} receive the messages either as a {@link List} or as a
+ * {@link ReceiveMessageResult}, so the indexes in the result can be matched to the messages</ul>
+ * <ul>The visibility timeout set in {@link SqsConsumer#failureVisibilityTimeout()} is between 0 and 43200 seconds</ul>
+ * </li>
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class BatchResultValidationRule implements ValidationRule {
+
+  static final String BATCH_RESULT_WITHOUT_BATCH_PARAMETER_ERROR =
+    "Consumers returning BatchResult must receive a List or a ReceiveMessageResult. Queue=%s";
+  static final String FAILURE_VISIBILITY_TIMEOUT_VALUE_ERROR =
+    "The failure visibility timeout must be between %d and %d seconds. Queue=%s";
+
+  @Override
+  public ConsumerValidationResult validate(QueueConsumer queueConsumer) {
+    SqsConsumer annotation = queueConsumer.getDefinition();
+    ErrorMessage errorMessage = ErrorMessage.noError()
+      .addMessage(isBatchParameterPresentFor(queueConsumer))
+      .addMessage(isFailureVisibilityTimeoutRespectedFor(annotation));
+    return ConsumerValidationResult.of(errorMessage, queueConsumer);
+  }
+
+  private ErrorMessage isBatchParameterPresentFor(QueueConsumer queueConsumer) {
+    return ErrorMessage.of(() -> !isBatchResultReturned(queueConsumer) || isBatchParameterPresent(queueConsumer.getParametersTypes()),
+      BATCH_RESULT_WITHOUT_BATCH_PARAMETER_ERROR, queueConsumer.getDefinition().value());
+  }
+
+  private boolean isBatchResultReturned(QueueConsumer queueConsumer) {
+    return queueConsumer.getConsumerMethod().getReturnType() == BatchResult.class;
+  }
+
+  private boolean isBatchParameterPresent(List<Class<?>> parametersType) {
+    return parametersType.stream()
+      .anyMatch(parameterType -> parameterType == List.class || parameterType == ReceiveMessageResult.class);
+  }
+
+  private ErrorMessage isFailureVisibilityTimeoutRespectedFor(SqsConsumer annotation) {
+    int failureVisibilityTimeout = annotation.failureVisibilityTimeout();
+    return failureVisibilityTimeout >= RELEASE_IMMEDIATELY && failureVisibilityTimeout <= MAX_VISIBILITY_TIMEOUT_IN_SECONDS
+      ? ErrorMessage.noError()
+      : ErrorMessage.of(FAILURE_VISIBILITY_TIMEOUT_VALUE_ERROR, RELEASE_IMMEDIATELY, MAX_VISIBILITY_TIMEOUT_IN_SECONDS,
+      annotation.value());
+  }
+}
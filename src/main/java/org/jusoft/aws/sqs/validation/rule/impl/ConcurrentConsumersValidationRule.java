@@ -20,7 +20,7 @@ public class ConcurrentConsumersValidationRule implements ValidationRule {
 
   @Override
   public ConsumerValidationResult validate(QueueConsumer queueConsumer) {
-    return ConsumerValidationResult.of(isMinimumConcurrentConsumersRespected(queueConsumer.getAnnotation()), queueConsumer);
+    return ConsumerValidationResult.of(isMinimumConcurrentConsumersRespected(queueConsumer.getDefinition()), queueConsumer);
   }
 
   private ErrorMessage isMinimumConcurrentConsumersRespected(SqsConsumer annotation) {
@@ -20,6 +20,6 @@ public class ConsumerAccessibleValidationRule implements ValidationRule {
   @Override
   public ConsumerValidationResult validate(QueueConsumer queueConsumer) {
     return ConsumerValidationResult.of(ErrorMessage.of(() -> Modifier.isPublic(queueConsumer.getConsumerMethod().getModifiers()),
-      CONSUMER_METHOD_NOT_ACCESSIBLE, queueConsumer.getAnnotation().value()), queueConsumer);
+      CONSUMER_METHOD_NOT_ACCESSIBLE, queueConsumer.getDefinition().value()), queueConsumer);
   }
 }
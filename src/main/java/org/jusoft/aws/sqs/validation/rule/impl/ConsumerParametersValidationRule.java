@@ -23,6 +23,6 @@ public class ConsumerParametersValidationRule implements ValidationRule {
   private ErrorMessage isMinimumConcurrentConsumersRespected(QueueConsumer queueConsumer) {
     return queueConsumer.getParametersTypes().size() > MINIMUM_PARAMETERS
       ? ErrorMessage.noError()
-      : ErrorMessage.of(MINIMUM_PARAMETERS_VALUE_ERROR, queueConsumer.getAnnotation().value());
+      : ErrorMessage.of(MINIMUM_PARAMETERS_VALUE_ERROR, queueConsumer.getDefinition().value());
   }
 }
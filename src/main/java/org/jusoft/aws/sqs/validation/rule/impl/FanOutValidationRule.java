@@ -0,0 +1,47 @@
+package org.jusoft.aws.sqs.validation.rule.impl;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.jusoft.aws.sqs.BatchResult;
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
+import org.jusoft.aws.sqs.validation.rule.ErrorMessage;
+import org.jusoft.aws.sqs.validation.rule.ValidationRule;
+
+import static org.jusoft.aws.sqs.annotation.FanOut.DISABLED;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNBOUNDED_FAN_OUT_PARALLELISM;
+
+/**
+ * Validates that:
+ * <li>
+ * <ul>The fan out parallelism set in {@link SqsConsumer#fanOutParallelism()} is not negative</ul>
+ * <ul>Consumers with {@link SqsConsumer#fanOut()} enabled take neither a {@link ReceiveMessageResult} as parameter nor
+ * return a {@link BatchResult}, as the outcome of each message is the outcome of its own invocation</ul>
+ * </li>
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class FanOutValidationRule implements ValidationRule {
+
+  static final String FAN_OUT_WITH_BATCH_PARAMETER_ERROR =
+    "Consumers with fan out enabled cannot receive a ReceiveMessageResult. Queue=%s";
+  static final String FAN_OUT_WITH_BATCH_RESULT_ERROR =
+    "Consumers with fan out enabled cannot return a BatchResult. Queue=%s";
+  static final String MINIMUM_FAN_OUT_PARALLELISM_VALUE_ERROR = "The fan out parallelism cannot be negative. Queue=%s";
+
+  @Override
+  public ConsumerValidationResult validate(QueueConsumer queueConsumer) {
+    SqsConsumer annotation = queueConsumer.getDefinition();
+    ErrorMessage errorMessage = ErrorMessage.of(
+      () -> annotation.fanOutParallelism() >= UNBOUNDED_FAN_OUT_PARALLELISM,
+      MINIMUM_FAN_OUT_PARALLELISM_VALUE_ERROR, annotation.value());
+    if (annotation.fanOut() != DISABLED) {
+      errorMessage
+        .addMessage(ErrorMessage.of(() -> !queueConsumer.getParametersTypes().contains(ReceiveMessageResult.class),
+          FAN_OUT_WITH_BATCH_PARAMETER_ERROR, annotation.value()))
+        .addMessage(ErrorMessage.of(() -> queueConsumer.getConsumerMethod().getReturnType() != BatchResult.class,
+          FAN_OUT_WITH_BATCH_RESULT_ERROR, annotation.value()));
+    }
+    return ConsumerValidationResult.of(errorMessage, queueConsumer);
+  }
+}
@@ -22,8 +22,8 @@ public class LongPollingValidationRule implements ValidationRule {
   @Override
   public ConsumerValidationResult validate(QueueConsumer queueConsumer) {
     ErrorMessage errorMessage = ErrorMessage.noError()
-      .addMessage(isMinimumLongPollingRespectedFor(queueConsumer.getAnnotation()))
-      .addMessage(isMaximumLongPollingRespectedFor(queueConsumer.getAnnotation()));
+      .addMessage(isMinimumLongPollingRespectedFor(queueConsumer.getDefinition()))
+      .addMessage(isMaximumLongPollingRespectedFor(queueConsumer.getDefinition()));
     return ConsumerValidationResult.of(errorMessage, queueConsumer);
   }
 
@@ -44,7 +44,7 @@ public class ParametersAnnotationsValidationRule implements ValidationRule {
   }
 
   private ErrorMessage validateOnlyParameterIsBody(QueueConsumer queueConsumer) {
-    return ErrorMessage.of(() -> isSqsAttributeNotPresentForAnyParameter(queueConsumer), SINGLE_PARAMETER_NOT_BODY_ERROR, queueConsumer.getAnnotation().value());
+    return ErrorMessage.of(() -> isSqsAttributeNotPresentForAnyParameter(queueConsumer), SINGLE_PARAMETER_NOT_BODY_ERROR, queueConsumer.getDefinition().value());
   }
 
   private boolean isSqsAttributeNotPresentForAnyParameter(QueueConsumer queueConsumer) {
@@ -62,8 +62,8 @@ public class ParametersAnnotationsValidationRule implements ValidationRule {
   }
 
   private ErrorMessage validateAllConsumerParametersHaveValidAnnotations(QueueConsumer queueConsumer) {
-    return ErrorMessage.of(isSqsAnnotationNotRepeatedFor(queueConsumer), PARAMETER_ANNOTATION_NUMBER_RESTRICTION_ERROR, queueConsumer.getAnnotation().value())
-      .addMessage(ErrorMessage.of(isSqsBodyAnnotationOnlyOnceFor(queueConsumer), MULTIPLE_SQS_BODY_ANNOTATIONS_ERROR, queueConsumer.getAnnotation().value()));
+    return ErrorMessage.of(isSqsAnnotationNotRepeatedFor(queueConsumer), PARAMETER_ANNOTATION_NUMBER_RESTRICTION_ERROR, queueConsumer.getDefinition().value())
+      .addMessage(ErrorMessage.of(isSqsBodyAnnotationOnlyOnceFor(queueConsumer), MULTIPLE_SQS_BODY_ANNOTATIONS_ERROR, queueConsumer.getDefinition().value()));
   }
 
   private Supplier<Boolean> isSqsAnnotationNotRepeatedFor(QueueConsumer queueConsumer) {
@@ -0,0 +1,66 @@
+package org.jusoft.aws.sqs.validation.rule.impl;
+
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
+import org.jusoft.aws.sqs.validation.rule.ErrorMessage;
+import org.jusoft.aws.sqs.validation.rule.ValidationRule;
+
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.PIPELINE_DISABLED;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNBOUNDED_BUFFER_SIZE;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNLIMITED_BUFFER_AGE;
+
+/**
+ * Validates that:
+ * <li>
+ * <ul>The number of workers set in {@link SqsConsumer#workers()} is not negative</ul>
+ * <ul>The buffer capacity set in {@link SqsConsumer#bufferCapacity()} is greater than 0 when the consumer runs in
+ * pipeline mode</ul>
+ * <ul>The maximum messages, bytes and age of the buffer set in {@link SqsConsumer#bufferMaxMessages()},
+ * {@link SqsConsumer#bufferMaxBytes()} and {@link SqsConsumer#bufferMaxAge()} are not negative</ul>
+ * </li>
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class PipelineValidationRule implements ValidationRule {
+
+  static final String MINIMUM_WORKERS_VALUE_ERROR = "The number of workers cannot be negative. Queue=%s";
+  static final String MINIMUM_BUFFER_CAPACITY_VALUE_ERROR =
+    "The buffer capacity must be greater than 0 when workers are configured. Queue=%s";
+  static final String MINIMUM_BUFFER_LIMITS_VALUE_ERROR =
+    "The maximum messages, bytes and age of the buffer cannot be negative. Queue=%s";
+  private static final int MINIMUM_BUFFER_CAPACITY = 0;
+
+  @Override
+  public ConsumerValidationResult validate(QueueConsumer queueConsumer) {
+    SqsConsumer annotation = queueConsumer.getDefinition();
+    ErrorMessage errorMessage = ErrorMessage.noError()
+      .addMessage(isMinimumWorkersRespectedFor(annotation));
+    if (annotation.workers() > PIPELINE_DISABLED) {
+      errorMessage
+        .addMessage(isMinimumBufferCapacityRespectedFor(annotation))
+        .addMessage(areBufferLimitsRespectedFor(annotation));
+    }
+    return ConsumerValidationResult.of(errorMessage, queueConsumer);
+  }
+
+  private ErrorMessage isMinimumWorkersRespectedFor(SqsConsumer annotation) {
+    return annotation.workers() >= PIPELINE_DISABLED
+      ? ErrorMessage.noError()
+      : ErrorMessage.of(MINIMUM_WORKERS_VALUE_ERROR, annotation.value());
+  }
+
+  private ErrorMessage isMinimumBufferCapacityRespectedFor(SqsConsumer annotation) {
+    return annotation.bufferCapacity() > MINIMUM_BUFFER_CAPACITY
+      ? ErrorMessage.noError()
+      : ErrorMessage.of(MINIMUM_BUFFER_CAPACITY_VALUE_ERROR, annotation.value());
+  }
+
+  private ErrorMessage areBufferLimitsRespectedFor(SqsConsumer annotation) {
+    return annotation.bufferMaxMessages() >= UNBOUNDED_BUFFER_SIZE
+      && annotation.bufferMaxBytes() >= UNBOUNDED_BUFFER_SIZE
+      && annotation.bufferMaxAge() >= UNLIMITED_BUFFER_AGE
+      ? ErrorMessage.noError()
+      : ErrorMessage.of(MINIMUM_BUFFER_LIMITS_VALUE_ERROR, annotation.value());
+  }
+}
@@ -9,8 +9,11 @@ import org.jusoft.aws.sqs.validation.rule.ValidationRule;
 
 import java.util.stream.Stream;
 
+import static org.jusoft.aws.sqs.annotation.FanOut.DISABLED;
+
 /**
- * Validates {@link SqsConsumer#maxMessagesPerPoll()} is 1 when there are {@link SqsAttribute}s in the consumer method.
+ * Validates {@link SqsConsumer#maxMessagesPerPoll()} is 1 when there are {@link SqsAttribute}s in the consumer method,
+ * unless {@link SqsConsumer#fanOut()} is enabled so the consumer is invoked once per message.
  *
  * @author Juan Manuel Carnicero Vega
  */
@@ -28,7 +31,8 @@ public class PollMaxMessagesWithAttributesValidationRule implements ValidationRu
     ErrorMessage errorMessage = ErrorMessage.noError();
     if (isSqsAttributePresent(queueConsumer)) {
       errorMessage.addMessage(ErrorMessage.of(
-        () -> queueConsumer.getAnnotation().maxMessagesPerPoll() == 1, MESSAGES_WITH_MULTIPLE_PARAMETERS_ERROR, queueConsumer.getAnnotation().value()));
+        () -> queueConsumer.getDefinition().maxMessagesPerPoll() == 1 || queueConsumer.getDefinition().fanOut() != DISABLED,
+        MESSAGES_WITH_MULTIPLE_PARAMETERS_ERROR, queueConsumer.getDefinition().value()));
     }
     return errorMessage;
   }
@@ -8,6 +8,7 @@ import org.jusoft.aws.sqs.validation.rule.ValidationRule;
 
 import java.util.List;
 
+import static org.jusoft.aws.sqs.annotation.FanOut.DISABLED;
 import static org.jusoft.aws.sqs.annotation.SqsConsumer.MAX_MESSAGES_PER_POLL_ALLOWED;
 
 /**
@@ -16,7 +17,7 @@ import static org.jusoft.aws.sqs.annotation.SqsConsumer.MAX_MESSAGES_PER_POLL_AL
  * <ul>The minimum number of messages (1) is respected in {@link SqsConsumer#maxMessagesPerPoll()}</ul>
  * <ul>The maximum number of messages (10) is respected in {@link SqsConsumer#maxMessagesPerPoll()}</ul>
  * <ul>The body parameter in the consumer method is a {@link List} when {@link SqsConsumer#maxMessagesPerPoll()}
- * is higher than 1</ul>
+ * is higher than 1, unless {@link SqsConsumer#fanOut()} is enabled</ul>
  * </li>
  *
  * @author Juan Manuel Carnicero Vega
@@ -33,8 +34,8 @@ public class PollMaxMessagesWithSingleParameterValidationRule implements Validat
   public ConsumerValidationResult validate(QueueConsumer queueConsumer) {
     ErrorMessage errorMessage = ErrorMessage.noError();
     if (isSingleParameterConsumer(queueConsumer)) {
-      errorMessage = errorMessage.addMessage(isMinimumMessagesRespectedFor(queueConsumer.getAnnotation()))
-        .addMessage(isMaximumMessagesRespectedFor(queueConsumer.getAnnotation()))
+      errorMessage = errorMessage.addMessage(isMinimumMessagesRespectedFor(queueConsumer.getDefinition()))
+        .addMessage(isMaximumMessagesRespectedFor(queueConsumer.getDefinition()))
         .addMessage(isMessagesRespectedWhenArgumentIsAListFor(queueConsumer));
     }
     return ConsumerValidationResult.of(errorMessage, queueConsumer);
@@ -58,11 +59,11 @@ public class PollMaxMessagesWithSingleParameterValidationRule implements Validat
 
   private ErrorMessage isMessagesRespectedWhenArgumentIsAListFor(QueueConsumer queueConsumer) {
     Class<?> parameterType = queueConsumer.getParametersTypes().get(0);
-    return ErrorMessage.of(() -> isNotCollectionParameterWithMaxMessagesEqualToOne(parameterType, queueConsumer.getAnnotation()),
-      NO_COLLECTION_PARAMETER_WITH_MAX_MESSAGES_GREATER_THAN_ONE_ERROR, queueConsumer.getAnnotation().value());
+    return ErrorMessage.of(() -> isNotCollectionParameterWithMaxMessagesEqualToOne(parameterType, queueConsumer.getDefinition()),
+      NO_COLLECTION_PARAMETER_WITH_MAX_MESSAGES_GREATER_THAN_ONE_ERROR, queueConsumer.getDefinition().value());
   }
 
   private boolean isNotCollectionParameterWithMaxMessagesEqualToOne(Class<?> parameterType, SqsConsumer annotation) {
-    return !(parameterType != List.class && annotation.maxMessagesPerPoll() > 1);
+    return !(parameterType != List.class && annotation.maxMessagesPerPoll() > 1) || annotation.fanOut() != DISABLED;
   }
 }
@@ -0,0 +1,29 @@
+package org.jusoft.aws.sqs.validation.rule.impl;
+
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
+import org.jusoft.aws.sqs.validation.rule.ErrorMessage;
+import org.jusoft.aws.sqs.validation.rule.ValidationRule;
+
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNLIMITED_MESSAGES_PER_SECOND;
+
+/**
+ * Validates the minimum value allowed in the {@link SqsConsumer#maxMessagesPerSecond()} field.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class RateLimitValidationRule implements ValidationRule {
+
+  static final String MINIMUM_MESSAGES_PER_SECOND_VALUE_ERROR =
+    "The maximum messages per second cannot be negative. Queue=%s";
+
+  @Override
+  public ConsumerValidationResult validate(QueueConsumer queueConsumer) {
+    SqsConsumer annotation = queueConsumer.getDefinition();
+    ErrorMessage errorMessage = ErrorMessage.of(
+      () -> annotation.maxMessagesPerSecond() >= UNLIMITED_MESSAGES_PER_SECOND,
+      MINIMUM_MESSAGES_PER_SECOND_VALUE_ERROR, annotation.value());
+    return ConsumerValidationResult.of(errorMessage, queueConsumer);
+  }
+}
@@ -25,12 +25,12 @@ public class ReceiveMessageResultOnlyParameterValidationRule implements Validati
 
   private ErrorMessage isOnlyParameter(QueueConsumer queueConsumer) {
     return ErrorMessage.of(() -> isValidConsumer(queueConsumer),
-      RECEIVE_MESSAGE_RESULT_NOT_THE_ONLY_PARAMETER_ERROR, queueConsumer.getAnnotation().value());
+      RECEIVE_MESSAGE_RESULT_NOT_THE_ONLY_PARAMETER_ERROR, queueConsumer.getDefinition().value());
 
   }
 
   private boolean isValidConsumer(QueueConsumer queueConsumer) {
-    return isReceiveMessageResultOneParameter(queueConsumer.getParametersTypes()) && isSingleParameterConsumer(queueConsumer.getParametersTypes());
+    return !isReceiveMessageResultOneParameter(queueConsumer.getParametersTypes()) || isSingleParameterConsumer(queueConsumer.getParametersTypes());
   }
 
   private boolean isReceiveMessageResultOneParameter(List<Class<?>> parametersType) {
@@ -31,7 +31,7 @@ public class ReceiveMessageResultWithoutAnnotationsValidationRule implements Val
     int parameterIndex = findReceiveMessageResultParameterIndexFrom(queueConsumer);
     if (parameterIndex != -1) {
       errorMessage.addMessage(ErrorMessage.of(() -> isSqsAnnotationPresentIn(queueConsumer, parameterIndex),
-        RECEIVE_MESSAGE_RESULT_OBJECT_WITH_ANNOTATION_ERROR, queueConsumer.getAnnotation().value()));
+        RECEIVE_MESSAGE_RESULT_OBJECT_WITH_ANNOTATION_ERROR, queueConsumer.getDefinition().value()));
     }
     return errorMessage;
   }
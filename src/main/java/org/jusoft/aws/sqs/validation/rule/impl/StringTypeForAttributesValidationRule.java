@@ -22,7 +22,7 @@ public class StringTypeForAttributesValidationRule implements ValidationRule {
   @Override
   public ConsumerValidationResult validate(QueueConsumer queueConsumer) {
     ErrorMessage errorMessage = ErrorMessage.of(areValidAttributeDefinitions(queueConsumer),
-      ATTRIBUTE_TYPE_INVALID_ERROR, queueConsumer.getAnnotation().value());
+      ATTRIBUTE_TYPE_INVALID_ERROR, queueConsumer.getDefinition().value());
     return ConsumerValidationResult.of(errorMessage, queueConsumer);
   }
 
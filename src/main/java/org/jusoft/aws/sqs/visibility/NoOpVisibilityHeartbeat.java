@@ -0,0 +1,22 @@
+package org.jusoft.aws.sqs.visibility;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import java.util.List;
+
+/**
+ * Does not extend the visibility of the messages. Messages taking longer than the visibility timeout of the queue to be
+ * processed are delivered again.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class NoOpVisibilityHeartbeat implements VisibilityHeartbeat {
+
+  @Override
+  public void track(String queueUrl, List<Message> messages, long receivedAtInNanos) {
+  }
+
+  @Override
+  public void untrack(List<Message> messages) {
+  }
+}
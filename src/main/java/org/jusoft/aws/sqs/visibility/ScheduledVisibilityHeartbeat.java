@@ -0,0 +1,318 @@
+package org.jusoft.aws.sqs.visibility;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.MAX_MESSAGES_PER_POLL_ALLOWED;
+
+/**
+ * Extends the visibility of the messages tracked using a single scheduler thread shared by all the queues. On every
+ * tick, the messages that have consumed half of their visibility timeout are grouped by queue and extended again by the
+ * visibility timeout of their queue, using {@link ChangeMessageVisibilityBatchRequest}s of up to 10 entries.
+ * <p>
+ * The visibility timeout of the messages is counted from the moment they were received, not from the moment they
+ * started being tracked, so messages that waited before being processed are extended before their visibility timeout
+ * expires. Messages are extended up to a maximum time since they were received. Once reached, they are no longer
+ * extended and become visible again when their current visibility timeout expires. Messages the visibility of which
+ * cannot be changed because of the request, like an expired or already deleted receipt handle, are no longer tracked.
+ * <p>
+ * Untracking messages and sending their extensions exclude each other: an untrack waits for the extension in progress
+ * to complete, and messages untracked while their extension was being prepared are left out of it. Once untracked, no
+ * extension of the messages is sent, so they can be released with a visibility timeout of their own.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class ScheduledVisibilityHeartbeat implements VisibilityHeartbeat {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledVisibilityHeartbeat.class);
+
+  public static final long DEFAULT_MAX_EXTENSION_IN_SECONDS = 15 * 60;
+  public static final long DEFAULT_TICK_IN_MILLIS = 1000;
+
+  /**
+   * Maximum visibility timeout allowed by AWS SQS for a message, counted from the moment it was received.
+   */
+  public static final long MAX_VISIBILITY_TIMEOUT_IN_SECONDS = 12 * 60 * 60;
+
+  /**
+   * Visibility timeout used when the one from the queue cannot be retrieved. It is the default of AWS SQS.
+   */
+  static final int FALLBACK_VISIBILITY_TIMEOUT_IN_SECONDS = 30;
+  static final int MAX_BATCH_SIZE = MAX_MESSAGES_PER_POLL_ALLOWED;
+
+  private final AmazonSQS amazonSQS;
+  private final long maxExtensionInMillis;
+  private final LongSupplier clockInNanos;
+  private final ScheduledExecutorService scheduler;
+  private final ConcurrentMap<String, InFlightMessage> inFlightMessages;
+  private final ConcurrentMap<String, Integer> visibilityTimeouts;
+  private final ReentrantLock extensionLock;
+
+  public ScheduledVisibilityHeartbeat(AmazonSQS amazonSQS) {
+    this(amazonSQS, DEFAULT_MAX_EXTENSION_IN_SECONDS);
+  }
+
+  /**
+   * @param amazonSQS                AWS SQS client used to change the visibility of the messages.
+   * @param maxExtensionInSeconds    maximum time a message is kept invisible since it was received.
+   */
+  public ScheduledVisibilityHeartbeat(AmazonSQS amazonSQS, long maxExtensionInSeconds) {
+    this(amazonSQS, maxExtensionInSeconds, DEFAULT_TICK_IN_MILLIS, System::nanoTime);
+  }
+
+  ScheduledVisibilityHeartbeat(AmazonSQS amazonSQS,
+                               long maxExtensionInSeconds,
+                               long tickInMillis,
+                               LongSupplier clockInNanos) {
+    this.amazonSQS = amazonSQS;
+    this.clockInNanos = clockInNanos;
+    notNull(this.amazonSQS);
+    isTrue(maxExtensionInSeconds > 0 && maxExtensionInSeconds <= MAX_VISIBILITY_TIMEOUT_IN_SECONDS,
+      "Maximum extension must be between 1 and %d seconds", MAX_VISIBILITY_TIMEOUT_IN_SECONDS);
+    isTrue(tickInMillis > 0, "Tick must be greater than 0");
+    this.maxExtensionInMillis = SECONDS.toMillis(maxExtensionInSeconds);
+    this.inFlightMessages = new ConcurrentHashMap<>();
+    this.visibilityTimeouts = new ConcurrentHashMap<>();
+    this.extensionLock = new ReentrantLock();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "sqs-visibility-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::extendDueMessagesSafely, tickInMillis, tickInMillis, MILLISECONDS);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void track(String queueUrl, List<Message> messages) {
+    track(queueUrl, messages, clockInNanos.getAsLong());
+  }
+
+  /**
+   * {@inheritDoc} Messages that have already consumed half of their visibility timeout are extended on the next tick.
+   */
+  @Override
+  public void track(String queueUrl, List<Message> messages, long receivedAtInNanos) {
+    long receivedAt = NANOSECONDS.toMillis(receivedAtInNanos);
+    long visibilityTimeoutInMillis = SECONDS.toMillis(findVisibilityTimeoutFor(queueUrl));
+    messages.forEach(message -> inFlightMessages.put(message.getReceiptHandle(), new InFlightMessage(queueUrl,
+      message.getMessageId(), message.getReceiptHandle(), receivedAt, receivedAt + visibilityTimeoutInMillis)));
+  }
+
+  /**
+   * {@inheritDoc} Waits for the extension being sent, if any, to complete.
+   */
+  @Override
+  public void untrack(List<Message> messages) {
+    extensionLock.lock();
+    try {
+      messages.forEach(message -> inFlightMessages.remove(message.getReceiptHandle()));
+    } finally {
+      extensionLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of messages the visibility of which is being extended.
+   */
+  public int getTrackedMessages() {
+    return inFlightMessages.size();
+  }
+
+  private int findVisibilityTimeoutFor(String queueUrl) {
+    return visibilityTimeouts.computeIfAbsent(queueUrl, this::fetchVisibilityTimeoutFor);
+  }
+
+  private int fetchVisibilityTimeoutFor(String queueUrl) {
+    try {
+      GetQueueAttributesResult attributes = amazonSQS.getQueueAttributes(queueUrl,
+        singletonList(QueueAttributeName.VisibilityTimeout.toString()));
+      String visibilityTimeout = attributes.getAttributes().get(QueueAttributeName.VisibilityTimeout.toString());
+      if (visibilityTimeout != null) {
+        return Integer.parseInt(visibilityTimeout);
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Unable to get visibility timeout: queueUrl={}", queueUrl, e);
+    }
+    LOGGER.warn("Using fallback visibility timeout: queueUrl={}, visibilityTimeout={}",
+      queueUrl, FALLBACK_VISIBILITY_TIMEOUT_IN_SECONDS);
+    return FALLBACK_VISIBILITY_TIMEOUT_IN_SECONDS;
+  }
+
+  private void extendDueMessagesSafely() {
+    try {
+      extendDueMessages();
+    } catch (Exception e) {
+      LOGGER.error("Error extending visibility of messages", e);
+    }
+  }
+
+  /**
+   * Extends the visibility of the messages that have consumed half of their current visibility timeout.
+   */
+  void extendDueMessages() {
+    long now = NANOSECONDS.toMillis(clockInNanos.getAsLong());
+    Map<String, List<InFlightMessage>> dueMessagesByQueue = inFlightMessages.values().stream()
+      .filter(inFlightMessage -> inFlightMessage.isDueAt(now))
+      .collect(groupingBy(inFlightMessage -> inFlightMessage.queueUrl));
+    dueMessagesByQueue.forEach((queueUrl, dueMessages) -> extend(queueUrl, dueMessages, now));
+  }
+
+  private void extend(String queueUrl, List<InFlightMessage> dueMessages, long now) {
+    int visibilityTimeout = findVisibilityTimeoutFor(queueUrl);
+    List<PendingExtension> extensions = new ArrayList<>();
+    for (InFlightMessage inFlightMessage : dueMessages) {
+      int extension = (int) Math.min(visibilityTimeout, MILLISECONDS.toSeconds(inFlightMessage.remainingExtensionAt(now)));
+      if (extension > 0) {
+        extensions.add(new PendingExtension(inFlightMessage, extension));
+      } else {
+        LOGGER.warn("Maximum visibility extension reached. Message will become visible again: queueUrl={}, messageId={}",
+          queueUrl, inFlightMessage.messageId);
+        inFlightMessages.remove(inFlightMessage.receiptHandle, inFlightMessage);
+      }
+    }
+    for (int start = 0; start < extensions.size(); start += MAX_BATCH_SIZE) {
+      sendTracked(queueUrl, extensions.subList(start, Math.min(start + MAX_BATCH_SIZE, extensions.size())), now);
+    }
+  }
+
+  /**
+   * Sends the extensions of the messages still tracked, holding the lock so they cannot be untracked meanwhile.
+   */
+  private void sendTracked(String queueUrl, List<PendingExtension> extensions, long now) {
+    extensionLock.lock();
+    try {
+      List<PendingExtension> batch = extensions.stream()
+        .filter(PendingExtension::isTracked)
+        .collect(toList());
+      if (!batch.isEmpty()) {
+        send(queueUrl, batch, now);
+      }
+    } finally {
+      extensionLock.unlock();
+    }
+  }
+
+  private void send(String queueUrl, List<PendingExtension> batch, long now) {
+    List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+    for (int index = 0; index < batch.size(); index++) {
+      PendingExtension pendingExtension = batch.get(index);
+      entries.add(new ChangeMessageVisibilityBatchRequestEntry(String.valueOf(index),
+        pendingExtension.inFlightMessage.receiptHandle).withVisibilityTimeout(pendingExtension.visibilityTimeout));
+    }
+    try {
+      ChangeMessageVisibilityBatchResult result = amazonSQS.changeMessageVisibilityBatch(
+        new ChangeMessageVisibilityBatchRequest().withQueueUrl(queueUrl).withEntries(entries));
+      List<String> failedIds = new ArrayList<>();
+      for (BatchResultErrorEntry failedEntry : result.getFailed()) {
+        failedIds.add(failedEntry.getId());
+        handleFailedEntry(queueUrl, batch.get(Integer.parseInt(failedEntry.getId())).inFlightMessage, failedEntry);
+      }
+      for (int index = 0; index < batch.size(); index++) {
+        if (!failedIds.contains(String.valueOf(index))) {
+          batch.get(index).apply(now);
+        }
+      }
+      LOGGER.debug("Visibility of messages extended: queueUrl={}, messages={}", queueUrl,
+        batch.size() - failedIds.size());
+    } catch (Exception e) {
+      LOGGER.warn("Error extending visibility of messages. Retrying on next tick: queueUrl={}, size={}",
+        queueUrl, batch.size(), e);
+    }
+  }
+
+  private void handleFailedEntry(String queueUrl, InFlightMessage inFlightMessage, BatchResultErrorEntry failedEntry) {
+    if (Boolean.TRUE.equals(failedEntry.getSenderFault())) {
+      LOGGER.warn("Unable to extend visibility of message. Message no longer tracked: queueUrl={}, messageId={}, " +
+        "code={}, message={}", queueUrl, inFlightMessage.messageId, failedEntry.getCode(), failedEntry.getMessage());
+      inFlightMessages.remove(inFlightMessage.receiptHandle, inFlightMessage);
+    } else {
+      LOGGER.warn("Error extending visibility of message. Retrying on next tick: queueUrl={}, messageId={}, code={}",
+        queueUrl, inFlightMessage.messageId, failedEntry.getCode());
+    }
+  }
+
+  /**
+   * Stops extending the visibility of all the messages. They become visible again once their current visibility
+   * timeout expires.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    inFlightMessages.clear();
+  }
+
+  private final class InFlightMessage {
+    private final String queueUrl;
+    private final String messageId;
+    private final String receiptHandle;
+    private final long receivedAtInMillis;
+    private volatile long visibleAtInMillis;
+    private volatile long currentTimeoutInMillis;
+
+    private InFlightMessage(String queueUrl, String messageId, String receiptHandle, long receivedAtInMillis,
+                            long visibleAtInMillis) {
+      this.queueUrl = queueUrl;
+      this.messageId = messageId;
+      this.receiptHandle = receiptHandle;
+      this.receivedAtInMillis = receivedAtInMillis;
+      this.visibleAtInMillis = visibleAtInMillis;
+      this.currentTimeoutInMillis = visibleAtInMillis - receivedAtInMillis;
+    }
+
+    private boolean isDueAt(long now) {
+      return visibleAtInMillis - now <= currentTimeoutInMillis / 2;
+    }
+
+    private long remainingExtensionAt(long now) {
+      return receivedAtInMillis + maxExtensionInMillis - now;
+    }
+  }
+
+  private final class PendingExtension {
+    private final InFlightMessage inFlightMessage;
+    private final int visibilityTimeout;
+
+    private PendingExtension(InFlightMessage inFlightMessage, int visibilityTimeout) {
+      this.inFlightMessage = inFlightMessage;
+      this.visibilityTimeout = visibilityTimeout;
+    }
+
+    private boolean isTracked() {
+      return inFlightMessages.get(inFlightMessage.receiptHandle) == inFlightMessage;
+    }
+
+    private void apply(long now) {
+      inFlightMessage.currentTimeoutInMillis = SECONDS.toMillis(visibilityTimeout);
+      inFlightMessage.visibleAtInMillis = now + inFlightMessage.currentTimeoutInMillis;
+    }
+  }
+}
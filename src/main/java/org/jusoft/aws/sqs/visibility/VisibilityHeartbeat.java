@@ -0,0 +1,52 @@
+package org.jusoft.aws.sqs.visibility;
+
+import com.amazonaws.services.sqs.model.Message;
+
+import java.util.List;
+
+/**
+ * Keeps the messages being processed invisible in their queue, so they are not delivered again to another consumer
+ * while the handler processing them takes longer than the visibility timeout of the queue.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public interface VisibilityHeartbeat extends AutoCloseable {
+
+  /**
+   * Starts extending the visibility of the messages until they are untracked, counting their visibility timeout from
+   * now.
+   *
+   * @param queueUrl URL of the queue the messages were received from.
+   * @param messages messages being processed.
+   */
+  default void track(String queueUrl, List<Message> messages) {
+    track(queueUrl, messages, System.nanoTime());
+  }
+
+  /**
+   * Starts extending the visibility of the messages until they are untracked. Their visibility timeout started when
+   * they were received, which may be well before they start being processed, like when they wait in a
+   * {@link org.jusoft.aws.sqs.service.MessagePipeline}.
+   *
+   * @param queueUrl          URL of the queue the messages were received from.
+   * @param messages          messages being processed.
+   * @param receivedAtInNanos instant the messages were received, as given by {@link System#nanoTime()}.
+   */
+  void track(String queueUrl, List<Message> messages, long receivedAtInNanos);
+
+  /**
+   * Stops extending the visibility of the messages, either because they have been deleted or because their processing
+   * failed and they must become visible again. Once it returns, no extension of the messages is sent, so their
+   * visibility can be changed without being overridden.
+   *
+   * @param messages messages previously tracked.
+   */
+  void untrack(List<Message> messages);
+
+  /**
+   * Stops extending the visibility of all the messages and releases the resources used by the implementation.
+   */
+  @Override
+  default void close() {
+  }
+}
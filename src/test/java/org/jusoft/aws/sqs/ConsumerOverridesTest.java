@@ -0,0 +1,86 @@
+package org.jusoft.aws.sqs;
+
+import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.DeletePolicy;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterMethodClass;
+
+import java.util.Properties;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+
+public class ConsumerOverridesTest {
+
+  private final SqsConsumer annotation = getAnnotation();
+
+  @Test
+  public void whenNothingIsOverriddenThenDefinitionIsEqualToTheAnnotation() {
+    ConsumerDefinition definition = ConsumerOverrides.none().applyTo(ConsumerDefinition.of(annotation));
+
+    assertThat(definition).isEqualTo(annotation);
+    assertThat(definition.hashCode()).isEqualTo(annotation.hashCode());
+    assertThat(annotation).isEqualTo(definition);
+  }
+
+  @Test
+  public void whenPropertiesOverrideValuesOfTheQueueThenDefinitionUsesThem() {
+    Properties properties = new Properties();
+    properties.setProperty("sqs.consumer." + QUEUE_NAME + ".concurrentConsumers", "4");
+    properties.setProperty("sqs.consumer." + QUEUE_NAME + ".deletePolicy", "after_read");
+    properties.setProperty("sqs.consumer.otherQueue.maxMessagesPerPoll", "1");
+
+    ConsumerDefinition definition = ConsumerOverrides.fromProperties(properties)
+      .applyTo(ConsumerDefinition.of(annotation));
+
+    assertThat(definition.concurrentConsumers()).isEqualTo(4);
+    assertThat(definition.deletePolicy()).isEqualTo(DeletePolicy.AFTER_READ);
+    assertThat(definition.maxMessagesPerPoll()).isEqualTo(annotation.maxMessagesPerPoll());
+    assertThat(definition).isNotEqualTo(annotation);
+  }
+
+  @Test
+  public void whenEnvironmentOverridesValuesOfTheQueueThenDefinitionUsesThem() {
+    ConsumerDefinition definition = ConsumerOverrides
+      .fromEnvironment(singletonMap("SQS_CONSUMER_TEST_QUEUE_MAX_MESSAGES_PER_POLL", "3"))
+      .applyTo(ConsumerDefinition.of(annotation));
+
+    assertThat(definition.maxMessagesPerPoll()).isEqualTo(3);
+  }
+
+  @Test
+  public void whenBothOverrideTheSameValueThenTheOverridingOneIsUsed() {
+    Properties properties = new Properties();
+    properties.setProperty("sqs.consumer." + QUEUE_NAME + ".longPolling", "5");
+    properties.setProperty("sqs.consumer." + QUEUE_NAME + ".failureVisibilityTimeout", "30");
+
+    ConsumerDefinition definition = ConsumerOverrides.fromProperties(properties)
+      .overriddenBy(ConsumerOverrides.fromEnvironment(singletonMap("SQS_CONSUMER_TEST_QUEUE_LONG_POLLING", "10")))
+      .applyTo(ConsumerDefinition.of(annotation));
+
+    assertThat(definition.longPolling()).isEqualTo(10);
+    assertThat(definition.failureVisibilityTimeout()).isEqualTo(30);
+  }
+
+  @Test
+  public void whenOverriddenValueIsInvalidThenExceptionIsThrown() {
+    Properties properties = new Properties();
+    properties.setProperty("sqs.consumer." + QUEUE_NAME + ".concurrentConsumers", "many");
+    ConsumerOverrides overrides = ConsumerOverrides.fromProperties(properties);
+
+    assertThatThrownBy(() -> overrides.applyTo(ConsumerDefinition.of(annotation)))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessageContaining(QUEUE_NAME)
+      .hasMessageContaining("concurrentConsumers");
+  }
+
+  private static SqsConsumer getAnnotation() {
+    try {
+      return new SingleParameterMethodClass().getMethod().getAnnotation(SqsConsumer.class);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package org.jusoft.aws.sqs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.executor.FixedExecutorFactory;
+import org.jusoft.aws.sqs.fixture.StubAmazonSQS;
+import org.jusoft.aws.sqs.fixture.TestFixtures.TestDto;
+import org.jusoft.aws.sqs.mapper.ConsumerParametersMapper;
+import org.jusoft.aws.sqs.mapper.JacksonMessageMapper;
+import org.jusoft.aws.sqs.provider.ConsumersInstanceProvider;
+import org.jusoft.aws.sqs.provider.StaticConsumersInstanceProvider;
+import org.jusoft.aws.sqs.service.ConsumerInvokerService;
+import org.jusoft.aws.sqs.service.MessageConsumerService;
+import org.jusoft.aws.sqs.service.QueuePollService;
+import org.jusoft.aws.sqs.service.ReceiveMessageRequestFactory;
+import org.jusoft.aws.sqs.validation.rule.RuleBasedConsumerValidatorFactory;
+import org.jusoft.aws.sqs.validation.rule.ServiceLoaderRulesProvider;
+import org.jusoft.aws.sqs.validation.rule.ValidationRule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_BODY_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_DTO_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+
+/**
+ * Starts a dispatcher consuming from a stub queue only through the paths available in a native image: consumers bound
+ * at compile time, rules loaded as services and the reflection metadata shipped with the library and generated for the
+ * consumers.
+ */
+public class NativeImageSmokeTest {
+
+  private static final long RECEIVE_LATENCY_IN_MILLIS = 10;
+  private static final String LIBRARY_REFLECTION_CONFIG = "META-INF/native-image/org.jusoft/aws-sqs/reflect-config.json";
+  private static final String CONSUMERS_REFLECTION_CONFIG =
+    "META-INF/native-image/org.jusoft/aws-sqs-consumers/reflect-config.json";
+
+  @Test
+  public void whenDispatcherStartsThenGeneratedBindingsShouldConsumeMessagesFromQueue() throws InterruptedException {
+    StubAmazonSQS amazonSQS = new StubAmazonSQS(RECEIVE_LATENCY_IN_MILLIS, MESSAGE_BODY_1);
+    ConsumerInvokerService consumerInvokerService = new ConsumerInvokerService(
+      new ConsumerParametersMapper(new JacksonMessageMapper(new ObjectMapper())));
+    QueuePollService queuePollService = new QueuePollService(new ReceiveMessageRequestFactory(amazonSQS),
+      new MessageConsumerService(amazonSQS, consumerInvokerService));
+    SmokeConsumer consumer = new SmokeConsumer();
+    ConsumersInstanceProvider consumersProvider = StaticConsumersInstanceProvider.ofBeans(singletonList(consumer));
+    SqsDispatcher dispatcher = new SqsDispatcher(queuePollService, consumersProvider, new FixedExecutorFactory(),
+      new RuleBasedConsumerValidatorFactory(new ServiceLoaderRulesProvider()).create());
+
+    dispatcher.subscribeConsumers();
+    boolean isConsumed = consumer.consumed.await(5, SECONDS);
+    dispatcher.close();
+
+    assertThat(isConsumed).isTrue();
+    assertThat(consumer.lastMessage).isEqualTo(MESSAGE_DTO_1);
+    assertThat(consumersProvider.getConsumers()).allSatisfy(queueConsumer ->
+      assertThat(queueConsumer.getParametersBinder()).isNotNull());
+  }
+
+  @Test
+  public void whenConsumersAreCompiledThenTheirReflectionMetadataShouldBeGenerated() throws IOException {
+    String reflectionConfig = readResource(CONSUMERS_REFLECTION_CONFIG);
+
+    assertThat(reflectionConfig)
+      .contains("\"name\": \"" + SmokeConsumer.class.getName() + "\"")
+      .contains("\"name\": \"" + TestDto.class.getName() + "\"")
+      .contains("\"name\": \"" + SmokeConsumer.class.getName().replace('$', '_') + "_SqsConsumerBindings\"");
+  }
+
+  @Test
+  public void whenRulesAreRegisteredThenAllOfThemShouldHaveReflectionMetadata() throws IOException {
+    String reflectionConfig = readResource(LIBRARY_REFLECTION_CONFIG);
+
+    for (ValidationRule validationRule : new ServiceLoaderRulesProvider().find()) {
+      assertThat(reflectionConfig).contains("\"name\": \"" + validationRule.getClass().getName() + "\"");
+    }
+  }
+
+  private String readResource(String path) throws IOException {
+    try (InputStream resource = getClass().getClassLoader().getResourceAsStream(path)) {
+      assertThat(resource).isNotNull();
+      return new Scanner(resource, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+    }
+  }
+
+  public static class SmokeConsumer {
+    private final CountDownLatch consumed = new CountDownLatch(1);
+    private volatile TestDto lastMessage;
+
+    @SqsConsumer(QUEUE_NAME)
+    public void consume(TestDto message) {
+      lastMessage = message;
+      consumed.countDown();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package org.jusoft.aws.sqs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.delete.AsyncBatchMessageDeleter;
+import org.jusoft.aws.sqs.executor.FixedExecutorFactory;
+import org.jusoft.aws.sqs.fixture.StubAmazonSQS;
+import org.jusoft.aws.sqs.fixture.TestFixtures.TestDto;
+import org.jusoft.aws.sqs.mapper.ConsumerParametersMapper;
+import org.jusoft.aws.sqs.mapper.JacksonMessageMapper;
+import org.jusoft.aws.sqs.provider.StaticConsumersInstanceProvider;
+import org.jusoft.aws.sqs.service.ConsumerInvokerService;
+import org.jusoft.aws.sqs.service.InFlightMessages;
+import org.jusoft.aws.sqs.service.MessageConsumerService;
+import org.jusoft.aws.sqs.service.QueuePollService;
+import org.jusoft.aws.sqs.service.ReceiveMessageRequestFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_BODY_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
+
+public class SqsDispatcherDrainTest {
+
+  private static final long RECEIVE_LATENCY_IN_MILLIS = 5;
+  private static final long NEVER_FLUSHED_IN_MILLIS = 60_000;
+  private static final int MESSAGES_PER_POLL = 2;
+
+  private final StubAmazonSQS amazonSQS = new StubAmazonSQS(RECEIVE_LATENCY_IN_MILLIS, MESSAGE_BODY_1);
+  private final AsyncBatchMessageDeleter messageDeleter = new AsyncBatchMessageDeleter(amazonSQS,
+    NEVER_FLUSHED_IN_MILLIS, 1, 1);
+  private final QueuePollService queuePollService = new QueuePollService(new ReceiveMessageRequestFactory(amazonSQS),
+    new MessageConsumerService(amazonSQS, new ConsumerInvokerService(
+      new ConsumerParametersMapper(new JacksonMessageMapper(new ObjectMapper()))), messageDeleter));
+
+  @Test
+  public void whenConsumerFailsWhileDrainingThenItsMessagesShouldBeCountedAsFailed() throws InterruptedException {
+    FailingConsumer consumer = new FailingConsumer();
+    SqsDispatcher dispatcher = createDispatcherFor(consumer);
+    dispatcher.subscribeConsumers();
+    assertThat(consumer.invoked.await(5, SECONDS)).isTrue();
+
+    Thread failLater = new Thread(() -> {
+      sleepQuietly();
+      consumer.fail.countDown();
+    });
+    failLater.start();
+    DrainReport drainReport = dispatcher.drain(5, SECONDS);
+    failLater.join();
+
+    assertThat(drainReport.getCompleted()).isZero();
+    assertThat(drainReport.getFailed()).isEqualTo(MESSAGES_PER_POLL);
+    assertThat(drainReport.getAbandoned()).isZero();
+    assertThat(amazonSQS.getDeletedMessages()).isZero();
+  }
+
+  @Test
+  public void whenDrainingThenDeletesPendingInTheDeleterShouldBeSent() throws InterruptedException {
+    SqsDispatcher dispatcher = createDispatcherFor(new SucceedingConsumer());
+    dispatcher.subscribeConsumers();
+    Thread.sleep(100);
+
+    DrainReport drainReport = dispatcher.drain(5, SECONDS);
+
+    InFlightMessages inFlightMessages = queuePollService.getInFlightMessages();
+    assertThat(drainReport.getAbandoned()).isZero();
+    assertThat(inFlightMessages.getCompleted()).isPositive();
+    assertThat(amazonSQS.getDeletedMessages()).isEqualTo(inFlightMessages.getCompleted());
+    assertThat(messageDeleter.getPendingDeletes(QUEUE_URL)).isZero();
+  }
+
+  private SqsDispatcher createDispatcherFor(Object consumer) {
+    return new SqsDispatcher(queuePollService, StaticConsumersInstanceProvider.ofBeans(singletonList(consumer)),
+      new FixedExecutorFactory(), consumers -> {
+    });
+  }
+
+  private static void sleepQuietly() {
+    try {
+      Thread.sleep(100);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public static class FailingConsumer {
+
+    private final CountDownLatch invoked = new CountDownLatch(1);
+    private final CountDownLatch fail = new CountDownLatch(1);
+
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = MESSAGES_PER_POLL)
+    public void testConsumer(List<TestDto> testParameter) throws InterruptedException {
+      invoked.countDown();
+      fail.await();
+      throw new IllegalStateException("Consumer failed");
+    }
+  }
+
+  public static class SucceedingConsumer {
+
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = MESSAGES_PER_POLL)
+    public void testConsumer(List<TestDto> testParameter) {
+
+    }
+  }
+}
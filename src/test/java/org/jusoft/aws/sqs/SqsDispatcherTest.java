@@ -1,22 +1,34 @@
 package org.jusoft.aws.sqs;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.executor.BulkheadExecutorFactory;
+import org.jusoft.aws.sqs.executor.BulkheadExecutors;
 import org.jusoft.aws.sqs.executor.ExecutorFactory;
+import org.jusoft.aws.sqs.executor.QueueExecutors;
 import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterMethodClass;
 import org.jusoft.aws.sqs.provider.ConsumersInstanceProvider;
+import org.jusoft.aws.sqs.service.AsyncQueuePollService;
+import org.jusoft.aws.sqs.service.ConsumerHandle;
+import org.jusoft.aws.sqs.service.InFlightMessages;
+import org.jusoft.aws.sqs.service.MessagePipeline;
+import org.jusoft.aws.sqs.service.PollerHandle;
 import org.jusoft.aws.sqs.service.QueuePollService;
 import org.jusoft.aws.sqs.validation.ConsumerValidator;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -25,8 +37,20 @@ import java.util.concurrent.TimeoutException;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.jusoft.aws.sqs.annotation.SqsConsumer.DEFAULT_MAX_LONG_POLLING_IN_SECONDS;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -34,6 +58,9 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class SqsDispatcherTest {
 
+  private static final int CONCURRENT_CONSUMERS = 3;
+  private static final int WORKERS = 5;
+
   @Mock
   private ConsumersInstanceProvider consumersInstanceProvider;
   @Mock
@@ -45,9 +72,13 @@ public class SqsDispatcherTest {
   @Spy
   private SyncExecutorService executorService;
 
-  @InjectMocks
   private SqsDispatcher sqsDispatcher;
 
+  @Before
+  public void setup() {
+    sqsDispatcher = new SqsDispatcher(queuePollService, consumersInstanceProvider, executorFactory, consumerValidator);
+  }
+
   @Test
   public void whenConsumerInstanceProviderReturnsConsumersThenTheyAreStartedToBeUsed() throws NoSuchMethodException {
     SingleParameterMethodClass testObjectOne = new SingleParameterMethodClass();
@@ -56,14 +87,109 @@ public class SqsDispatcherTest {
     QueueConsumer queueConsumerTwo = QueueConsumer.of(testObjectTwo, testObjectTwo.getMethod());
     List<QueueConsumer> queueConsumers = asList(queueConsumerOne, queueConsumerTwo);
     List<SqsConsumer> annotations = asList(queueConsumerOne.getAnnotation(), queueConsumerTwo.getAnnotation());
-    when(executorFactory.createFor(annotations)).thenReturn(executorService);
+    when(executorFactory.createQueueExecutorsFor(annotations)).thenReturn(QueueExecutors.shared(executorService));
     when(consumersInstanceProvider.getConsumers()).thenReturn(queueConsumers);
 
     sqsDispatcher.subscribeConsumers();
 
     verify(consumerValidator).isValid(queueConsumers);
-    verify(queuePollService).start(queueConsumerOne);
-    verify(queuePollService).start(queueConsumerTwo);
+    verify(queuePollService).start(eq(queueConsumerOne), any(PollerHandle.class));
+    verify(queuePollService).start(eq(queueConsumerTwo), any(PollerHandle.class));
+  }
+
+  @Test
+  public void whenConsumerHasSeveralConcurrentConsumersThenOnePollLoopShouldBeStartedForEachOfThem() throws NoSuchMethodException {
+    ConcurrentConsumersClass testObject = new ConcurrentConsumersClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(testObject, testObject.getMethod());
+    List<QueueConsumer> queueConsumers = singletonList(queueConsumer);
+    when(executorFactory.createQueueExecutorsFor(singletonList(queueConsumer.getAnnotation())))
+      .thenReturn(QueueExecutors.shared(executorService));
+    when(consumersInstanceProvider.getConsumers()).thenReturn(queueConsumers);
+
+    sqsDispatcher.subscribeConsumers();
+
+    verify(queuePollService, times(CONCURRENT_CONSUMERS)).start(eq(queueConsumer), any(PollerHandle.class));
+    assertThat(sqsDispatcher.getPollerHandles()).hasSize(CONCURRENT_CONSUMERS);
+    assertThat(sqsDispatcher.getPollerHandles()).extracting(PollerHandle::getPollerIndex).containsExactly(0, 1, 2);
+  }
+
+  @Test
+  public void whenConcurrentConsumersAreOverriddenThenOnePollLoopShouldBeStartedForEachOverriddenConsumer() throws NoSuchMethodException {
+    Properties properties = new Properties();
+    properties.setProperty("sqs.consumer." + QUEUE_NAME + ".concurrentConsumers", "1");
+    SqsDispatcher overriddenDispatcher = new SqsDispatcher(queuePollService, consumersInstanceProvider, executorFactory,
+      consumerValidator, ConsumerOverrides.fromProperties(properties));
+    ConcurrentConsumersClass testObject = new ConcurrentConsumersClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(testObject, testObject.getMethod());
+    when(executorFactory.createQueueExecutorsFor(any())).thenReturn(QueueExecutors.shared(executorService));
+    when(consumersInstanceProvider.getConsumers()).thenReturn(singletonList(queueConsumer));
+
+    overriddenDispatcher.subscribeConsumers();
+
+    verify(queuePollService).start(eq(queueConsumer), any(PollerHandle.class));
+    assertThat(overriddenDispatcher.getPollerHandles()).hasSize(1);
+    assertThat(queueConsumer.getDefinition().concurrentConsumers()).isEqualTo(1);
+    assertThat(queueConsumer.getAnnotation().concurrentConsumers()).isEqualTo(CONCURRENT_CONSUMERS);
+  }
+
+  @Test
+  public void whenConsumerHasWorkersThenPollersAndWorkersShouldShareAPipeline() throws NoSuchMethodException {
+    PipelineConsumerClass testObject = new PipelineConsumerClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(testObject, testObject.getMethod());
+    when(executorFactory.createQueueExecutorsFor(singletonList(queueConsumer.getAnnotation())))
+      .thenReturn(QueueExecutors.shared(executorService));
+    when(consumersInstanceProvider.getConsumers()).thenReturn(singletonList(queueConsumer));
+
+    sqsDispatcher.subscribeConsumers();
+
+    verify(queuePollService, times(CONCURRENT_CONSUMERS))
+      .startPoller(eq(queueConsumer), any(PollerHandle.class), any(MessagePipeline.class));
+    verify(queuePollService, times(WORKERS))
+      .startWorker(eq(queueConsumer), any(PollerHandle.class), any(MessagePipeline.class));
+    verify(queuePollService, times(0)).start(eq(queueConsumer), any(PollerHandle.class));
+    assertThat(sqsDispatcher.getPollerHandles()).hasSize(CONCURRENT_CONSUMERS);
+    assertThat(sqsDispatcher.getWorkerHandles()).hasSize(WORKERS);
+  }
+
+  @Test
+  public void whenConsumersAreSubscribedThenEachOfThemShouldHaveAHandleControllingAllItsLoops() throws NoSuchMethodException {
+    PipelineConsumerClass testObject = new PipelineConsumerClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(testObject, testObject.getMethod());
+    when(executorFactory.createQueueExecutorsFor(singletonList(queueConsumer.getAnnotation())))
+      .thenReturn(QueueExecutors.shared(executorService));
+    when(consumersInstanceProvider.getConsumers()).thenReturn(singletonList(queueConsumer));
+
+    sqsDispatcher.subscribeConsumers();
+    ConsumerHandle consumerHandle = sqsDispatcher.getConsumerHandle(QUEUE_NAME);
+    consumerHandle.pause();
+
+    assertThat(sqsDispatcher.getConsumerHandles()).containsExactly(consumerHandle);
+    assertThat(consumerHandle.getLoopHandles()).hasSize(CONCURRENT_CONSUMERS + WORKERS);
+    assertThat(consumerHandle.getPollerHandles()).hasSize(CONCURRENT_CONSUMERS);
+    assertThat(consumerHandle.getState()).isEqualTo(ConsumerHandle.State.PAUSED);
+    assertThat(sqsDispatcher.getPollerHandles()).allMatch(PollerHandle::isPaused);
+    assertThat(sqsDispatcher.getWorkerHandles()).allMatch(PollerHandle::isPaused);
+  }
+
+  @Test
+  public void whenExecutorIsMadeOfBulkheadsThenLoopsShouldRunInTheBulkheadOfTheirQueue() throws Exception {
+    ConcurrentConsumersClass testObject = new ConcurrentConsumersClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(testObject, testObject.getMethod());
+    BulkheadExecutors bulkheadExecutors = new BulkheadExecutorFactory()
+      .createQueueExecutorsFor(singletonList(queueConsumer.getAnnotation()));
+    when(executorFactory.createQueueExecutorsFor(singletonList(queueConsumer.getAnnotation())))
+      .thenReturn(bulkheadExecutors);
+    when(consumersInstanceProvider.getConsumers()).thenReturn(singletonList(queueConsumer));
+    List<String> threadNames = new CopyOnWriteArrayList<>();
+    doAnswer(invocation -> threadNames.add(Thread.currentThread().getName()))
+      .when(queuePollService).start(eq(queueConsumer), any(PollerHandle.class));
+
+    sqsDispatcher.subscribeConsumers();
+    bulkheadExecutors.shutdown();
+
+    assertThat(bulkheadExecutors.awaitTermination(5, SECONDS)).isTrue();
+    assertThat(threadNames).hasSize(CONCURRENT_CONSUMERS).allMatch(name -> name.startsWith("sqs-bulkhead-" + QUEUE_NAME));
+    assertThat(sqsDispatcher.getBulkheads()).containsOnlyKeys(QUEUE_NAME);
   }
 
   @Test
@@ -77,6 +203,8 @@ public class SqsDispatcherTest {
 
   @Test
   public void whenCloseSqsDispatcherButNotExecutorThenConsumersShouldNotBeStopped() throws InterruptedException {
+    when(queuePollService.getInFlightMessages()).thenReturn(new InFlightMessages());
+
     sqsDispatcher.close();
 
     verify(queuePollService).stop();
@@ -90,13 +218,164 @@ public class SqsDispatcherTest {
     List<QueueConsumer> queueConsumers = singletonList(queueConsumerOne);
     when(consumersInstanceProvider.getConsumers()).thenReturn(queueConsumers);
     List<SqsConsumer> annotations = singletonList(queueConsumerOne.getAnnotation());
-    when(executorFactory.createFor(annotations)).thenReturn(executorService);
+    when(executorFactory.createQueueExecutorsFor(annotations)).thenReturn(QueueExecutors.shared(executorService));
+    when(queuePollService.getInFlightMessages()).thenReturn(new InFlightMessages());
     sqsDispatcher.subscribeConsumers();
 
     sqsDispatcher.close();
 
     verify(queuePollService).stop();
-    verify(executorService).awaitTermination(DEFAULT_MAX_LONG_POLLING_IN_SECONDS, SECONDS);
+    verify(executorService).shutdown();
+    verify(executorService).awaitTermination(
+      longThat(timeout -> timeout <= SECONDS.toNanos(DEFAULT_MAX_LONG_POLLING_IN_SECONDS)), eq(NANOSECONDS));
+    assertThat(sqsDispatcher.getPollerHandles()).noneMatch(PollerHandle::isActive);
+  }
+
+  @Test
+  public void whenClosePipelineConsumersThenMessagesPendingInPipelineShouldBeReleased() throws Exception {
+    PipelineConsumerClass testObject = new PipelineConsumerClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(testObject, testObject.getMethod());
+    when(executorFactory.createQueueExecutorsFor(singletonList(queueConsumer.getAnnotation())))
+      .thenReturn(QueueExecutors.shared(executorService));
+    when(consumersInstanceProvider.getConsumers()).thenReturn(singletonList(queueConsumer));
+    when(queuePollService.getInFlightMessages()).thenReturn(new InFlightMessages());
+    sqsDispatcher.subscribeConsumers();
+
+    sqsDispatcher.close();
+
+    InOrder inOrder = inOrder(executorService, queuePollService);
+    inOrder.verify(executorService).shutdown();
+    inOrder.verify(queuePollService).releasePending(any(MessagePipeline.class));
+    assertThat(sqsDispatcher.getWorkerHandles()).noneMatch(PollerHandle::isActive);
+  }
+
+  @Test
+  public void whenDrainingThenReportShouldCountMessagesCompletedFailedReleasedAndAbandoned()
+    throws InterruptedException {
+    InFlightMessages inFlightMessages = mock(InFlightMessages.class);
+    when(queuePollService.getInFlightMessages()).thenReturn(inFlightMessages);
+    when(inFlightMessages.getCompleted()).thenReturn(5L, 8L);
+    when(inFlightMessages.getFailed()).thenReturn(0L, 1L);
+    when(inFlightMessages.getReleased()).thenReturn(1L, 3L);
+    when(inFlightMessages.getInFlight()).thenReturn(2);
+
+    DrainReport drainReport = sqsDispatcher.drain(1, SECONDS);
+
+    assertThat(drainReport).isEqualTo(DrainReport.of(3, 1, 2, 2));
+    verify(queuePollService).close();
+  }
+
+  @Test
+  public void whenConsumerIsRetunedThenItShouldRunWithTheRetunedDefinition() throws NoSuchMethodException {
+    QueueConsumer queueConsumer = givenConcurrentConsumerSubscribed();
+
+    ConsumerDefinition definition = sqsDispatcher.retune(QUEUE_NAME,
+      current -> current.withMaxMessagesPerPoll(5).withLongPolling(1).withConcurrentConsumers(1));
+
+    assertThat(queueConsumer.getDefinition()).isSameAs(definition);
+    assertThat(sqsDispatcher.getDefinition(QUEUE_NAME).maxMessagesPerPoll()).isEqualTo(5);
+    assertThat(sqsDispatcher.getDefinition(QUEUE_NAME).longPolling()).isEqualTo(1);
+    assertThat(sqsDispatcher.getConsumerHandle(QUEUE_NAME).getActivePollers()).isEqualTo(1);
+    verify(consumerValidator, times(2)).isValid(any());
+  }
+
+  @Test
+  public void whenRetunedDefinitionIsNotValidThenConsumerShouldKeepItsDefinition() throws NoSuchMethodException {
+    QueueConsumer queueConsumer = givenConcurrentConsumerSubscribed();
+    ConsumerDefinition currentDefinition = queueConsumer.getDefinition();
+    doThrow(new IllegalArgumentException("Invalid")).when(consumerValidator).isValid(any());
+
+    assertThatThrownBy(() -> sqsDispatcher.retune(QUEUE_NAME, current -> current.withMaxMessagesPerPoll(50)))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThat(queueConsumer.getDefinition()).isSameAs(currentDefinition);
+  }
+
+  @Test
+  public void whenConcurrentConsumersAreRetunedAboveThePollersStartedThenExceptionShouldBeThrown() throws NoSuchMethodException {
+    QueueConsumer queueConsumer = givenConcurrentConsumerSubscribed();
+
+    assertThatThrownBy(() -> sqsDispatcher.retune(QUEUE_NAME,
+      current -> current.withConcurrentConsumers(CONCURRENT_CONSUMERS + 1)))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThat(queueConsumer.getDefinition().concurrentConsumers()).isEqualTo(CONCURRENT_CONSUMERS);
+  }
+
+  @Test
+  public void whenPausedConsumerIsRetunedThenItShouldStayPaused() throws NoSuchMethodException {
+    givenConcurrentConsumerSubscribed();
+    sqsDispatcher.getConsumerHandle(QUEUE_NAME).pause();
+
+    sqsDispatcher.retune(QUEUE_NAME, current -> current.withConcurrentConsumers(1));
+
+    assertThat(sqsDispatcher.getConsumerHandle(QUEUE_NAME).getState()).isEqualTo(ConsumerHandle.State.PAUSED);
+  }
+
+  private QueueConsumer givenConcurrentConsumerSubscribed() throws NoSuchMethodException {
+    ConcurrentConsumersClass testObject = new ConcurrentConsumersClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(testObject, testObject.getMethod());
+    when(executorFactory.createQueueExecutorsFor(singletonList(queueConsumer.getAnnotation())))
+      .thenReturn(QueueExecutors.shared(executorService));
+    when(consumersInstanceProvider.getConsumers()).thenReturn(singletonList(queueConsumer));
+    sqsDispatcher.subscribeConsumers();
+    return queueConsumer;
+  }
+
+  @Test
+  public void whenDispatcherIsAsyncThenOneReceiveLoopShouldBeStartedForEachConcurrentConsumer() throws NoSuchMethodException {
+    AsyncQueuePollService asyncQueuePollService = mock(AsyncQueuePollService.class);
+    SqsDispatcher asyncDispatcher = new SqsDispatcher(asyncQueuePollService, consumersInstanceProvider, executorFactory,
+      consumerValidator);
+    PipelineConsumerClass testObject = new PipelineConsumerClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(testObject, testObject.getMethod());
+    when(executorFactory.createQueueExecutorsFor(singletonList(queueConsumer.getAnnotation())))
+      .thenReturn(QueueExecutors.shared(executorService));
+    when(consumersInstanceProvider.getConsumers()).thenReturn(singletonList(queueConsumer));
+
+    asyncDispatcher.subscribeConsumers();
+
+    verify(asyncQueuePollService, times(CONCURRENT_CONSUMERS)).start(eq(queueConsumer), any(PollerHandle.class), eq(executorService));
+    verifyZeroInteractions(queuePollService);
+    assertThat(asyncDispatcher.getPollerHandles()).hasSize(CONCURRENT_CONSUMERS);
+    assertThat(asyncDispatcher.getWorkerHandles()).isEmpty();
+  }
+
+  @Test
+  public void whenCloseAsyncDispatcherThenAsyncQueuePollServiceShouldBeClosed() throws InterruptedException {
+    AsyncQueuePollService asyncQueuePollService = mock(AsyncQueuePollService.class);
+    SqsDispatcher asyncDispatcher = new SqsDispatcher(asyncQueuePollService, consumersInstanceProvider, executorFactory,
+      consumerValidator);
+
+    when(asyncQueuePollService.getInFlightMessages()).thenReturn(new InFlightMessages());
+
+    asyncDispatcher.close();
+
+    verify(asyncQueuePollService).stop();
+    verify(asyncQueuePollService).close();
+    verifyZeroInteractions(queuePollService);
+  }
+
+  private static class ConcurrentConsumersClass {
+
+    @SqsConsumer(value = QUEUE_NAME, concurrentConsumers = CONCURRENT_CONSUMERS)
+    public void testConsumer(String testParameter) {
+
+    }
+
+    Method getMethod() throws NoSuchMethodException {
+      return getClass().getMethod("testConsumer", String.class);
+    }
+  }
+
+  private static class PipelineConsumerClass {
+
+    @SqsConsumer(value = QUEUE_NAME, concurrentConsumers = CONCURRENT_CONSUMERS, workers = WORKERS)
+    public void testConsumer(String testParameter) {
+
+    }
+
+    Method getMethod() throws NoSuchMethodException {
+      return getClass().getMethod("testConsumer", String.class);
+    }
   }
 
   private static class SyncExecutorService implements ExecutorService {
@@ -0,0 +1,95 @@
+package org.jusoft.aws.sqs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.executor.FixedExecutorFactory;
+import org.jusoft.aws.sqs.fixture.StubAmazonSQS;
+import org.jusoft.aws.sqs.fixture.TestFixtures.TestDto;
+import org.jusoft.aws.sqs.mapper.ConsumerParametersMapper;
+import org.jusoft.aws.sqs.mapper.JacksonMessageMapper;
+import org.jusoft.aws.sqs.provider.StaticConsumersInstanceProvider;
+import org.jusoft.aws.sqs.service.ConsumerInvokerService;
+import org.jusoft.aws.sqs.service.MessageConsumerService;
+import org.jusoft.aws.sqs.service.PollerHandle;
+import org.jusoft.aws.sqs.service.QueuePollService;
+import org.jusoft.aws.sqs.service.ReceiveMessageRequestFactory;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_BODY_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+
+public class SqsDispatcherThroughputTest {
+
+  private static final long RECEIVE_LATENCY_IN_MILLIS = 20;
+  private static final long MEASUREMENT_WINDOW_IN_MILLIS = 600;
+  private static final double MINIMUM_SCALING_FACTOR = 0.6;
+
+  @Test
+  public void whenConcurrentConsumersIncreaseThenReceiveCallsShouldScaleLinearly() throws InterruptedException {
+    long singleConsumerReceives = measureReceiveCallsFor(new OneConcurrentConsumer(), 1);
+
+    assertThat(measureReceiveCallsFor(new TwoConcurrentConsumers(), 2))
+      .isGreaterThanOrEqualTo((long) (singleConsumerReceives * 2 * MINIMUM_SCALING_FACTOR));
+    assertThat(measureReceiveCallsFor(new FourConcurrentConsumers(), 4))
+      .isGreaterThanOrEqualTo((long) (singleConsumerReceives * 4 * MINIMUM_SCALING_FACTOR));
+    assertThat(measureReceiveCallsFor(new EightConcurrentConsumers(), 8))
+      .isGreaterThanOrEqualTo((long) (singleConsumerReceives * 8 * MINIMUM_SCALING_FACTOR));
+  }
+
+  private long measureReceiveCallsFor(Object consumer, int concurrentConsumers) throws InterruptedException {
+    StubAmazonSQS amazonSQS = new StubAmazonSQS(RECEIVE_LATENCY_IN_MILLIS, MESSAGE_BODY_1);
+    ConsumerInvokerService consumerInvokerService = new ConsumerInvokerService(
+      new ConsumerParametersMapper(new JacksonMessageMapper(new ObjectMapper())));
+    QueuePollService queuePollService = new QueuePollService(new ReceiveMessageRequestFactory(amazonSQS),
+      new MessageConsumerService(amazonSQS, consumerInvokerService));
+    SqsDispatcher dispatcher = new SqsDispatcher(queuePollService,
+      StaticConsumersInstanceProvider.ofBeans(singletonList(consumer)), new FixedExecutorFactory(), consumers -> {
+    });
+
+    dispatcher.subscribeConsumers();
+    Thread.sleep(MEASUREMENT_WINDOW_IN_MILLIS);
+    dispatcher.close();
+
+    for (PollerHandle pollerHandle : dispatcher.getPollerHandles()) {
+      assertThat(pollerHandle.awaitStopped(1, SECONDS)).isTrue();
+    }
+    assertThat(dispatcher.getPollerHandles()).hasSize(concurrentConsumers);
+    assertThat(amazonSQS.getMaxReceivesInFlight()).isEqualTo(concurrentConsumers);
+    return amazonSQS.getReceiveCalls();
+  }
+
+  public static class OneConcurrentConsumer {
+
+    @SqsConsumer(value = QUEUE_NAME, concurrentConsumers = 1)
+    public void testConsumer(TestDto testParameter) {
+
+    }
+  }
+
+  public static class TwoConcurrentConsumers {
+
+    @SqsConsumer(value = QUEUE_NAME, concurrentConsumers = 2)
+    public void testConsumer(TestDto testParameter) {
+
+    }
+  }
+
+  public static class FourConcurrentConsumers {
+
+    @SqsConsumer(value = QUEUE_NAME, concurrentConsumers = 4)
+    public void testConsumer(TestDto testParameter) {
+
+    }
+  }
+
+  public static class EightConcurrentConsumers {
+
+    @SqsConsumer(value = QUEUE_NAME, concurrentConsumers = 8)
+    public void testConsumer(TestDto testParameter) {
+
+    }
+  }
+}
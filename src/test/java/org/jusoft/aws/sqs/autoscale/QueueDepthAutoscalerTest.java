@@ -0,0 +1,189 @@
+package org.jusoft.aws.sqs.autoscale;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import org.jusoft.aws.sqs.service.ConsumerHandle;
+import org.jusoft.aws.sqs.service.ProcessingLatencies;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.autoscale.QueueDepthAutoscaler.BACKLOG_ATTRIBUTES;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QueueDepthAutoscalerTest {
+
+  private static final int POLLERS = 5;
+  private static final int MIN_POLLERS = 1;
+  private static final int MAX_POLLERS = 4;
+  private static final long SCALE_UP_BACKLOG = 100;
+  private static final long SCALE_DOWN_BACKLOG = 20;
+  private static final long SCALE_UP_COOLDOWN = 1000;
+  private static final long SCALE_DOWN_COOLDOWN = 5000;
+  private static final long MAX_LATENCY = 2000;
+
+  @Mock
+  private AmazonSQS amazonSQS;
+  @Mock
+  private ProcessingLatencies processingLatencies;
+
+  private final AtomicLong clock = new AtomicLong();
+  private final ConsumerHandle consumerHandle = ConsumerHandle.of(QUEUE_NAME);
+  private QueueDepthAutoscaler autoscaler;
+
+  @Before
+  public void setUp() {
+    IntStream.range(0, POLLERS).forEach(consumerHandle::addPoller);
+    when(amazonSQS.getQueueUrl(QUEUE_NAME)).thenReturn(new GetQueueUrlResult().withQueueUrl(QUEUE_URL));
+    autoscaler = new QueueDepthAutoscaler(amazonSQS, processingLatencies, new AutoscalingPolicy(MIN_POLLERS,
+      MAX_POLLERS, SCALE_UP_BACKLOG, SCALE_DOWN_BACKLOG, SCALE_UP_COOLDOWN, SCALE_DOWN_COOLDOWN, MAX_LATENCY),
+      HOURS.toMillis(1), clock::get);
+    autoscaler.register(consumerHandle);
+  }
+
+  @After
+  public void tearDown() {
+    autoscaler.close();
+  }
+
+  @Test
+  public void whenConsumerIsRegisteredThenOnlyTheMinimumPollersShouldReceiveMessages() {
+    assertThat(autoscaler.getActivePollers(QUEUE_NAME)).isEqualTo(MIN_POLLERS);
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(MIN_POLLERS);
+  }
+
+  @Test
+  public void whenBacklogPerPollerIsAboveThresholdThenPollersShouldBeAddedToAbsorbIt() {
+    givenBacklog(180, 70);
+    givenLatency(ProcessingLatencies.NO_SAMPLES);
+
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(3);
+  }
+
+  @Test
+  public void whenBacklogRequiresMorePollersThanMaximumThenMaximumPollersShouldBeActive() {
+    givenBacklog(10_000, 0);
+    givenLatency(100);
+
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(MAX_POLLERS);
+  }
+
+  @Test
+  public void whenConsumerIsSlowerThanMaximumLatencyThenPollersShouldNotBeAdded() {
+    givenBacklog(10_000, 0);
+    givenLatency(MAX_LATENCY + 1);
+
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(MIN_POLLERS);
+  }
+
+  @Test
+  public void whenScaleUpCooldownHasNotElapsedThenPollersShouldNotBeAddedAgain() {
+    givenLatency(100);
+    givenBacklog(150, 0);
+    autoscaler.scale();
+    givenBacklog(10_000, 0);
+    clock.addAndGet(SCALE_UP_COOLDOWN - 1);
+
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(2);
+
+    clock.addAndGet(1);
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(MAX_POLLERS);
+  }
+
+  @Test
+  public void whenBacklogPerPollerIsBelowThresholdThenPollersShouldBeRemovedOneAtATimeAfterCooldown() {
+    givenLatency(100);
+    givenBacklog(10_000, 0);
+    autoscaler.scale();
+    givenBacklog(10, 0);
+    clock.addAndGet(SCALE_DOWN_COOLDOWN);
+
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(MAX_POLLERS - 1);
+
+    clock.addAndGet(SCALE_DOWN_COOLDOWN - 1);
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(MAX_POLLERS - 1);
+  }
+
+  @Test
+  public void whenBacklogPerPollerIsBetweenThresholdsThenPollersShouldNotChange() {
+    givenLatency(100);
+    givenBacklog(10_000, 0);
+    autoscaler.scale();
+    givenBacklog(MAX_POLLERS * 50, 0);
+    clock.addAndGet(SCALE_DOWN_COOLDOWN);
+
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(MAX_POLLERS);
+  }
+
+  @Test
+  public void whenConsumerIsPausedThenItShouldNotBeScaled() {
+    consumerHandle.pause();
+
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isZero();
+  }
+
+  @Test
+  public void whenActivePollersAreChangedFromOutsideThenScalingShouldStartFromThem() {
+    givenLatency(100);
+    givenBacklog(10, 0);
+    consumerHandle.setActivePollers(3);
+    clock.addAndGet(SCALE_DOWN_COOLDOWN);
+
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(2);
+    assertThat(autoscaler.getActivePollers(QUEUE_NAME)).isEqualTo(2);
+  }
+
+  @Test
+  public void whenConsumerIsResumedWithMorePollersThanMaximumThenTheyShouldBeBroughtWithinLimits() {
+    givenBacklog(SCALE_DOWN_BACKLOG * POLLERS, 0);
+    consumerHandle.pause();
+    consumerHandle.resume();
+    assertThat(autoscaler.getActivePollers(QUEUE_NAME)).isEqualTo(POLLERS);
+
+    autoscaler.scale();
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(MAX_POLLERS);
+  }
+
+  private void givenBacklog(long visible, long notVisible) {
+    when(amazonSQS.getQueueAttributes(QUEUE_URL, BACKLOG_ATTRIBUTES)).thenReturn(new GetQueueAttributesResult()
+      .addAttributesEntry("ApproximateNumberOfMessages", String.valueOf(visible))
+      .addAttributesEntry("ApproximateNumberOfMessagesNotVisible", String.valueOf(notVisible)));
+  }
+
+  private void givenLatency(long latencyInMillis) {
+    when(processingLatencies.getAverageInMillis(QUEUE_URL)).thenReturn(latencyInMillis);
+  }
+}
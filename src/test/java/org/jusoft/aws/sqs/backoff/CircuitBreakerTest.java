@@ -0,0 +1,151 @@
+package org.jusoft.aws.sqs.backoff;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerTest {
+
+  private static final int FAILURE_THRESHOLD = 3;
+  private static final long OPEN_DURATION_IN_MILLIS = 1000;
+
+  private final AtomicLong clock = new AtomicLong();
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker(FAILURE_THRESHOLD, OPEN_DURATION_IN_MILLIS, clock::get);
+
+  @Test
+  public void whenFailuresAreBelowTheThresholdThenCircuitShouldStayClosed() {
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(circuitBreaker.remainingOpenTimeInMillis()).isZero();
+  }
+
+  @Test
+  public void whenFailuresReachTheThresholdThenCircuitShouldOpen() {
+    openCircuit();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(circuitBreaker.remainingOpenTimeInMillis()).isEqualTo(OPEN_DURATION_IN_MILLIS);
+  }
+
+  @Test
+  public void whenSuccessHappensBeforeTheThresholdThenFailuresShouldBeReset() {
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    circuitBreaker.onSuccess();
+    circuitBreaker.onFailure();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void whenOpenDurationElapsesThenCircuitShouldBeHalfOpen() {
+    openCircuit();
+    clock.addAndGet(OPEN_DURATION_IN_MILLIS);
+
+    assertThat(circuitBreaker.remainingOpenTimeInMillis()).isZero();
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+  }
+
+  @Test
+  public void whenHalfOpenCircuitFailsThenItShouldOpenAgain() {
+    openCircuit();
+    clock.addAndGet(OPEN_DURATION_IN_MILLIS);
+    circuitBreaker.remainingOpenTimeInMillis();
+
+    circuitBreaker.onFailure();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(circuitBreaker.remainingOpenTimeInMillis()).isEqualTo(OPEN_DURATION_IN_MILLIS);
+  }
+
+  @Test
+  public void whenHalfOpenCircuitSucceedsThenItShouldClose() {
+    openCircuit();
+    clock.addAndGet(OPEN_DURATION_IN_MILLIS);
+    circuitBreaker.remainingOpenTimeInMillis();
+
+    circuitBreaker.onSuccess();
+
+    assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void whenSeveralPollersCheckAHalfOpenCircuitThenOnlyOneShouldProbe() throws Exception {
+    int pollers = 8;
+    openCircuit();
+    clock.addAndGet(OPEN_DURATION_IN_MILLIS);
+
+    List<Long> delays = checkFromPollers(pollers);
+
+    assertThat(delays).containsOnlyOnce(0L);
+    assertThat(delays.stream().filter(delay -> delay > 0))
+      .hasSize(pollers - 1)
+      .containsOnly(CircuitBreaker.PROBE_CHECK_INTERVAL_IN_MILLIS);
+  }
+
+  @Test
+  public void whenProbeSucceedsThenEveryPollerShouldPoll() throws Exception {
+    openCircuit();
+    clock.addAndGet(OPEN_DURATION_IN_MILLIS);
+    circuitBreaker.remainingOpenTimeInMillis();
+
+    circuitBreaker.onSuccess();
+
+    assertThat(checkFromPollers(4)).containsOnly(0L);
+  }
+
+  @Test
+  public void whenProbeDoesNotFinishWithinTheOpenDurationThenAnotherPollShouldProbe() {
+    openCircuit();
+    clock.addAndGet(OPEN_DURATION_IN_MILLIS);
+    circuitBreaker.remainingOpenTimeInMillis();
+
+    clock.addAndGet(OPEN_DURATION_IN_MILLIS);
+
+    assertThat(circuitBreaker.remainingOpenTimeInMillis()).isZero();
+    assertThat(circuitBreaker.remainingOpenTimeInMillis()).isEqualTo(CircuitBreaker.PROBE_CHECK_INTERVAL_IN_MILLIS);
+  }
+
+  @Test
+  public void whenOpenTimeIsCheckedThenNoProbeShouldBeLetThrough() {
+    openCircuit();
+    clock.addAndGet(OPEN_DURATION_IN_MILLIS);
+
+    assertThat(circuitBreaker.openTimeInMillis()).isZero();
+    assertThat(circuitBreaker.remainingOpenTimeInMillis()).isZero();
+  }
+
+  private List<Long> checkFromPollers(int pollers) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(pollers);
+    try {
+      List<Callable<Long>> checks = IntStream.range(0, pollers)
+        .mapToObj(poller -> (Callable<Long>) circuitBreaker::remainingOpenTimeInMillis)
+        .collect(Collectors.toList());
+      List<Long> delays = new ArrayList<>();
+      for (Future<Long> delay : executor.invokeAll(checks)) {
+        delays.add(delay.get());
+      }
+      return delays;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void openCircuit() {
+    for (int failure = 0; failure < FAILURE_THRESHOLD; failure++) {
+      circuitBreaker.onFailure();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.jusoft.aws.sqs.backoff;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.ConsumerDefinition;
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterMethodClass;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.SHORT_POLLING_VALUE;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultPollBackoffFactoryTest {
+
+  private static final long EMPTY_RECEIVE_BASE_DELAY_IN_MILLIS = 50;
+  private static final int LONG_POLLING = 20;
+
+  @Mock
+  private QueueConsumer queueConsumer;
+
+  private final DefaultPollBackoffFactory pollBackoffFactory = new DefaultPollBackoffFactory(100, 1000,
+    EMPTY_RECEIVE_BASE_DELAY_IN_MILLIS, 1000, 10, 1000);
+  private ConsumerDefinition definition;
+
+  @Before
+  public void setUp() throws NoSuchMethodException {
+    definition = ConsumerDefinition.of(new SingleParameterMethodClass().getMethod().getAnnotation(SqsConsumer.class));
+  }
+
+  @Test
+  public void whenConsumerUsesLongPollingThenEmptyReceivesShouldNotWait() {
+    when(queueConsumer.getDefinition()).thenReturn(definition.withLongPolling(LONG_POLLING));
+
+    PollBackoff pollBackoff = pollBackoffFactory.createFor(queueConsumer);
+
+    assertThat(pollBackoff.onEmptyReceive()).isZero();
+  }
+
+  @Test
+  public void whenConsumerIsRetunedToShortPollingThenEmptyReceivesShouldWait() {
+    when(queueConsumer.getDefinition()).thenReturn(definition.withLongPolling(LONG_POLLING));
+    PollBackoff pollBackoff = pollBackoffFactory.createFor(queueConsumer);
+
+    when(queueConsumer.getDefinition()).thenReturn(definition.withLongPolling(SHORT_POLLING_VALUE));
+
+    assertThat(pollBackoff.onEmptyReceive()).isEqualTo(EMPTY_RECEIVE_BASE_DELAY_IN_MILLIS);
+  }
+
+  @Test
+  public void whenConsumerIsRetunedToLongPollingThenEmptyReceivesShouldStopWaiting() {
+    when(queueConsumer.getDefinition()).thenReturn(definition.withLongPolling(SHORT_POLLING_VALUE));
+    PollBackoff pollBackoff = pollBackoffFactory.createFor(queueConsumer);
+    assertThat(pollBackoff.onEmptyReceive()).isPositive();
+
+    when(queueConsumer.getDefinition()).thenReturn(definition.withLongPolling(LONG_POLLING));
+
+    assertThat(pollBackoff.onEmptyReceive()).isZero();
+  }
+}
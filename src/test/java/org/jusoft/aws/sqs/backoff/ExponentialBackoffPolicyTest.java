@@ -0,0 +1,53 @@
+package org.jusoft.aws.sqs.backoff;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExponentialBackoffPolicyTest {
+
+  private static final long BASE_DELAY_IN_MILLIS = 100;
+  private static final long MAX_DELAY_IN_MILLIS = 1000;
+
+  @Test
+  public void whenJitterIsDisabledThenDelayShouldDoubleOnEveryConsecutivePoll() {
+    ExponentialBackoffPolicy policy = new ExponentialBackoffPolicy(BASE_DELAY_IN_MILLIS, MAX_DELAY_IN_MILLIS, false);
+
+    assertThat(policy.delayInMillisFor(1)).isEqualTo(100);
+    assertThat(policy.delayInMillisFor(2)).isEqualTo(200);
+    assertThat(policy.delayInMillisFor(3)).isEqualTo(400);
+    assertThat(policy.delayInMillisFor(4)).isEqualTo(800);
+  }
+
+  @Test
+  public void whenDelayExceedsTheMaximumThenMaximumShouldBeUsed() {
+    ExponentialBackoffPolicy policy = new ExponentialBackoffPolicy(BASE_DELAY_IN_MILLIS, MAX_DELAY_IN_MILLIS, false);
+
+    assertThat(policy.delayInMillisFor(5)).isEqualTo(MAX_DELAY_IN_MILLIS);
+    assertThat(policy.delayInMillisFor(Integer.MAX_VALUE)).isEqualTo(MAX_DELAY_IN_MILLIS);
+  }
+
+  @Test
+  public void whenThereAreNoConsecutivePollsThenThereShouldBeNoDelay() {
+    ExponentialBackoffPolicy policy = new ExponentialBackoffPolicy(BASE_DELAY_IN_MILLIS, MAX_DELAY_IN_MILLIS, false);
+
+    assertThat(policy.delayInMillisFor(0)).isEqualTo(BackoffPolicy.NO_DELAY);
+  }
+
+  @Test
+  public void whenJitterIsEnabledThenDelayShouldBeBetweenHalfAndTheWholeDelay() {
+    ExponentialBackoffPolicy policy = new ExponentialBackoffPolicy(BASE_DELAY_IN_MILLIS, MAX_DELAY_IN_MILLIS, true);
+
+    IntStream.range(0, 100).forEach(attempt ->
+      assertThat(policy.delayInMillisFor(3)).isBetween(200L, 400L));
+  }
+
+  @Test
+  public void whenMaximumDelayIsLowerThanBaseDelayThenCreationShouldFail() {
+    assertThatThrownBy(() -> new ExponentialBackoffPolicy(MAX_DELAY_IN_MILLIS, BASE_DELAY_IN_MILLIS, false))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+}
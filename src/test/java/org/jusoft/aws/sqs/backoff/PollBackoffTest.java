@@ -0,0 +1,69 @@
+package org.jusoft.aws.sqs.backoff;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PollBackoffTest {
+
+  private static final long EMPTY_RECEIVE_DELAY_IN_MILLIS = 10;
+  private static final long ERROR_DELAY_IN_MILLIS = 100;
+
+  private final PollBackoff pollBackoff = new PollBackoff(
+    consecutiveCount -> EMPTY_RECEIVE_DELAY_IN_MILLIS * consecutiveCount,
+    consecutiveCount -> ERROR_DELAY_IN_MILLIS * consecutiveCount,
+    CircuitBreaker.disabled());
+
+  @Test
+  public void whenConsecutiveEmptyReceivesHappenThenTheyShouldBeCountedAndDelayed() {
+    pollBackoff.onEmptyReceive();
+
+    long delay = pollBackoff.onEmptyReceive();
+
+    assertThat(delay).isEqualTo(2 * EMPTY_RECEIVE_DELAY_IN_MILLIS);
+    assertThat(pollBackoff.getConsecutiveEmptyReceives()).isEqualTo(2);
+  }
+
+  @Test
+  public void whenConsecutiveErrorsHappenThenTheyShouldBeCountedAndDelayed() {
+    pollBackoff.onError();
+
+    long delay = pollBackoff.onError();
+
+    assertThat(delay).isEqualTo(2 * ERROR_DELAY_IN_MILLIS);
+    assertThat(pollBackoff.getConsecutiveErrors()).isEqualTo(2);
+    assertThat(pollBackoff.getTotalErrors()).isEqualTo(2);
+  }
+
+  @Test
+  public void whenMessagesAreReceivedThenConsecutiveCountersShouldBeReset() {
+    pollBackoff.onEmptyReceive();
+    pollBackoff.onError();
+
+    pollBackoff.onMessagesReceived();
+
+    assertThat(pollBackoff.getConsecutiveEmptyReceives()).isZero();
+    assertThat(pollBackoff.getConsecutiveErrors()).isZero();
+    assertThat(pollBackoff.getTotalErrors()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenEmptyReceiveHappensAfterErrorsThenConsecutiveErrorsShouldBeReset() {
+    pollBackoff.onError();
+
+    pollBackoff.onEmptyReceive();
+
+    assertThat(pollBackoff.getConsecutiveErrors()).isZero();
+  }
+
+  @Test
+  public void whenCircuitOpensThenErrorDelayShouldLastUntilItCanBeHalfOpened() {
+    PollBackoff pollBackoffWithCircuit = new PollBackoff(new NoBackoffPolicy(), new NoBackoffPolicy(),
+      new CircuitBreaker(1, 60_000));
+
+    long delay = pollBackoffWithCircuit.onError();
+
+    assertThat(delay).isGreaterThan(0);
+    assertThat(pollBackoffWithCircuit.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+  }
+}
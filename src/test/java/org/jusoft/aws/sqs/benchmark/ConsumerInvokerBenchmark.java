@@ -0,0 +1,118 @@
+package org.jusoft.aws.sqs.benchmark;
+
+import org.jusoft.aws.sqs.invoker.ConsumerInvoker;
+import org.jusoft.aws.sqs.invoker.ConsumerInvokers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reflective invocation of consumers used before {@link ConsumerInvokers} with the compiled invokers.
+ * Benchmarks are not run by the build. Run the main method from the IDE, or {@code org.openjdk.jmh.Main} with the test
+ * classpath after {@code mvn -Pbenchmarks test-compile}.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsumerInvokerBenchmark {
+
+  private BenchmarkConsumer consumer;
+  private Method singleParameterMethod;
+  private Method multipleParametersMethod;
+  private ConsumerInvoker lambdaInvoker;
+  private ConsumerInvoker singleParameterMethodHandleInvoker;
+  private ConsumerInvoker multipleParametersMethodHandleInvoker;
+  private Object[] singleParameter;
+  private Object[] multipleParameters;
+
+  @Setup
+  public void setUp() throws Exception {
+    consumer = new BenchmarkConsumer();
+    singleParameterMethod = BenchmarkConsumer.class.getMethod("consume", BenchmarkMessage.class);
+    multipleParametersMethod = BenchmarkConsumer.class.getMethod("consume", BenchmarkMessage.class, String.class);
+    lambdaInvoker = ConsumerInvokers.compile(consumer, singleParameterMethod);
+    singleParameterMethodHandleInvoker = ConsumerInvokers.methodHandleInvoker(consumer, singleParameterMethod);
+    multipleParametersMethodHandleInvoker = ConsumerInvokers.compile(consumer, multipleParametersMethod);
+    singleParameter = new Object[]{new BenchmarkMessage("body")};
+    multipleParameters = new Object[]{new BenchmarkMessage("body"), "attribute"};
+  }
+
+  @Benchmark
+  public Object reflectionSingleParameter() throws Exception {
+    singleParameterMethod.invoke(consumer, singleParameter);
+    return consumer.last;
+  }
+
+  @Benchmark
+  public Object lambdaSingleParameter() throws Throwable {
+    lambdaInvoker.invoke(singleParameter);
+    return consumer.last;
+  }
+
+  @Benchmark
+  public Object methodHandleSingleParameter() throws Throwable {
+    singleParameterMethodHandleInvoker.invoke(singleParameter);
+    return consumer.last;
+  }
+
+  @Benchmark
+  public Object reflectionMultipleParameters() throws Exception {
+    multipleParametersMethod.invoke(consumer, multipleParameters);
+    return consumer.last;
+  }
+
+  @Benchmark
+  public Object methodHandleMultipleParameters() throws Throwable {
+    multipleParametersMethodHandleInvoker.invoke(multipleParameters);
+    return consumer.last;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(ConsumerInvokerBenchmark.class.getSimpleName())
+      .build())
+      .run();
+  }
+
+  public static class BenchmarkMessage {
+    private final String value;
+
+    public BenchmarkMessage(String value) {
+      this.value = value;
+    }
+
+    public String getValue() {
+      return value;
+    }
+  }
+
+  public static class BenchmarkConsumer {
+    private Object last;
+
+    public void consume(BenchmarkMessage message) {
+      last = message;
+    }
+
+    public void consume(BenchmarkMessage message, String attribute) {
+      last = attribute;
+    }
+  }
+}
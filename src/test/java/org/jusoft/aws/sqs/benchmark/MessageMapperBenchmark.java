@@ -0,0 +1,177 @@
+package org.jusoft.aws.sqs.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jusoft.aws.sqs.mapper.JacksonMessageMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Compares the deserialisation of message bodies between 1 and 64 KB using {@link ObjectMapper#readValue(String, Class)},
+ * as done before caching the readers, with the cached readers of the {@link JacksonMessageMapper}, with and without
+ * the Afterburner module. Benchmarks are not run by the build. Run the main method from the IDE, or
+ * {@code org.openjdk.jmh.Main} with the test classpath after {@code mvn -Pbenchmarks test-compile}.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageMapperBenchmark {
+
+  private static final int APPROXIMATE_ITEM_SIZE_IN_BYTES = 128;
+
+  @Param({"1", "4", "16", "64"})
+  private int bodySizeInKb;
+
+  private ObjectMapper objectMapper;
+  private JacksonMessageMapper cachedReaderMapper;
+  private JacksonMessageMapper acceleratedMapper;
+  private String body;
+
+  @Setup
+  public void setUp() throws Exception {
+    objectMapper = new ObjectMapper();
+    cachedReaderMapper = new JacksonMessageMapper(objectMapper);
+    acceleratedMapper = new JacksonMessageMapper(objectMapper, singletonList(BenchmarkOrder.class));
+    body = objectMapper.writeValueAsString(createOrderOf(bodySizeInKb * 1024 / APPROXIMATE_ITEM_SIZE_IN_BYTES));
+  }
+
+  private static BenchmarkOrder createOrderOf(int itemCount) {
+    BenchmarkOrder order = new BenchmarkOrder();
+    order.setOrderId("order-0001");
+    order.setCustomerId("customer-0001");
+    List<BenchmarkOrderLine> lines = new ArrayList<>();
+    for (int index = 0; index < itemCount; index++) {
+      BenchmarkOrderLine line = new BenchmarkOrderLine();
+      line.setSku("sku-" + index);
+      line.setDescription("Description of the item number " + index + " in the order");
+      line.setQuantity(index % 10 + 1);
+      line.setUnitPrice(index * 1.5);
+      line.setIsGift(index % 2 == 0);
+      lines.add(line);
+    }
+    order.setLines(lines);
+    return order;
+  }
+
+  @Benchmark
+  public BenchmarkOrder readValue() throws Exception {
+    return objectMapper.readValue(body, BenchmarkOrder.class);
+  }
+
+  @Benchmark
+  public BenchmarkOrder cachedReader() {
+    return cachedReaderMapper.deserialize(body, BenchmarkOrder.class);
+  }
+
+  @Benchmark
+  public BenchmarkOrder acceleratedCachedReader() {
+    return acceleratedMapper.deserialize(body, BenchmarkOrder.class);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(MessageMapperBenchmark.class.getSimpleName())
+      .build())
+      .run();
+  }
+
+  public static class BenchmarkOrder {
+    private String orderId;
+    private String customerId;
+    private List<BenchmarkOrderLine> lines;
+
+    public String getOrderId() {
+      return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+      this.orderId = orderId;
+    }
+
+    public String getCustomerId() {
+      return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+      this.customerId = customerId;
+    }
+
+    public List<BenchmarkOrderLine> getLines() {
+      return lines;
+    }
+
+    public void setLines(List<BenchmarkOrderLine> lines) {
+      this.lines = lines;
+    }
+  }
+
+  public static class BenchmarkOrderLine {
+    private String sku;
+    private String description;
+    private int quantity;
+    private double unitPrice;
+    private boolean isGift;
+
+    public String getSku() {
+      return sku;
+    }
+
+    public void setSku(String sku) {
+      this.sku = sku;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    public void setDescription(String description) {
+      this.description = description;
+    }
+
+    public int getQuantity() {
+      return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+      this.quantity = quantity;
+    }
+
+    public double getUnitPrice() {
+      return unitPrice;
+    }
+
+    public void setUnitPrice(double unitPrice) {
+      this.unitPrice = unitPrice;
+    }
+
+    public boolean getIsGift() {
+      return isGift;
+    }
+
+    public void setIsGift(boolean isGift) {
+      this.isGift = isGift;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package org.jusoft.aws.sqs.benchmark;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.executor.ExecutorFactory;
+import org.jusoft.aws.sqs.executor.FixedExecutorFactory;
+import org.jusoft.aws.sqs.executor.VirtualThreadExecutorFactory;
+import org.jusoft.aws.sqs.fixture.StubAmazonSQS;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.DEFAULT_MAX_LONG_POLLING_IN_SECONDS;
+
+/**
+ * Measures the threads and memory used by the executors while thousands of poll loops are blocked waiting for a long
+ * poll to return. Footprint is not something JMH measures, so this benchmark is a plain main method taking the executor
+ * ({@code fixed} or {@code virtual}) and the number of pollers as arguments. Run it once per executor, in its own JVM,
+ * with the test classpath after {@code mvn test-compile}. Virtual threads require Java 21 or later, otherwise the
+ * virtual executor falls back to the fixed one.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+public class PollerThreadsBenchmark {
+
+  private static final int DEFAULT_POLLERS = 1000;
+  private static final long BYTES_PER_MB = 1024 * 1024;
+
+  public static void main(String[] args) throws InterruptedException {
+    String executorName = args.length > 0 ? args[0] : "virtual";
+    int pollers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_POLLERS;
+    ExecutorFactory executorFactory = "fixed".equals(executorName)
+      ? new FixedExecutorFactory()
+      : new VirtualThreadExecutorFactory();
+    StubAmazonSQS amazonSQS = new StubAmazonSQS(TimeUnit.SECONDS.toMillis(DEFAULT_MAX_LONG_POLLING_IN_SECONDS), "{}");
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    int threadsBefore = threads.getThreadCount();
+
+    ExecutorService executor = createExecutor(executorFactory, pollers);
+    CountDownLatch pollersStarted = new CountDownLatch(pollers);
+    long start = System.nanoTime();
+    for (int poller = 0; poller < pollers; poller++) {
+      executor.submit(() -> {
+        pollersStarted.countDown();
+        amazonSQS.receiveMessage(new ReceiveMessageRequest().withMaxNumberOfMessages(1));
+      });
+    }
+    pollersStarted.await();
+    long startupInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    System.gc();
+
+    MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    System.out.println("executor=" + executorFactory.getClass().getSimpleName()
+      + ", javaVersion=" + System.getProperty("java.version")
+      + ", pollers=" + pollers
+      + ", startupMillis=" + startupInMillis
+      + ", platformThreads=" + (threads.getThreadCount() - threadsBefore)
+      + ", peakPlatformThreads=" + threads.getPeakThreadCount()
+      + ", heapUsedMb=" + heap.getUsed() / BYTES_PER_MB
+      + ", residentMemoryMb=" + readResidentMemoryInMb());
+    executor.shutdownNow();
+  }
+
+  private static ExecutorService createExecutor(ExecutorFactory executorFactory, int pollers) {
+    BenchmarkConsumers consumers = new BenchmarkConsumers();
+    return executorFactory.createFor(Collections.nCopies(pollers, consumers.getAnnotation()));
+  }
+
+  /**
+   * Resident set size of the process, which includes the stacks of the platform threads. Only available on Linux.
+   */
+  private static String readResidentMemoryInMb() {
+    Path status = Paths.get("/proc/self/status");
+    try {
+      return Files.readAllLines(status).stream()
+        .filter(line -> line.startsWith("VmRSS:"))
+        .map(line -> String.valueOf(Long.parseLong(line.replaceAll("\\D", "")) / 1024))
+        .findFirst()
+        .orElse("n/a");
+    } catch (Exception e) {
+      return "n/a";
+    }
+  }
+
+  public static class BenchmarkConsumers {
+
+    @SqsConsumer("benchmark")
+    public void consume(String message) {
+    }
+
+    private SqsConsumer getAnnotation() {
+      try {
+        return getClass().getMethod("consume", String.class).getAnnotation(SqsConsumer.class);
+      } catch (NoSuchMethodException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package org.jusoft.aws.sqs.benchmark;
+
+import org.jusoft.aws.sqs.validation.rule.ServiceLoaderRulesProvider;
+import org.jusoft.aws.sqs.validation.rule.ValidationRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the discovery of the validation rules at startup scanning the classpath, as done by the
+ * {@link org.jusoft.aws.sqs.validation.rule.ClassLoaderRulesProvider}, with the {@link ServiceLoaderRulesProvider},
+ * both creating a new provider as done when starting the dispatcher and reusing the rules already instantiated.
+ * Benchmarks are not run by the build. Run the main method from the IDE, or {@code org.openjdk.jmh.Main} with the test
+ * classpath after {@code mvn -Pbenchmarks test-compile}.
+ *
+ * @author Juan Manuel Carnicero Vega
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesDiscoveryBenchmark {
+
+  private ServiceLoaderRulesProvider cachedProvider;
+
+  @Setup
+  public void setUp() {
+    cachedProvider = new ServiceLoaderRulesProvider();
+    cachedProvider.find();
+  }
+
+  /**
+   * Fully qualified as importing the deprecated provider warns on Java 8 even when the usage is suppressed.
+   */
+  @Benchmark
+  @SuppressWarnings("deprecation")
+  public Set<ValidationRule> classpathScanning() {
+    return new org.jusoft.aws.sqs.validation.rule.ClassLoaderRulesProvider().find();
+  }
+
+  @Benchmark
+  public Set<ValidationRule> serviceLoader() {
+    return new ServiceLoaderRulesProvider().find();
+  }
+
+  @Benchmark
+  public Set<ValidationRule> cachedServiceLoader() {
+    return cachedProvider.find();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(RulesDiscoveryBenchmark.class.getSimpleName())
+      .build())
+      .run();
+  }
+}
@@ -0,0 +1,71 @@
+package org.jusoft.aws.sqs.binding;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.fixture.TestFixtures.MultipleParametersMethodClass;
+import org.jusoft.aws.sqs.fixture.TestFixtures.TestDto;
+import org.jusoft.aws.sqs.mapper.MessageMapper;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.ATTRIBUTE_VALUE_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.ATTRIBUTE_VALUE_2;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_BODY_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_DTO_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_RESULT;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConsumerBindingsRegistryTest {
+
+  @Mock
+  private MessageMapper messageMapper;
+
+  @Test
+  public void whenConsumerClassIsCompiledThenItsBindingsShouldBeRegistered() {
+    ConsumerBindingsRegistry registry = ConsumerBindingsRegistry.getDefault();
+
+    assertThat(registry.isBound(MultipleParametersMethodClass.class)).isTrue();
+    assertThat(registry.isBound(NotAccessibleConsumer.class)).isFalse();
+  }
+
+  @Test
+  public void whenConsumerIsBoundThenGeneratedBindingsShouldBindAndInvokeItsMethod() throws Throwable {
+    when(messageMapper.deserialize(MESSAGE_BODY_1, TestDto.class)).thenReturn(MESSAGE_DTO_1);
+    MultipleParametersMethodClass consumerInstance = new MultipleParametersMethodClass();
+
+    List<QueueConsumer> consumers = ConsumerBindingsRegistry.getDefault().bind(consumerInstance);
+
+    assertThat(consumers).containsExactly(QueueConsumer.of(consumerInstance, consumerInstance.getMethod()));
+    QueueConsumer consumer = consumers.get(0);
+    Object[] parameters = consumer.getParametersBinder().bind(RECEIVE_MESSAGE_RESULT, messageMapper);
+    assertThat(parameters).containsExactly(MESSAGE_DTO_1, ATTRIBUTE_VALUE_1, ATTRIBUTE_VALUE_2);
+    consumer.getInvoker().invoke(parameters);
+    assertThat(consumerInstance).hasFieldOrPropertyWithValue("testValue", MESSAGE_DTO_1);
+    assertThat(consumerInstance).hasFieldOrPropertyWithValue("attributeTwo", ATTRIBUTE_VALUE_2);
+  }
+
+  @Test
+  public void whenConsumerIsNotBoundThenRegistryShouldFailToBindIt() {
+    ConsumerBindingsRegistry registry = new ConsumerBindingsRegistry(emptyList());
+
+    assertThatThrownBy(() -> registry.bind(new MultipleParametersMethodClass()))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static class NotAccessibleConsumer {
+
+    @SqsConsumer(QUEUE_NAME)
+    public void testConsumer(TestDto testDto) {
+
+    }
+  }
+}
@@ -0,0 +1,240 @@
+package org.jusoft.aws.sqs.delete;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.Message;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncBatchMessageDeleterTest {
+
+  private static final long LONG_FLUSH_DELAY_IN_MILLIS = 60_000;
+  private static final long SHORT_FLUSH_DELAY_IN_MILLIS = 50;
+  private static final long VERIFY_TIMEOUT_IN_MILLIS = 2_000;
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long RETRY_DELAY_IN_MILLIS = 500;
+  private static final String VISIBILITY_TIMEOUT = "VisibilityTimeout";
+
+  @Mock
+  private AmazonSQS amazonSQS;
+
+  private AsyncBatchMessageDeleter messageDeleter;
+
+  @After
+  public void tearDown() {
+    if (messageDeleter != null) {
+      messageDeleter.close();
+    }
+  }
+
+  @Test
+  public void whenBatchIsFullThenItShouldBeSentWithoutWaitingForTheFlushDelay() {
+    givenVisibilityTimeoutInSeconds("3600");
+    givenAllEntriesAreDeleted();
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, LONG_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+
+    messageDeleter.delete(QUEUE_URL, messages(10));
+
+    verify(amazonSQS, timeout(VERIFY_TIMEOUT_IN_MILLIS)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    assertThat(messageDeleter.getPendingDeletes(QUEUE_URL)).isZero();
+  }
+
+  @Test
+  public void whenBatchIsNotFullThenItShouldBeSentOnceTheFlushDelayElapses() {
+    givenVisibilityTimeoutInSeconds("3600");
+    givenAllEntriesAreDeleted();
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, SHORT_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+
+    messageDeleter.delete(QUEUE_URL, messages(1));
+
+    assertThat(messageDeleter.getPendingDeletes(QUEUE_URL)).isEqualTo(1);
+    verify(amazonSQS, timeout(VERIFY_TIMEOUT_IN_MILLIS)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+  }
+
+  @Test
+  public void whenDeletesFromSeveralCallsArePendingThenTheyShouldBeCoalescedInBatchesOfTen() {
+    givenVisibilityTimeoutInSeconds("3600");
+    givenAllEntriesAreDeleted();
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, LONG_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+
+    IntStream.range(0, 25).forEach(index -> messageDeleter.delete(QUEUE_URL, messages(1)));
+    messageDeleter.close();
+
+    ArgumentCaptor<DeleteMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+    verify(amazonSQS, times(3)).deleteMessageBatch(requestCaptor.capture());
+    assertThat(requestCaptor.getAllValues())
+      .extracting(request -> request.getEntries().size())
+      .containsExactlyInAnyOrder(10, 10, 5);
+  }
+
+  @Test
+  public void whenVisibilityTimeoutIsShortThenFlushDelayShouldBeCappedByIt() {
+    givenVisibilityTimeoutInSeconds("1");
+    givenAllEntriesAreDeleted();
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, LONG_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+
+    messageDeleter.delete(QUEUE_URL, messages(1));
+
+    verify(amazonSQS, timeout(VERIFY_TIMEOUT_IN_MILLIS)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+  }
+
+  @Test
+  public void whenVisibilityTimeoutCannotBeRetrievedThenMaximumFlushDelayShouldBeUsed() {
+    when(amazonSQS.getQueueAttributes(eq(QUEUE_URL), anyList())).thenThrow(new RuntimeException());
+    givenAllEntriesAreDeleted();
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, SHORT_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+
+    messageDeleter.delete(QUEUE_URL, messages(1));
+
+    verify(amazonSQS, timeout(VERIFY_TIMEOUT_IN_MILLIS)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+  }
+
+  @Test
+  public void whenEntryFailsOnTheServerSideThenItShouldBeRetriedAlone() {
+    givenVisibilityTimeoutInSeconds("3600");
+    when(amazonSQS.deleteMessageBatch(any(DeleteMessageBatchRequest.class)))
+      .thenReturn(new DeleteMessageBatchResult().withFailed(failedEntry("1", false)))
+      .thenReturn(new DeleteMessageBatchResult());
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, LONG_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+    List<Message> messages = messages(2);
+
+    messageDeleter.delete(QUEUE_URL, messages);
+    messageDeleter.close();
+
+    ArgumentCaptor<DeleteMessageBatchRequest> requestCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+    verify(amazonSQS, times(2)).deleteMessageBatch(requestCaptor.capture());
+    DeleteMessageBatchRequest retryRequest = requestCaptor.getAllValues().get(1);
+    assertThat(retryRequest.getEntries()).hasSize(1);
+    assertThat(retryRequest.getEntries().get(0).getReceiptHandle()).isEqualTo(messages.get(1).getReceiptHandle());
+  }
+
+  @Test
+  public void whenEntryFailsBecauseOfTheRequestThenItShouldNotBeRetried() {
+    givenVisibilityTimeoutInSeconds("3600");
+    when(amazonSQS.deleteMessageBatch(any(DeleteMessageBatchRequest.class)))
+      .thenReturn(new DeleteMessageBatchResult().withFailed(failedEntry("0", true)));
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, LONG_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+
+    messageDeleter.delete(QUEUE_URL, messages(1));
+    messageDeleter.close();
+
+    verify(amazonSQS, times(1)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+  }
+
+  @Test
+  public void whenRequestKeepsFailingThenItShouldBeRetriedUpToTheMaximumAttempts() {
+    givenVisibilityTimeoutInSeconds("3600");
+    when(amazonSQS.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenThrow(new RuntimeException());
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, LONG_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+
+    messageDeleter.delete(QUEUE_URL, messages(1));
+    messageDeleter.close();
+
+    verify(amazonSQS, times(MAX_ATTEMPTS)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+  }
+
+  @Test
+  public void whenRequestFailsThenItShouldBeRetriedOnceTheRetryDelayElapses() {
+    givenVisibilityTimeoutInSeconds("3600");
+    when(amazonSQS.deleteMessageBatch(any(DeleteMessageBatchRequest.class)))
+      .thenThrow(new RuntimeException())
+      .thenReturn(new DeleteMessageBatchResult());
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, LONG_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS,
+      RETRY_DELAY_IN_MILLIS, 1);
+
+    messageDeleter.delete(QUEUE_URL, messages(10));
+
+    verify(amazonSQS, after(RETRY_DELAY_IN_MILLIS / 2).times(1))
+      .deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    verify(amazonSQS, timeout(VERIFY_TIMEOUT_IN_MILLIS).times(2))
+      .deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+  }
+
+  @Test
+  public void whenDeleterIsClosedThenLaterDeletesShouldBeSentFromTheCallingThread() {
+    givenVisibilityTimeoutInSeconds("3600");
+    givenAllEntriesAreDeleted();
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, LONG_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+    messageDeleter.delete(QUEUE_URL, messages(1));
+    messageDeleter.close();
+
+    messageDeleter.delete(QUEUE_URL, messages(11));
+
+    verify(amazonSQS, times(3)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    assertThat(messageDeleter.getPendingDeletes(QUEUE_URL)).isZero();
+  }
+
+  @Test
+  public void whenDeleterIsClosedThenPendingEntriesShouldBeSentImmediately() {
+    givenVisibilityTimeoutInSeconds("3600");
+    givenAllEntriesAreDeleted();
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, LONG_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+    messageDeleter.delete(QUEUE_URL, messages(3));
+    verify(amazonSQS, after(100).never()).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+
+    messageDeleter.close();
+
+    verify(amazonSQS).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    assertThat(messageDeleter.getPendingDeletes(QUEUE_URL)).isZero();
+  }
+
+  @Test
+  public void whenThereAreNoMessagesThenNothingShouldBeSent() {
+    messageDeleter = new AsyncBatchMessageDeleter(amazonSQS, SHORT_FLUSH_DELAY_IN_MILLIS, MAX_ATTEMPTS, 1);
+
+    messageDeleter.delete(QUEUE_URL, messages(0));
+    messageDeleter.close();
+
+    verify(amazonSQS, never()).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+  }
+
+  private void givenVisibilityTimeoutInSeconds(String visibilityTimeout) {
+    when(amazonSQS.getQueueAttributes(QUEUE_URL, singletonList(VISIBILITY_TIMEOUT)))
+      .thenReturn(new GetQueueAttributesResult().addAttributesEntry(VISIBILITY_TIMEOUT, visibilityTimeout));
+  }
+
+  private void givenAllEntriesAreDeleted() {
+    when(amazonSQS.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenAnswer(invocation -> {
+      DeleteMessageBatchRequest request = invocation.getArgument(0);
+      return new DeleteMessageBatchResult().withSuccessful(request.getEntries().stream()
+        .map(entry -> new DeleteMessageBatchResultEntry().withId(entry.getId()))
+        .collect(toList()));
+    });
+  }
+
+  private static BatchResultErrorEntry failedEntry(String id, boolean isSenderFault) {
+    return new BatchResultErrorEntry().withId(id).withCode("errorCode").withSenderFault(isSenderFault);
+  }
+
+  private static List<Message> messages(int size) {
+    return IntStream.range(0, size)
+      .mapToObj(index -> new Message().withMessageId("messageId" + index).withReceiptHandle("receiptHandle" + index))
+      .collect(toList());
+  }
+}
@@ -0,0 +1,42 @@
+package org.jusoft.aws.sqs.delete;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static java.util.Collections.emptyList;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.DELETE_MESSAGE_BATCH_REQUEST;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_RESULT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncMessageDeleterTest {
+
+  @Mock
+  private AmazonSQSAsync amazonSQSAsync;
+
+  @InjectMocks
+  private AsyncMessageDeleter messageDeleter;
+
+  @Test
+  public void whenDeleteMessagesThenTheyShouldBeDeletedInASingleAsyncBatch() {
+    messageDeleter.delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT.getMessages());
+
+    verify(amazonSQSAsync).deleteMessageBatchAsync(eq(DELETE_MESSAGE_BATCH_REQUEST), any(AsyncHandler.class));
+  }
+
+  @Test
+  public void whenThereAreNoMessagesThenNothingShouldBeDeleted() {
+    messageDeleter.delete(QUEUE_URL, emptyList());
+
+    verifyZeroInteractions(amazonSQSAsync);
+  }
+}
@@ -0,0 +1,45 @@
+package org.jusoft.aws.sqs.delete;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.jusoft.aws.sqs.fixture.TestFixtures.DELETE_MESSAGE_BATCH_REQUEST;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.DELETE_MESSAGE_BATCH_RESULT;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.DELETE_MESSAGE_BATCH_WITH_ERROR_RESULT;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_RESULT;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SyncMessageDeleterTest {
+
+  @Mock
+  private AmazonSQS amazonSQS;
+
+  @InjectMocks
+  private SyncMessageDeleter messageDeleter;
+
+  @Test
+  public void whenDeleteMessagesThenTheyShouldBeDeletedInASingleBatch() {
+    when(amazonSQS.deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST)).thenReturn(DELETE_MESSAGE_BATCH_RESULT);
+
+    messageDeleter.delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT.getMessages());
+
+    verify(amazonSQS).deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST);
+  }
+
+  @Test
+  public void whenThereIsAnErrorWhileDeletingMessagesFromSqsThenFailedMessagesShouldBeLogged() {
+    when(amazonSQS.deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST)).thenReturn(DELETE_MESSAGE_BATCH_WITH_ERROR_RESULT);
+
+    messageDeleter.delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT.getMessages());
+
+    verify(amazonSQS).deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST);
+    //FIXME add a test appender to verify logs
+  }
+}
@@ -0,0 +1,125 @@
+package org.jusoft.aws.sqs.executor;
+
+import org.junit.After;
+import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static java.util.Collections.singletonMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BulkheadExecutorFactoryTest {
+
+  private BulkheadExecutors executor;
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void whenExecutorIsCreatedThenEachQueueShouldGetItsOwnPoolSizedByItsLoops() throws NoSuchMethodException {
+    executor = new BulkheadExecutorFactory().createQueueExecutorsFor(getAnnotations());
+
+    assertThat(executor.getBulkheads()).containsOnlyKeys("test", "test2");
+    assertThat(executor.getBulkheads().get("test").getPoolSize()).isEqualTo(2);
+    assertThat(executor.getBulkheads().get("test2").getPoolSize()).isEqualTo(6);
+    assertThat(executor.forQueue("test")).isNotSameAs(executor.forQueue("test2"));
+  }
+
+  @Test
+  public void whenPoolSizeIsOverriddenForQueueThenItsBulkheadShouldUseIt() throws NoSuchMethodException {
+    executor = new BulkheadExecutorFactory(singletonMap("test2", 3), Bulkhead.UNBOUNDED_QUEUE_CAPACITY)
+      .createQueueExecutorsFor(getAnnotations());
+
+    assertThat(executor.getBulkheads().get("test").getPoolSize()).isEqualTo(2);
+    assertThat(((ThreadPoolExecutor) executor.forQueue("test2")).getMaximumPoolSize()).isEqualTo(3);
+  }
+
+  @Test
+  public void whenBulkheadIsFullThenTasksShouldBeRejectedAndCounted() throws Exception {
+    executor = new BulkheadExecutorFactory(singletonMap("test", 1), 1).createQueueExecutorsFor(getAnnotations());
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService queueExecutor = executor.forQueue("test");
+    queueExecutor.submit(() -> {
+      started.countDown();
+      release.await();
+      return null;
+    });
+    assertThat(started.await(5, SECONDS)).isTrue();
+    queueExecutor.submit(() -> {
+    });
+
+    assertThatThrownBy(() -> queueExecutor.submit(() -> {
+    })).isInstanceOf(RejectedExecutionException.class);
+
+    Bulkhead bulkhead = executor.getBulkheads().get("test");
+    assertThat(bulkhead.getActiveCount()).isEqualTo(1);
+    assertThat(bulkhead.getQueueDepth()).isEqualTo(1);
+    assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+    assertThat(executor.getBulkheads().get("test2").getRejectedCount()).isZero();
+    release.countDown();
+  }
+
+  @Test
+  public void whenExecutorIsShutdownThenAllBulkheadsShouldTerminate() throws Exception {
+    executor = new BulkheadExecutorFactory().createQueueExecutorsFor(getAnnotations());
+    Thread[] thread = new Thread[1];
+    executor.forQueue("test").submit(() -> thread[0] = Thread.currentThread()).get();
+
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(5, SECONDS)).isTrue();
+    assertThat(executor.isTerminated()).isTrue();
+    assertThat(thread[0].getName()).isEqualTo("sqs-bulkhead-test-1");
+  }
+
+  @Test
+  public void whenQueueHasNoBulkheadThenItsExecutorShouldNotBeFound() throws NoSuchMethodException {
+    executor = new BulkheadExecutorFactory().createQueueExecutorsFor(getAnnotations());
+
+    assertThatThrownBy(() -> executor.forQueue("unknown")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void whenSingleExecutorIsCreatedThenItShouldRunTasksWithAsManyThreadsAsAllBulkheads() throws Exception {
+    ExecutorService sharedExecutor = new BulkheadExecutorFactory(singletonMap("test2", 3),
+      Bulkhead.UNBOUNDED_QUEUE_CAPACITY).createFor(getAnnotations());
+    try {
+      assertThat(((ThreadPoolExecutor) sharedExecutor).getMaximumPoolSize()).isEqualTo(5);
+      assertThat(sharedExecutor.submit(() -> "done").get(5, SECONDS)).isEqualTo("done");
+    } finally {
+      sharedExecutor.shutdownNow();
+    }
+  }
+
+  private List<SqsConsumer> getAnnotations() throws NoSuchMethodException {
+    return Arrays.asList(
+      TestClass.class.getMethod("test").getAnnotation(SqsConsumer.class),
+      TestClass.class.getMethod("test2").getAnnotation(SqsConsumer.class));
+  }
+
+  private static class TestClass {
+
+    @SqsConsumer(value = "test", concurrentConsumers = 2)
+    public void test() {
+
+    }
+
+    @SqsConsumer(value = "test2", concurrentConsumers = 2, workers = 4)
+    public void test2() {
+
+    }
+  }
+}
@@ -30,6 +30,16 @@ public class FixedExecutorFactoryTest {
     assertThat(executor.getCorePoolSize()).isEqualTo(8);
   }
 
+  @Test
+  public void shouldAddWorkersOfPipelineConsumersToTheNumberOfThreads() throws NoSuchMethodException {
+    QueueConsumer queueConsumer = QueueConsumer.of(new TestClassTwo(), TestClassTwo.class.getMethod("test4"));
+    QueueConsumer otherQueueConsumer = QueueConsumer.of(new TestClassTwo(), TestClassTwo.class.getMethod("test3"));
+    List<SqsConsumer> annotations = Arrays.asList(queueConsumer.getAnnotation(), otherQueueConsumer.getAnnotation());
+
+    ThreadPoolExecutor executor = (ThreadPoolExecutor) sqsFixedExecutorFactory.createFor(annotations);
+    assertThat(executor.getCorePoolSize()).isEqualTo(11);
+  }
+
   private static class TestClassOne {
 
     @SqsConsumer(value = "test", concurrentConsumers = 2)
@@ -49,5 +59,10 @@ public class FixedExecutorFactoryTest {
     public void test3() {
 
     }
+
+    @SqsConsumer(value = "test4", concurrentConsumers = 2, workers = 4)
+    public void test4() {
+
+    }
   }
 }
@@ -0,0 +1,86 @@
+package org.jusoft.aws.sqs.executor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VirtualThreadExecutorFactoryTest {
+
+  private static final List<SqsConsumer> CONSUMER_PROPERTIES = emptyList();
+  private static final int LOOPS = 20;
+
+  @Mock
+  private ExecutorFactory fallbackExecutorFactory;
+  @Mock
+  private ExecutorService fallbackExecutor;
+
+  @Test
+  public void whenVirtualThreadsAreNotSupportedThenFallbackExecutorShouldBeCreated() {
+    VirtualThreadExecutorFactory factory = new VirtualThreadExecutorFactory(null, fallbackExecutorFactory);
+    when(fallbackExecutorFactory.createFor(CONSUMER_PROPERTIES)).thenReturn(fallbackExecutor);
+
+    ExecutorService executor = factory.createFor(CONSUMER_PROPERTIES);
+
+    assertThat(factory.isVirtualThreadSupported()).isFalse();
+    assertThat(executor).isSameAs(fallbackExecutor);
+  }
+
+  @Test
+  public void whenVirtualThreadsAreSupportedThenEveryLoopShouldRunInItsOwnVirtualThread() throws InterruptedException {
+    AtomicInteger threadsCreated = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      threadsCreated.incrementAndGet();
+      return Executors.defaultThreadFactory().newThread(runnable);
+    };
+    VirtualThreadExecutorFactory factory = new VirtualThreadExecutorFactory(threadFactory, fallbackExecutorFactory);
+    CountDownLatch loopsStarted = new CountDownLatch(LOOPS);
+    CountDownLatch releaseLoops = new CountDownLatch(1);
+
+    ExecutorService executor = factory.createFor(CONSUMER_PROPERTIES);
+    for (int loop = 0; loop < LOOPS; loop++) {
+      executor.submit(() -> {
+        loopsStarted.countDown();
+        releaseLoops.await();
+        return null;
+      });
+    }
+
+    assertThat(loopsStarted.await(5, SECONDS)).isTrue();
+    assertThat(threadsCreated.get()).isEqualTo(LOOPS);
+    assertThat(((ThreadPoolExecutor) executor).getCorePoolSize()).isZero();
+    releaseLoops.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(5, SECONDS)).isTrue();
+    verifyZeroInteractions(fallbackExecutorFactory);
+  }
+
+  @Test
+  public void whenRunningOnTheCurrentJvmThenSupportShouldMatchTheAvailabilityOfVirtualThreads() {
+    boolean isVirtualThreadAvailable;
+    try {
+      Thread.class.getMethod("ofVirtual");
+      isVirtualThreadAvailable = true;
+    } catch (NoSuchMethodException e) {
+      isVirtualThreadAvailable = false;
+    }
+
+    assertThat(new VirtualThreadExecutorFactory().isVirtualThreadSupported()).isEqualTo(isVirtualThreadAvailable);
+  }
+}
@@ -0,0 +1,109 @@
+package org.jusoft.aws.sqs.fixture;
+
+import com.amazonaws.services.sqs.AbstractAmazonSQS;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
+
+/**
+ * In memory {@link com.amazonaws.services.sqs.AmazonSQS} that simulates the latency of a receive call and returns as many
+ * messages as requested, recording the number of calls received and how many of them were in flight at the same time.
+ */
+public class StubAmazonSQS extends AbstractAmazonSQS {
+
+  private final long receiveLatencyInMillis;
+  private final String messageBody;
+
+  private final AtomicLong receiveCalls = new AtomicLong();
+  private final AtomicLong deleteBatchCalls = new AtomicLong();
+  private final AtomicLong deletedMessages = new AtomicLong();
+  private final AtomicLong releasedMessages = new AtomicLong();
+  private final AtomicInteger receivesInFlight = new AtomicInteger();
+  private final AtomicInteger maxReceivesInFlight = new AtomicInteger();
+
+  public StubAmazonSQS(long receiveLatencyInMillis, String messageBody) {
+    this.receiveLatencyInMillis = receiveLatencyInMillis;
+    this.messageBody = messageBody;
+  }
+
+  @Override
+  public GetQueueUrlResult getQueueUrl(String queueName) {
+    return new GetQueueUrlResult().withQueueUrl(QUEUE_URL);
+  }
+
+  @Override
+  public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+    receiveCalls.incrementAndGet();
+    maxReceivesInFlight.accumulateAndGet(receivesInFlight.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(receiveLatencyInMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      receivesInFlight.decrementAndGet();
+    }
+    return new ReceiveMessageResult().withMessages(createMessages(request.getMaxNumberOfMessages()));
+  }
+
+  private List<Message> createMessages(Integer numberOfMessages) {
+    List<Message> messages = new ArrayList<>();
+    for (int index = 0; index < (numberOfMessages == null ? 1 : numberOfMessages); index++) {
+      String messageId = UUID.randomUUID().toString();
+      messages.add(new Message()
+        .withMessageId(messageId)
+        .withReceiptHandle(messageId)
+        .withBody(messageBody));
+    }
+    return messages;
+  }
+
+  @Override
+  public DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest request) {
+    deleteBatchCalls.incrementAndGet();
+    deletedMessages.addAndGet(request.getEntries().size());
+    return new DeleteMessageBatchResult().withSuccessful(request.getEntries().stream()
+      .map(entry -> new DeleteMessageBatchResultEntry().withId(entry.getId()))
+      .collect(toList()));
+  }
+
+  @Override
+  public ChangeMessageVisibilityBatchResult changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest request) {
+    releasedMessages.addAndGet(request.getEntries().size());
+    return new ChangeMessageVisibilityBatchResult();
+  }
+
+  public long getReceiveCalls() {
+    return receiveCalls.get();
+  }
+
+  public long getDeleteBatchCalls() {
+    return deleteBatchCalls.get();
+  }
+
+  public long getDeletedMessages() {
+    return deletedMessages.get();
+  }
+
+  public long getReleasedMessages() {
+    return releasedMessages.get();
+  }
+
+  public int getMaxReceivesInFlight() {
+    return maxReceivesInFlight.get();
+  }
+}
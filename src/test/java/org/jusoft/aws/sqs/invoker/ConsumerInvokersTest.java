@@ -0,0 +1,93 @@
+package org.jusoft.aws.sqs.invoker;
+
+import org.junit.Test;
+import org.jusoft.aws.sqs.fixture.TestFixtures.MultipleParametersMethodClass;
+import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterExceptionMethodClass;
+import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterMethodClass;
+
+import java.lang.reflect.Method;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.ATTRIBUTE_VALUE_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.ATTRIBUTE_VALUE_2;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_DTO_1;
+
+public class ConsumerInvokersTest {
+
+  @Test
+  public void whenSingleParameterConsumerIsCompiledThenLambdaInvokerShouldBeUsed() throws Throwable {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+
+    ConsumerInvoker invoker = ConsumerInvokers.compile(consumerInstance, consumerInstance.getMethod());
+    Object returned = invoker.invoke(new Object[]{MESSAGE_DTO_1});
+
+    assertThat(invoker.getClass().getSimpleName()).isEqualTo("VoidLambdaConsumerInvoker");
+    assertThat(returned).isNull();
+    assertThat(consumerInstance.testValue).isEqualTo(MESSAGE_DTO_1);
+  }
+
+  @Test
+  public void whenConsumerReturnsValueThenInvokerShouldReturnIt() throws Throwable {
+    ReturningConsumer consumerInstance = new ReturningConsumer();
+    Method method = ReturningConsumer.class.getMethod("testConsumer", String.class);
+
+    ConsumerInvoker invoker = ConsumerInvokers.compile(consumerInstance, method);
+
+    assertThat(invoker.invoke(new Object[]{"value"})).isEqualTo("value-consumed");
+  }
+
+  @Test
+  public void whenMultipleParametersConsumerIsCompiledThenMethodHandleInvokerShouldBeUsed() throws Throwable {
+    MultipleParametersMethodClass consumerInstance = new MultipleParametersMethodClass();
+
+    ConsumerInvoker invoker = ConsumerInvokers.compile(consumerInstance, consumerInstance.getMethod());
+    invoker.invoke(new Object[]{MESSAGE_DTO_1, ATTRIBUTE_VALUE_1, ATTRIBUTE_VALUE_2});
+
+    assertThat(invoker.getClass().getSimpleName()).isEqualTo("MethodHandleConsumerInvoker");
+  }
+
+  @Test
+  public void whenConsumerClassIsNotPublicThenMethodHandleInvokerShouldBeUsed() throws Throwable {
+    NonPublicConsumer consumerInstance = new NonPublicConsumer();
+    Method method = NonPublicConsumer.class.getMethod("testConsumer", String.class);
+
+    ConsumerInvoker invoker = ConsumerInvokers.compile(consumerInstance, method);
+    invoker.invoke(new Object[]{"value"});
+
+    assertThat(invoker.getClass().getSimpleName()).isEqualTo("MethodHandleConsumerInvoker");
+    assertThat(consumerInstance.value).isEqualTo("value");
+  }
+
+  @Test
+  public void whenConsumerThrowsExceptionThenInvokerShouldThrowItUnwrapped() throws Throwable {
+    SingleParameterExceptionMethodClass consumerInstance = new SingleParameterExceptionMethodClass();
+    ConsumerInvoker invoker = ConsumerInvokers.compile(consumerInstance, consumerInstance.getMethod());
+
+    assertThatThrownBy(() -> invoker.invoke(new Object[]{MESSAGE_DTO_1}))
+      .isExactlyInstanceOf(RuntimeException.class);
+  }
+
+  @Test
+  public void whenReflectiveInvokerIsUsedThenExceptionShouldBeThrownUnwrapped() throws Throwable {
+    SingleParameterExceptionMethodClass consumerInstance = new SingleParameterExceptionMethodClass();
+    ConsumerInvoker invoker = ConsumerInvokers.reflectiveInvoker(consumerInstance, consumerInstance.getMethod());
+
+    assertThatThrownBy(() -> invoker.invoke(new Object[]{MESSAGE_DTO_1}))
+      .isExactlyInstanceOf(RuntimeException.class);
+  }
+
+  public static class ReturningConsumer {
+    public String testConsumer(String value) {
+      return value + "-consumed";
+    }
+  }
+
+  static class NonPublicConsumer {
+    private String value;
+
+    public void testConsumer(String value) {
+      this.value = value;
+    }
+  }
+}
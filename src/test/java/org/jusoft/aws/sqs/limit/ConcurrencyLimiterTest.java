@@ -0,0 +1,134 @@
+package org.jusoft.aws.sqs.limit;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimiterTest {
+
+  private static final long LATENCY_THRESHOLD_IN_MILLIS = 100;
+  private static final long FAST = MILLISECONDS.toNanos(10);
+  private static final long SLOW = MILLISECONDS.toNanos(1000);
+
+  private final ConcurrencyLimiter concurrencyLimiter =
+    new ConcurrencyLimiter(new AimdLimitAlgorithm(LATENCY_THRESHOLD_IN_MILLIS, 0.5), 2, 1, 3);
+
+  @Test
+  public void whenLimitIsReachedThenLimiterShouldBeSaturatedUntilAnInvocationCompletes() throws InterruptedException {
+    concurrencyLimiter.acquire();
+    concurrencyLimiter.acquire();
+    CountDownLatch acquired = new CountDownLatch(1);
+    Thread waiting = new Thread(() -> {
+      try {
+        concurrencyLimiter.acquire();
+        acquired.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiting.start();
+
+    assertThat(concurrencyLimiter.isSaturated()).isTrue();
+    assertThat(acquired.await(50, MILLISECONDS)).isFalse();
+
+    concurrencyLimiter.release(SLOW, false);
+
+    assertThat(acquired.await(1, SECONDS)).isFalse();
+    assertThat(concurrencyLimiter.getLimit()).isEqualTo(1);
+
+    concurrencyLimiter.release(FAST, false);
+
+    assertThat(acquired.await(1, SECONDS)).isTrue();
+    assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenInvocationsAreFastThenLimitShouldGrowUpToMaximum() throws InterruptedException {
+    for (int invocation = 0; invocation < 5; invocation++) {
+      concurrencyLimiter.acquire();
+      concurrencyLimiter.acquire();
+      concurrencyLimiter.release(FAST, false);
+      concurrencyLimiter.release(FAST, false);
+    }
+
+    assertThat(concurrencyLimiter.getLimit()).isEqualTo(3);
+  }
+
+  @Test
+  public void whenInvocationFailsThenLimitShouldDecrease() throws InterruptedException {
+    concurrencyLimiter.acquire();
+
+    concurrencyLimiter.release(FAST, true);
+
+    assertThat(concurrencyLimiter.getLimit()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenInvocationsSlowDownThenGradientLimitShouldDecrease() throws InterruptedException {
+    ConcurrencyLimiter gradientLimiter = new ConcurrencyLimiter(new GradientLimitAlgorithm(), 20, 1, 100);
+    for (int invocation = 0; invocation < 50; invocation++) {
+      acquireAll(gradientLimiter, 20);
+      releaseAll(gradientLimiter, 20, FAST);
+    }
+    int limitWhileFast = gradientLimiter.getLimit();
+
+    for (int invocation = 0; invocation < 5; invocation++) {
+      acquireAll(gradientLimiter, gradientLimiter.getLimit());
+      releaseAll(gradientLimiter, gradientLimiter.getInFlight(), SLOW);
+    }
+
+    assertThat(limitWhileFast).isGreaterThan(20);
+    assertThat(gradientLimiter.getLimit()).isLessThan(limitWhileFast);
+  }
+
+  @Test
+  public void whenLimiterIsUnlimitedThenItShouldNeverBeSaturated() throws InterruptedException {
+    ConcurrencyLimiter unlimited = ConcurrencyLimiter.unlimited();
+
+    acquireAll(unlimited, 1000);
+
+    assertThat(unlimited.isSaturated()).isFalse();
+    assertThat(unlimited.getInFlight()).isEqualTo(1000);
+
+    releaseAll(unlimited, 1000, SLOW);
+
+    assertThat(unlimited.getInFlight()).isZero();
+    assertThat(unlimited.getLimit()).isEqualTo(ConcurrencyLimiter.UNLIMITED);
+  }
+
+  @Test
+  public void whenWaitingForAPermitIsInterruptedThenItShouldStopWaiting() throws InterruptedException {
+    concurrencyLimiter.acquire();
+    concurrencyLimiter.acquire();
+    CountDownLatch interrupted = new CountDownLatch(1);
+    Thread waiting = new Thread(() -> {
+      try {
+        concurrencyLimiter.acquire();
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    waiting.start();
+
+    waiting.interrupt();
+
+    assertThat(interrupted.await(1, SECONDS)).isTrue();
+    assertThat(concurrencyLimiter.getInFlight()).isEqualTo(2);
+  }
+
+  private void acquireAll(ConcurrencyLimiter limiter, int invocations) throws InterruptedException {
+    for (int invocation = 0; invocation < invocations; invocation++) {
+      limiter.acquire();
+    }
+  }
+
+  private void releaseAll(ConcurrencyLimiter limiter, int invocations, long latencyInNanos) {
+    for (int invocation = 0; invocation < invocations; invocation++) {
+      limiter.release(latencyInNanos, false);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package org.jusoft.aws.sqs.management;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.ConsumerDefinition;
+import org.jusoft.aws.sqs.SqsDispatcher;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.backoff.PollBackoff;
+import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterMethodClass;
+import org.jusoft.aws.sqs.service.ConsumerHandle;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import java.util.function.UnaryOperator;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SqsManagementTest {
+
+  @Mock
+  private SqsDispatcher dispatcher;
+
+  private final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+  private ConsumerHandle consumerHandle;
+  private ConsumerDefinition definition;
+  private SqsManagement sqsManagement;
+  private SqsConsumerMXBean consumerMXBean;
+
+  @Before
+  public void setUp() throws NoSuchMethodException {
+    consumerHandle = ConsumerHandle.of(QUEUE_NAME);
+    consumerHandle.addPoller(0);
+    consumerHandle.addPoller(1);
+    definition = ConsumerDefinition.of(new SingleParameterMethodClass().getMethod().getAnnotation(SqsConsumer.class));
+    when(dispatcher.getConsumerHandles()).thenReturn(singletonList(consumerHandle));
+    sqsManagement = new SqsManagement(dispatcher, mBeanServer);
+    consumerMXBean = JMX.newMXBeanProxy(mBeanServer, SqsManagement.objectNameFor(QUEUE_NAME), SqsConsumerMXBean.class);
+  }
+
+  @After
+  public void tearDown() {
+    sqsManagement.close();
+  }
+
+  @Test
+  public void whenManagementIsCreatedThenEveryConsumerShouldBeRegisteredWithItsLiveValues() {
+    when(dispatcher.getDefinition(QUEUE_NAME)).thenReturn(definition);
+    when(dispatcher.getPollBackoffs()).thenReturn(emptyMap());
+
+    assertThat(sqsManagement.getObjectNames()).containsExactly(SqsManagement.objectNameFor(QUEUE_NAME));
+    assertThat(consumerMXBean.getQueueName()).isEqualTo(QUEUE_NAME);
+    assertThat(consumerMXBean.getState()).isEqualTo(ConsumerHandle.State.RUNNING.name());
+    assertThat(consumerMXBean.getPollers()).isEqualTo(2);
+    assertThat(consumerMXBean.getActivePollers()).isEqualTo(2);
+    assertThat(consumerMXBean.getMaxMessagesPerPoll()).isEqualTo(definition.maxMessagesPerPoll());
+    assertThat(consumerMXBean.getLongPolling()).isEqualTo(definition.longPolling());
+    assertThat(consumerMXBean.getConsecutiveErrors()).isZero();
+    assertThat(consumerMXBean.getCircuitState()).isEqualTo(PollBackoff.disabled().getCircuitState().name());
+  }
+
+  @Test
+  public void whenValuesAreChangedThenConsumerShouldBeRetuned() {
+    consumerMXBean.setMaxMessagesPerPoll(5);
+    consumerMXBean.setLongPolling(1);
+
+    assertThat(retunedDefinition().maxMessagesPerPoll()).isEqualTo(5);
+    assertThat(retunedDefinition().longPolling()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenConsumerIsPausedAndResumedThenOnlyItsConcurrentConsumersShouldReceiveMessages() {
+    when(dispatcher.getDefinition(QUEUE_NAME)).thenReturn(definition.withConcurrentConsumers(1));
+
+    consumerMXBean.setPaused(true);
+
+    assertThat(consumerMXBean.isPaused()).isTrue();
+    assertThat(consumerMXBean.getActivePollers()).isZero();
+
+    consumerMXBean.setPaused(false);
+
+    assertThat(consumerMXBean.isPaused()).isFalse();
+    assertThat(consumerMXBean.getActivePollers()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenManagementIsClosedThenConsumersShouldBeUnregistered() {
+    sqsManagement.close();
+
+    assertThat(mBeanServer.isRegistered(SqsManagement.objectNameFor(QUEUE_NAME))).isFalse();
+    assertThat(sqsManagement.getObjectNames()).isEmpty();
+  }
+
+  /**
+   * Applies the retunings passed to the dispatcher in order, as each of them retunes the current definition.
+   */
+  @SuppressWarnings("unchecked")
+  private ConsumerDefinition retunedDefinition() {
+    ArgumentCaptor<UnaryOperator<ConsumerDefinition>> retuning = ArgumentCaptor.forClass(UnaryOperator.class);
+    verify(dispatcher, atLeastOnce()).retune(eq(QUEUE_NAME), retuning.capture());
+    ConsumerDefinition retuned = definition;
+    for (UnaryOperator<ConsumerDefinition> value : retuning.getAllValues()) {
+      retuned = value.apply(retuned);
+    }
+    return retuned;
+  }
+}
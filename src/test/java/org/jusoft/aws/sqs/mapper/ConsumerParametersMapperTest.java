@@ -1,8 +1,10 @@
 package org.jusoft.aws.sqs.mapper;
 
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.QueueConsumer;
 import org.jusoft.aws.sqs.annotation.SqsAttribute;
 import org.jusoft.aws.sqs.annotation.SqsBody;
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
@@ -144,6 +146,48 @@ public class ConsumerParametersMapperTest {
     assertThat(deserializedParameters[2]).isNull();
   }
 
+  @Test
+  public void whenParameterIsTheReceiveMessageResultThenItShouldBeTheResultItself() throws NoSuchMethodException {
+    ReceiveMessageResultMethodClass object = new ReceiveMessageResultMethodClass();
+
+    Object[] deserializedParameters = mapper.createFrom(object.getMethod(), RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES);
+
+    assertThat(deserializedParameters).containsExactly(RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES);
+  }
+
+  @Test
+  public void whenParametersAreCreatedSeveralTimesThenEachCallShouldUseItsOwnMessages() throws NoSuchMethodException {
+    SingleListParameterMethodClass object = new SingleListParameterMethodClass();
+
+    Object[] firstParameters = mapper.createFrom(object.getMethod(), RECEIVE_MESSAGE_RESULT);
+    Object[] secondParameters = mapper.createFrom(object.getMethod(), RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES);
+
+    assertThat((List<?>) firstParameters[0]).containsExactly(MESSAGE_DTO_1);
+    assertThat((List<?>) secondParameters[0]).containsExactly(MESSAGE_DTO_1, MESSAGE_DTO_2);
+  }
+
+  @Test
+  public void whenConsumerHasGeneratedBinderThenItShouldBeUsedToCreateTheParameters() throws NoSuchMethodException {
+    SingleParameterMethodClass object = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(object, object.getMethod(), parameters -> null,
+      (result, messageMapper) -> new Object[] {result});
+
+    Object[] deserializedParameters = mapper.createFrom(queueConsumer, RECEIVE_MESSAGE_RESULT);
+
+    assertThat(deserializedParameters).containsExactly(RECEIVE_MESSAGE_RESULT);
+  }
+
+  public static class ReceiveMessageResultMethodClass {
+
+    @SqsConsumer(QUEUE_NAME)
+    public void testConsumer(ReceiveMessageResult result) {
+    }
+
+    public Method getMethod() throws NoSuchMethodException {
+      return getClass().getMethod("testConsumer", ReceiveMessageResult.class);
+    }
+  }
+
   private static class MultipleParametersMethodWithWrongParameterClass {
     private TestDto testValue;
     private String attributeOne;
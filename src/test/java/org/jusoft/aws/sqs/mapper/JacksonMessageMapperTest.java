@@ -1,15 +1,22 @@
 package org.jusoft.aws.sqs.mapper;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.fixture.TestFixtures.TestDto;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.io.IOException;
 
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_BODY_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_DTO_1;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -20,6 +27,8 @@ public class JacksonMessageMapperTest {
 
   @Mock
   private ObjectMapper objectMapper;
+  @Mock
+  private ObjectReader objectReader;
 
   private JacksonMessageMapper mapper;
 
@@ -34,19 +43,42 @@ public class JacksonMessageMapperTest {
   }
 
   @Test
-  public void whenDeserializeBodyThenObjectMapperShouldBeCalled() throws IOException {
+  public void whenDeserializeBodyThenObjectReaderOfTheTypeShouldBeCalled() throws IOException {
+    when(objectMapper.readerFor(Object.class)).thenReturn(objectReader);
+
+    mapper.deserialize(INSTANCE_BODY, Object.class);
+
+    verify(objectReader).readValue(INSTANCE_BODY);
+  }
+
+  @Test
+  public void whenDeserializeSeveralBodiesOfTheSameTypeThenObjectReaderShouldBeCreatedOnlyOnce() throws IOException {
+    when(objectMapper.readerFor(Object.class)).thenReturn(objectReader);
+
+    mapper.deserialize(INSTANCE_BODY, Object.class);
     mapper.deserialize(INSTANCE_BODY, Object.class);
 
-    verify(objectMapper).readValue(INSTANCE_BODY, Object.class);
+    verify(objectMapper).readerFor(Object.class);
+    verify(objectReader, times(2)).readValue(INSTANCE_BODY);
   }
 
   @Test
   public void whenDeserializeBodyThrowsExceptionThenExceptionThrownShouldContainIt() throws IOException {
     IOException exceptionThrown = new IOException();
-    when(objectMapper.readValue(INSTANCE_BODY, Object.class)).thenThrow(exceptionThrown);
+    when(objectMapper.readerFor(Object.class)).thenReturn(objectReader);
+    when(objectReader.readValue(INSTANCE_BODY)).thenThrow(exceptionThrown);
 
     assertThatThrownBy(() -> mapper.deserialize(INSTANCE_BODY, Object.class))
       .isInstanceOf(IllegalArgumentException.class)
       .hasCause(exceptionThrown);
   }
+
+  @Test
+  public void whenTypeIsAcceleratedThenBodyShouldBeDeserialized() {
+    JacksonMessageMapper acceleratedMapper = new JacksonMessageMapper(new ObjectMapper(), singletonList(TestDto.class));
+
+    TestDto deserialized = acceleratedMapper.deserialize(MESSAGE_BODY_1, TestDto.class);
+
+    assertThat(deserialized).isEqualTo(MESSAGE_DTO_1);
+  }
 }
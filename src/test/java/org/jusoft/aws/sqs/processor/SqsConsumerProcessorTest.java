@@ -0,0 +1,294 @@
+package org.jusoft.aws.sqs.processor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.processor.SqsConsumerProcessor.DEFAULT_NATIVE_IMAGE_DIRECTORY;
+import static org.jusoft.aws.sqs.processor.SqsConsumerProcessor.NATIVE_IMAGE_DIRECTORY_OPTION;
+import static org.jusoft.aws.sqs.processor.SqsConsumerProcessor.SERVICES_FILE;
+
+public class SqsConsumerProcessorTest {
+
+  private static final JavaFileObject DTO = source("sample.Dto",
+    "package sample;",
+    "public class Dto { public String value; }");
+  private static final JavaFileObject CONSUMER = source("sample.Consumer",
+    "package sample;",
+    "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+    "public class Consumer {",
+    "  @SqsConsumer(\"queue\")",
+    "  public void consume(Dto dto) {}",
+    "}");
+  private static final JavaFileObject OTHER_CONSUMER = source("sample.OtherConsumer",
+    "package sample;",
+    "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+    "public class OtherConsumer {",
+    "  @SqsConsumer(\"other-queue\")",
+    "  public void consume(Dto dto) {}",
+    "}");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File classes;
+  private File generatedSources;
+
+  @Before
+  public void setUp() throws IOException {
+    classes = temporaryFolder.newFolder("classes");
+    generatedSources = temporaryFolder.newFolder("generated-sources");
+  }
+
+  @Test
+  public void whenConsumerClassIsBindableThenBindingsShouldBeGeneratedAndRegistered() throws IOException {
+    assertThat(compile(emptyList(), DTO, CONSUMER)).isEmpty();
+
+    assertThat(readGeneratedSource("sample.Consumer_SqsConsumerBindings"))
+      .contains("consumer.consume((sample.Dto) parameters[0]); return null;")
+      .contains("org.jusoft.aws.sqs.mapper.MessageParameters.body(result, messageMapper, sample.Dto.class)");
+    assertThat(readServices()).containsExactly("sample.Consumer_SqsConsumerBindings");
+    assertThat(readReflectionConfig(DEFAULT_NATIVE_IMAGE_DIRECTORY))
+      .contains("{\"name\": \"sample.Consumer\"", "{\"name\": \"sample.Dto\"",
+        "{\"name\": \"sample.Consumer_SqsConsumerBindings\"");
+  }
+
+  @Test
+  public void whenConsumerIsNestedStaticClassThenBindingsShouldBeNamedAfterItsEnclosingClasses() throws IOException {
+    JavaFileObject outer = source("sample.Outer",
+      "package sample;",
+      "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+      "public class Outer {",
+      "  public static class Inner {",
+      "    @SqsConsumer(\"queue\")",
+      "    public void consume(Dto dto) {}",
+      "  }",
+      "}");
+
+    assertThat(compile(emptyList(), DTO, outer)).isEmpty();
+
+    assertThat(readGeneratedSource("sample.Outer_Inner_SqsConsumerBindings"))
+      .contains("return sample.Outer.Inner.class;");
+    assertThat(readServices()).containsExactly("sample.Outer_Inner_SqsConsumerBindings");
+    assertThat(readReflectionConfig(DEFAULT_NATIVE_IMAGE_DIRECTORY)).contains("{\"name\": \"sample.Outer$Inner\"");
+  }
+
+  @Test
+  public void whenConsumerMethodIsStaticThenItShouldBeCalledOnItsClass() throws IOException {
+    JavaFileObject consumer = source("sample.StaticConsumer",
+      "package sample;",
+      "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+      "public class StaticConsumer {",
+      "  @SqsConsumer(\"queue\")",
+      "  public static void consume(Dto dto) {}",
+      "}");
+
+    assertThat(compile(emptyList(), DTO, consumer)).isEmpty();
+
+    assertThat(readGeneratedSource("sample.StaticConsumer_SqsConsumerBindings"))
+      .contains("sample.StaticConsumer.consume((sample.Dto) parameters[0]); return null;");
+  }
+
+  @Test
+  public void whenConsumerReceivesListOfBodiesThenEveryBodyShouldBeMappedToTheElementType() throws IOException {
+    JavaFileObject consumer = source("sample.ListConsumer",
+      "package sample;",
+      "import java.util.List;",
+      "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+      "public class ListConsumer {",
+      "  @SqsConsumer(value = \"queue\", maxMessagesPerPoll = 10)",
+      "  public void consume(List<Dto> dtos) {}",
+      "}");
+
+    assertThat(compile(emptyList(), DTO, consumer)).isEmpty();
+
+    assertThat(readGeneratedSource("sample.ListConsumer_SqsConsumerBindings"))
+      .contains("consumer.consume((java.util.List<sample.Dto>) parameters[0]); return null;")
+      .contains("org.jusoft.aws.sqs.mapper.MessageParameters.bodies(result, messageMapper, sample.Dto.class)");
+  }
+
+  @Test
+  public void whenConsumerReturnsBatchResultThenItShouldBeReturnedByTheBinding() throws IOException {
+    JavaFileObject consumer = source("sample.BatchConsumer",
+      "package sample;",
+      "import java.util.List;",
+      "import org.jusoft.aws.sqs.BatchResult;",
+      "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+      "public class BatchConsumer {",
+      "  @SqsConsumer(value = \"queue\", maxMessagesPerPoll = 10)",
+      "  public BatchResult consume(List<Dto> dtos) { return BatchResult.success(); }",
+      "}");
+
+    assertThat(compile(emptyList(), DTO, consumer)).isEmpty();
+
+    assertThat(readGeneratedSource("sample.BatchConsumer_SqsConsumerBindings"))
+      .contains("{ return consumer.consume((java.util.List<sample.Dto>) parameters[0]); }");
+  }
+
+  @Test
+  public void whenConsumerClassIsNotBindableThenItShouldBeSkipped() throws IOException {
+    JavaFileObject privateNested = source("sample.PrivateOuter",
+      "package sample;",
+      "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+      "public class PrivateOuter {",
+      "  private static class Inner {",
+      "    @SqsConsumer(\"queue\")",
+      "    public void consume(Dto dto) {}",
+      "  }",
+      "}");
+    JavaFileObject generic = source("sample.GenericConsumer",
+      "package sample;",
+      "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+      "public class GenericConsumer<T> {",
+      "  @SqsConsumer(\"queue\")",
+      "  public void consume(Dto dto) {}",
+      "}");
+    JavaFileObject abstractConsumer = source("sample.AbstractConsumer",
+      "package sample;",
+      "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+      "public abstract class AbstractConsumer {",
+      "  @SqsConsumer(\"queue\")",
+      "  public void consume(Dto dto) {}",
+      "}");
+    JavaFileObject withoutParameters = source("sample.NoParametersConsumer",
+      "package sample;",
+      "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+      "public class NoParametersConsumer {",
+      "  @SqsConsumer(\"queue\")",
+      "  public void consume() {}",
+      "}");
+
+    assertThat(compile(emptyList(), DTO, privateNested, generic, abstractConsumer, withoutParameters)).isEmpty();
+
+    assertThat(generatedSources.list()).isEmpty();
+    assertThat(new File(classes, SERVICES_FILE)).doesNotExist();
+    assertThat(readReflectionConfig(DEFAULT_NATIVE_IMAGE_DIRECTORY))
+      .contains("{\"name\": \"sample.GenericConsumer\"")
+      .doesNotContain("_SqsConsumerBindings");
+  }
+
+  @Test
+  public void whenNativeImageDirectoryIsGivenThenReflectionConfigShouldBeWrittenInIt() throws IOException {
+    assertThat(compile(singletonList("-A" + NATIVE_IMAGE_DIRECTORY_OPTION + "=com.acme/orders"), DTO, CONSUMER))
+      .isEmpty();
+
+    assertThat(readReflectionConfig("com.acme/orders")).contains("{\"name\": \"sample.Consumer\"");
+    assertThat(reflectionConfigFileOf(DEFAULT_NATIVE_IMAGE_DIRECTORY)).doesNotExist();
+  }
+
+  @Test
+  public void whenNativeImageDirectoryIsNotRelativeThenCompilationShouldFail() {
+    List<Diagnostic<? extends JavaFileObject>> errors =
+      compile(singletonList("-A" + NATIVE_IMAGE_DIRECTORY_OPTION + "=../outside"), DTO, CONSUMER);
+
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0).getMessage(null)).contains("Invalid native-image directory");
+  }
+
+  @Test
+  public void whenOnlySomeConsumersAreCompiledAgainThenBindingsOfTheRestShouldBeKept() throws IOException {
+    assertThat(compile(emptyList(), DTO, CONSUMER)).isEmpty();
+
+    assertThat(compile(emptyList(), OTHER_CONSUMER)).isEmpty();
+
+    assertThat(readServices())
+      .containsExactlyInAnyOrder("sample.Consumer_SqsConsumerBindings", "sample.OtherConsumer_SqsConsumerBindings");
+    assertThat(readReflectionConfig(DEFAULT_NATIVE_IMAGE_DIRECTORY))
+      .contains("{\"name\": \"sample.Consumer\"", "{\"name\": \"sample.Consumer_SqsConsumerBindings\"",
+        "{\"name\": \"sample.OtherConsumer\"", "{\"name\": \"sample.OtherConsumer_SqsConsumerBindings\"");
+  }
+
+  @Test
+  public void whenConsumerIsNoLongerBindableThenItsPreviousBindingsShouldBeDropped() throws IOException {
+    assertThat(compile(emptyList(), DTO, CONSUMER, OTHER_CONSUMER)).isEmpty();
+    JavaFileObject unbindableConsumer = source("sample.Consumer",
+      "package sample;",
+      "import org.jusoft.aws.sqs.annotation.SqsConsumer;",
+      "public class Consumer {",
+      "  @SqsConsumer(\"queue\")",
+      "  public void consume() {}",
+      "}");
+
+    assertThat(compile(emptyList(), unbindableConsumer)).isEmpty();
+
+    assertThat(readServices()).containsExactly("sample.OtherConsumer_SqsConsumerBindings");
+    assertThat(readReflectionConfig(DEFAULT_NATIVE_IMAGE_DIRECTORY))
+      .contains("{\"name\": \"sample.Consumer\"")
+      .doesNotContain("{\"name\": \"sample.Consumer_SqsConsumerBindings\"");
+  }
+
+  /**
+   * Compiles the sources with the processor into the output folders, reusing the classes compiled before.
+   *
+   * @return the errors reported by the compilation.
+   */
+  private List<Diagnostic<? extends JavaFileObject>> compile(List<String> processorOptions,
+                                                            JavaFileObject... sources) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    List<String> options = new ArrayList<>(Arrays.asList(
+      "-classpath", classes.getPath() + File.pathSeparator + System.getProperty("java.class.path"),
+      "-d", classes.getPath(),
+      "-s", generatedSources.getPath()));
+    options.addAll(processorOptions);
+    JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null,
+      Arrays.asList(sources));
+    task.setProcessors(singletonList(new SqsConsumerProcessor()));
+    task.call();
+    List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+    diagnostics.getDiagnostics().stream()
+      .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+      .forEach(errors::add);
+    return errors;
+  }
+
+  private String readGeneratedSource(String qualifiedName) throws IOException {
+    return read(new File(generatedSources, qualifiedName.replace('.', File.separatorChar) + ".java"));
+  }
+
+  private List<String> readServices() throws IOException {
+    return Files.readAllLines(new File(classes, SERVICES_FILE).toPath(), StandardCharsets.UTF_8);
+  }
+
+  private String readReflectionConfig(String nativeImageDirectory) throws IOException {
+    return read(reflectionConfigFileOf(nativeImageDirectory));
+  }
+
+  private File reflectionConfigFileOf(String nativeImageDirectory) {
+    return new File(classes, ReflectionConfigWriter.reflectionConfigFileOf(nativeImageDirectory));
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  private static JavaFileObject source(String qualifiedName, String... lines) {
+    URI uri = URI.create("string:///" + qualifiedName.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+    String content = String.join("\n", lines);
+    return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return content;
+      }
+    };
+  }
+}
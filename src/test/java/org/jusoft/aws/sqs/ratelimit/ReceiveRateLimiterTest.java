@@ -0,0 +1,59 @@
+package org.jusoft.aws.sqs.ratelimit;
+
+import org.junit.Test;
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNLIMITED_MESSAGES_PER_SECOND;
+
+public class ReceiveRateLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void whenConsumerHasRateThenPermitsShouldBeLimitedByIt() throws NoSuchMethodException {
+    ReceiveRateLimiter receiveRateLimiter = new ReceiveRateLimiter(UNLIMITED_MESSAGES_PER_SECOND, clock::get);
+    QueueConsumer limitedConsumer = consumerOf(new LimitedConsumer());
+
+    assertThat(receiveRateLimiter.acquireUpTo(limitedConsumer, 10)).isEqualTo(5);
+    assertThat(receiveRateLimiter.acquireUpTo(limitedConsumer, 10)).isZero();
+    assertThat(receiveRateLimiter.nanosUntilAvailable(limitedConsumer)).isEqualTo(MILLISECONDS.toNanos(200));
+  }
+
+  @Test
+  public void whenServiceHasGlobalRateThenPermitsOfAllConsumersShouldBeLimitedByIt() throws NoSuchMethodException {
+    ReceiveRateLimiter receiveRateLimiter = new ReceiveRateLimiter(8, clock::get);
+    QueueConsumer limitedConsumer = consumerOf(new LimitedConsumer());
+    QueueConsumer unlimitedConsumer = consumerOf(new UnlimitedConsumer());
+
+    assertThat(receiveRateLimiter.acquireUpTo(unlimitedConsumer, 6)).isEqualTo(6);
+    assertThat(receiveRateLimiter.acquireUpTo(limitedConsumer, 10)).isEqualTo(2);
+
+    receiveRateLimiter.refund(unlimitedConsumer, 6);
+
+    assertThat(receiveRateLimiter.acquireUpTo(limitedConsumer, 10)).isEqualTo(3);
+  }
+
+  private QueueConsumer consumerOf(Object consumer) throws NoSuchMethodException {
+    return QueueConsumer.of(consumer, consumer.getClass().getMethod("testConsumer", List.class));
+  }
+
+  public static class LimitedConsumer {
+    @SqsConsumer(value = "limitedQueue", maxMessagesPerPoll = 10, maxMessagesPerSecond = 5)
+    public void testConsumer(List<String> messages) {
+
+    }
+  }
+
+  public static class UnlimitedConsumer {
+    @SqsConsumer(value = "unlimitedQueue", maxMessagesPerPoll = 10)
+    public void testConsumer(List<String> messages) {
+
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package org.jusoft.aws.sqs.ratelimit;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTest {
+
+  private static final double PERMITS_PER_SECOND = 10;
+  private static final double CAPACITY = 10;
+
+  private final AtomicLong clock = new AtomicLong();
+  private final TokenBucket tokenBucket = new TokenBucket(PERMITS_PER_SECOND, CAPACITY, clock::get);
+
+  @Test
+  public void whenBucketIsFullThenPermitsShouldBeGrantedUpToItsCapacity() {
+    assertThat(tokenBucket.tryAcquireUpTo(4)).isEqualTo(4);
+    assertThat(tokenBucket.tryAcquireUpTo(10)).isEqualTo(6);
+    assertThat(tokenBucket.tryAcquireUpTo(1)).isZero();
+  }
+
+  @Test
+  public void whenTimeElapsesThenBucketShouldBeRefilledAtItsRate() {
+    tokenBucket.tryAcquireUpTo(10);
+
+    advanceMillis(250);
+
+    assertThat(tokenBucket.tryAcquireUpTo(10)).isEqualTo(2);
+    assertThat(tokenBucket.nanosUntilAvailable()).isEqualTo(MILLISECONDS.toNanos(50));
+  }
+
+  @Test
+  public void whenBucketIsIdleThenTokensShouldNotExceedItsCapacity() {
+    advanceMillis(60_000);
+
+    assertThat(tokenBucket.getAvailableTokens()).isEqualTo(10);
+  }
+
+  @Test
+  public void whenPermitsAreRefundedThenTheyShouldBeAvailableAgainUpToCapacity() {
+    tokenBucket.tryAcquireUpTo(10);
+
+    tokenBucket.refund(3);
+
+    assertThat(tokenBucket.getAvailableTokens()).isEqualTo(3);
+
+    tokenBucket.refund(20);
+
+    assertThat(tokenBucket.getAvailableTokens()).isEqualTo(10);
+  }
+
+  @Test
+  public void whenBucketIsUnlimitedThenAllPermitsShouldBeGranted() {
+    TokenBucket unlimited = TokenBucket.unlimited();
+
+    assertThat(unlimited.tryAcquireUpTo(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+    assertThat(unlimited.nanosUntilAvailable()).isZero();
+  }
+
+  private void advanceMillis(long millis) {
+    clock.addAndGet(MILLISECONDS.toNanos(millis));
+  }
+}
@@ -0,0 +1,302 @@
+package org.jusoft.aws.sqs.service;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.AmazonSQSAsync;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.BatchResult;
+import org.jusoft.aws.sqs.ConsumerDefinition;
+import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.FanOut;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.backoff.CircuitBreaker;
+import org.jusoft.aws.sqs.backoff.NoBackoffPolicy;
+import org.jusoft.aws.sqs.backoff.PollBackoff;
+import org.jusoft.aws.sqs.delete.MessageDeleter;
+import org.jusoft.aws.sqs.visibility.VisibilityHeartbeat;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.annotation.DeletePolicy.AFTER_PROCESS;
+import static org.jusoft.aws.sqs.annotation.DeletePolicy.AFTER_READ;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.DELETE_MESSAGE_BATCH_REQUEST;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.EMPTY_RECEIVE_MESSAGE_RESULT;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_2;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_REQUEST;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_RESULT;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncQueuePollServiceTest {
+
+  private static final int FAILURE_VISIBILITY_TIMEOUT = 30;
+  private static final Executor DIRECT_EXECUTOR = Runnable::run;
+  private static final long LONG_BACKOFF_IN_MILLIS = 60_000;
+
+  @Mock
+  private AmazonSQSAsync amazonSQSAsync;
+  @Mock
+  private ReceiveMessageRequestFactory receiveMessageRequestFactory;
+  @Mock
+  private ConsumerInvokerService consumerInvokerService;
+  @Mock
+  private QueueConsumer queueConsumer;
+  @Mock
+  private SqsConsumer sqsConsumerAnnotation;
+  @Mock
+  private MessageDeleter messageDeleter;
+  @Mock
+  private VisibilityHeartbeat visibilityHeartbeat;
+
+  private PollBackoff pollBackoff;
+  private PollerHandle pollerHandle;
+  private AsyncQueuePollService asyncQueuePollService;
+
+  @Before
+  public void setUp() {
+    pollBackoff = PollBackoff.disabled();
+    pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    MessageConsumerService messageConsumerService = new MessageConsumerService(amazonSQSAsync, consumerInvokerService,
+      messageDeleter, visibilityHeartbeat, DIRECT_EXECUTOR);
+    asyncQueuePollService = new AsyncQueuePollService(amazonSQSAsync, receiveMessageRequestFactory,
+      messageConsumerService, queueConsumer -> pollBackoff);
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.value()).thenReturn(QUEUE_NAME);
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+  }
+
+  @After
+  public void tearDown() {
+    asyncQueuePollService.close();
+  }
+
+  @Test
+  public void whenMessagesAreReceivedThenConsumerShouldBeInvokedAndMessagesDeleted() throws InterruptedException {
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    givenReceivedOnceAndThenStopped(RECEIVE_MESSAGE_RESULT);
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT)).thenReturn(BatchResult.success());
+
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+    assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+    verify(consumerInvokerService).invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
+    verify(messageDeleter).delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT.getMessages());
+    assertThat(asyncQueuePollService.getInFlightMessages().getCompleted()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenCreatedWithTheConsumerInvokerServiceThenMessagesShouldBeDeletedThroughTheAsyncClient()
+    throws InterruptedException {
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    givenReceivedOnceAndThenStopped(RECEIVE_MESSAGE_RESULT);
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT)).thenReturn(BatchResult.success());
+
+    try (AsyncQueuePollService defaultPollService = new AsyncQueuePollService(amazonSQSAsync,
+      receiveMessageRequestFactory, consumerInvokerService)) {
+      defaultPollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+      assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+      verify(amazonSQSAsync).deleteMessageBatchAsync(eq(DELETE_MESSAGE_BATCH_REQUEST), any(AsyncHandler.class));
+      verify(amazonSQSAsync, never()).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+  }
+
+  @Test
+  public void whenMessagesAreProcessedThenTheirVisibilityShouldBeExtendedUntilTheyAreDeleted()
+    throws InterruptedException {
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    givenReceivedOnceAndThenStopped(RECEIVE_MESSAGE_RESULT);
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT)).thenReturn(BatchResult.success());
+
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+    assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+    InOrder inOrder = inOrder(visibilityHeartbeat, consumerInvokerService, messageDeleter);
+    inOrder.verify(visibilityHeartbeat).track(eq(QUEUE_URL), eq(RECEIVE_MESSAGE_RESULT.getMessages()), anyLong());
+    inOrder.verify(consumerInvokerService).invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
+    inOrder.verify(messageDeleter).delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT.getMessages());
+    inOrder.verify(visibilityHeartbeat).untrack(RECEIVE_MESSAGE_RESULT.getMessages());
+  }
+
+  @Test
+  public void whenConsumerFailsThenMessagesShouldNotBeDeletedAndLoopShouldContinue() throws InterruptedException {
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    givenReceivedOnceAndThenStopped(RECEIVE_MESSAGE_RESULT);
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT)).thenThrow(new IllegalArgumentException());
+
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+    assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+    verify(amazonSQSAsync, times(2)).receiveMessageAsync(eq(RECEIVE_MESSAGE_REQUEST), any());
+    verify(messageDeleter, never()).delete(any(), any());
+  }
+
+  @Test
+  public void whenConsumerReportsFailedMessagesThenSucceededShouldBeDeletedAndFailedReleased() throws InterruptedException {
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    when(sqsConsumerAnnotation.failureVisibilityTimeout()).thenReturn(FAILURE_VISIBILITY_TIMEOUT);
+    givenReceivedOnceAndThenStopped(RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES);
+    givenReleaseSucceeds();
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES))
+      .thenReturn(BatchResult.failed(1));
+
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+    assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+    verify(messageDeleter).delete(QUEUE_URL, singletonList(MESSAGE_1));
+    ArgumentCaptor<ChangeMessageVisibilityBatchRequest> releaseRequest =
+      ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+    verify(amazonSQSAsync).changeMessageVisibilityBatch(releaseRequest.capture());
+    assertThat(releaseRequest.getValue().getEntries()).containsExactly(
+      new ChangeMessageVisibilityBatchRequestEntry("0", MESSAGE_2.getReceiptHandle())
+        .withVisibilityTimeout(FAILURE_VISIBILITY_TIMEOUT));
+  }
+
+  @Test
+  public void whenServiceIsStoppedWhileReceivingThenMessagesShouldBeReleasedInsteadOfProcessed()
+    throws InterruptedException {
+    doAnswer(invocation -> {
+      asyncQueuePollService.stop();
+      return complete(RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES).answer(invocation);
+    }).when(amazonSQSAsync).receiveMessageAsync(eq(RECEIVE_MESSAGE_REQUEST), any());
+    givenReleaseSucceeds();
+
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+    assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+    ArgumentCaptor<ChangeMessageVisibilityBatchRequest> releaseRequest =
+      ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+    verify(amazonSQSAsync).changeMessageVisibilityBatch(releaseRequest.capture());
+    assertThat(releaseRequest.getValue().getEntries())
+      .extracting(ChangeMessageVisibilityBatchRequestEntry::getVisibilityTimeout)
+      .containsExactly(0, 0);
+    verify(consumerInvokerService, never()).invoke(any(), any());
+    assertThat(asyncQueuePollService.getInFlightMessages().getReleased()).isEqualTo(2);
+  }
+
+  @Test
+  public void whenDeletePolicyIsAfterReadThenMessagesShouldBeDeletedBeforeInvokingConsumer() throws InterruptedException {
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_READ);
+    givenReceivedOnceAndThenStopped(RECEIVE_MESSAGE_RESULT);
+
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+    assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+    InOrder inOrder = inOrder(messageDeleter, consumerInvokerService);
+    inOrder.verify(messageDeleter).delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT.getMessages());
+    inOrder.verify(consumerInvokerService).invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
+  }
+
+  @Test
+  public void whenReceiveFailsThenErrorShouldBeRegisteredInThePollBackoff() throws InterruptedException {
+    doAnswer(invocation -> {
+      invocation.<AsyncHandler<?, ?>>getArgument(1).onError(new IllegalStateException());
+      return null;
+    }).doAnswer(invocation -> {
+      pollerHandle.stop();
+      return complete(EMPTY_RECEIVE_MESSAGE_RESULT).answer(invocation);
+    }).when(amazonSQSAsync).receiveMessageAsync(eq(RECEIVE_MESSAGE_REQUEST), any());
+
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+    assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+    assertThat(pollBackoff.getTotalErrors()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenServiceIsClosedWhileBackingOffThenLoopShouldBeMarkedAsStopped() throws InterruptedException {
+    pollBackoff = new PollBackoff(new NoBackoffPolicy(), consecutiveErrors -> LONG_BACKOFF_IN_MILLIS,
+      CircuitBreaker.disabled());
+    CountDownLatch receiveFailed = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      invocation.<AsyncHandler<?, ?>>getArgument(1).onError(new IllegalStateException());
+      receiveFailed.countDown();
+      return null;
+    }).when(amazonSQSAsync).receiveMessageAsync(eq(RECEIVE_MESSAGE_REQUEST), any());
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+    assertThat(receiveFailed.await(5, SECONDS)).isTrue();
+
+    asyncQueuePollService.close();
+
+    assertThat(pollerHandle.isStopped()).isTrue();
+  }
+
+  @Test
+  public void whenFanOutIsEnabledThenOnlySucceededMessagesShouldBeDeleted() throws InterruptedException {
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    when(sqsConsumerAnnotation.fanOut()).thenReturn(FanOut.PARALLEL);
+    givenReceivedOnceAndThenStopped(RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES);
+    when(consumerInvokerService.invoke(queueConsumer, new ReceiveMessageResult().withMessages(MESSAGE_1)))
+      .thenThrow(new IllegalArgumentException());
+    when(consumerInvokerService.invoke(queueConsumer, new ReceiveMessageResult().withMessages(MESSAGE_2)))
+      .thenReturn(BatchResult.success());
+
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+    assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+    verify(messageDeleter).delete(QUEUE_URL, singletonList(MESSAGE_2));
+  }
+
+  @Test
+  public void whenServiceIsStoppedThenLoopShouldFinish() throws InterruptedException {
+    doAnswer(invocation -> {
+      asyncQueuePollService.stop();
+      return complete(EMPTY_RECEIVE_MESSAGE_RESULT).answer(invocation);
+    }).when(amazonSQSAsync).receiveMessageAsync(eq(RECEIVE_MESSAGE_REQUEST), any());
+
+    asyncQueuePollService.start(queueConsumer, pollerHandle, DIRECT_EXECUTOR);
+
+    assertThat(pollerHandle.awaitStopped(5, SECONDS)).isTrue();
+    verify(amazonSQSAsync).receiveMessageAsync(eq(RECEIVE_MESSAGE_REQUEST), any());
+    assertThat(asyncQueuePollService.getPollBackoffs()).containsEntry(QUEUE_NAME, pollBackoff);
+  }
+
+  private void givenReceivedOnceAndThenStopped(ReceiveMessageResult result) {
+    doAnswer(complete(result))
+      .doAnswer(invocation -> {
+        pollerHandle.stop();
+        return complete(EMPTY_RECEIVE_MESSAGE_RESULT).answer(invocation);
+      }).when(amazonSQSAsync).receiveMessageAsync(eq(RECEIVE_MESSAGE_REQUEST), any());
+  }
+
+  private void givenReleaseSucceeds() {
+    when(amazonSQSAsync.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+      .thenReturn(new ChangeMessageVisibilityBatchResult());
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Answer<Object> complete(Object result) {
+    return invocation -> {
+      ((AsyncHandler) invocation.getArgument(1)).onSuccess(invocation.getArgument(0), result);
+      return null;
+    };
+  }
+}
@@ -0,0 +1,99 @@
+package org.jusoft.aws.sqs.service;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+
+public class ConsumerHandleTest {
+
+  private final ConsumerHandle consumerHandle = ConsumerHandle.of(QUEUE_NAME);
+
+  @Test
+  public void whenConsumerIsPausedThenAllItsLoopsShouldBePausedUntilResumed() {
+    PollerHandle firstLoop = consumerHandle.addPoller(0);
+    PollerHandle secondLoop = consumerHandle.addPoller(1);
+
+    consumerHandle.pause();
+
+    assertThat(consumerHandle.getState()).isEqualTo(ConsumerHandle.State.PAUSED);
+    assertThat(firstLoop.isPaused()).isTrue();
+    assertThat(secondLoop.isPaused()).isTrue();
+
+    consumerHandle.resume();
+
+    assertThat(consumerHandle.getState()).isEqualTo(ConsumerHandle.State.RUNNING);
+    assertThat(firstLoop.isPaused()).isFalse();
+    assertThat(secondLoop.isPaused()).isFalse();
+  }
+
+  @Test
+  public void whenLoopIsAddedToPausedConsumerThenItShouldStartPaused() {
+    consumerHandle.addPoller(0);
+    consumerHandle.pause();
+
+    PollerHandle newLoop = consumerHandle.addPoller(1);
+
+    assertThat(newLoop.isPaused()).isTrue();
+  }
+
+  @Test
+  public void whenConsumerIsStoppedThenItShouldBeStoppingUntilAllItsLoopsHaveFinished() throws InterruptedException {
+    PollerHandle firstLoop = consumerHandle.addPoller(0);
+    PollerHandle secondLoop = consumerHandle.addPoller(1);
+
+    consumerHandle.stop();
+    firstLoop.markStopped();
+
+    assertThat(consumerHandle.getState()).isEqualTo(ConsumerHandle.State.STOPPING);
+    assertThat(consumerHandle.awaitStopped(10, MILLISECONDS)).isFalse();
+
+    secondLoop.markStopped();
+
+    assertThat(consumerHandle.getState()).isEqualTo(ConsumerHandle.State.STOPPED);
+    assertThat(consumerHandle.awaitStopped(10, MILLISECONDS)).isTrue();
+  }
+
+  @Test
+  public void whenActivePollersAreSetThenOnlyTheFirstPollersShouldReceiveMessages() {
+    PollerHandle firstPoller = consumerHandle.addPoller(0);
+    PollerHandle secondPoller = consumerHandle.addPoller(1);
+    PollerHandle worker = consumerHandle.addWorker(0);
+
+    consumerHandle.setActivePollers(1);
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(1);
+    assertThat(consumerHandle.getPollerHandles()).containsExactly(firstPoller, secondPoller);
+    assertThat(consumerHandle.getState()).isEqualTo(ConsumerHandle.State.RUNNING);
+    assertThat(firstPoller.isPaused()).isFalse();
+    assertThat(secondPoller.isPaused()).isTrue();
+    assertThat(worker.isPaused()).isFalse();
+
+    consumerHandle.setActivePollers(2);
+
+    assertThat(consumerHandle.getActivePollers()).isEqualTo(2);
+  }
+
+  @Test
+  public void whenConsumerIsResumedWithActivePollersThenWorkersAndOnlyTheFirstPollersShouldBeResumed() {
+    PollerHandle firstPoller = consumerHandle.addPoller(0);
+    PollerHandle secondPoller = consumerHandle.addPoller(1);
+    PollerHandle worker = consumerHandle.addWorker(0);
+    consumerHandle.pause();
+
+    consumerHandle.resume(1);
+
+    assertThat(consumerHandle.getState()).isEqualTo(ConsumerHandle.State.RUNNING);
+    assertThat(firstPoller.isPaused()).isFalse();
+    assertThat(secondPoller.isPaused()).isTrue();
+    assertThat(worker.isPaused()).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void whenMoreActivePollersThanPollersAreSetThenExceptionShouldBeThrown() {
+    consumerHandle.addPoller(0);
+
+    consumerHandle.setActivePollers(2);
+  }
+}
@@ -1,42 +1,89 @@
 package org.jusoft.aws.sqs.service;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.BatchResult;
 import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
 import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterExceptionMethodClass;
 import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterMethodClass;
+import org.jusoft.aws.sqs.fixture.TestFixtures.TestDto;
+import org.jusoft.aws.sqs.limit.AimdLimitAlgorithm;
+import org.jusoft.aws.sqs.limit.ConcurrencyLimiter;
+import org.jusoft.aws.sqs.limit.ConcurrencyLimiters;
 import org.jusoft.aws.sqs.mapper.ConsumerParametersMapper;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_DTO_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
 import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_RESULT;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ConsumerInvokeServiceTest {
 
+  private static final long LATENCY_THRESHOLD_IN_MILLIS = 60_000;
+
   @Mock
   private ConsumerParametersMapper consumerParametersMapper;
 
-  @InjectMocks
+  private ConcurrencyLimiters concurrencyLimiters;
   private ConsumerInvokerService consumerInvokerService;
 
+  @Before
+  public void setUp() {
+    concurrencyLimiters = new ConcurrencyLimiters(() ->
+      new ConcurrencyLimiter(new AimdLimitAlgorithm(LATENCY_THRESHOLD_IN_MILLIS), 1, 1, 10));
+    consumerInvokerService = new ConsumerInvokerService(consumerParametersMapper, concurrencyLimiters);
+  }
+
   @Test
   public void whenInvokeConsumerThenMethodShouldBeCalled() throws NoSuchMethodException {
     SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
     QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
     Object[] parameters = new Object[]{MESSAGE_DTO_1};
-    when(consumerParametersMapper.createFrom(queueConsumer.getConsumerMethod(), RECEIVE_MESSAGE_RESULT)).thenReturn(parameters);
+    when(consumerParametersMapper.createFrom(queueConsumer, RECEIVE_MESSAGE_RESULT)).thenReturn(parameters);
 
-    consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
+    BatchResult batchResult = consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
 
     assertThat(consumerInstance.testValue).isEqualTo(MESSAGE_DTO_1);
+    assertThat(batchResult).isEqualTo(BatchResult.success());
+  }
+
+  @Test
+  public void whenInvocationCompletesThenConcurrencyLimitShouldBeReleasedAndIncreased() throws NoSuchMethodException {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    when(consumerParametersMapper.createFrom(queueConsumer, RECEIVE_MESSAGE_RESULT))
+      .thenReturn(new Object[]{MESSAGE_DTO_1});
+
+    consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
+
+    ConcurrencyLimiter concurrencyLimiter = concurrencyLimiters.forQueue(QUEUE_NAME);
+    assertThat(concurrencyLimiter.getInFlight()).isZero();
+    assertThat(concurrencyLimiter.getLimit()).isEqualTo(2);
+    assertThat(consumerInvokerService.isSaturated(queueConsumer)).isFalse();
+  }
+
+  @Test
+  public void whenConsumerReturnsBatchResultThenItShouldBeReturned() throws NoSuchMethodException {
+    BatchResultMethodClass consumerInstance = new BatchResultMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance,
+      BatchResultMethodClass.class.getMethod("testConsumer", List.class));
+    Object[] parameters = new Object[]{singletonList(MESSAGE_DTO_1)};
+    when(consumerParametersMapper.createFrom(queueConsumer, RECEIVE_MESSAGE_RESULT)).thenReturn(parameters);
+
+    BatchResult batchResult = consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
+
+    assertThat(batchResult).isEqualTo(BatchResult.failed(0));
   }
 
   @Test
@@ -44,10 +91,51 @@ public class ConsumerInvokeServiceTest {
     SingleParameterExceptionMethodClass consumerInstance = new SingleParameterExceptionMethodClass();
     QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
     Object[] parameters = new Object[]{MESSAGE_DTO_1};
-    when(consumerParametersMapper.createFrom(queueConsumer.getConsumerMethod(), RECEIVE_MESSAGE_RESULT)).thenReturn(parameters);
+    when(consumerParametersMapper.createFrom(queueConsumer, RECEIVE_MESSAGE_RESULT)).thenReturn(parameters);
 
     assertThatThrownBy(() -> consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT))
       .isInstanceOf(IllegalArgumentException.class)
       .hasCauseInstanceOf(InvocationTargetException.class);
+    assertThat(concurrencyLimiters.forQueue(QUEUE_NAME).getInFlight()).isZero();
+  }
+
+  @Test
+  public void whenParametersCannotBeCreatedThenExceptionShouldBeThrownUnwrappedWithoutLimitingTheConsumer() throws NoSuchMethodException {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    IllegalArgumentException mappingException = new IllegalArgumentException("Invalid body");
+    when(consumerParametersMapper.createFrom(queueConsumer, RECEIVE_MESSAGE_RESULT)).thenThrow(mappingException);
+
+    assertThatThrownBy(() -> consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT))
+      .isSameAs(mappingException);
+    assertThat(consumerInstance.testValue).isNull();
+    assertThat(concurrencyLimiters.getLimiters()).doesNotContainKey(QUEUE_NAME);
+  }
+
+  @Test
+  public void whenConsumerThrowsErrorThenItShouldBeRethrownUnchanged() throws NoSuchMethodException {
+    ErrorMethodClass consumerInstance = new ErrorMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance,
+      ErrorMethodClass.class.getMethod("testConsumer", TestDto.class));
+    when(consumerParametersMapper.createFrom(queueConsumer, RECEIVE_MESSAGE_RESULT))
+      .thenReturn(new Object[]{MESSAGE_DTO_1});
+
+    assertThatThrownBy(() -> consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT))
+      .isInstanceOf(StackOverflowError.class);
+    assertThat(concurrencyLimiters.forQueue(QUEUE_NAME).getInFlight()).isZero();
+  }
+
+  public static class BatchResultMethodClass {
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = 10)
+    public BatchResult testConsumer(List<TestDto> messages) {
+      return BatchResult.failed(0);
+    }
+  }
+
+  public static class ErrorMethodClass {
+    @SqsConsumer(QUEUE_NAME)
+    public void testConsumer(TestDto message) {
+      throw new StackOverflowError();
+    }
   }
 }
@@ -0,0 +1,89 @@
+package org.jusoft.aws.sqs.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.ConsumerDefinition;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.service.FanOutExecutors.PerQueueFanOutExecutors;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FanOutExecutorsTest {
+
+  private static final String OTHER_QUEUE_NAME = "otherQueue";
+
+  @Mock
+  private SqsConsumer sqsConsumerAnnotation;
+
+  private PerQueueFanOutExecutors fanOutExecutors;
+
+  @Before
+  public void setUp() {
+    fanOutExecutors = (PerQueueFanOutExecutors) FanOutExecutors.perQueue();
+    when(sqsConsumerAnnotation.value()).thenReturn(QUEUE_NAME);
+    when(sqsConsumerAnnotation.concurrentConsumers()).thenReturn(2);
+  }
+
+  @After
+  public void tearDown() {
+    fanOutExecutors.shutdown();
+  }
+
+  @Test
+  public void whenParallelismIsUnboundedThenPoolShouldRunAllTheMessagesOfEveryLoopAtOnce() {
+    fanOutExecutors.forConsumer(ConsumerDefinition.of(sqsConsumerAnnotation));
+
+    assertThat(fanOutExecutors.getPoolSize(QUEUE_NAME)).isEqualTo(20);
+  }
+
+  @Test
+  public void whenParallelismIsBoundedThenPoolShouldRunThatNumberOfTasksPerLoop() {
+    when(sqsConsumerAnnotation.fanOutParallelism()).thenReturn(3);
+
+    fanOutExecutors.forConsumer(ConsumerDefinition.of(sqsConsumerAnnotation));
+
+    assertThat(fanOutExecutors.getPoolSize(QUEUE_NAME)).isEqualTo(6);
+  }
+
+  @Test
+  public void whenConsumerRunsInPipelineModeThenPoolShouldBeSizedFromTheWorkers() {
+    when(sqsConsumerAnnotation.workers()).thenReturn(4);
+    when(sqsConsumerAnnotation.fanOutParallelism()).thenReturn(1);
+
+    fanOutExecutors.forConsumer(ConsumerDefinition.of(sqsConsumerAnnotation));
+
+    assertThat(fanOutExecutors.getPoolSize(QUEUE_NAME)).isEqualTo(4);
+  }
+
+  @Test
+  public void whenConsumersReadFromDifferentQueuesThenEachQueueShouldGetItsOwnPool() {
+    Executor executor = fanOutExecutors.forConsumer(ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.value()).thenReturn(OTHER_QUEUE_NAME);
+
+    Executor otherExecutor = fanOutExecutors.forConsumer(ConsumerDefinition.of(sqsConsumerAnnotation));
+
+    assertThat(otherExecutor).isNotSameAs(executor);
+    assertThat(fanOutExecutors.forConsumer(ConsumerDefinition.of(sqsConsumerAnnotation))).isSameAs(otherExecutor);
+  }
+
+  @Test
+  public void whenShutdownThenPoolsShouldRejectNewTasks() {
+    Executor executor = fanOutExecutors.forConsumer(ConsumerDefinition.of(sqsConsumerAnnotation));
+
+    fanOutExecutors.shutdown();
+
+    assertThatThrownBy(() -> executor.execute(() -> {
+    })).isInstanceOf(RejectedExecutionException.class);
+  }
+}
@@ -1,26 +1,47 @@
 package org.jusoft.aws.sqs.service;
 
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.BatchResult;
+import org.jusoft.aws.sqs.ConsumerDefinition;
 import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.FanOut;
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.delete.MessageDeleter;
+import org.jusoft.aws.sqs.visibility.VisibilityHeartbeat;
 import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.jusoft.aws.sqs.annotation.DeletePolicy.AFTER_PROCESS;
 import static org.jusoft.aws.sqs.annotation.DeletePolicy.AFTER_READ;
-import static org.jusoft.aws.sqs.fixture.TestFixtures.DELETE_MESSAGE_BATCH_REQUEST;
-import static org.jusoft.aws.sqs.fixture.TestFixtures.DELETE_MESSAGE_BATCH_RESULT;
-import static org.jusoft.aws.sqs.fixture.TestFixtures.DELETE_MESSAGE_BATCH_WITH_ERROR_RESULT;
 import static org.jusoft.aws.sqs.fixture.TestFixtures.EMPTY_RECEIVE_MESSAGE_RESULT;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_1;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.MESSAGE_2;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
 import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_REQUEST;
 import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_RESULT;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -30,6 +51,8 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class MessageConsumerServiceTest {
 
+  private static final int FAILURE_VISIBILITY_TIMEOUT = 30;
+
   @Mock
   private SqsConsumer sqsConsumerAnnotation;
   @Mock
@@ -38,6 +61,10 @@ public class MessageConsumerServiceTest {
   private AmazonSQS amazonSQS;
   @Mock
   private ConsumerInvokerService consumerInvokerService;
+  @Mock
+  private MessageDeleter messageDeleter;
+  @Mock
+  private VisibilityHeartbeat visibilityHeartbeat;
 
   @InjectMocks
   private MessageConsumerService messageConsumerService;
@@ -49,27 +76,126 @@ public class MessageConsumerServiceTest {
     messageConsumerService.consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
 
     verify(amazonSQS, times(0)).deleteMessageBatch(any());
+    verify(messageDeleter, times(0)).delete(anyString(), any());
     verifyZeroInteractions(consumerInvokerService);
   }
 
   @Test
   public void whenDeletePolicyIsAfterReadThenMessagesShouldBeDeletedBeforeConsumingThem() {
     when(amazonSQS.receiveMessage(RECEIVE_MESSAGE_REQUEST)).thenReturn(RECEIVE_MESSAGE_RESULT);
-    when(queueConsumer.getAnnotation()).thenReturn(sqsConsumerAnnotation);
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
     when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_READ);
-    when(amazonSQS.deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST)).thenReturn(DELETE_MESSAGE_BATCH_RESULT);
 
     messageConsumerService.consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
 
-    InOrder inOrder = Mockito.inOrder(amazonSQS, consumerInvokerService);
-    inOrder.verify(amazonSQS).deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST);
+    InOrder inOrder = Mockito.inOrder(messageDeleter, consumerInvokerService);
+    inOrder.verify(messageDeleter).delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT.getMessages());
     inOrder.verify(consumerInvokerService).invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
+    verifyZeroInteractions(visibilityHeartbeat);
+  }
+
+  @Test
+  public void whenFanOutIsSequentialThenConsumerShouldBeInvokedOncePerMessageAndOnlySucceededDeleted() {
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.fanOut()).thenReturn(FanOut.SEQUENTIAL);
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    doThrow(new RuntimeException()).when(consumerInvokerService)
+      .invoke(queueConsumer, new ReceiveMessageResult().withMessages(MESSAGE_1));
+
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES);
+    messageConsumerService.processMessages(queueConsumer, receivedMessages);
+
+    InOrder inOrder = Mockito.inOrder(messageDeleter, consumerInvokerService, visibilityHeartbeat);
+    inOrder.verify(visibilityHeartbeat).track(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES.getMessages(),
+      receivedMessages.getReceivedAtInNanos());
+    inOrder.verify(consumerInvokerService).invoke(queueConsumer, new ReceiveMessageResult().withMessages(MESSAGE_1));
+    inOrder.verify(consumerInvokerService).invoke(queueConsumer, new ReceiveMessageResult().withMessages(MESSAGE_2));
+    inOrder.verify(messageDeleter).delete(QUEUE_URL, singletonList(MESSAGE_2));
+    inOrder.verify(visibilityHeartbeat).untrack(RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES.getMessages());
+  }
+
+  @Test
+  public void whenFanOutIsParallelThenEveryMessageShouldBeInvokedOnTheFanOutExecutor() {
+    List<Runnable> tasks = new ArrayList<>();
+    MessageConsumerService parallelService = new MessageConsumerService(amazonSQS, consumerInvokerService,
+      messageDeleter, visibilityHeartbeat, task -> {
+      tasks.add(task);
+      task.run();
+    });
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.fanOut()).thenReturn(FanOut.PARALLEL);
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+
+    parallelService.processMessages(queueConsumer, ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES));
+
+    assertThat(tasks).hasSize(2);
+    verify(consumerInvokerService).invoke(queueConsumer, new ReceiveMessageResult().withMessages(MESSAGE_1));
+    verify(consumerInvokerService).invoke(queueConsumer, new ReceiveMessageResult().withMessages(MESSAGE_2));
+    verify(messageDeleter).delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES.getMessages());
+  }
+
+  @Test
+  public void whenServiceIsClosedThenTheFanOutPoolsItCreatedShouldBeShutDown() {
+    FanOutExecutors fanOutExecutors = FanOutExecutors.perQueue();
+    MessageConsumerService parallelService = new MessageConsumerService(amazonSQS, consumerInvokerService,
+      messageDeleter, visibilityHeartbeat, fanOutExecutors);
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.value()).thenReturn(QUEUE_NAME);
+    when(sqsConsumerAnnotation.concurrentConsumers()).thenReturn(1);
+    when(sqsConsumerAnnotation.fanOut()).thenReturn(FanOut.PARALLEL);
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    parallelService.processMessages(queueConsumer,
+      ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES));
+    Executor fanOutExecutor = fanOutExecutors.forConsumer(queueConsumer.getDefinition());
+
+    parallelService.close();
+
+    verify(messageDeleter).delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES.getMessages());
+    assertThatThrownBy(() -> fanOutExecutor.execute(() -> {
+    })).isInstanceOf(RejectedExecutionException.class);
+  }
+
+  @Test
+  public void whenFanOutParallelismIsBoundedThenMessagesShouldBeSharedByThatNumberOfTasks() {
+    List<Runnable> tasks = new ArrayList<>();
+    MessageConsumerService parallelService = new MessageConsumerService(amazonSQS, consumerInvokerService,
+      messageDeleter, visibilityHeartbeat, task -> {
+      tasks.add(task);
+      task.run();
+    });
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.fanOut()).thenReturn(FanOut.PARALLEL);
+    when(sqsConsumerAnnotation.fanOutParallelism()).thenReturn(1);
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    doThrow(new RuntimeException()).when(consumerInvokerService)
+      .invoke(queueConsumer, new ReceiveMessageResult().withMessages(MESSAGE_2));
+
+    parallelService.processMessages(queueConsumer, ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES));
+
+    assertThat(tasks).hasSize(1);
+    verify(consumerInvokerService).invoke(queueConsumer, new ReceiveMessageResult().withMessages(MESSAGE_1));
+    verify(messageDeleter).delete(QUEUE_URL, singletonList(MESSAGE_1));
+  }
+
+  @Test
+  public void whenFanOutIsEnabledAndDeletePolicyIsAfterReadThenAllMessagesShouldBeDeletedBeforeInvokingConsumer() {
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.fanOut()).thenReturn(FanOut.SEQUENTIAL);
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_READ);
+
+    messageConsumerService.processMessages(queueConsumer,
+      ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES));
+
+    InOrder inOrder = Mockito.inOrder(messageDeleter, consumerInvokerService);
+    inOrder.verify(messageDeleter).delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES.getMessages());
+    inOrder.verify(consumerInvokerService, times(2)).invoke(eq(queueConsumer), any(ReceiveMessageResult.class));
+    verifyZeroInteractions(visibilityHeartbeat);
   }
 
   @Test
   public void whenDeletePolicyIsAfterProcessAndConsumerInvocationFailsThenMessagesShouldNotBeDeleted() {
     when(amazonSQS.receiveMessage(RECEIVE_MESSAGE_REQUEST)).thenReturn(RECEIVE_MESSAGE_RESULT);
-    when(queueConsumer.getAnnotation()).thenReturn(sqsConsumerAnnotation);
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
     when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
     RuntimeException exceptionThrown = new RuntimeException();
     doThrow(exceptionThrown).when(consumerInvokerService).invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
@@ -77,35 +203,125 @@ public class MessageConsumerServiceTest {
     assertThatThrownBy(() -> messageConsumerService.consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST))
       .isEqualTo(exceptionThrown);
 
-    verify(amazonSQS, times(0)).deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST);
+    verify(messageDeleter, times(0)).delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT.getMessages());
+    verify(visibilityHeartbeat).untrack(RECEIVE_MESSAGE_RESULT.getMessages());
   }
 
   @Test
   public void whenDeletePolicyIsAfterProcessThenMessagesShouldBeDeletedAfterConsumingThem() {
     when(amazonSQS.receiveMessage(RECEIVE_MESSAGE_REQUEST)).thenReturn(RECEIVE_MESSAGE_RESULT);
-    when(queueConsumer.getAnnotation()).thenReturn(sqsConsumerAnnotation);
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
     when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
-    when(amazonSQS.deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST)).thenReturn(DELETE_MESSAGE_BATCH_RESULT);
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT)).thenReturn(BatchResult.success());
 
     messageConsumerService.consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
 
-    InOrder inOrder = Mockito.inOrder(amazonSQS, consumerInvokerService);
+    InOrder inOrder = Mockito.inOrder(messageDeleter, consumerInvokerService, visibilityHeartbeat);
+    inOrder.verify(visibilityHeartbeat).track(eq(QUEUE_URL), eq(RECEIVE_MESSAGE_RESULT.getMessages()), anyLong());
     inOrder.verify(consumerInvokerService).invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
-    inOrder.verify(amazonSQS).deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST);
+    inOrder.verify(messageDeleter).delete(QUEUE_URL, RECEIVE_MESSAGE_RESULT.getMessages());
+    inOrder.verify(visibilityHeartbeat).untrack(RECEIVE_MESSAGE_RESULT.getMessages());
   }
 
   @Test
-  public void whenThereIsAnErrorWhileDeletingMessagesFromSqsThenFailedMessagesShouldBeLogged() {
-    when(amazonSQS.receiveMessage(RECEIVE_MESSAGE_REQUEST)).thenReturn(RECEIVE_MESSAGE_RESULT);
-    when(queueConsumer.getAnnotation()).thenReturn(sqsConsumerAnnotation);
+  public void whenConsumerReportsFailedMessagesThenOnlySucceededMessagesShouldBeDeletedAndFailedOnesReleased() {
+    when(amazonSQS.receiveMessage(RECEIVE_MESSAGE_REQUEST)).thenReturn(RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES);
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
     when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
-    when(amazonSQS.deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST)).thenReturn(DELETE_MESSAGE_BATCH_WITH_ERROR_RESULT);
+    when(sqsConsumerAnnotation.failureVisibilityTimeout()).thenReturn(FAILURE_VISIBILITY_TIMEOUT);
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES))
+      .thenReturn(BatchResult.failed(1));
+    when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+      .thenReturn(new ChangeMessageVisibilityBatchResult());
 
     messageConsumerService.consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
 
-    InOrder inOrder = Mockito.inOrder(amazonSQS, consumerInvokerService);
-    inOrder.verify(consumerInvokerService).invoke(queueConsumer, RECEIVE_MESSAGE_RESULT);
-    inOrder.verify(amazonSQS).deleteMessageBatch(DELETE_MESSAGE_BATCH_REQUEST);
-    //FIXME add a test appender to verify logs
+    verify(messageDeleter).delete(QUEUE_URL, singletonList(MESSAGE_1));
+    verify(visibilityHeartbeat).untrack(singletonList(MESSAGE_2));
+    verify(amazonSQS).changeMessageVisibilityBatch(new ChangeMessageVisibilityBatchRequest()
+      .withQueueUrl(QUEUE_URL)
+      .withEntries(new ChangeMessageVisibilityBatchRequestEntry("0", MESSAGE_2.getReceiptHandle())
+        .withVisibilityTimeout(FAILURE_VISIBILITY_TIMEOUT)));
+  }
+
+  @Test
+  public void whenConsumerReportsAllMessagesAsFailedThenNoMessageShouldBeDeleted() {
+    when(amazonSQS.receiveMessage(RECEIVE_MESSAGE_REQUEST)).thenReturn(RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES);
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES))
+      .thenReturn(BatchResult.failed(0, 1));
+    when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+      .thenThrow(new RuntimeException());
+
+    messageConsumerService.consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
+
+    verifyZeroInteractions(messageDeleter);
+    verify(amazonSQS).changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class));
+  }
+
+  @Test
+  public void whenReleasingUnprocessedMessagesThenTheyShouldBeMadeVisibleStraightAway() {
+    when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+      .thenReturn(new ChangeMessageVisibilityBatchResult());
+
+    messageConsumerService.release(ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES));
+
+    verify(amazonSQS).changeMessageVisibilityBatch(new ChangeMessageVisibilityBatchRequest()
+      .withQueueUrl(QUEUE_URL)
+      .withEntries(new ChangeMessageVisibilityBatchRequestEntry("0", MESSAGE_1.getReceiptHandle()).withVisibilityTimeout(0),
+        new ChangeMessageVisibilityBatchRequestEntry("1", MESSAGE_2.getReceiptHandle()).withVisibilityTimeout(0)));
+    verifyZeroInteractions(consumerInvokerService, messageDeleter);
+    assertThat(messageConsumerService.getInFlightMessages().getReleased()).isEqualTo(2);
+  }
+
+  @Test
+  public void whenConsumerFailsThenMessagesShouldBeCountedAsFailed() {
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES))
+      .thenThrow(new RuntimeException());
+
+    assertThatThrownBy(() -> messageConsumerService.processMessages(queueConsumer,
+      ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES)))
+      .isInstanceOf(RuntimeException.class);
+
+    assertThat(messageConsumerService.getInFlightMessages().getCompleted()).isZero();
+    assertThat(messageConsumerService.getInFlightMessages().getFailed()).isEqualTo(2);
+    assertThat(messageConsumerService.getInFlightMessages().getInFlight()).isZero();
+  }
+
+  @Test
+  public void whenConsumerReportsFailedMessagesThenOnlyTheyShouldBeCountedAsFailed() {
+    when(queueConsumer.getDefinition()).thenAnswer(invocation -> ConsumerDefinition.of(sqsConsumerAnnotation));
+    when(sqsConsumerAnnotation.deletePolicy()).thenReturn(AFTER_PROCESS);
+    when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+      .thenReturn(new ChangeMessageVisibilityBatchResult());
+    when(consumerInvokerService.invoke(queueConsumer, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES))
+      .thenReturn(BatchResult.failed(1));
+
+    messageConsumerService.processMessages(queueConsumer,
+      ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT_WITH_TWO_MESSAGES));
+
+    assertThat(messageConsumerService.getInFlightMessages().getCompleted()).isEqualTo(1);
+    assertThat(messageConsumerService.getInFlightMessages().getFailed()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenServiceIsClosedThenPendingDeletesShouldBeSentAndHeartbeatStopped() {
+    messageConsumerService.close();
+
+    verify(messageDeleter).close();
+    verify(visibilityHeartbeat).close();
+  }
+
+  @Test
+  public void whenReceiveMessagesThenMessagesShouldBeReturnedWithoutProcessingThem() {
+    when(amazonSQS.receiveMessage(RECEIVE_MESSAGE_REQUEST)).thenReturn(RECEIVE_MESSAGE_RESULT);
+
+    ReceivedMessages receivedMessages = messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST);
+
+    assertThat(receivedMessages).isEqualTo(ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT));
+    verifyZeroInteractions(consumerInvokerService, messageDeleter);
   }
 }
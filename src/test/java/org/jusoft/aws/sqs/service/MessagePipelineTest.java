@@ -0,0 +1,116 @@
+package org.jusoft.aws.sqs.service;
+
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNBOUNDED_BUFFER_SIZE;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNLIMITED_BUFFER_AGE;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
+
+public class MessagePipelineTest {
+
+  private static final int CAPACITY = 10;
+
+  private final AtomicLong elapsedNanos = new AtomicLong();
+
+  @Test
+  public void whenBufferReachesMaximumMessagesThenBatchesShouldNotBeAdded() throws InterruptedException {
+    MessagePipeline pipeline = pipelineOf(3, UNBOUNDED_BUFFER_SIZE, UNLIMITED_BUFFER_AGE);
+
+    assertThat(pipeline.offer(batchOf(2, "body"), 0, MILLISECONDS)).isTrue();
+    assertThat(pipeline.offer(batchOf(2, "body"), 0, MILLISECONDS)).isFalse();
+    assertThat(pipeline.offer(batchOf(1, "body"), 0, MILLISECONDS)).isTrue();
+    assertThat(pipeline.getBufferedMessages()).isEqualTo(3);
+  }
+
+  @Test
+  public void whenBufferReachesMaximumBytesThenBatchesShouldNotBeAddedUntilTaken() throws InterruptedException {
+    MessagePipeline pipeline = pipelineOf(UNBOUNDED_BUFFER_SIZE, 10, UNLIMITED_BUFFER_AGE);
+    ReceivedMessages first = batchOf(2, "1234");
+
+    assertThat(pipeline.offer(first, 0, MILLISECONDS)).isTrue();
+    assertThat(pipeline.offer(batchOf(1, "éé"), 0, MILLISECONDS)).isFalse();
+    assertThat(pipeline.getBufferedBytes()).isEqualTo(8);
+
+    assertThat(pipeline.poll(0, MILLISECONDS)).isSameAs(first);
+
+    assertThat(pipeline.offer(batchOf(1, "éé"), 0, MILLISECONDS)).isTrue();
+    assertThat(pipeline.getBufferedBytes()).isEqualTo(4);
+  }
+
+  @Test
+  public void whenBufferIsEmptyThenBatchLargerThanBoundsShouldBeAdded() throws InterruptedException {
+    MessagePipeline pipeline = pipelineOf(1, 1, UNLIMITED_BUFFER_AGE);
+
+    assertThat(pipeline.offer(batchOf(5, "large body"), 0, MILLISECONDS)).isTrue();
+    assertThat(pipeline.offer(batchOf(1, "a"), 0, MILLISECONDS)).isFalse();
+  }
+
+  @Test
+  public void whenBatchIsOlderThanMaximumAgeThenItShouldBeSkippedAndKeptToBeReleased() throws InterruptedException {
+    MessagePipeline pipeline = pipelineOf(UNBOUNDED_BUFFER_SIZE, UNBOUNDED_BUFFER_SIZE, SECONDS.toMillis(30));
+    ReceivedMessages receivedMessages = batchOf(1, "body");
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+    elapsedNanos.addAndGet(SECONDS.toNanos(31));
+
+    assertThat(pipeline.poll(0, MILLISECONDS)).isNull();
+    assertThat(pipeline.drainExpired()).containsExactly(receivedMessages);
+    assertThat(pipeline.drainExpired()).isEmpty();
+    assertThat(pipeline.getBufferedMessages()).isZero();
+  }
+
+  @Test
+  public void whenBatchIsYoungerThanMaximumAgeThenItShouldBeTaken() throws InterruptedException {
+    MessagePipeline pipeline = pipelineOf(UNBOUNDED_BUFFER_SIZE, UNBOUNDED_BUFFER_SIZE, SECONDS.toMillis(30));
+    ReceivedMessages receivedMessages = batchOf(1, "body");
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+    elapsedNanos.addAndGet(SECONDS.toNanos(29));
+
+    assertThat(pipeline.poll(0, MILLISECONDS)).isSameAs(receivedMessages);
+    assertThat(pipeline.drainExpired()).isEmpty();
+  }
+
+  @Test
+  public void whenBatchExpiresWithoutBeingTakenThenItShouldBeDrainedAsExpired() throws InterruptedException {
+    MessagePipeline pipeline = pipelineOf(UNBOUNDED_BUFFER_SIZE, UNBOUNDED_BUFFER_SIZE, SECONDS.toMillis(30));
+    ReceivedMessages receivedMessages = batchOf(1, "body");
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+    elapsedNanos.addAndGet(SECONDS.toNanos(31));
+
+    assertThat(pipeline.drainExpired()).containsExactly(receivedMessages);
+    assertThat(pipeline.size()).isZero();
+    assertThat(pipeline.getBufferedMessages()).isZero();
+  }
+
+  @Test
+  public void whenBufferIsFullOfExpiredBatchesThenOfferShouldMakeRoomForNewBatch() throws InterruptedException {
+    MessagePipeline pipeline = pipelineOf(1, UNBOUNDED_BUFFER_SIZE, SECONDS.toMillis(30));
+    ReceivedMessages expiredMessages = batchOf(1, "old");
+    pipeline.offer(expiredMessages, 0, MILLISECONDS);
+    elapsedNanos.addAndGet(SECONDS.toNanos(31));
+    ReceivedMessages newMessages = batchOf(1, "new");
+
+    assertThat(pipeline.offer(newMessages, 0, MILLISECONDS)).isTrue();
+    assertThat(pipeline.size()).isEqualTo(1);
+    assertThat(pipeline.drainExpired()).startsWith(expiredMessages);
+  }
+
+  private MessagePipeline pipelineOf(int maxMessages, long maxBytes, long maxAgeInMillis) {
+    return new MessagePipeline(CAPACITY, maxMessages, maxBytes, maxAgeInMillis,
+      () -> System.nanoTime() + elapsedNanos.get());
+  }
+
+  private ReceivedMessages batchOf(int size, String body) {
+    ReceiveMessageResult result = new ReceiveMessageResult();
+    for (int index = 0; index < size; index++) {
+      result.withMessages(new Message().withMessageId(String.valueOf(index)).withBody(body));
+    }
+    return ReceivedMessages.of(QUEUE_URL, result);
+  }
+}
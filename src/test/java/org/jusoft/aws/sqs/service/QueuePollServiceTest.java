@@ -1,16 +1,34 @@
 package org.jusoft.aws.sqs.service;
 
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.jusoft.aws.sqs.QueueConsumer;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.backoff.CircuitBreaker;
+import org.jusoft.aws.sqs.backoff.NoBackoffPolicy;
+import org.jusoft.aws.sqs.backoff.PollBackoff;
 import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterMethodClass;
-import org.mockito.InjectMocks;
+import org.jusoft.aws.sqs.fixture.TestFixtures.TestDto;
+import org.jusoft.aws.sqs.ratelimit.ReceiveRateLimiter;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.UNBOUNDED_BUFFER_SIZE;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.EMPTY_RECEIVE_MESSAGE_RESULT;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
 import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_REQUEST;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.RECEIVE_MESSAGE_RESULT;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,53 +41,388 @@ public class QueuePollServiceTest {
   @Mock
   private MessageConsumerService messageConsumerService;
 
-  @InjectMocks
+  private PollBackoff pollBackoff;
   private QueuePollService queuePollService;
 
+  @Before
+  public void setUp() {
+    pollBackoff = PollBackoff.disabled();
+    queuePollService = new QueuePollService(receiveMessageRequestFactory, messageConsumerService,
+      queueConsumer -> pollBackoff);
+  }
+
   @Test
   public void whenStartQueueConsumerThenMessageConsumerServiceShouldBeCalled() throws NoSuchMethodException {
     SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
     QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenReturn(receivedMessages);
     doAnswer(invocation -> {
       queuePollService.stop();
       return null;
-    }).when(messageConsumerService).consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
+    }).when(messageConsumerService).processMessages(queueConsumer, receivedMessages);
     when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
 
     queuePollService.start(queueConsumer);
 
-    verify(messageConsumerService).consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
+    verify(messageConsumerService).processMessages(queueConsumer, receivedMessages);
   }
 
   @Test
   public void whenStartQueueConsumerThenMessageConsumerServiceShouldBeCalledUntilClose() throws NoSuchMethodException {
     SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
     QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenReturn(receivedMessages);
     doAnswer(invocation -> invocation)
       .doAnswer(invocation -> {
         queuePollService.stop();
         return null;
-      }).when(messageConsumerService).consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
+      }).when(messageConsumerService).processMessages(queueConsumer, receivedMessages);
     when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
 
     queuePollService.start(queueConsumer);
 
-    verify(messageConsumerService, times(2)).consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
+    verify(messageConsumerService, times(2)).processMessages(queueConsumer, receivedMessages);
   }
 
   @Test
   public void whenConsumerFailsThenMessageConsumerShouldContinueUntilClose() throws NoSuchMethodException {
     SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
     QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenReturn(receivedMessages);
     doThrow(new RuntimeException())
       .doAnswer(invocation -> {
         queuePollService.stop();
         return null;
-      }).when(messageConsumerService).consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
+      }).when(messageConsumerService).processMessages(queueConsumer, receivedMessages);
     when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
 
     queuePollService.start(queueConsumer);
 
-    verify(messageConsumerService, times(2)).consumeAndDeleteMessages(queueConsumer, RECEIVE_MESSAGE_REQUEST);
+    verify(messageConsumerService, times(2)).processMessages(queueConsumer, receivedMessages);
+    assertThat(pollBackoff.getConsecutiveErrors()).isZero();
+  }
+
+  @Test
+  public void whenPollerHandleIsStoppedThenOnlyItsLoopShouldFinish() throws NoSuchMethodException {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenReturn(receivedMessages);
+    doAnswer(invocation -> {
+      pollerHandle.stop();
+      return null;
+    }).when(messageConsumerService).processMessages(queueConsumer, receivedMessages);
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+
+    queuePollService.start(queueConsumer, pollerHandle);
+
+    verify(messageConsumerService).processMessages(queueConsumer, receivedMessages);
+    assertThat(pollerHandle.isActive()).isFalse();
+    assertThat(pollerHandle.isStopped()).isTrue();
+  }
+
+  @Test
+  public void whenPollerHandleIsPausedThenMessagesShouldNotBeReceivedUntilItIsResumed() throws Exception {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    pollerHandle.pause();
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenAnswer(invocation -> {
+      pollerHandle.stop();
+      return ReceivedMessages.of(QUEUE_URL, EMPTY_RECEIVE_MESSAGE_RESULT);
+    });
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+    Thread resumer = new Thread(() -> {
+      try {
+        MILLISECONDS.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      pollerHandle.resume();
+    });
+    long start = System.nanoTime();
+    resumer.start();
+
+    queuePollService.start(queueConsumer, pollerHandle);
+
+    resumer.join();
+    assertThat(MILLISECONDS.convert(System.nanoTime() - start, NANOSECONDS)).isGreaterThanOrEqualTo(200);
+    verify(messageConsumerService).receiveMessages(RECEIVE_MESSAGE_REQUEST);
+    assertThat(pollerHandle.isStopped()).isTrue();
+  }
+
+  @Test
+  public void whenConsumerRateLeavesFewerPermitsThanMessagesPerPollThenBatchShouldShrinkToThem() throws Exception {
+    RateLimitedConsumer consumerInstance = new RateLimitedConsumer();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance,
+      RateLimitedConsumer.class.getMethod("testConsumer", List.class));
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    ReceiveMessageRequest request = new ReceiveMessageRequest(QUEUE_URL).withMaxNumberOfMessages(10);
+    ReceiveMessageRequest limitedRequest = new ReceiveMessageRequest(QUEUE_URL).withMaxNumberOfMessages(3);
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(request);
+    when(messageConsumerService.receiveMessages(limitedRequest)).thenAnswer(invocation -> {
+      pollerHandle.stop();
+      return ReceivedMessages.of(QUEUE_URL, EMPTY_RECEIVE_MESSAGE_RESULT);
+    });
+    queuePollService = new QueuePollService(receiveMessageRequestFactory, messageConsumerService,
+      consumer -> pollBackoff, new ReceiveRateLimiter());
+
+    queuePollService.start(queueConsumer, pollerHandle);
+
+    verify(messageConsumerService).receiveMessages(limitedRequest);
+    assertThat(request.getMaxNumberOfMessages()).isEqualTo(10);
+  }
+
+  @Test
+  public void whenConsumerIsSaturatedThenMessagesShouldNotBeReceivedUntilInvocationsComplete() throws Exception {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    when(messageConsumerService.isSaturated(queueConsumer)).thenReturn(true, true, false);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenAnswer(invocation -> {
+      pollerHandle.stop();
+      return ReceivedMessages.of(QUEUE_URL, EMPTY_RECEIVE_MESSAGE_RESULT);
+    });
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+
+    queuePollService.start(queueConsumer, pollerHandle);
+
+    verify(messageConsumerService, times(3)).isSaturated(queueConsumer);
+    verify(messageConsumerService).receiveMessages(RECEIVE_MESSAGE_REQUEST);
+  }
+
+  @Test
+  public void whenNoMessagesAreReceivedThenConsumerShouldNotBeCalledAndEmptyReceivesShouldBeCounted()
+    throws NoSuchMethodException {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    ReceivedMessages emptyMessages = ReceivedMessages.of(QUEUE_URL, EMPTY_RECEIVE_MESSAGE_RESULT);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST))
+      .thenReturn(emptyMessages)
+      .thenAnswer(invocation -> {
+        pollerHandle.stop();
+        return emptyMessages;
+      });
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+
+    queuePollService.start(queueConsumer, pollerHandle);
+
+    verify(messageConsumerService, never()).processMessages(queueConsumer, emptyMessages);
+    assertThat(queuePollService.getPollBackoffs().get(QUEUE_NAME).getConsecutiveEmptyReceives()).isEqualTo(2);
+  }
+
+  @Test
+  public void whenReceivingMessagesFailsThenErrorsShouldBeCountedAndCircuitOpened() throws NoSuchMethodException {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    pollBackoff = new PollBackoff(new NoBackoffPolicy(), new NoBackoffPolicy(), new CircuitBreaker(2, 60_000));
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST))
+      .thenThrow(new RuntimeException())
+      .thenAnswer(invocation -> {
+        pollerHandle.stop();
+        throw new RuntimeException();
+      });
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+
+    queuePollService.start(queueConsumer, pollerHandle);
+
+    assertThat(pollBackoff.getConsecutiveErrors()).isEqualTo(2);
+    assertThat(pollBackoff.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThat(pollerHandle.isStopped()).isTrue();
+  }
+
+  @Test
+  public void whenCircuitIsOpenThenMessagesShouldNotBeReceivedUntilItsOpenDurationElapses() throws NoSuchMethodException {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    pollBackoff = new PollBackoff(new NoBackoffPolicy(), new NoBackoffPolicy(), new CircuitBreaker(1, 200));
+    pollBackoff.onError();
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenAnswer(invocation -> {
+      pollerHandle.stop();
+      return receivedMessages;
+    });
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+    long start = System.nanoTime();
+
+    queuePollService.start(queueConsumer, pollerHandle);
+
+    assertThat(MILLISECONDS.convert(System.nanoTime() - start, NANOSECONDS)).isGreaterThanOrEqualTo(150);
+    verify(messageConsumerService).receiveMessages(RECEIVE_MESSAGE_REQUEST);
+    assertThat(pollBackoff.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(pollBackoff.getConsecutiveErrors()).isZero();
+  }
+
+  @Test
+  public void whenPipelinePollerReceivesMessagesThenTheyShouldBeHandedOffWithoutProcessingThem() throws Exception {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    MessagePipeline pipeline = MessagePipeline.of(1);
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    ReceivedMessages emptyMessages = ReceivedMessages.of(QUEUE_URL, EMPTY_RECEIVE_MESSAGE_RESULT);
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST))
+      .thenReturn(receivedMessages)
+      .thenAnswer(invocation -> {
+        pollerHandle.stop();
+        return emptyMessages;
+      });
+
+    queuePollService.startPoller(queueConsumer, pollerHandle, pipeline);
+
+    assertThat(pipeline.poll(0, MILLISECONDS)).isEqualTo(receivedMessages);
+    assertThat(pipeline.size()).isZero();
+    assertThat(pollerHandle.isStopped()).isTrue();
+    verify(messageConsumerService, never()).processMessages(queueConsumer, receivedMessages);
+  }
+
+  @Test
+  public void whenPipelineIsFullAndPollerIsStoppedThenPollerShouldFinish() throws Exception {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    MessagePipeline pipeline = MessagePipeline.of(1);
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenAnswer(invocation -> {
+      pollerHandle.stop();
+      return receivedMessages;
+    });
+
+    queuePollService.startPoller(queueConsumer, pollerHandle, pipeline);
+
+    assertThat(pipeline.size()).isEqualTo(1);
+    assertThat(pollerHandle.isStopped()).isTrue();
+    verify(messageConsumerService).release(receivedMessages);
+  }
+
+  @Test
+  public void whenLoopIsStoppedWhileReceivingThenMessagesShouldBeReleasedInsteadOfProcessed() throws NoSuchMethodException {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenAnswer(invocation -> {
+      queuePollService.stop();
+      return receivedMessages;
+    });
+
+    queuePollService.start(queueConsumer, pollerHandle);
+
+    verify(messageConsumerService).release(receivedMessages);
+    verify(messageConsumerService, never()).processMessages(queueConsumer, receivedMessages);
+    assertThat(pollerHandle.isStopped()).isTrue();
+  }
+
+  @Test
+  public void whenReleasingPendingMessagesThenPipelineShouldBeEmptied() throws Exception {
+    MessagePipeline pipeline = MessagePipeline.of(2);
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+
+    queuePollService.releasePending(pipeline);
+
+    verify(messageConsumerService, times(2)).release(receivedMessages);
+    assertThat(pipeline.size()).isZero();
+  }
+
+  @Test
+  public void whenPipelineWorkerTakesMessagesThenTheyShouldBeProcessed() throws Exception {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle workerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    MessagePipeline pipeline = MessagePipeline.of(1);
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+    doAnswer(invocation -> {
+      workerHandle.stop();
+      return null;
+    }).when(messageConsumerService).processMessages(queueConsumer, receivedMessages);
+
+    queuePollService.startWorker(queueConsumer, workerHandle, pipeline);
+
+    verify(messageConsumerService).processMessages(queueConsumer, receivedMessages);
+    assertThat(workerHandle.isStopped()).isTrue();
+  }
+
+  @Test
+  public void whenMessagesWaitedLongerThanPipelineMaximumAgeThenWorkerShouldReleaseThem() throws Exception {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle workerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    MessagePipeline pipeline = MessagePipeline.of(1, 1, 1, 1);
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+    MILLISECONDS.sleep(10);
+    doAnswer(invocation -> {
+      workerHandle.stop();
+      return null;
+    }).when(messageConsumerService).release(receivedMessages);
+
+    queuePollService.startWorker(queueConsumer, workerHandle, pipeline);
+
+    verify(messageConsumerService).release(receivedMessages);
+    verify(messageConsumerService, never()).processMessages(queueConsumer, receivedMessages);
+  }
+
+  @Test
+  public void whenAllWorkersAreBusyThenPollerShouldReleaseMessagesOlderThanPipelineMaximumAge() throws Exception {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle pollerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    MessagePipeline pipeline = MessagePipeline.of(1, UNBOUNDED_BUFFER_SIZE, UNBOUNDED_BUFFER_SIZE, 50);
+    ReceivedMessages expiredMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    pipeline.offer(expiredMessages, 0, MILLISECONDS);
+    MILLISECONDS.sleep(100);
+    ReceivedMessages emptyMessages = ReceivedMessages.of(QUEUE_URL, EMPTY_RECEIVE_MESSAGE_RESULT);
+    when(receiveMessageRequestFactory.createFrom(queueConsumer)).thenReturn(RECEIVE_MESSAGE_REQUEST);
+    when(messageConsumerService.receiveMessages(RECEIVE_MESSAGE_REQUEST)).thenAnswer(invocation -> {
+      pollerHandle.stop();
+      return emptyMessages;
+    });
+
+    queuePollService.startPoller(queueConsumer, pollerHandle, pipeline);
+
+    verify(messageConsumerService).release(expiredMessages);
+    assertThat(pipeline.size()).isZero();
+    assertThat(pipeline.drainExpired()).isEmpty();
+  }
+
+  @Test
+  public void whenPipelineWorkerFailsThenItShouldContinueUntilClose() throws Exception {
+    SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
+    QueueConsumer queueConsumer = QueueConsumer.of(consumerInstance, consumerInstance.getMethod());
+    PollerHandle workerHandle = PollerHandle.of(QUEUE_NAME, 0);
+    MessagePipeline pipeline = MessagePipeline.of(2);
+    ReceivedMessages receivedMessages = ReceivedMessages.of(QUEUE_URL, RECEIVE_MESSAGE_RESULT);
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+    pipeline.offer(receivedMessages, 0, MILLISECONDS);
+    doThrow(new RuntimeException())
+      .doAnswer(invocation -> {
+        queuePollService.stop();
+        return null;
+      }).when(messageConsumerService).processMessages(queueConsumer, receivedMessages);
+
+    queuePollService.startWorker(queueConsumer, workerHandle, pipeline);
+
+    verify(messageConsumerService, times(2)).processMessages(queueConsumer, receivedMessages);
+  }
+
+  public static class RateLimitedConsumer {
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = 10, maxMessagesPerSecond = 3)
+    public void testConsumer(List<TestDto> messages) {
+
+    }
   }
 }
@@ -8,6 +8,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.ExpectedSystemExit;
 import org.junit.runner.RunWith;
+import org.jusoft.aws.sqs.ConsumerDefinition;
 import org.jusoft.aws.sqs.QueueConsumer;
 import org.jusoft.aws.sqs.fixture.TestFixtures.SingleParameterMethodClass;
 import org.mockito.InjectMocks;
@@ -53,6 +54,22 @@ public class ReceiveMessageRequestFactoryTest {
     factory.createFrom(queueConsumer);
   }
 
+  @Test
+  public void whenDefinitionIsRetunedThenRequestShouldUseItsValuesWithoutModifyingTheCurrentOne() throws NoSuchMethodException {
+    QueueConsumer queueConsumer = getQueueConsumer();
+    when(amazonSQS.getQueueUrl(queueConsumer.getAnnotation().value())).thenReturn(new GetQueueUrlResult().withQueueUrl(QUEUE_URL));
+    ReceiveMessageRequest request = factory.createFrom(queueConsumer);
+    ConsumerDefinition definition = queueConsumer.getDefinition().withMaxMessagesPerPoll(5).withLongPolling(2);
+
+    ReceiveMessageRequest retunedRequest = ReceiveMessageRequestFactory.retune(request, definition);
+
+    assertThat(retunedRequest.getMaxNumberOfMessages()).isEqualTo(5);
+    assertThat(retunedRequest.getWaitTimeSeconds()).isEqualTo(2);
+    assertThat(retunedRequest.getQueueUrl()).isEqualTo(QUEUE_URL);
+    assertThat(request.getMaxNumberOfMessages()).isEqualTo(queueConsumer.getAnnotation().maxMessagesPerPoll());
+    assertThat(ReceiveMessageRequestFactory.retune(request, queueConsumer.getDefinition())).isSameAs(request);
+  }
+
   private QueueConsumer getQueueConsumer() throws NoSuchMethodException {
     SingleParameterMethodClass consumerInstance = new SingleParameterMethodClass();
     Method consumerMethod = consumerInstance.getMethod();
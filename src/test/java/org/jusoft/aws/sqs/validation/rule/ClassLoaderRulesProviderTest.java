@@ -9,9 +9,10 @@ import java.util.Set;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.assertj.core.api.Assertions.assertThat;
 
+@SuppressWarnings("deprecation")
 public class ClassLoaderRulesProviderTest {
 
-  private static final int CURRENT_DEFAULT_VALIDATION_RULES = 10;
+  private static final int CURRENT_DEFAULT_VALIDATION_RULES = 14;
 
   private ClassLoaderRulesProvider provider;
 
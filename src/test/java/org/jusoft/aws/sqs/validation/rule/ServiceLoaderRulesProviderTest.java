@@ -0,0 +1,56 @@
+package org.jusoft.aws.sqs.validation.rule;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ServiceLoaderRulesProviderTest {
+
+  private static final int CURRENT_DEFAULT_VALIDATION_RULES = 14;
+
+  private ServiceLoaderRulesProvider provider;
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void whenRulesAreRegisteredThenResultShouldContainAllDefaultValidationRules() {
+    provider = new ServiceLoaderRulesProvider();
+
+    Set<ValidationRule> validationRules = provider.find();
+
+    assertThat(validationRules).hasSize(CURRENT_DEFAULT_VALIDATION_RULES);
+    assertThat(validationRules).extracting("class")
+      .containsExactlyInAnyOrderElementsOf(new ClassLoaderRulesProvider().find().stream()
+        .map(Object::getClass)
+        .collect(toList()));
+  }
+
+  @Test
+  public void whenRulesAreFoundSeveralTimesThenSameInstancesShouldBeReturned() {
+    provider = new ServiceLoaderRulesProvider();
+
+    Set<ValidationRule> firstValidationRules = provider.find();
+    Set<ValidationRule> secondValidationRules = provider.find();
+
+    assertThat(secondValidationRules).isSameAs(firstValidationRules);
+  }
+
+  @Test
+  public void whenClassLoaderDoesNotSeeAnyRuleThenResultShouldNotContainAnyInstance() {
+    provider = new ServiceLoaderRulesProvider(new URLClassLoader(new URL[0], null));
+
+    Set<ValidationRule> validationRules = provider.find();
+
+    assertThat(validationRules).isEmpty();
+  }
+
+  @Test
+  public void whenProviderCreatedWithNullClassLoaderThenAnExceptionShouldBeThrown() {
+    assertThatThrownBy(() -> new ServiceLoaderRulesProvider(null)).isInstanceOf(NullPointerException.class);
+  }
+}
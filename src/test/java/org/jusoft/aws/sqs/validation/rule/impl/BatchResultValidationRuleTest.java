@@ -0,0 +1,107 @@
+package org.jusoft.aws.sqs.validation.rule.impl;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.junit.Test;
+import org.jusoft.aws.sqs.BatchResult;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
+
+import java.util.List;
+
+import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.MAX_VISIBILITY_TIMEOUT_IN_SECONDS;
+import static org.jusoft.aws.sqs.annotation.SqsConsumer.RELEASE_IMMEDIATELY;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.validation.rule.impl.BatchResultValidationRule.BATCH_RESULT_WITHOUT_BATCH_PARAMETER_ERROR;
+import static org.jusoft.aws.sqs.validation.rule.impl.BatchResultValidationRule.FAILURE_VISIBILITY_TIMEOUT_VALUE_ERROR;
+
+public class BatchResultValidationRuleTest extends AbstractValidationRuleTest {
+
+  private final BatchResultValidationRule rule = new BatchResultValidationRule();
+
+  @Test
+  public void whenConsumerDoesNotReturnBatchResultThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestZeroArguments()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenConsumerReturnsBatchResultWithListParameterThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestBatchResultWithList()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenConsumerReturnsBatchResultWithReceiveMessageResultParameterThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestBatchResultWithReceiveMessageResult()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenConsumerReturnsBatchResultWithSingleParameterThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestBatchResultWithSingleParameter()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(BATCH_RESULT_WITHOUT_BATCH_PARAMETER_ERROR, QUEUE_NAME));
+  }
+
+  @Test
+  public void whenFailureVisibilityTimeoutIsNegativeThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestNegativeFailureVisibilityTimeout()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(FAILURE_VISIBILITY_TIMEOUT_VALUE_ERROR,
+      RELEASE_IMMEDIATELY, MAX_VISIBILITY_TIMEOUT_IN_SECONDS, QUEUE_NAME));
+  }
+
+  @Test
+  public void whenFailureVisibilityTimeoutIsAboveTheMaximumThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestTooLongFailureVisibilityTimeout()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(FAILURE_VISIBILITY_TIMEOUT_VALUE_ERROR,
+      RELEASE_IMMEDIATELY, MAX_VISIBILITY_TIMEOUT_IN_SECONDS, QUEUE_NAME));
+  }
+
+  private static class TestBatchResultWithList {
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = 10, failureVisibilityTimeout = 30)
+    public BatchResult testConsumer(List<String> messages) {
+      return BatchResult.success();
+    }
+  }
+
+  private static class TestBatchResultWithReceiveMessageResult {
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = 10)
+    public BatchResult testConsumer(ReceiveMessageResult messages) {
+      return BatchResult.success();
+    }
+  }
+
+  private static class TestBatchResultWithSingleParameter {
+    @SqsConsumer(QUEUE_NAME)
+    public BatchResult testConsumer(String message) {
+      return BatchResult.success();
+    }
+  }
+
+  private static class TestNegativeFailureVisibilityTimeout {
+    @SqsConsumer(value = QUEUE_NAME, failureVisibilityTimeout = -1)
+    public void testConsumer() {
+
+    }
+  }
+
+  private static class TestTooLongFailureVisibilityTimeout {
+    @SqsConsumer(value = QUEUE_NAME, failureVisibilityTimeout = MAX_VISIBILITY_TIMEOUT_IN_SECONDS + 1)
+    public void testConsumer() {
+
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package org.jusoft.aws.sqs.validation.rule.impl;
+
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.junit.Test;
+import org.jusoft.aws.sqs.BatchResult;
+import org.jusoft.aws.sqs.annotation.SqsAttribute;
+import org.jusoft.aws.sqs.annotation.SqsBody;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
+
+import java.util.List;
+
+import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.annotation.FanOut.PARALLEL;
+import static org.jusoft.aws.sqs.annotation.FanOut.SEQUENTIAL;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.validation.rule.impl.FanOutValidationRule.FAN_OUT_WITH_BATCH_PARAMETER_ERROR;
+import static org.jusoft.aws.sqs.validation.rule.impl.FanOutValidationRule.FAN_OUT_WITH_BATCH_RESULT_ERROR;
+import static org.jusoft.aws.sqs.validation.rule.impl.FanOutValidationRule.MINIMUM_FAN_OUT_PARALLELISM_VALUE_ERROR;
+
+public class FanOutValidationRuleTest extends AbstractValidationRuleTest {
+
+  private final FanOutValidationRule rule = new FanOutValidationRule();
+
+  @Test
+  public void whenFanOutIsDisabledThenListParameterIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestListWithoutFanOut()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenFanOutIsEnabledWithSingleMessageParametersThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestBodyAndAttributeWithFanOut()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenFanOutIsEnabledWithListParameterThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestListWithFanOut()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenFanOutIsEnabledAndConsumerReturnsBatchResultThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestBatchResultWithFanOut()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(FAN_OUT_WITH_BATCH_RESULT_ERROR, QUEUE_NAME));
+  }
+
+  @Test
+  public void whenFanOutParallelismIsNegativeThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestNegativeFanOutParallelism()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(MINIMUM_FAN_OUT_PARALLELISM_VALUE_ERROR, QUEUE_NAME));
+  }
+
+  @Test
+  public void whenFanOutIsEnabledWithReceiveMessageResultParameterThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestReceiveMessageResultWithFanOut()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(FAN_OUT_WITH_BATCH_PARAMETER_ERROR, QUEUE_NAME));
+  }
+
+  private static class TestListWithoutFanOut {
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = 10)
+    public void testConsumer(List<String> messages) {
+
+    }
+  }
+
+  private static class TestBodyAndAttributeWithFanOut {
+    @SqsConsumer(value = QUEUE_NAME, fanOut = PARALLEL)
+    public void testConsumer(@SqsBody String message, @SqsAttribute("attribute") String attribute) {
+
+    }
+  }
+
+  private static class TestListWithFanOut {
+    @SqsConsumer(value = QUEUE_NAME, fanOut = PARALLEL, fanOutParallelism = 4)
+    public void testConsumer(List<String> messages) {
+
+    }
+  }
+
+  private static class TestBatchResultWithFanOut {
+    @SqsConsumer(value = QUEUE_NAME, fanOut = SEQUENTIAL)
+    public BatchResult testConsumer(List<String> messages) {
+      return BatchResult.success();
+    }
+  }
+
+  private static class TestNegativeFanOutParallelism {
+    @SqsConsumer(value = QUEUE_NAME, fanOut = PARALLEL, fanOutParallelism = -1)
+    public void testConsumer(String message) {
+
+    }
+  }
+
+  private static class TestReceiveMessageResultWithFanOut {
+    @SqsConsumer(value = QUEUE_NAME, fanOut = SEQUENTIAL)
+    public void testConsumer(ReceiveMessageResult result) {
+
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package org.jusoft.aws.sqs.validation.rule.impl;
+
+import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
+
+import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.validation.rule.impl.PipelineValidationRule.MINIMUM_BUFFER_CAPACITY_VALUE_ERROR;
+import static org.jusoft.aws.sqs.validation.rule.impl.PipelineValidationRule.MINIMUM_BUFFER_LIMITS_VALUE_ERROR;
+import static org.jusoft.aws.sqs.validation.rule.impl.PipelineValidationRule.MINIMUM_WORKERS_VALUE_ERROR;
+
+public class PipelineValidationRuleTest extends AbstractValidationRuleTest {
+
+  private final PipelineValidationRule rule = new PipelineValidationRule();
+
+  @Test
+  public void whenPipelineIsDisabledThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestZeroArguments()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenPipelineIsDisabledThenBufferCapacityIsNotValidated() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestNoWorkersZeroBufferCapacity()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenWorkersAndBufferCapacityAreValidThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestValidPipeline()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenWorkersIsNegativeThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestNegativeWorkers()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(MINIMUM_WORKERS_VALUE_ERROR, QUEUE_NAME));
+  }
+
+  @Test
+  public void whenBufferCapacityIsZeroWithWorkersThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestZeroBufferCapacity()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(MINIMUM_BUFFER_CAPACITY_VALUE_ERROR, QUEUE_NAME));
+  }
+
+  @Test
+  public void whenBufferLimitsAreNegativeWithWorkersThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestNegativeBufferMaxBytes()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(MINIMUM_BUFFER_LIMITS_VALUE_ERROR, QUEUE_NAME));
+  }
+
+  private static class TestNegativeBufferMaxBytes {
+    @SqsConsumer(value = QUEUE_NAME, workers = 1, bufferMaxMessages = 20, bufferMaxBytes = -1, bufferMaxAge = 60)
+    public void testConsumer() {
+
+    }
+  }
+
+  private static class TestNoWorkersZeroBufferCapacity {
+    @SqsConsumer(value = QUEUE_NAME, bufferCapacity = 0)
+    public void testConsumer() {
+
+    }
+  }
+
+  private static class TestValidPipeline {
+    @SqsConsumer(value = QUEUE_NAME, workers = 4, bufferCapacity = 2)
+    public void testConsumer() {
+
+    }
+  }
+
+  private static class TestNegativeWorkers {
+    @SqsConsumer(value = QUEUE_NAME, workers = -1)
+    public void testConsumer() {
+
+    }
+  }
+
+  private static class TestZeroBufferCapacity {
+    @SqsConsumer(value = QUEUE_NAME, workers = 1, bufferCapacity = 0)
+    public void testConsumer() {
+
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package org.jusoft.aws.sqs.validation.rule.impl;
 
 import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.FanOut;
 import org.jusoft.aws.sqs.annotation.SqsAttribute;
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
 import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
@@ -30,6 +31,14 @@ public class PollMaxMessagesWithAttributesValidationRuleTest extends AbstractVal
     assertThat(result.getErrorMessage()).isEqualTo(String.format(MESSAGES_WITH_MULTIPLE_PARAMETERS_ERROR, QUEUE_NAME));
   }
 
+  @Test
+  public void whenThereAreSqsAttributeAnnotationsOnParametersAndFanOutIsEnabledThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestConsumerWithAttributesAndFanOut()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
   private static class TestConsumerWithAttributesValid {
 
     @SqsConsumer(value = QUEUE_NAME)
@@ -45,4 +54,12 @@ public class PollMaxMessagesWithAttributesValidationRuleTest extends AbstractVal
 
     }
   }
+
+  private static class TestConsumerWithAttributesAndFanOut {
+
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = 2, fanOut = FanOut.SEQUENTIAL)
+    public void testConsumer(@SqsAttribute("attribute") Object attribute) {
+
+    }
+  }
 }
@@ -1,6 +1,7 @@
 package org.jusoft.aws.sqs.validation.rule.impl;
 
 import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.FanOut;
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
 import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
 
@@ -45,6 +46,14 @@ public class PollMaxMessagesWithSingleParameterValidationRuleTest extends Abstra
       String.format(MAXIMUM_NUMBER_OF_MESSAGES_PER_POLL_ERROR, MAX_MESSAGES_PER_POLL_ALLOWED, QUEUE_NAME));
   }
 
+  @Test
+  public void whenFanOutConsumerWithNotListArgumentThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestNotListParameterWithFanOut()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
   @Test
   public void whenListConsumerWithNotListArgumentThenResultIsInvalid() {
     ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestListParameterInvalid()));
@@ -78,6 +87,14 @@ public class PollMaxMessagesWithSingleParameterValidationRuleTest extends Abstra
     }
   }
 
+  private static class TestNotListParameterWithFanOut {
+
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = MAX_MESSAGES_PER_POLL_ALLOWED, fanOut = FanOut.PARALLEL)
+    public void testConsumer(Object object) {
+
+    }
+  }
+
   private static class TestListParameterInvalid {
 
     @SqsConsumer(value = QUEUE_NAME, maxMessagesPerPoll = MAX_MESSAGES_PER_POLL_ALLOWED)
@@ -0,0 +1,60 @@
+package org.jusoft.aws.sqs.validation.rule.impl;
+
+import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.SqsConsumer;
+import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
+
+import static org.apache.commons.lang3.StringUtils.EMPTY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_NAME;
+import static org.jusoft.aws.sqs.validation.rule.impl.RateLimitValidationRule.MINIMUM_MESSAGES_PER_SECOND_VALUE_ERROR;
+
+public class RateLimitValidationRuleTest extends AbstractValidationRuleTest {
+
+  private final RateLimitValidationRule rule = new RateLimitValidationRule();
+
+  @Test
+  public void whenRateIsUnlimitedThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestUnlimitedRate()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenRateIsPositiveThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestPositiveRate()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
+  @Test
+  public void whenRateIsNegativeThenResultIsInvalid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestNegativeRate()));
+
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.getErrorMessage()).isEqualTo(String.format(MINIMUM_MESSAGES_PER_SECOND_VALUE_ERROR, QUEUE_NAME));
+  }
+
+  private static class TestUnlimitedRate {
+    @SqsConsumer(QUEUE_NAME)
+    public void testConsumer(String message) {
+
+    }
+  }
+
+  private static class TestPositiveRate {
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerSecond = 0.5)
+    public void testConsumer(String message) {
+
+    }
+  }
+
+  private static class TestNegativeRate {
+    @SqsConsumer(value = QUEUE_NAME, maxMessagesPerSecond = -1)
+    public void testConsumer(String message) {
+
+    }
+  }
+}
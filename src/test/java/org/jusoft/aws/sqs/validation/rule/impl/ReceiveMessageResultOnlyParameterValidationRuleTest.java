@@ -2,6 +2,7 @@ package org.jusoft.aws.sqs.validation.rule.impl;
 
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import org.junit.Test;
+import org.jusoft.aws.sqs.annotation.SqsAttribute;
 import org.jusoft.aws.sqs.annotation.SqsConsumer;
 import org.jusoft.aws.sqs.validation.rule.ConsumerValidationResult;
 
@@ -30,6 +31,14 @@ public class ReceiveMessageResultOnlyParameterValidationRuleTest extends Abstrac
     assertThat(result.getErrorMessage()).isEqualTo(String.format(RECEIVE_MESSAGE_RESULT_NOT_THE_ONLY_PARAMETER_ERROR, QUEUE_NAME));
   }
 
+  @Test
+  public void whenReceiveMessageResultIsNotAParameterThenResultIsValid() {
+    ConsumerValidationResult result = rule.validate(getConsumerFrom(new TestNoReceiveMessageResultParameterValid()));
+
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getErrorMessage()).isEqualTo(EMPTY);
+  }
+
   private static class TestReceiveMessageResultParameterValid {
 
     @SqsConsumer(QUEUE_NAME)
@@ -45,4 +54,12 @@ public class ReceiveMessageResultOnlyParameterValidationRuleTest extends Abstrac
 
     }
   }
+
+  private static class TestNoReceiveMessageResultParameterValid {
+
+    @SqsConsumer(QUEUE_NAME)
+    public void testConsumer(Object body, @SqsAttribute(QUEUE_NAME) String attribute) {
+
+    }
+  }
 }
@@ -0,0 +1,272 @@
+package org.jusoft.aws.sqs.visibility;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.Message;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jusoft.aws.sqs.fixture.TestFixtures.QUEUE_URL;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduledVisibilityHeartbeatTest {
+
+  private static final String VISIBILITY_TIMEOUT = "VisibilityTimeout";
+  private static final int QUEUE_VISIBILITY_TIMEOUT_IN_SECONDS = 30;
+  private static final long MAX_EXTENSION_IN_SECONDS = 60;
+
+  @Mock
+  private AmazonSQS amazonSQS;
+
+  private final AtomicLong clock = new AtomicLong();
+  private ScheduledVisibilityHeartbeat visibilityHeartbeat;
+
+  @Before
+  public void setUp() {
+    when(amazonSQS.getQueueAttributes(QUEUE_URL, singletonList(VISIBILITY_TIMEOUT))).thenReturn(new GetQueueAttributesResult()
+      .addAttributesEntry(VISIBILITY_TIMEOUT, String.valueOf(QUEUE_VISIBILITY_TIMEOUT_IN_SECONDS)));
+    visibilityHeartbeat = new ScheduledVisibilityHeartbeat(amazonSQS, MAX_EXTENSION_IN_SECONDS, HOURS.toMillis(1),
+      clock::get);
+  }
+
+  @After
+  public void tearDown() {
+    visibilityHeartbeat.close();
+  }
+
+  @Test
+  public void whenMessageHasNotConsumedHalfOfItsVisibilityTimeoutThenItShouldNotBeExtended() {
+    visibilityHeartbeat.track(QUEUE_URL, messages(1));
+    advanceSeconds(10);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    verify(amazonSQS, never()).changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class));
+  }
+
+  @Test
+  public void whenMessageHasConsumedHalfOfItsVisibilityTimeoutThenItShouldBeExtendedByTheQueueVisibilityTimeout() {
+    givenAllVisibilityChangesSucceed();
+    visibilityHeartbeat.track(QUEUE_URL, messages(1));
+    advanceSeconds(15);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    ChangeMessageVisibilityBatchRequestEntry entry = captureRequests(1).get(0).getEntries().get(0);
+    assertThat(entry.getReceiptHandle()).isEqualTo("receiptHandle0");
+    assertThat(entry.getVisibilityTimeout()).isEqualTo(QUEUE_VISIBILITY_TIMEOUT_IN_SECONDS);
+  }
+
+  @Test
+  public void whenMessageIsTrackedAfterHalfOfItsVisibilityTimeoutSinceReceivedThenItShouldBeExtendedAtOnce() {
+    givenAllVisibilityChangesSucceed();
+    long receivedAt = clock.get();
+    advanceSeconds(20);
+    visibilityHeartbeat.track(QUEUE_URL, messages(1), receivedAt);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    ChangeMessageVisibilityBatchRequestEntry entry = captureRequests(1).get(0).getEntries().get(0);
+    assertThat(entry.getReceiptHandle()).isEqualTo("receiptHandle0");
+  }
+
+  @Test
+  public void whenMessageIsTrackedBeforeHalfOfItsVisibilityTimeoutSinceReceivedThenItShouldBeDueWhenHalfIsConsumed() {
+    givenAllVisibilityChangesSucceed();
+    long receivedAt = clock.get();
+    advanceSeconds(10);
+    visibilityHeartbeat.track(QUEUE_URL, messages(1), receivedAt);
+    visibilityHeartbeat.extendDueMessages();
+    verify(amazonSQS, never()).changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class));
+    advanceSeconds(5);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    captureRequests(1);
+  }
+
+  @Test
+  public void whenMessageIsExtendedThenItShouldNotBeExtendedAgainUntilHalfOfTheNewTimeoutIsConsumed() {
+    givenAllVisibilityChangesSucceed();
+    visibilityHeartbeat.track(QUEUE_URL, messages(1));
+    advanceSeconds(15);
+    visibilityHeartbeat.extendDueMessages();
+    advanceSeconds(10);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    captureRequests(1);
+  }
+
+  @Test
+  public void whenMessageIsUntrackedThenItShouldNotBeExtended() {
+    List<Message> messages = messages(1);
+    visibilityHeartbeat.track(QUEUE_URL, messages);
+    visibilityHeartbeat.untrack(messages);
+    advanceSeconds(15);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    verify(amazonSQS, never()).changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class));
+    assertThat(visibilityHeartbeat.getTrackedMessages()).isZero();
+  }
+
+  @Test
+  public void whenManyMessagesAreDueThenTheyShouldBeExtendedInBatchesOfTen() {
+    givenAllVisibilityChangesSucceed();
+    visibilityHeartbeat.track(QUEUE_URL, messages(25));
+    advanceSeconds(15);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    assertThat(captureRequests(3))
+      .extracting(request -> request.getEntries().size())
+      .containsExactlyInAnyOrder(10, 10, 5);
+  }
+
+  @Test
+  public void whenMaximumExtensionIsReachedThenMessageShouldNoLongerBeTracked() {
+    givenAllVisibilityChangesSucceed();
+    visibilityHeartbeat.track(QUEUE_URL, messages(1));
+    advanceSeconds(15);
+    visibilityHeartbeat.extendDueMessages();
+    advanceSeconds(20);
+    visibilityHeartbeat.extendDueMessages();
+    advanceSeconds(25);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    assertThat(captureRequests(2).get(1).getEntries().get(0).getVisibilityTimeout()).isEqualTo(25);
+    assertThat(visibilityHeartbeat.getTrackedMessages()).isZero();
+  }
+
+  @Test
+  public void whenVisibilityChangeIsRejectedBecauseOfTheRequestThenMessageShouldNoLongerBeTracked() {
+    when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+      .thenReturn(new ChangeMessageVisibilityBatchResult()
+        .withFailed(new BatchResultErrorEntry().withId("0").withSenderFault(true)));
+    visibilityHeartbeat.track(QUEUE_URL, messages(1));
+    advanceSeconds(15);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    assertThat(visibilityHeartbeat.getTrackedMessages()).isZero();
+  }
+
+  @Test
+  public void whenVisibilityChangeFailsThenMessageShouldBeExtendedOnTheNextTick() {
+    when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+      .thenThrow(new RuntimeException())
+      .thenReturn(new ChangeMessageVisibilityBatchResult());
+    visibilityHeartbeat.track(QUEUE_URL, messages(1));
+    advanceSeconds(15);
+    visibilityHeartbeat.extendDueMessages();
+
+    visibilityHeartbeat.extendDueMessages();
+
+    captureRequests(2);
+    assertThat(visibilityHeartbeat.getTrackedMessages()).isEqualTo(1);
+  }
+
+  @Test
+  public void whenMessageIsUntrackedWhileItsExtensionIsSentThenUntrackShouldWaitForIt() throws Exception {
+    CountDownLatch sending = new CountDownLatch(1);
+    CountDownLatch sent = new CountDownLatch(1);
+    when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class))).thenAnswer(invocation -> {
+      sending.countDown();
+      sent.await();
+      return new ChangeMessageVisibilityBatchResult();
+    });
+    List<Message> messages = messages(1);
+    visibilityHeartbeat.track(QUEUE_URL, messages);
+    advanceSeconds(15);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      executor.submit(visibilityHeartbeat::extendDueMessages);
+      assertThat(sending.await(5, SECONDS)).isTrue();
+
+      Future<?> untrack = executor.submit(() -> visibilityHeartbeat.untrack(messages));
+
+      assertThatThrownBy(() -> untrack.get(100, MILLISECONDS)).isInstanceOf(TimeoutException.class);
+      sent.countDown();
+      untrack.get(5, SECONDS);
+      assertThat(visibilityHeartbeat.getTrackedMessages()).isZero();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void whenMessageIsUntrackedBeforeItsBatchIsSentThenItShouldBeLeftOutOfTheExtension() {
+    List<Message> messages = messages(11);
+    when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class))).thenAnswer(invocation -> {
+      List<String> sentReceiptHandles = invocation.<ChangeMessageVisibilityBatchRequest>getArgument(0).getEntries()
+        .stream()
+        .map(ChangeMessageVisibilityBatchRequestEntry::getReceiptHandle)
+        .collect(toList());
+      visibilityHeartbeat.untrack(messages.stream()
+        .filter(message -> !sentReceiptHandles.contains(message.getReceiptHandle()))
+        .collect(toList()));
+      return new ChangeMessageVisibilityBatchResult();
+    });
+    visibilityHeartbeat.track(QUEUE_URL, messages);
+    advanceSeconds(15);
+
+    visibilityHeartbeat.extendDueMessages();
+
+    assertThat(captureRequests(1).get(0).getEntries()).hasSize(10);
+    assertThat(visibilityHeartbeat.getTrackedMessages()).isEqualTo(10);
+  }
+
+  private void advanceSeconds(long seconds) {
+    clock.addAndGet(SECONDS.toNanos(seconds));
+  }
+
+  private void givenAllVisibilityChangesSucceed() {
+    when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class)))
+      .thenReturn(new ChangeMessageVisibilityBatchResult());
+  }
+
+  private List<ChangeMessageVisibilityBatchRequest> captureRequests(int expectedRequests) {
+    ArgumentCaptor<ChangeMessageVisibilityBatchRequest> requestCaptor =
+      ArgumentCaptor.forClass(ChangeMessageVisibilityBatchRequest.class);
+    verify(amazonSQS, times(expectedRequests)).changeMessageVisibilityBatch(requestCaptor.capture());
+    return requestCaptor.getAllValues();
+  }
+
+  private static List<Message> messages(int size) {
+    return IntStream.range(0, size)
+      .mapToObj(index -> new Message().withMessageId("messageId" + index).withReceiptHandle("receiptHandle" + index))
+      .collect(toList());
+  }
+}